@@ -20,6 +20,7 @@ import java.util.stream.Collectors;
 import org.eclipse.emf.common.util.URI;
 import org.eclipse.emf.ecore.resource.Resource;
 import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.xtext.resource.IResourceFactory;
 import org.eclipse.xtext.util.CancelIndicator;
 import org.eclipse.xtext.validation.CheckMode;
 import org.eclipse.xtext.validation.IResourceValidator;
@@ -91,6 +92,9 @@ public abstract class CliBase implements Runnable {
   /** Injected resource provider. */
   @Inject private Provider<ResourceSet> resourceSetProvider;
 
+  /** Injected factory of LF resources. */
+  @Inject private IResourceFactory resourceFactory;
+
   /** Injected resource validator. */
   @Inject private IResourceValidator validator;
 
@@ -295,10 +299,24 @@ public abstract class CliBase implements Runnable {
    * @param resource The resource to validate.
    */
   public void validateResource(Resource resource) {
+    validate(validator, resource, reporter).forEach(issueCollector::accept);
+  }
+
+  /**
+   * Validate a given resource with the given validator and return the issues that arise, without
+   * recording them.
+   *
+   * @param validator The validator to use.
+   * @param resource The resource to validate.
+   * @param reporter The backend to report paths to that cannot be resolved.
+   */
+  protected static List<LfIssue> validate(
+      IResourceValidator validator, Resource resource, ReportingBackend reporter) {
     assert resource != null;
 
-    List<Issue> issues = this.validator.validate(resource, CheckMode.ALL, CancelIndicator.NullImpl);
+    List<Issue> issues = validator.validate(resource, CheckMode.ALL, CancelIndicator.NullImpl);
 
+    List<LfIssue> lfIssues = new ArrayList<>();
     for (Issue issue : issues) {
       // Issues may also relate to imported resources.
       URI uri = issue.getUriToProblem();
@@ -310,7 +328,7 @@ public abstract class CliBase implements Runnable {
           reporter.printError("Unable to convert '" + uri + "' to path. " + e);
         }
       }
-      issueCollector.accept(
+      lfIssues.add(
           new LfIssue(
               issue.getMessage(),
               issue.getSeverity(),
@@ -321,6 +339,7 @@ public abstract class CliBase implements Runnable {
               issue.getColumnEnd(),
               issue.getLength()));
     }
+    return lfIssues;
   }
 
   /**
@@ -331,6 +350,9 @@ public abstract class CliBase implements Runnable {
    */
   public Resource getResource(Path path) {
     final ResourceSet set = this.resourceSetProvider.get();
+    // Create LF resources with the services of this instance's injector, whichever injector was
+    // registered globally last.
+    set.getResourceFactoryRegistry().getExtensionToFactoryMap().put("lf", resourceFactory);
     try {
       return set.getResource(URI.createFileURI(path.toString()), true);
     } catch (RuntimeException e) {
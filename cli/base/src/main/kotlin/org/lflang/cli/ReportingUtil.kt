@@ -192,6 +192,9 @@ class IssueCollector {
 
     /** Sorted list of all issues. */
     val allIssues: List<LfIssue> get() = map.values.flatten().sorted()
+
+    /** Forget all issues collected so far. */
+    fun clear() = map.clear()
 }
 
 
@@ -240,6 +243,15 @@ class ReportingBackend(
         }
 
 
+    /**
+     * Forget the cached file contents and whether errors occurred,
+     * so that this backend can be reused for another run.
+     */
+    fun reset() {
+        fileCache.clear()
+        errorsOccurred = false
+    }
+
     /** Print a fatal error message to [Io.err] and exit with code 1. */
     @JvmOverloads
     fun printFatalErrorAndExit(message: String, cause: Throwable? = null): Nothing {
@@ -0,0 +1,182 @@
+package org.lflang.cli;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.stream.Stream;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.lflang.util.FileUtil;
+
+/**
+ * Remembers which Lingua Franca files were compiled successfully, together with a digest of each
+ * input of the build and the outputs it produced. A file whose inputs are unchanged since it was
+ * last compiled with the same command-line arguments, and whose outputs still exist, need not be
+ * compiled again.
+ *
+ * <p>The inputs of a build are all the files in the {@code src} directory that contains the
+ * compiled file, which includes hand-written sources that the program refers to, and the LF files
+ * and the files named in target properties such as {@code files} that are outside of it. The
+ * digests are taken when the build starts, or, for the files that are only known once the program
+ * is loaded, before the code is generated. An edit made during a build therefore causes the next
+ * build to run again. Builds whose inputs cannot be determined are not recorded.
+ *
+ * <p>The cache is kept in memory by the {@link LfcDaemon} and shared by all the builds it runs.
+ *
+ * @ingroup CLI
+ */
+final class BuildCache {
+
+  /** The compiled file and the command-line arguments it was compiled with. */
+  private record Key(Path file, List<String> arguments) {}
+
+  /**
+   * The outcome of a successful build.
+   *
+   * @param digests The digest of each input of the build.
+   * @param outputs The files and directories that the build produced.
+   */
+  private record Stamp(Map<Path, String> digests, Set<Path> outputs) {}
+
+  private final Map<Key, Stamp> stamps = new HashMap<>();
+
+  /**
+   * Return true if the given file was compiled with the given arguments before, none of the inputs
+   * of that build has changed since, no input was added to its {@code src} directory, and the
+   * outputs of the build are still there.
+   */
+  boolean isUpToDate(Path file, List<String> arguments) {
+    Stamp stamp;
+    synchronized (this) {
+      stamp = stamps.get(new Key(file, arguments));
+    }
+    if (stamp == null) return false;
+    for (Path output : stamp.outputs()) {
+      if (!Files.exists(output)) return false;
+    }
+    Path sourceDirectory = sourceDirectory(file);
+    if (sourceDirectory == null) return false;
+    try {
+      // Files that were added to the source directory, such as a header that shadows another one,
+      // are inputs as well.
+      for (Path path : filesIn(sourceDirectory)) {
+        if (!stamp.digests().containsKey(path)) return false;
+      }
+      for (Entry<Path, String> entry : stamp.digests().entrySet()) {
+        if (!FileUtil.digest(entry.getKey()).equals(entry.getValue())) return false;
+      }
+    } catch (IOException e) {
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Start a build of the given file with the given arguments, and take the digests of the files
+   * in the {@code src} directory that contains it. The cache forgets the file until the build is
+   * {@linkplain Build#finish(Set) finished}.
+   */
+  Build start(Path file, List<String> arguments) {
+    forget(file, arguments);
+    return new Build(new Key(file, List.copyOf(arguments)));
+  }
+
+  /** Forget that the given file was compiled with the given arguments. */
+  synchronized void forget(Path file, List<String> arguments) {
+    stamps.remove(new Key(file, arguments));
+  }
+
+  /**
+   * Return the {@code src} directory that contains the given file, or null if there is none, in
+   * which case the inputs of its build cannot be determined.
+   */
+  private static Path sourceDirectory(Path file) {
+    for (Path p = file.getParent(); p != null; p = p.getParent()) {
+      if (p.getFileName() != null && p.getFileName().toString().equals("src")) return p;
+    }
+    return null;
+  }
+
+  /** Return the regular files in the given directory and its subdirectories. */
+  private static List<Path> filesIn(Path directory) throws IOException {
+    try (Stream<Path> stream = Files.walk(directory)) {
+      return stream.filter(Files::isRegularFile).toList();
+    }
+  }
+
+  /** A build that was started and whose inputs are being collected. */
+  final class Build {
+
+    private final Key key;
+
+    private final Map<Path, String> digests = new HashMap<>();
+
+    /** Whether all the inputs of the build are known. */
+    private boolean complete;
+
+    private Build(Key key) {
+      this.key = key;
+      Path sourceDirectory = sourceDirectory(key.file());
+      complete = sourceDirectory != null;
+      if (complete) addInput(sourceDirectory);
+    }
+
+    /**
+     * Take the digests of the files that were loaded into the given resource set and that have not
+     * been digested yet. If any of the resources is not a file, the inputs of the build are
+     * unknown.
+     */
+    void addResources(ResourceSet resourceSet) {
+      for (Resource resource : resourceSet.getResources()) {
+        if (!resource.getURI().isFile()) {
+          complete = false;
+          return;
+        }
+        try {
+          addInput(FileUtil.toPath(resource));
+        } catch (IllegalArgumentException e) {
+          complete = false;
+        }
+      }
+    }
+
+    /**
+     * Take the digest of the given file, or of all the files in the given directory, unless it was
+     * taken already. If the path does not exist, the inputs of the build are unknown.
+     */
+    void addInput(Path path) {
+      if (path == null || !Files.exists(path)) {
+        complete = false;
+        return;
+      }
+      try {
+        for (Path file : Files.isDirectory(path) ? filesIn(path) : List.of(path)) {
+          if (!digests.containsKey(file)) digests.put(file, FileUtil.digest(file));
+        }
+      } catch (IOException e) {
+        complete = false;
+      }
+    }
+
+    /** Record that the inputs of the build cannot be determined, so it must not be skipped. */
+    void addUnknownInputs() {
+      complete = false;
+    }
+
+    /**
+     * Record that the build finished successfully and produced the given outputs, if all its inputs
+     * are known.
+     */
+    void finish(Set<Path> outputs) {
+      if (!complete) return;
+      synchronized (BuildCache.this) {
+        stamps.put(key, new Stamp(Map.copyOf(digests), Set.copyOf(outputs)));
+      }
+    }
+  }
+}
@@ -1,11 +1,25 @@
 package org.lflang.cli;
 
 import com.google.inject.Inject;
+import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.xtext.diagnostics.Severity;
 import org.eclipse.xtext.generator.GeneratorDelegate;
 import org.eclipse.xtext.generator.JavaIoFileSystemAccess;
 import org.eclipse.xtext.util.CancelIndicator;
@@ -15,8 +29,11 @@ import org.lflang.generator.Argument;
 import org.lflang.generator.GeneratorArguments;
 import org.lflang.generator.LFGeneratorContext;
 import org.lflang.generator.MainContext;
+import org.lflang.target.TargetConfig;
+import org.lflang.target.property.BuildCommandsProperty;
 import org.lflang.target.property.BuildTypeProperty;
 import org.lflang.target.property.CompilerProperty;
+import org.lflang.target.property.FileListProperty;
 import org.lflang.target.property.LoggingProperty;
 import org.lflang.target.property.NoCompileProperty;
 import org.lflang.target.property.NoSourceMappingProperty;
@@ -24,6 +41,7 @@ import org.lflang.target.property.PrintStatisticsProperty;
 import org.lflang.target.property.RuntimeVersionProperty;
 import org.lflang.target.property.SchedulerProperty;
 import org.lflang.target.property.SingleThreadedProperty;
+import org.lflang.target.property.TargetProperty;
 import org.lflang.target.property.TracingProperty;
 import org.lflang.target.property.TracingProperty.TracingOptions;
 import org.lflang.target.property.VerifyProperty;
@@ -34,6 +52,7 @@ import org.lflang.target.property.type.LoggingType;
 import org.lflang.target.property.type.LoggingType.LogLevel;
 import org.lflang.target.property.type.SchedulerType;
 import org.lflang.target.property.type.SchedulerType.Scheduler;
+import org.lflang.util.FileUtil;
 import picocli.CommandLine.ArgGroup;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Option;
@@ -96,6 +115,13 @@ public class Lfc extends CliBase {
   @Option(names = "--logging", description = "The logging level to use by the generated binary.")
   private String logging;
 
+  @Option(
+      names = {"-j", "--jobs"},
+      description =
+          "Specify the number of files to validate and compile concurrently when given more than"
+              + " one file.")
+  private Integer jobs;
+
   @Option(
       names = {"-l", "--lint"},
       arity = "0",
@@ -142,6 +168,13 @@ public class Lfc extends CliBase {
       description = "Specify the runtime scheduler (if supported).")
   private String scheduler;
 
+  @Option(
+      names = "--threads",
+      description =
+          "Specify the maximum number of threads used to generate and compile code concurrently,"
+              + " e.g., for the federates of a federated program.")
+  private Integer threads;
+
   @Option(
       names = {"--tracing"},
       arity = "0",
@@ -171,12 +204,29 @@ public class Lfc extends CliBase {
   @ArgGroup(exclusive = true, multiplicity = "0..1")
   ThreadingMutuallyExclusive threading;
 
+  /** Builds that were run before by the same {@link LfcDaemon}, or null if there is no daemon. */
+  private BuildCache buildCache;
+
+  /** The command-line arguments of this run. Files are only up to date for the same arguments. */
+  private List<String> arguments = List.of();
+
   /**
    * Main function of the stand-alone compiler. Caution: this will invoke System.exit.
    *
+   * <p>If the only argument is {@code --daemon}, start an {@link LfcDaemon} instead. If a daemon is
+   * running, let it do the work instead of compiling in-process.
+   *
    * @param args CLI arguments
    */
   public static void main(final String[] args) {
+    if (args.length == 1 && args[0].equals(LfcDaemon.START_OPTION)) {
+      LfcDaemon.start();
+      return;
+    }
+    OptionalInt exitCode = LfcDaemon.tryRun(Io.SYSTEM, args);
+    if (exitCode.isPresent()) {
+      Io.SYSTEM.callSystemExit(exitCode.getAsInt());
+    }
     main(Io.SYSTEM, args);
   }
 
@@ -190,6 +240,18 @@ public class Lfc extends CliBase {
     cliMain("lfc", Lfc.class, io, args);
   }
 
+  /**
+   * Skip files that were compiled before with the same arguments and are unchanged since,
+   * according to the given cache, and record the files that are compiled successfully in it.
+   *
+   * @param buildCache The cache to use.
+   * @param arguments The command-line arguments of this run.
+   */
+  void useBuildCache(BuildCache buildCache, List<String> arguments) {
+    this.buildCache = buildCache;
+    this.arguments = List.copyOf(arguments);
+  }
+
   /** Load the resource, validate it, and, invoke the code generator. */
   @Override
   public void doRun() {
@@ -199,7 +261,11 @@ public class Lfc extends CliBase {
 
     try {
       // Invoke the generator on all input file paths.
-      invokeGenerator(paths, outputRoot, args);
+      if (jobs != null && jobs > 1 && paths.size() > 1) {
+        invokeGeneratorConcurrently(paths, outputRoot, args);
+      } else {
+        invokeGenerator(paths, outputRoot, args);
+      }
     } catch (RuntimeException e) {
       reporter.printFatalErrorAndExit("An unexpected error occurred:", e);
     }
@@ -209,50 +275,221 @@ public class Lfc extends CliBase {
   private void invokeGenerator(List<Path> files, Path root, GeneratorArguments args) {
     for (Path path : files) {
       path = toAbsolutePath(path);
+      if (isUpToDate(path)) continue;
 
-      String outputPath = getActualOutputPath(root, path).toString();
-      this.fileAccess.setOutputPath(outputPath);
+      compileFile(path, root, args);
+      exitIfCollectedErrors();
+      // Print all other issues (not errors).
+      issueCollector.getAllIssues().forEach(reporter::printIssue);
 
-      final Resource resource = getResource(path);
-      if (resource == null) {
-        reporter.printFatalErrorAndExit(
-            path + " is not an LF file. Use the .lf file extension to" + " denote LF files.");
-      } else if (federated) {
-        if (!ASTUtils.makeFederated(resource)) {
-          reporter.printError("Unable to change main reactor to federated reactor.");
-        }
-      }
+      messageReporter.nowhere().info("Code generation finished.");
+    }
+  }
 
-      validateResource(resource);
-      exitIfCollectedErrors();
+  /**
+   * Invoke the code generator on the given file paths, processing up to {@link #jobs} files at the
+   * same time.
+   *
+   * <p>Each worker thread uses its own {@code Lfc} instance, created by its own injector, so that
+   * the files do not share resource sets, resource factories, validators, generators, output paths,
+   * or collected issues. The workers share the build cache of this instance, if any. The issues of
+   * each file are printed in the order in which the files are given, followed by a summary of the
+   * time spent on each file.
+   */
+  private void invokeGeneratorConcurrently(List<Path> files, Path root, GeneratorArguments args) {
+    int numOfThreads = Math.min(jobs, files.size());
+    BlockingQueue<Lfc> workers = new ArrayBlockingQueue<>(numOfThreads);
+    for (int i = 0; i < numOfThreads; i++) {
+      workers.add(newWorker());
+    }
 
-      LFGeneratorContext context =
-          new MainContext(
-              LFGeneratorContext.Mode.STANDALONE,
-              CancelIndicator.NullImpl,
-              (m, p) -> {},
-              args,
-              resource,
-              this.fileAccess,
-              fileConfig -> messageReporter);
-
-      // Exit if there were problems creating the main context.
-      exitIfCollectedErrors();
+    ExecutorService pool = Executors.newFixedThreadPool(numOfThreads);
+    List<Future<FileResult>> futures = new ArrayList<>();
+    for (Path path : files) {
+      futures.add(
+          pool.submit(
+              () -> {
+                Lfc worker = workers.take();
+                try {
+                  return worker.compileInIsolation(toAbsolutePath(path), root, args);
+                } finally {
+                  workers.add(worker);
+                }
+              }));
+    }
+    pool.shutdown();
 
+    List<FileResult> results = new ArrayList<>();
+    for (Future<FileResult> future : futures) {
       try {
-        this.generator.generate(resource, this.fileAccess, context);
-      } catch (Exception e) {
-        reporter.printFatalErrorAndExit("Error running generator", e);
+        results.add(future.get());
+      } catch (InterruptedException | ExecutionException e) {
+        pool.shutdownNow();
+        reporter.printFatalErrorAndExit("An unexpected error occurred:", e);
       }
+    }
 
-      exitIfCollectedErrors();
-      // Print all other issues (not errors).
-      issueCollector.getAllIssues().forEach(reporter::printIssue);
+    int numOfErrors = 0;
+    for (FileResult result : results) {
+      result.issues().forEach(reporter::printIssue);
+      numOfErrors +=
+          (int) result.issues().stream().filter(i -> i.getSeverity() == Severity.ERROR).count();
+    }
 
-      messageReporter.nowhere().info("Code generation finished.");
+    reporter.printInfo("Time spent per file:");
+    for (FileResult result : results) {
+      reporter.printInfo(
+          String.format(
+              "%8d ms  %s  %s",
+              result.duration().toMillis(),
+              result.succeeded() ? "ok    " : "failed",
+              io.getWd().relativize(result.path())));
     }
+
+    if (results.stream().anyMatch(result -> !result.succeeded())) {
+      String cause = numOfErrors + " previous error";
+      if (numOfErrors != 1) {
+        cause += 's';
+      }
+      reporter.printFatalErrorAndExit("Aborting due to " + cause + '.');
+    }
+    messageReporter.nowhere().info("Code generation finished.");
+  }
+
+  /**
+   * Return a new instance, created by an injector of its own, that compiles files with the options
+   * and the build cache of this instance.
+   */
+  private Lfc newWorker() {
+    Lfc worker = getInjector("lfc", io).getInstance(Lfc.class);
+    worker.clean = clean;
+    worker.federated = federated;
+    worker.useBuildCache(buildCache, arguments);
+    return worker;
+  }
+
+  /**
+   * Validate the given file and invoke the code generator on it without exiting on errors. The
+   * issues collected along the way are returned instead of printed.
+   *
+   * @param path Absolute path of the file to compile.
+   * @param root The root output directory, or null.
+   * @param args The generator arguments.
+   */
+  private FileResult compileInIsolation(Path path, Path root, GeneratorArguments args) {
+    long start = System.nanoTime();
+    issueCollector.clear();
+    boolean succeeded = isUpToDate(path) || compileFile(path, root, args);
+    return new FileResult(
+        path,
+        succeeded && !issueCollector.getErrorsOccurred(),
+        issueCollector.getAllIssues(),
+        Duration.ofNanos(System.nanoTime() - start));
+  }
+
+  /**
+   * Return true if the build cache shows that the given file need not be compiled again, and report
+   * that it is up to date. Otherwise, remove the file from the build cache until it is compiled
+   * successfully again.
+   */
+  private boolean isUpToDate(Path path) {
+    if (buildCache == null) return false;
+    if (!clean && buildCache.isUpToDate(path, arguments)) {
+      messageReporter.nowhere().info(io.getWd().relativize(path) + " is up to date.");
+      return true;
+    }
+    buildCache.forget(path, arguments);
+    return false;
   }
 
+  /**
+   * Validate and compile a single file, and record it in the build cache if this succeeds. Return
+   * false if this fails.
+   */
+  private boolean compileFile(Path path, Path root, GeneratorArguments args) {
+    // Take the digests of the inputs before they are read.
+    BuildCache.Build build = buildCache != null ? buildCache.start(path, arguments) : null;
+    this.fileAccess.setOutputPath(getActualOutputPath(root, path).toString());
+
+    final Resource resource = getResource(path);
+    if (resource == null) {
+      messageReporter
+          .nowhere()
+          .error(path + " is not an LF file. Use the .lf file extension to denote LF files.");
+      return false;
+    } else if (federated) {
+      if (!ASTUtils.makeFederated(resource)) {
+        messageReporter.nowhere().error("Unable to change main reactor to federated reactor.");
+      }
+    }
+
+    validateResource(resource);
+    if (issueCollector.getErrorsOccurred()) return false;
+
+    LFGeneratorContext context =
+        new MainContext(
+            LFGeneratorContext.Mode.STANDALONE,
+            CancelIndicator.NullImpl,
+            (m, p) -> {},
+            args,
+            resource,
+            this.fileAccess,
+            fileConfig -> messageReporter);
+    if (issueCollector.getErrorsOccurred()) return false;
+    if (build != null) addInputs(build, resource, context);
+
+    try {
+      this.generator.generate(resource, this.fileAccess, context);
+    } catch (Exception e) {
+      // Keep the stack trace, which is printed together with the other issues of the file.
+      StringWriter stackTrace = new StringWriter();
+      e.printStackTrace(new PrintWriter(stackTrace));
+      messageReporter.nowhere().error("Error running generator: " + stackTrace);
+      return false;
+    }
+    if (issueCollector.getErrorsOccurred()) return false;
+
+    if (build != null) {
+      Set<Path> outputs = new HashSet<>();
+      outputs.add(context.getFileConfig().getSrcGenPath());
+      Path executable = context.getFileConfig().getExecutable();
+      if (Files.exists(executable)) outputs.add(executable);
+      build.finish(outputs);
+    }
+    return true;
+  }
+
+  /**
+   * Add the inputs of the given program that the build cache does not find in its {@code src}
+   * directory to the given build: the LF files it imports and the files named in its target
+   * properties.
+   */
+  private static void addInputs(
+      BuildCache.Build build, Resource resource, LFGeneratorContext context) {
+    build.addResources(resource.getResourceSet());
+    TargetConfig config = context.getTargetConfig();
+    // Custom build commands may read any file.
+    if (config.isSet(BuildCommandsProperty.INSTANCE)) build.addUnknownInputs();
+    for (TargetProperty<?, ?> property : config.getAssignedProperties()) {
+      if (property instanceof FileListProperty fileList) {
+        for (String name : config.get(fileList)) {
+          build.addInput(FileUtil.findInPackage(Path.of(name), context.getFileConfig()));
+        }
+      }
+    }
+  }
+
+  /**
+   * The outcome of compiling a single file in batch mode.
+   *
+   * @param path The path of the file.
+   * @param succeeded Whether the file was compiled without errors.
+   * @param issues The issues that were reported while compiling the file.
+   * @param duration The time spent on the file.
+   */
+  private record FileResult(
+      Path path, boolean succeeded, List<LfIssue> issues, Duration duration) {}
+
   /** Return a resolved path that designates where to write files to. */
   private Path getActualOutputPath(Path root, Path path) {
     if (root != null) {
@@ -377,6 +614,7 @@ public class Lfc extends CliBase {
         lint,
         quiet,
         getRtiUri(),
+        threads,
         List.of(
             new Argument<>(BuildTypeProperty.INSTANCE, getBuildType()),
             new Argument<>(CompilerProperty.INSTANCE, targetCompiler),
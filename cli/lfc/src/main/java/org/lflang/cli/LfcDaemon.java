@@ -0,0 +1,462 @@
+package org.lflang.cli;
+
+import com.google.inject.Injector;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.Set;
+
+/**
+ * A long-lived process that runs lfc on behalf of other lfc processes, so that repeated builds do
+ * not pay for starting the JVM, registering EMF packages, creating the Guice injector, and
+ * compiling unchanged files again.
+ *
+ * <p>The daemon is started with {@code lfc --daemon} and listens on a Unix domain socket. As long
+ * as it runs, {@link Lfc#main(String[])} forwards its working directory, environment, and
+ * command-line arguments to the daemon and prints the output it sends back, instead of compiling
+ * in-process. If no daemon is running, lfc compiles in-process as usual.
+ *
+ * <p>The socket is created in {@code $XDG_RUNTIME_DIR/lfc}, or in {@code lfc-<user>} in the
+ * temporary directory if there is no runtime directory. Clients only connect to a socket that is
+ * owned by the current user and that no other user has access to, in a directory of which the same
+ * holds. Since the commands that the daemon runs inherit its environment, the daemon refuses to
+ * run builds for clients whose environment is different from its own, and these clients compile
+ * in-process instead.
+ *
+ * <p>The daemon keeps one injector per working directory, since the {@link Io} of a run is bound
+ * in the injector. It also keeps a {@link BuildCache}, so that files that are unchanged since they
+ * were last compiled with the same arguments, including the files they import, are skipped.
+ * Builds are run one at a time, in the order in which they are requested.
+ *
+ * @ingroup CLI
+ */
+public final class LfcDaemon {
+
+  /** The command-line option that starts the daemon. */
+  static final String START_OPTION = "--daemon";
+
+  /** Environment variable that overrides the location of the socket. */
+  private static final String SOCKET_VARIABLE = "LFC_DAEMON_SOCKET";
+
+  /** Command-line options that can only be handled in-process. */
+  private static final List<String> LOCAL_OPTIONS = List.of("--stdin");
+
+  /**
+   * Environment variables that the shells of the clients set differently and that do not affect
+   * builds.
+   */
+  private static final Set<String> IGNORED_VARIABLES =
+      Set.of("_", "OLDPWD", "PWD", "SHLVL", SOCKET_VARIABLE);
+
+  /** The only permissions that the socket and its directory may have. */
+  private static final Set<PosixFilePermission> OWNER_PERMISSIONS =
+      PosixFilePermissions.fromString("rwx------");
+
+  /** Tags of the frames sent from the daemon to the client. */
+  private static final byte EXIT = 0, OUT = 1, ERR = 2, REFUSED = 3;
+
+  /** The maximum number of working directories for which an injector is kept. */
+  private static final int MAX_SESSIONS = 8;
+
+  /** The warm state kept for a working directory. */
+  private record Session(
+      Io io, Injector injector, ReportingBackend reporter, BuildCache buildCache) {}
+
+  private final Path socketPath;
+
+  /** The environment of the daemon, which the commands it runs inherit. */
+  private final Map<String, String> environment;
+
+  /** The channel on which requests are accepted while the daemon serves them. */
+  private ServerSocketChannel server;
+
+  /** The streams that {@code System.out} and {@code System.err} are redirected to. */
+  private final Forwarder out;
+
+  private final Forwarder err;
+
+  private final PrintStream console;
+
+  private final Map<Path, Session> sessions =
+      new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, Session> eldest) {
+          return size() > MAX_SESSIONS;
+        }
+      };
+
+  /**
+   * Create a daemon that listens on the given socket.
+   *
+   * @param socketPath The path of the socket.
+   * @param environment The environment of the daemon.
+   */
+  LfcDaemon(Path socketPath, Map<String, String> environment) {
+    this.socketPath = socketPath;
+    this.environment = Map.copyOf(environment);
+    this.console = System.err;
+    this.out = new Forwarder(System.out, OUT);
+    this.err = new Forwarder(System.err, ERR);
+  }
+
+  /** Start a daemon and serve requests until the process is terminated. */
+  static void start() {
+    Path socketPath = socketPath();
+    Runtime.getRuntime()
+        .addShutdownHook(
+            new Thread(
+                () -> {
+                  try {
+                    Files.deleteIfExists(socketPath);
+                  } catch (IOException ignored) {
+                    // The process is terminating anyway.
+                  }
+                }));
+    try {
+      new LfcDaemon(socketPath, System.getenv()).serve();
+    } catch (IOException | UnsupportedOperationException e) {
+      System.err.println("lfc: fatal error: Unable to start the daemon: " + e.getMessage());
+      System.exit(1);
+    }
+  }
+
+  /**
+   * Run lfc with the given arguments in the daemon, if one is running, and print its output to the
+   * given streams.
+   *
+   * @param io The IO context of the client.
+   * @param args The command-line arguments.
+   * @return The exit code of the run, or an empty result if no daemon could be reached and lfc has
+   *     to run in-process.
+   */
+  static OptionalInt tryRun(Io io, String[] args) {
+    return tryRun(io, args, socketPath(), System.getenv());
+  }
+
+  /**
+   * Run lfc with the given arguments in the daemon that listens on the given socket, if any, and
+   * print its output to the given streams.
+   *
+   * @param io The IO context of the client.
+   * @param args The command-line arguments.
+   * @param socket The path of the socket.
+   * @param environment The environment of the client.
+   * @return The exit code of the run, or an empty result if no daemon could be reached, the socket
+   *     is not private to the current user, or the daemon refused to run lfc in the environment of
+   *     the client.
+   */
+  static OptionalInt tryRun(Io io, String[] args, Path socket, Map<String, String> environment) {
+    if (Arrays.stream(args).anyMatch(LOCAL_OPTIONS::contains)) return OptionalInt.empty();
+    if (!Files.exists(socket, LinkOption.NOFOLLOW_LINKS)) return OptionalInt.empty();
+    try {
+      checkPrivate(socket.toAbsolutePath().getParent());
+      checkPrivate(socket);
+    } catch (IOException e) {
+      io.getErr().println("lfc: warning: Not using the daemon: " + e.getMessage());
+      return OptionalInt.empty();
+    }
+
+    SocketChannel channel;
+    try {
+      channel = SocketChannel.open(UnixDomainSocketAddress.of(socket));
+    } catch (IOException e) {
+      // A stale socket left behind by a daemon that did not shut down cleanly.
+      return OptionalInt.empty();
+    }
+    try (channel) {
+      DataOutputStream request =
+          new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+      writeString(request, io.getWd().toString());
+      request.writeInt(environment.size());
+      for (Map.Entry<String, String> variable : environment.entrySet()) {
+        writeString(request, variable.getKey());
+        writeString(request, variable.getValue());
+      }
+      request.writeInt(args.length);
+      for (String arg : args) {
+        writeString(request, arg);
+      }
+      request.flush();
+
+      DataInputStream response =
+          new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+      while (true) {
+        byte tag = response.readByte();
+        if (tag == EXIT) return OptionalInt.of(response.readInt());
+        if (tag == REFUSED) {
+          io.getErr()
+              .println(
+                  "lfc: warning: Not using the daemon, which was started in a different"
+                      + " environment.");
+          return OptionalInt.empty();
+        }
+        byte[] bytes = new byte[response.readInt()];
+        response.readFully(bytes);
+        PrintStream stream = tag == OUT ? io.getOut() : io.getErr();
+        stream.write(bytes);
+        stream.flush();
+      }
+    } catch (IOException e) {
+      io.getErr().println("lfc: fatal error: Lost the connection to the daemon: " + e.getMessage());
+      return OptionalInt.of(1);
+    }
+  }
+
+  /** Return the path of the socket the daemon listens on. */
+  private static Path socketPath() {
+    String path = System.getenv(SOCKET_VARIABLE);
+    if (path != null && !path.isBlank()) return Path.of(path);
+    // The runtime directory is private to the user by definition, unlike the temporary directory.
+    String runtimeDirectory = System.getenv("XDG_RUNTIME_DIR");
+    if (runtimeDirectory != null && Path.of(runtimeDirectory).isAbsolute()) {
+      return Path.of(runtimeDirectory, "lfc", "daemon.sock");
+    }
+    return Path.of(
+        System.getProperty("java.io.tmpdir"),
+        "lfc-" + System.getProperty("user.name"),
+        "daemon.sock");
+  }
+
+  /**
+   * Throw an exception unless the given file is owned by the current user and no other user has
+   * any permissions on it. Symbolic links are not followed.
+   */
+  private static void checkPrivate(Path file) throws IOException {
+    UserPrincipal user =
+        file.getFileSystem()
+            .getUserPrincipalLookupService()
+            .lookupPrincipalByName(System.getProperty("user.name"));
+    if (!Files.getOwner(file, LinkOption.NOFOLLOW_LINKS).equals(user)) {
+      throw new IOException(file + " is not owned by " + user.getName() + ".");
+    }
+    Set<PosixFilePermission> permissions;
+    try {
+      permissions = Files.getPosixFilePermissions(file, LinkOption.NOFOLLOW_LINKS);
+    } catch (UnsupportedOperationException e) {
+      throw new IOException("The permissions of " + file + " cannot be checked.");
+    }
+    if (!OWNER_PERMISSIONS.containsAll(permissions)) {
+      throw new IOException(file + " is accessible to other users.");
+    }
+  }
+
+  /** Serve requests until {@link #close()} is called. */
+  void serve() throws IOException {
+    // Only the current user may connect to the daemon.
+    Path directory = socketPath.toAbsolutePath().getParent();
+    if (!Files.isDirectory(directory, LinkOption.NOFOLLOW_LINKS)) {
+      Files.createDirectories(directory.getParent());
+      Files.createDirectory(directory, PosixFilePermissions.asFileAttribute(OWNER_PERMISSIONS));
+    }
+    checkPrivate(directory);
+    Files.deleteIfExists(socketPath);
+
+    PrintStream originalOut = System.out;
+    PrintStream originalErr = System.err;
+    ServerSocketChannel channel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+    synchronized (this) {
+      server = channel;
+    }
+    try (channel) {
+      channel.bind(UnixDomainSocketAddress.of(socketPath));
+      Files.setPosixFilePermissions(socketPath, PosixFilePermissions.fromString("rw-------"));
+      System.setOut(new PrintStream(out, true, StandardCharsets.UTF_8));
+      System.setErr(new PrintStream(err, true, StandardCharsets.UTF_8));
+      console.println("lfc: daemon listening on " + socketPath);
+
+      while (true) {
+        try (SocketChannel client = channel.accept()) {
+          handle(client);
+        } catch (ClosedChannelException e) {
+          return;
+        } catch (IOException e) {
+          console.println("lfc: error: Unable to serve a request: " + e.getMessage());
+        }
+      }
+    } finally {
+      System.setOut(originalOut);
+      System.setErr(originalErr);
+      Files.deleteIfExists(socketPath);
+    }
+  }
+
+  /** Stop serving requests once the current request, if any, is served. */
+  synchronized void close() throws IOException {
+    if (server != null) server.close();
+  }
+
+  /** Read a request from the client, run it, and send back its output and exit code. */
+  private void handle(SocketChannel client) throws IOException {
+    DataInputStream request =
+        new DataInputStream(new BufferedInputStream(Channels.newInputStream(client)));
+    Path wd = Path.of(readString(request));
+    Map<String, String> clientEnvironment = new HashMap<>();
+    int numOfVariables = request.readInt();
+    for (int i = 0; i < numOfVariables; i++) {
+      clientEnvironment.put(readString(request), readString(request));
+    }
+    String[] args = new String[request.readInt()];
+    for (int i = 0; i < args.length; i++) {
+      args[i] = readString(request);
+    }
+
+    DataOutputStream response =
+        new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(client)));
+    if (!withoutIgnoredVariables(clientEnvironment).equals(withoutIgnoredVariables(environment))) {
+      response.writeByte(REFUSED);
+      response.flush();
+      return;
+    }
+    int exitCode;
+    out.redirect(response);
+    err.redirect(response);
+    try {
+      exitCode = run(wd, args);
+    } finally {
+      System.out.flush();
+      System.err.flush();
+      out.redirect(null);
+      err.redirect(null);
+    }
+    synchronized (response) {
+      response.writeByte(EXIT);
+      response.writeInt(exitCode);
+      response.flush();
+    }
+  }
+
+  /** Return the given environment without the {@link #IGNORED_VARIABLES}. */
+  private static Map<String, String> withoutIgnoredVariables(Map<String, String> environment) {
+    Map<String, String> result = new HashMap<>(environment);
+    result.keySet().removeAll(IGNORED_VARIABLES);
+    return result;
+  }
+
+  /** Write a string of any length, unlike {@link DataOutputStream#writeUTF(String)}. */
+  private static void writeString(DataOutputStream stream, String string) throws IOException {
+    byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+    stream.writeInt(bytes.length);
+    stream.write(bytes);
+  }
+
+  /** Read a string written by {@link #writeString(DataOutputStream, String)}. */
+  private static String readString(DataInputStream stream) throws IOException {
+    byte[] bytes = new byte[stream.readInt()];
+    stream.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /** Run lfc with the given arguments in the given working directory and return its exit code. */
+  private int run(Path wd, String[] args) {
+    Session session = sessions.computeIfAbsent(wd, this::createSession);
+    session.reporter().reset();
+    session.injector().getInstance(IssueCollector.class).clear();
+
+    Lfc lfc = session.injector().getInstance(Lfc.class);
+    lfc.useBuildCache(session.buildCache(), Arrays.asList(args));
+    try {
+      lfc.doExecute(session.io(), args);
+    } catch (Exit e) {
+      return e.exitCode;
+    } catch (RuntimeException e) {
+      e.printStackTrace();
+      return 1;
+    }
+    return 0;
+  }
+
+  private Session createSession(Path wd) {
+    Io io =
+        new Io(
+            System.err,
+            System.out,
+            wd,
+            exitCode -> {
+              throw new Exit(exitCode);
+            });
+    ReportingBackend reporter = new ReportingBackend(io, "lfc: ");
+    Injector injector = new LFCliSetup(reporter, io).createInjectorAndDoEMFRegistration();
+    return new Session(io, injector, reporter, new BuildCache());
+  }
+
+  /** Thrown instead of exiting the process at the end of a run. */
+  private static final class Exit extends Error {
+    private final int exitCode;
+
+    Exit(int exitCode) {
+      super(null, null, false, false);
+      this.exitCode = exitCode;
+    }
+  }
+
+  /**
+   * Sends everything written to it to the client of the current request, if there is one, and to
+   * the console of the daemon otherwise.
+   */
+  private static final class Forwarder extends OutputStream {
+    private final OutputStream console;
+    private final byte tag;
+    private DataOutputStream client;
+
+    Forwarder(OutputStream console, byte tag) {
+      this.console = console;
+      this.tag = tag;
+    }
+
+    synchronized void redirect(DataOutputStream client) {
+      this.client = client;
+    }
+
+    @Override
+    public synchronized void write(int b) throws IOException {
+      write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public synchronized void write(byte[] b, int off, int len) throws IOException {
+      if (client == null) {
+        console.write(b, off, len);
+        return;
+      }
+      synchronized (client) {
+        client.writeByte(tag);
+        client.writeInt(len);
+        client.write(b, off, len);
+      }
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+      if (client == null) {
+        console.flush();
+        return;
+      }
+      synchronized (client) {
+        client.flush();
+      }
+    }
+  }
+}
@@ -26,7 +26,11 @@ package org.lflang.cli;
 
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.lflang.cli.TestUtils.TempDirBuilder.dirBuilder;
 import static org.lflang.cli.TestUtils.TempDirChecker.dirChecker;
 import static org.lflang.cli.TestUtils.isDirectory;
@@ -34,15 +38,33 @@ import static org.lflang.cli.TestUtils.isRegularFile;
 
 import com.google.gson.JsonParser;
 import com.google.inject.Injector;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.Set;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ResourceImpl;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.junit.jupiter.api.Assumptions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 import org.lflang.LocalStrings;
+import org.lflang.cli.CliToolTestFixture.ExecutionResult;
 import org.lflang.cli.TestUtils.TempDirBuilder;
 import org.lflang.generator.GeneratorArguments;
+import org.lflang.generator.GeneratorUtils;
 import org.lflang.target.property.BuildTypeProperty;
 import org.lflang.target.property.CompilerProperty;
 import org.lflang.target.property.LoggingProperty;
@@ -364,6 +386,159 @@ public class LfcCliTest {
     verifyJsonGeneratorArgs(tempDir, args);
   }
 
+  @Test
+  public void testBuildCache(@TempDir Path tempDir) throws IOException {
+    Files.createDirectories(tempDir.resolve("src"));
+    Path file = Files.writeString(tempDir.resolve("src/F.lf"), "f");
+    Path header = Files.writeString(tempDir.resolve("src/f.h"), "header");
+    Path library = Files.writeString(tempDir.resolve("Library.lf"), "library");
+    Path srcGen = Files.createDirectories(tempDir.resolve("src-gen"));
+    Path executable = Files.writeString(tempDir.resolve("F"), "executable");
+    ResourceSet resourceSet = new ResourceSetImpl();
+    resourceSet.getResources().add(new ResourceImpl(URI.createFileURI(file.toString())));
+    resourceSet.getResources().add(new ResourceImpl(URI.createFileURI(library.toString())));
+    List<String> arguments = List.of("src/F.lf");
+
+    BuildCache cache = new BuildCache();
+    assertFalse(cache.isUpToDate(file, arguments));
+    build(cache, file, arguments, resourceSet, Set.of(srcGen, executable));
+    assertTrue(cache.isUpToDate(file, arguments));
+    assertFalse(cache.isUpToDate(file, List.of("src/F.lf", "--no-compile")));
+
+    // Hand-written sources next to the LF file are inputs.
+    Files.writeString(header, "changed");
+    assertFalse(cache.isUpToDate(file, arguments));
+    Files.writeString(header, "header");
+    assertTrue(cache.isUpToDate(file, arguments));
+    Path added = Files.writeString(tempDir.resolve("src/g.h"), "added");
+    assertFalse(cache.isUpToDate(file, arguments));
+    Files.delete(added);
+    assertTrue(cache.isUpToDate(file, arguments));
+
+    // So are the files that are loaded from outside the source directory.
+    Files.writeString(library, "changed");
+    assertFalse(cache.isUpToDate(file, arguments));
+    Files.writeString(library, "library");
+    assertTrue(cache.isUpToDate(file, arguments));
+
+    // The outputs must still exist.
+    Files.delete(executable);
+    assertFalse(cache.isUpToDate(file, arguments));
+    Files.writeString(executable, "executable");
+    assertTrue(cache.isUpToDate(file, arguments));
+
+    // An edit during the build is not recorded as built.
+    BuildCache.Build build = cache.start(file, arguments);
+    assertFalse(cache.isUpToDate(file, arguments));
+    build.addResources(resourceSet);
+    Files.writeString(header, "edited during the build");
+    build.finish(Set.of(srcGen));
+    assertFalse(cache.isUpToDate(file, arguments));
+    Files.writeString(header, "header");
+    assertTrue(cache.isUpToDate(file, arguments));
+
+    cache.forget(file, arguments);
+    assertFalse(cache.isUpToDate(file, arguments));
+
+    // Builds with inputs that cannot be checked for changes are not recorded.
+    resourceSet.getResources().add(new ResourceImpl(URI.createURI("synthetic:/Library.lf")));
+    build(cache, file, arguments, resourceSet, Set.of(srcGen));
+    assertFalse(cache.isUpToDate(file, arguments));
+    Path outside = Files.writeString(tempDir.resolve("Outside.lf"), "outside");
+    build(cache, outside, List.of("Outside.lf"), new ResourceSetImpl(), Set.of(srcGen));
+    assertFalse(cache.isUpToDate(outside, List.of("Outside.lf")));
+  }
+
+  /** Record a successful build of the given file in the given cache. */
+  private static void build(
+      BuildCache cache,
+      Path file,
+      List<String> arguments,
+      ResourceSet resourceSet,
+      Set<Path> outputs) {
+    BuildCache.Build build = cache.start(file, arguments);
+    build.addResources(resourceSet);
+    build.finish(outputs);
+  }
+
+  @Test
+  public void testDaemonRoundTrip(@TempDir Path tempDir) throws Exception {
+    Assumptions.assumeFalse(GeneratorUtils.isHostWindows(), "The daemon needs POSIX permissions");
+    dirBuilder(tempDir).file("src/File.lf", LF_PYTHON_FILE);
+    Path socket = tempDir.resolve("daemon/daemon.sock");
+    Map<String, String> environment = System.getenv();
+    LfcDaemon daemon = new LfcDaemon(socket, environment);
+    Thread thread =
+        new Thread(
+            () -> {
+              try {
+                daemon.serve();
+              } catch (IOException e) {
+                throw new UncheckedIOException(e);
+              }
+            });
+    thread.start();
+    try {
+      awaitSocket(socket);
+
+      ExecutionResult first = runInDaemon(tempDir, socket, environment);
+      first.verify(
+          result -> {
+            result.checkOk();
+            dirChecker(tempDir).check("src-gen/File/File.py", isRegularFile());
+          });
+
+      ExecutionResult second = runInDaemon(tempDir, socket, environment);
+      second.verify(
+          result -> {
+            result.checkOk();
+            assertThat(result.getOut() + result.getErr(), containsString("is up to date."));
+          });
+
+      // The commands run by the daemon would not see the variables of the client.
+      Map<String, String> otherEnvironment = new HashMap<>(environment);
+      otherEnvironment.put("CC", "lf-no-such-compiler");
+      assertNull(runInDaemon(tempDir, socket, otherEnvironment));
+
+      // Other users could connect to the daemon.
+      Files.setPosixFilePermissions(
+          socket.getParent(), PosixFilePermissions.fromString("rwxr-xr-x"));
+      assertNull(runInDaemon(tempDir, socket, environment));
+    } finally {
+      daemon.close();
+      thread.join();
+    }
+    assertFalse(Files.exists(socket));
+  }
+
+  /** Wait until the daemon listens on the given socket and no other user can access it. */
+  private static void awaitSocket(Path socket) throws Exception {
+    long deadline = System.currentTimeMillis() + 10_000;
+    var permissions = PosixFilePermissions.fromString("rw-------");
+    while (!Files.exists(socket) || !Files.getPosixFilePermissions(socket).equals(permissions)) {
+      assertTrue(System.currentTimeMillis() < deadline, "The daemon did not start.");
+      Thread.sleep(10);
+    }
+  }
+
+  /**
+   * Compile src/File.lf in the given directory without compiling the generated code, in the daemon
+   * that listens on the given socket, and return the result. Return null if the daemon is not used.
+   */
+  private static ExecutionResult runInDaemon(
+      Path wd, Path socket, Map<String, String> environment) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ByteArrayOutputStream err = new ByteArrayOutputStream();
+    Io io =
+        new Io(
+            new PrintStream(err, true, StandardCharsets.UTF_8),
+            new PrintStream(out, true, StandardCharsets.UTF_8),
+            wd);
+    String[] args = {"src/File.lf", "--no-compile"};
+    OptionalInt exitCode = LfcDaemon.tryRun(io, args, socket, environment);
+    return exitCode.isPresent() ? new ExecutionResult(out, err, exitCode.getAsInt()) : null;
+  }
+
   static class LfcTestFixture extends CliToolTestFixture {
 
     @Override
@@ -0,0 +1,79 @@
+package org.lflang.cli;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.lflang.LocalStrings;
+
+/**
+ * A record of the files that are known to be formatted, so that the formatter can skip them as long
+ * as they do not change.
+ *
+ * <p>A file is recorded by its path, a digest of its content, and the line length it was formatted
+ * with. Only the latest stamp of each file is kept. Stamps that were recorded by a different
+ * version of the formatter are discarded, because the formatting may have changed in between.
+ * Stamps can be looked up concurrently.
+ *
+ * @ingroup CLI
+ */
+class FormattingStamps {
+
+  /** The first line of a stamp file, which identifies the version that wrote it. */
+  private static final String HEADER = "lff-stamps " + LocalStrings.VERSION;
+
+  private final Path file;
+
+  /** The stamps, which consist of a line length and a digest, by absolute path. */
+  private final Map<String, String> stamps = new ConcurrentHashMap<>();
+
+  /**
+   * Load the stamps from the given file. If the file does not exist or was written by a different
+   * version of the formatter, start with no stamps.
+   */
+  FormattingStamps(Path file) throws IOException {
+    this.file = file;
+    if (Files.isRegularFile(file)) {
+      List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+      if (!lines.isEmpty() && lines.get(0).equals(HEADER)) {
+        for (String line : lines.subList(1, lines.size())) {
+          // Each line consists of the line length, the digest, and the path.
+          String[] parts = line.split(" ", 3);
+          if (parts.length == 3) stamps.put(parts[2], parts[0] + " " + parts[1]);
+        }
+      }
+    }
+  }
+
+  /** Return whether the given content of the given file is known to be formatted. */
+  boolean isFormatted(Path path, String digest, int lineLength) {
+    return stamp(digest, lineLength).equals(stamps.get(key(path)));
+  }
+
+  /** Record that the given content of the given file is formatted. */
+  void setFormatted(Path path, String digest, int lineLength) {
+    stamps.put(key(path), stamp(digest, lineLength));
+  }
+
+  /** Write the stamps back to the file they were loaded from. */
+  void save() throws IOException {
+    List<String> lines = new ArrayList<>(stamps.size() + 1);
+    lines.add(HEADER);
+    stamps.entrySet().stream()
+        .sorted(Map.Entry.comparingByKey())
+        .forEach(it -> lines.add(it.getValue() + " " + it.getKey()));
+    Files.write(file, lines, StandardCharsets.UTF_8);
+  }
+
+  private static String key(Path path) {
+    return path.toAbsolutePath().normalize().toString();
+  }
+
+  private static String stamp(String digest, int lineLength) {
+    return lineLength + " " + digest;
+  }
+}
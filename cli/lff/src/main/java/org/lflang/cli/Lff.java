@@ -1,14 +1,30 @@
 package org.lflang.cli;
 
+import com.google.inject.Inject;
+import com.google.inject.Provider;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.BiConsumer;
+import org.eclipse.emf.common.util.URI;
 import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.xtext.diagnostics.Severity;
+import org.eclipse.xtext.resource.IResourceFactory;
+import org.eclipse.xtext.validation.IResourceValidator;
 import org.lflang.ast.FormattingUtil;
 import org.lflang.ast.IsEqual;
 import org.lflang.ast.LfParsingHelper;
@@ -68,6 +84,34 @@ public class Lff extends CliBase {
       description = "Ignore validation errors in files and format them anyway.")
   private boolean ignoreErrors = false;
 
+  @Option(
+      names = {"-j", "--jobs"},
+      description = "Format up to the given number of files in parallel.",
+      defaultValue = "1")
+  private int jobs;
+
+  @Option(
+      names = "--stamp-file",
+      description =
+          "Record the files that are formatted in the given file, and skip them in later runs as"
+              + " long as they do not change.")
+  private Path stampFile;
+
+  /** Injected provider of formatters of single files. */
+  @Inject private Provider<FileFormatter> fileFormatterProvider;
+
+  /** The formatter of single files that is used if files are formatted one by one. */
+  private FileFormatter sequentialFormatter;
+
+  /** The formatters of single files that are not in use by any of the parallel jobs. */
+  private BlockingQueue<FileFormatter> idleFormatters;
+
+  /** The executor that formats files in parallel, or null if files are formatted one by one. */
+  private ExecutorService executor;
+
+  /** The files known to be formatted, or null if no stamp file is used. */
+  private FormattingStamps stamps;
+
   /**
    * Main function of the formatter. Caution: this will invoke System.exit.
    *
@@ -95,6 +139,17 @@ public class Lff extends CliBase {
           "The options --check (-c) and --dry-run (-d) are mutually exclusive. Please use only one"
               + " at a time.");
     }
+    if (jobs < 1) {
+      reporter.printFatalErrorAndExit("The number of jobs (-j) must be at least 1.");
+    }
+
+    try {
+      if (stampFile != null) {
+        stamps = new FormattingStamps(toAbsolutePath(stampFile));
+      }
+    } catch (IOException e) {
+      reporter.printFatalErrorAndExit("Unable to read the stamp file " + stampFile, e);
+    }
 
     List<Path> paths;
     do {
@@ -106,6 +161,7 @@ public class Lff extends CliBase {
         formatAllFiles(paths, outputRoot);
 
         exitIfCollectedErrors();
+        saveStamps();
         if (!dryRun || verbose) {
           reporter.printInfo("Done formatting.");
         }
@@ -114,74 +170,291 @@ public class Lff extends CliBase {
       }
     } while (stdinMode() && !paths.isEmpty());
 
+    if (executor != null) {
+      executor.shutdownNow();
+    }
     // return an error code if any errors were reported
     reporter.exit();
   }
 
   /*
    * Invokes the formatter on all files defined by the list of paths.
+   *
+   * The files are formatted concurrently if more than one job is requested, but the results are
+   * reported, and written out, one file after another in the order in which the files are found.
+   * With a single job, each file is reported as soon as it is formatted, so that only the result of
+   * one file is held in memory at a time.
    */
   private void formatAllFiles(List<Path> paths, Path outputRoot) {
+    if (jobs == 1) {
+      if (sequentialFormatter == null) {
+        sequentialFormatter = fileFormatterProvider.get();
+      }
+      for (Path relativePath : paths) {
+        if (verbose) {
+          reporter.printInfo("Formatting " + io.getWd().relativize(relativePath) + ":");
+        }
+        forEachFile(
+            relativePath,
+            (file, inputRoot) -> {
+              Path normalized = file.normalize();
+              report(
+                  sequentialFormatter.format(
+                      normalized, outputPath(normalized, inputRoot, outputRoot), this));
+            });
+      }
+      return;
+    }
+
+    // The results of the files of each path.
+    List<List<Future<FormatResult>>> results = new ArrayList<>();
     for (Path relativePath : paths) {
+      List<Future<FormatResult>> pathResults = new ArrayList<>();
+      results.add(pathResults);
+      forEachFile(
+          relativePath,
+          (file, inputRoot) -> pathResults.add(submit(file, inputRoot, outputRoot)));
+    }
+
+    for (int i = 0; i < paths.size(); i++) {
       if (verbose) {
-        reporter.printInfo("Formatting " + io.getWd().relativize(relativePath) + ":");
+        reporter.printInfo("Formatting " + io.getWd().relativize(paths.get(i)) + ":");
       }
-
-      Path path = toAbsolutePath(relativePath);
-      if (Files.isDirectory(path) && !noRecurse) {
-        // Walk the contents of this directory.
+      for (Future<FormatResult> result : results.get(i)) {
         try {
-          Files.walkFileTree(
-              path,
-              new SimpleFileVisitor<>() {
-                @Override
-                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
-                  formatSingleFile(file, path, outputRoot);
-                  return FileVisitResult.CONTINUE;
-                }
+          report(result.get());
+        } catch (ExecutionException e) {
+          if (e.getCause() instanceof RuntimeException cause) throw cause;
+          throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new RuntimeException(e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Invoke the given action on each file that the given path denotes, together with the directory
+   * that the path of the file is relative to in the output.
+   */
+  private void forEachFile(Path relativePath, BiConsumer<Path, Path> action) {
+    Path path = toAbsolutePath(relativePath);
+    if (Files.isDirectory(path) && !noRecurse) {
+      // Walk the contents of this directory.
+      try {
+        Files.walkFileTree(
+            path,
+            new SimpleFileVisitor<>() {
+              @Override
+              public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                action.accept(file, path);
+                return FileVisitResult.CONTINUE;
+              }
+            });
+      } catch (IOException e) {
+        reporter.printFatalErrorAndExit("An unknown I/O exception occurred.", e);
+      }
+    } else {
+      // Simple file.
+      action.accept(path, path.getParent());
+    }
+  }
+
+  /** Return the path that the formatted contents of the given file are written to. */
+  private static Path outputPath(Path normalized, Path inputRoot, Path outputRoot) {
+    return outputRoot == null
+        ? normalized // Format in place.
+        : outputRoot.resolve(inputRoot.relativize(normalized)).normalize();
+  }
+
+  /** Start formatting the file at the given path in parallel with other files. */
+  private Future<FormatResult> submit(Path path, Path inputRoot, Path outputRoot) {
+    Path normalized = path.normalize();
+    Path outputPath = outputPath(normalized, inputRoot, outputRoot);
+    if (executor == null) {
+      // Every job gets formatters of its own, with resources, validators, and diagnostics that are
+      // not shared with the other jobs. Their injectors are created one after another because the
+      // creation of an injector registers it globally.
+      idleFormatters = new LinkedBlockingQueue<>();
+      for (int i = 0; i < jobs; i++) {
+        idleFormatters.add(getInjector("lff", io).getInstance(FileFormatter.class));
+      }
+      executor =
+          Executors.newFixedThreadPool(
+              jobs,
+              runnable -> {
+                Thread thread = new Thread(runnable, "lff-worker");
+                thread.setDaemon(true);
+                return thread;
               });
+    }
+    return executor.submit(
+        () -> {
+          FileFormatter formatter = idleFormatters.take();
+          try {
+            return formatter.format(normalized, outputPath, this);
+          } finally {
+            idleFormatters.add(formatter);
+          }
+        });
+  }
+
+  /**
+   * Write the stamps of the files known to be formatted, if a stamp file is used. This includes
+   * the files that were verified to be formatted in check mode.
+   */
+  private void saveStamps() {
+    if (stamps == null || dryRun) return;
+    try {
+      stamps.save();
+    } catch (IOException e) {
+      reporter.printFatalErrorAndExit("Unable to write the stamp file " + stampFile, e);
+    }
+  }
+
+  /**
+   * The outcome of formatting a single file.
+   *
+   * @param path The file.
+   * @param outputPath The file to write the formatted contents to.
+   * @param isLfFile Whether the file is an LF file. Other files are skipped.
+   * @param issues The issues found by the validator.
+   * @param formattedFileContents The formatted contents, or null if the file was not formatted
+   *     because of validation errors.
+   * @param isEquivalent Whether the formatted contents are semantically equivalent to the
+   *     original contents.
+   * @param digest The digest of the original contents, or null if no stamp file is used.
+   * @param isFormatted Whether the original contents are formatted already.
+   */
+  private record FormatResult(
+      Path path,
+      Path outputPath,
+      boolean isLfFile,
+      List<LfIssue> issues,
+      String formattedFileContents,
+      boolean isEquivalent,
+      String digest,
+      boolean isFormatted) {}
+
+  /**
+   * Formats single files in isolation. Each instance gets its resource sets, validator, and parser
+   * from the injector that creates it, and it records no diagnostics itself, so instances created
+   * by different injectors can be used concurrently.
+   */
+  static class FileFormatter {
+
+    @Inject private Provider<ResourceSet> resourceSetProvider;
+
+    @Inject private IResourceValidator validator;
+
+    @Inject private IResourceFactory resourceFactory;
+
+    @Inject private ReportingBackend reporter;
+
+    /** Parser of the formatted contents, created lazily because it has an injector of its own. */
+    private LfParsingHelper parsingHelper;
+
+    /**
+     * Format the file at the given path.
+     *
+     * @param path The file to format.
+     * @param outputPath The file to write the formatted contents to.
+     * @param options The options of the run.
+     */
+    FormatResult format(Path path, Path outputPath, Lff options) {
+      String digest = null;
+      String contents = null;
+      Resource resource = null;
+      if (options.stamps != null) {
+        try {
+          byte[] bytes = Files.readAllBytes(path);
+          digest = FileUtil.digest(bytes);
+          contents = new String(bytes, StandardCharsets.UTF_8);
         } catch (IOException e) {
-          reporter.printFatalErrorAndExit("An unknown I/O exception occurred.", e);
+          // Format the file as if no stamp file were used.
         }
-      } else {
-        // Simple file.
-        formatSingleFile(path, path.getParent(), outputRoot);
+        if (digest != null && options.stamps.isFormatted(path, digest, options.lineLength)) {
+          // The file is not validated, but it must still parse, which it might not if the grammar
+          // changed since it was stamped.
+          resource = getResource(path);
+          if (resource != null && resource.getErrors().isEmpty()) {
+            return new FormatResult(
+                path, outputPath, true, List.of(), contents, true, digest, true);
+          }
+        }
+      }
+
+      if (resource == null) resource = getResource(path);
+      // Skip file if not an LF file.
+      if (resource == null) {
+        return new FormatResult(path, outputPath, false, List.of(), null, true, null, false);
+      }
+      List<LfIssue> issues = validate(validator, resource, reporter);
+      if (!options.ignoreErrors
+          && issues.stream().anyMatch(it -> it.getSeverity() == Severity.ERROR)) {
+        return new FormatResult(path, outputPath, true, issues, null, true, null, false);
+      }
+
+      final String formattedFileContents =
+          FormattingUtil.render((Model) resource.getContents().get(0), options.lineLength);
+      if (parsingHelper == null) {
+        // Creating the parser creates and registers an injector, which must not happen in parallel.
+        synchronized (FileFormatter.class) {
+          parsingHelper = new LfParsingHelper();
+        }
+      }
+      Model reparsed =
+          parsingHelper.parseSourceAsIfInDirectory(path.getParent(), formattedFileContents);
+      boolean isEquivalent = new IsEqual(resource.getContents().get(0)).doSwitch(reparsed);
+      return new FormatResult(
+          path,
+          outputPath,
+          true,
+          issues,
+          formattedFileContents,
+          isEquivalent,
+          digest,
+          formattedFileContents.equals(contents));
+    }
+
+    /** Obtain a resource from a path. Return null if path is not an LF file. */
+    private Resource getResource(Path path) {
+      final ResourceSet set = resourceSetProvider.get();
+      // Create LF resources with the services of this formatter's injector, whichever injector was
+      // registered globally last.
+      set.getResourceFactoryRegistry().getExtensionToFactoryMap().put("lf", resourceFactory);
+      try {
+        return set.getResource(URI.createFileURI(path.toString()), true);
+      } catch (RuntimeException e) {
+        return null;
       }
     }
   }
 
   /*
-   * Invokes the formatter on a single file defined by the given path.
+   * Reports the outcome of formatting a single file, and writes out the formatted contents.
    */
-  private void formatSingleFile(Path path, Path inputRoot, Path outputRoot) {
-    path = path.normalize();
-    Path outputPath =
-        outputRoot == null
-            ? path // Format in place.
-            : outputRoot.resolve(inputRoot.relativize(path)).normalize();
-
+  private void report(FormatResult result) {
+    Path path = result.path();
+    Path outputPath = result.outputPath();
     Path relativePath = io.getWd().relativize(path);
 
-    final Resource resource = getResource(path);
     // Skip file if not an LF file.
-    if (resource == null) {
+    if (!result.isLfFile()) {
       if (verbose) {
         reporter.printInfo("Skipped " + relativePath + ": not an LF file");
       }
       return;
     }
-    validateResource(resource);
+    result.issues().forEach(issueCollector::accept);
 
     if (!ignoreErrors) {
       exitIfCollectedErrors();
     }
 
-    final String formattedFileContents =
-        FormattingUtil.render((Model) resource.getContents().get(0), lineLength);
-    if (!new IsEqual(resource.getContents().get(0))
-        .doSwitch(
-            new LfParsingHelper()
-                .parseSourceAsIfInDirectory(path.getParent(), formattedFileContents))) {
+    final String formattedFileContents = result.formattedFileContents();
+    if (!result.isEquivalent()) {
       if (!ignoreErrors) {
         reporter.printFatalErrorAndExit(
             "The formatter failed to produce output that is semantically equivalent to its input"
@@ -219,6 +492,12 @@ public class Lff extends CliBase {
     if (!ignoreErrors) {
       exitIfCollectedErrors();
     }
+    if (stamps != null
+        && result.isFormatted()
+        && result.isEquivalent()
+        && result.issues().stream().noneMatch(it -> it.getSeverity() == Severity.ERROR)) {
+      stamps.setFormatted(path, result.digest(), lineLength);
+    }
     // Only errors are printed. Warnings are not helpful for LFF
     // and since they don't prevent the file from being formatted,
     // the position of the issue may be wrong in the formatted file.
@@ -24,8 +24,10 @@
 
 package org.lflang.cli;
 
+import static org.hamcrest.CoreMatchers.allOf;
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
 import static org.lflang.cli.TestUtils.TempDirBuilder.dirBuilder;
 import static org.lflang.cli.TestUtils.TempDirChecker.dirChecker;
 
@@ -288,6 +290,44 @@ reactor MACService {
     dirChecker(tempDir).checkContentsOf("src/b/File.lf", equalTo(FILE_AFTER_REFORMAT));
   }
 
+  @Test
+  public void testCheckRecordsFormattedFiles(@TempDir Path tempDir) throws IOException {
+    dirBuilder(tempDir)
+        .file("src/a/File.lf", FILE_BEFORE_REFORMAT)
+        .file("src/b/File.lf", FILE_AFTER_REFORMAT);
+
+    lffTester.run(tempDir, "src", "--check", "--stamp-file", "lff.stamps").checkFailed();
+
+    // Only the file that was verified to be formatted is known to be.
+    dirChecker(tempDir)
+        .checkContentsOf(
+            "lff.stamps",
+            allOf(
+                containsString(tempDir.resolve("src/b/File.lf").toString()),
+                not(containsString(tempDir.resolve("src/a/File.lf").toString()))));
+  }
+
+  @Test
+  public void testFormatDirectoryInParallel(@TempDir Path tempDir) throws IOException {
+    dirBuilder(tempDir)
+        .file("src/a/File.lf", FILE_BEFORE_REFORMAT)
+        .file("src/b/File.lf", FILE_AFTER_REFORMAT)
+        .file("src/c/File.lf", FILE_BEFORE_REFORMAT);
+
+    for (int i = 0; i < 2; i++) {
+      ExecutionResult result =
+          lffTester.run(tempDir, "src", "--jobs", "2", "--stamp-file", "lff.stamps");
+      result.checkOk();
+      for (String file : List.of("src/a/File.lf", "src/b/File.lf", "src/c/File.lf")) {
+        dirChecker(tempDir).checkContentsOf(file, equalTo(FILE_AFTER_REFORMAT));
+      }
+    }
+    // Once all files are formatted, they are all known to be.
+    dirChecker(tempDir)
+        .checkContentsOf(
+            "lff.stamps", containsString(tempDir.resolve("src/c/File.lf").toString()));
+  }
+
   static class LffTestFixture extends CliToolTestFixture {
 
     @Override
@@ -1,5 +1,6 @@
 package org.lflang.analyses.statespace;
 
+import java.util.Objects;
 import org.lflang.generator.TriggerInstance;
 
 /** A node in the state space diagram representing a step in the execution of an LF program. */
@@ -36,6 +37,24 @@ public class Event implements Comparable<Event> {
     return false;
   }
 
+  /**
+   * Two events are equal if they have the same trigger and the same tag. This is what the event
+   * queue uses to enforce uniqueness of its entries.
+   */
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o instanceof Event e) {
+      return this.trigger.equals(e.trigger) && this.tag.equals(e.tag);
+    }
+    return false;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(trigger, tag);
+  }
+
   @Override
   public String toString() {
     return "(" + trigger.getFullName() + ", " + tag + ")";
@@ -1,21 +1,227 @@
 package org.lflang.analyses.statespace;
 
-import java.util.PriorityQueue;
+import java.util.AbstractCollection;
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
 
 /**
  * An event queue implementation that sorts events in the order of _time tags_ and _trigger names_
  * based on the implementation of compareTo() in the Event class.
+ *
+ * <p>The queue does not contain duplicate events, i.e., events with the same trigger and the same
+ * tag. To keep insertion cheap, the heap is paired with a hash index of the events it currently
+ * holds, so that the uniqueness check does not require a linear scan of the heap.
+ *
+ * <p>The heap is a persistent leftist heap: adding or polling an event creates O(log n) new heap
+ * nodes and leaves the old ones untouched. This makes {@link #snapshot()} a constant-time operation
+ * whose result shares its structure with the queue and with all other snapshots, which is what
+ * the state space explorer stores in every {@link StateSpaceNode}.
  */
-public class EventQueue extends PriorityQueue<Event> {
+public class EventQueue extends AbstractQueue<Event> {
+
+  /** The root of the persistent heap that determines the order in which events are polled. */
+  private HeapNode root = null;
+
+  /** Index of the events currently in the heap, keyed on (trigger, tag). */
+  private final Set<Event> index = new HashSet<>();
 
   /**
-   * Modify the original add() by enforcing uniqueness. There cannot be duplicate events in the
+   * Add an event to the queue while enforcing uniqueness. There cannot be duplicate events in the
    * event queue.
+   *
+   * @return true if the event was added, false if an equal event was already queued.
+   */
+  @Override
+  public boolean offer(Event e) {
+    if (!index.add(e)) return false;
+    root = HeapNode.merge(root, new HeapNode(e, null, null));
+    return true;
+  }
+
+  /**
+   * Add an event to the queue while enforcing uniqueness. Unlike {@link AbstractQueue#add(Object)},
+   * this does not throw if an equal event was already queued, which is also what {@link
+   * #addAll(java.util.Collection)} relies on.
+   *
+   * @return true if the event was added, false if an equal event was already queued.
    */
   @Override
   public boolean add(Event e) {
-    if (this.contains(e)) return false;
-    super.add(e);
+    return offer(e);
+  }
+
+  @Override
+  public Event poll() {
+    if (root == null) return null;
+    Event e = root.event;
+    root = HeapNode.merge(root.left, root.right);
+    index.remove(e);
+    return e;
+  }
+
+  @Override
+  public Event peek() {
+    return root == null ? null : root.event;
+  }
+
+  /**
+   * Remove and return all the events that share the earliest tag in the queue, in the order
+   * imposed by Event.compareTo(). Return an empty list if the queue is empty.
+   */
+  public List<Event> pollEarliest() {
+    List<Event> events = new ArrayList<>();
+    Event first = poll();
+    if (first == null) return events;
+    events.add(first);
+    while (root != null && root.event.getTag().equals(first.getTag())) {
+      events.add(poll());
+    }
+    return events;
+  }
+
+  /**
+   * Return an immutable view of the current content of the queue. This takes constant time and
+   * does not copy any events. Subsequent changes to the queue are not reflected in the snapshot.
+   */
+  public Snapshot snapshot() {
+    return new Snapshot(root);
+  }
+
+  @Override
+  public boolean contains(Object o) {
+    return index.contains(o);
+  }
+
+  /** Remove an event from the queue. This rebuilds the heap and hence takes linear time. */
+  @Override
+  public boolean remove(Object o) {
+    if (!index.remove(o)) return false;
+    HeapNode rebuilt = null;
+    for (Event e : new Snapshot(root)) {
+      if (!e.equals(o)) rebuilt = HeapNode.merge(rebuilt, new HeapNode(e, null, null));
+    }
+    root = rebuilt;
     return true;
   }
+
+  @Override
+  public void clear() {
+    root = null;
+    index.clear();
+  }
+
+  @Override
+  public int size() {
+    return HeapNode.size(root);
+  }
+
+  /**
+   * Return an iterator over the events in no particular order. The iterator does not support
+   * removal.
+   */
+  @Override
+  public Iterator<Event> iterator() {
+    return new Snapshot(root).iterator();
+  }
+
+  /** An immutable collection of the events that were in the queue at some point in time. */
+  public static final class Snapshot extends AbstractCollection<Event> {
+
+    private final HeapNode root;
+
+    private Snapshot(HeapNode root) {
+      this.root = root;
+    }
+
+    /** Return the events in this snapshot in the order in which they would be polled. */
+    public List<Event> toSortedList() {
+      List<Event> result = new ArrayList<>(size());
+      HeapNode node = root;
+      while (node != null) {
+        result.add(node.event);
+        node = HeapNode.merge(node.left, node.right);
+      }
+      return result;
+    }
+
+    @Override
+    public int size() {
+      return HeapNode.size(root);
+    }
+
+    /** Return an iterator over the events in no particular order. */
+    @Override
+    public Iterator<Event> iterator() {
+      Deque<HeapNode> stack = new ArrayDeque<>();
+      if (root != null) stack.push(root);
+      return new Iterator<>() {
+        @Override
+        public boolean hasNext() {
+          return !stack.isEmpty();
+        }
+
+        @Override
+        public Event next() {
+          if (stack.isEmpty()) throw new NoSuchElementException();
+          HeapNode node = stack.pop();
+          if (node.right != null) stack.push(node.right);
+          if (node.left != null) stack.push(node.left);
+          return node.event;
+        }
+      };
+    }
+  }
+
+  /**
+   * An immutable node of a leftist heap. The rank of a node is the length of its right spine, which
+   * the merge operation keeps logarithmic in the size of the heap.
+   */
+  private static final class HeapNode {
+    final Event event;
+    final HeapNode left;
+    final HeapNode right;
+    final int rank;
+    final int size;
+
+    HeapNode(Event event, HeapNode left, HeapNode right) {
+      // Maintain the leftist property: the left child has at least the rank of the right child.
+      if (rank(left) < rank(right)) {
+        HeapNode tmp = left;
+        left = right;
+        right = tmp;
+      }
+      this.event = event;
+      this.left = left;
+      this.right = right;
+      this.rank = rank(right) + 1;
+      this.size = size(left) + size(right) + 1;
+    }
+
+    static int rank(HeapNode node) {
+      return node == null ? 0 : node.rank;
+    }
+
+    static int size(HeapNode node) {
+      return node == null ? 0 : node.size;
+    }
+
+    /** Merge two heaps without modifying either of them. */
+    static HeapNode merge(HeapNode a, HeapNode b) {
+      if (a == null) return b;
+      if (b == null) return a;
+      if (b.event.compareTo(a.event) < 0) {
+        HeapNode tmp = a;
+        a = b;
+        b = tmp;
+      }
+      return new HeapNode(a.event, a.left, merge(a.right, b));
+    }
+  }
 }
@@ -147,7 +147,9 @@ public class StateSpaceDiagram extends DirectedGraph<StateSpaceNode> {
                   .collect(Collectors.toList());
           String reactionsStr = String.join("\\n", reactions);
           List<String> events =
-              n.getEventQcopy().stream().map(Event::toString).collect(Collectors.toList());
+              n.getEventQcopy().toSortedList().stream()
+                  .map(Event::toString)
+                  .collect(Collectors.toList());
           String eventsStr = String.join("\\n", events);
           dot.pr(
               "S"
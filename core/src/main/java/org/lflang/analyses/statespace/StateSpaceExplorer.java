@@ -1,9 +1,17 @@
 package org.lflang.analyses.statespace;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
 import org.lflang.TimeUnit;
 import org.lflang.TimeValue;
 import org.lflang.generator.ActionInstance;
@@ -42,9 +50,64 @@ public class StateSpaceExplorer {
   /** The main reactor instance based on which the state space is explored. */
   public ReactorInstance main;
 
+  /** The number of threads used to explore the state space. */
+  private final int threads;
+
+  /**
+   * The pool that computes the fingerprints of finished nodes while the exploration goes on, or
+   * null if exploring sequentially.
+   */
+  private ExecutorService pool;
+
+  /**
+   * Cache of the effects of each reaction encountered so far. The effects of a reaction do not
+   * depend on the tag at which it is invoked, so they only need to be collected once.
+   */
+  private final Map<ReactionInstance, List<Effect>> effects = new HashMap<>();
+
+  /**
+   * An event that a reaction may produce, relative to the tag at which the reaction is invoked.
+   *
+   * @param trigger The trigger of the produced event.
+   * @param delay The delay of the event in nanoseconds.
+   * @param incrementMicrostep Whether the event is in the next microstep instead of microstep 0.
+   */
+  private record Effect(TriggerInstance<?> trigger, long delay, boolean incrementMicrostep) {}
+
+  /**
+   * A node that has been added to the diagram but not yet checked for being a repetition of an
+   * earlier node.
+   *
+   * @param node The node.
+   * @param predecessor The node that was the tail of the diagram before the node was added.
+   * @param fingerprint The result of {@link StateSpaceNode#hash()} of the node.
+   */
+  private record Pending(
+      StateSpaceNode node, StateSpaceNode predecessor, CompletableFuture<Integer> fingerprint) {}
+
   // Constructor
   public StateSpaceExplorer(ReactorInstance main) {
+    this(main, 1);
+  }
+
+  /**
+   * Create an explorer that uses the given number of threads.
+   *
+   * <p>Looking for a loop requires a fingerprint of every node, which sorts all the events queued
+   * in the node. With more than one thread, these fingerprints are computed by the other threads
+   * while the exploration goes on, and nodes are checked for loops up to as many nodes behind the
+   * exploration as there are other threads. The nodes explored past a loop are then removed again,
+   * so that the resulting state space diagram does not depend on the number of threads.
+   *
+   * @param main The main reactor instance.
+   * @param threads The number of threads to use, at least 1.
+   */
+  public StateSpaceExplorer(ReactorInstance main, int threads) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("The number of threads must be positive.");
+    }
     this.main = main;
+    this.threads = threads;
   }
 
   /** Recursively add the first events to the event queue. */
@@ -77,6 +140,26 @@ public class StateSpaceExplorer {
    * <p>Note: This is experimental code which is to be refactored in a future PR. Use with caution.
    */
   public void explore(Tag horizon, boolean findLoop) {
+    if (threads > 1 && findLoop) {
+      pool =
+          Executors.newFixedThreadPool(
+              threads - 1,
+              runnable -> {
+                Thread thread = new Thread(runnable, "StateSpaceExplorer");
+                thread.setDaemon(true);
+                return thread;
+              });
+    }
+    try {
+      doExplore(horizon, findLoop);
+    } finally {
+      if (pool != null) pool.shutdownNow();
+      pool = null;
+    }
+  }
+
+  /** Explore the state space. See {@link #explore(Tag, boolean)}. */
+  private void doExplore(Tag horizon, boolean findLoop) {
     // Traverse the main reactor instance recursively to find
     // the known initial events (startup and timers' first firings).
     // FIXME: It seems that we need to handle shutdown triggers
@@ -88,6 +171,7 @@ public class StateSpaceExplorer {
     StateSpaceNode currentNode = null;
     StateSpaceNode previousNode = null;
     HashMap<Integer, StateSpaceNode> uniqueNodes = new HashMap<>();
+    Deque<Pending> pending = new ArrayDeque<>();
     boolean stop = true;
     if (this.eventQ.size() > 0) {
       stop = false;
@@ -100,11 +184,7 @@ public class StateSpaceExplorer {
     while (!stop) {
 
       // Pop the events from the earliest tag off the event queue.
-      ArrayList<Event> currentEvents = new ArrayList<Event>();
-      while (eventQ.size() > 0 && eventQ.peek().getTag().compareTo(currentTag) == 0) {
-        Event e = eventQ.poll();
-        currentEvents.add(e);
-      }
+      List<Event> currentEvents = eventQ.pollEarliest();
 
       // Collect all the reactions invoked in this current LOOP ITERATION
       // triggered by the earliest events.
@@ -132,49 +212,7 @@ public class StateSpaceExplorer {
 
       // For each reaction invoked, compute the new events produced.
       for (ReactionInstance reaction : reactionsTemp) {
-        // Iterate over all the effects produced by this reaction.
-        // If the effect is a port, obtain the downstream port along
-        // a connection and enqueue a future event for that port.
-        // If the effect is an action, enqueue a future event for
-        // this action.
-        for (TriggerInstance<? extends Variable> effect : reaction.effects) {
-          if (effect instanceof PortInstance) {
-
-            for (SendRange senderRange : ((PortInstance) effect).getDependentPorts()) {
-
-              for (RuntimeRange<PortInstance> destinationRange : senderRange.destinations) {
-                PortInstance downstreamPort = destinationRange.instance;
-
-                // Getting delay from connection
-                // FIXME: Is there a more concise way to do this?
-                long delay = 0;
-                Expression delayExpr = senderRange.connection.getDelay();
-                if (delayExpr instanceof Time) {
-                  long interval = ((Time) delayExpr).getInterval();
-                  String unit = ((Time) delayExpr).getUnit();
-                  TimeValue timeValue = new TimeValue(interval, TimeUnit.fromName(unit));
-                  delay = timeValue.toNanoSeconds();
-                }
-
-                // Create and enqueue a new event.
-                Event e =
-                    new Event(downstreamPort, new Tag(currentTag.timestamp + delay, 0, false));
-                eventQ.add(e);
-              }
-            }
-          } else if (effect instanceof ActionInstance) {
-            // Get the minimum delay of this action.
-            long min_delay = ((ActionInstance) effect).getMinDelay().toNanoSeconds();
-            long microstep = 0;
-            if (min_delay == 0) {
-              microstep = currentTag.microstep + 1;
-            }
-            // Create and enqueue a new event.
-            Event e =
-                new Event(effect, new Tag(currentTag.timestamp + min_delay, microstep, false));
-            eventQ.add(e);
-          }
-        }
+        eventsProducedBy(reaction, currentTag).forEach(eventQ::add);
       }
 
       // We are at the first iteration.
@@ -196,7 +234,7 @@ public class StateSpaceExplorer {
             new StateSpaceNode(
                 currentTag, // Current tag
                 reactionsInvoked, // Reactions invoked at this tag
-                new ArrayList<>(eventQ) // A snapshot of the event queue
+                eventQ.snapshot() // A snapshot of the event queue
                 );
       }
       // When we advance to a new TIMESTAMP (not a new tag),
@@ -206,31 +244,9 @@ public class StateSpaceExplorer {
       // at the timestamp-level, so that we don't have to
       // worry about microsteps.
       else if (previousTag != null && currentTag.timestamp > previousTag.timestamp) {
-        // Whenever we finish a tag, check for loops fist.
-        // If currentNode matches an existing node in uniqueNodes,
-        // duplicate is set to the existing node.
-        StateSpaceNode duplicate;
-        if (findLoop && (duplicate = uniqueNodes.put(currentNode.hash(), currentNode)) != null) {
-
-          // Mark the loop in the diagram.
-          loopFound = true;
-          this.diagram.loopNode = duplicate;
-          this.diagram.loopNodeNext = currentNode;
-          this.diagram.tail = previousNode;
-          // Loop period is the time difference between the 1st time
-          // the node is reached and the 2nd time the node is reached.
-          this.diagram.loopPeriod =
-              this.diagram.loopNodeNext.getTag().timestamp
-                  - this.diagram.loopNode.getTag().timestamp;
-          this.diagram.addEdge(this.diagram.loopNode, this.diagram.tail);
-          return; // Exit the while loop early.
-        }
-
-        // Now we are at a new tag, and a loop is not found,
-        // add the node to the state space diagram.
+        // Now we are at a new tag, add the node to the state space diagram.
         // Adding a node to the graph once it is finalized
         // because this makes checking duplicate nodes easier.
-        // We don't have to remove a node from the graph.
         this.diagram.addNode(currentNode);
         this.diagram.tail = currentNode; // Update the current tail.
 
@@ -242,6 +258,16 @@ public class StateSpaceExplorer {
           if (previousNode != currentNode) this.diagram.addEdge(currentNode, previousNode);
         } else this.diagram.head = currentNode; // Initialize the head.
 
+        // Whenever we finish a tag, check for loops.
+        // Unless other threads compute the fingerprints of the nodes,
+        // the node that was just added is checked right away.
+        if (findLoop) {
+          pending.add(new Pending(currentNode, previousNode, fingerprint(currentNode)));
+          if (checkForLoops(pending, uniqueNodes, threads - 1)) {
+            return; // Exit the while loop early.
+          }
+        }
+
         //// Now we are done with the node at the previous tag,
         //// work on the new node at the current timestamp.
         // Copy the reactions in reactionsTemp.
@@ -256,7 +282,7 @@ public class StateSpaceExplorer {
             new StateSpaceNode(
                 currentTag, // Current tag
                 reactionsInvoked, // Reactions invoked at this tag
-                new ArrayList<>(eventQ) // A snapshot of the event queue
+                eventQ.snapshot() // A snapshot of the event queue
                 );
 
         // Update the previous node.
@@ -269,9 +295,9 @@ public class StateSpaceExplorer {
       else if (previousTag != null && currentTag.timestamp == previousTag.timestamp) {
         // Add reactions explored in the current loop iteration
         // to the existing state space node.
-        currentNode.getReactionsInvoked().addAll(reactionsTemp);
+        currentNode.addReactionsInvoked(reactionsTemp);
         // Update the eventQ snapshot.
-        currentNode.setEventQcopy(new ArrayList<>(eventQ));
+        currentNode.setEventQcopy(eventQ.snapshot());
       } else {
         throw new AssertionError("Unreachable");
       }
@@ -292,6 +318,9 @@ public class StateSpaceExplorer {
       }
     }
 
+    // Check the nodes whose fingerprints were still being computed.
+    if (findLoop && checkForLoops(pending, uniqueNodes, 0)) return;
+
     // Check if the last current node is added to the graph yet.
     // If not, add it now.
     // This could happen when condition (previousTag == null)
@@ -311,4 +340,102 @@ public class StateSpaceExplorer {
     // Set the current node as the head.
     if (this.diagram.head == null) this.diagram.head = currentNode;
   }
+
+  /** Return the fingerprint of the given node, computed by the pool if there is one. */
+  private CompletableFuture<Integer> fingerprint(StateSpaceNode node) {
+    if (pool == null) return CompletableFuture.completedFuture(node.hash());
+    return CompletableFuture.supplyAsync(node::hash, pool);
+  }
+
+  /**
+   * Check the oldest pending nodes for being repetitions of earlier nodes until at most the given
+   * number of nodes is pending. If a node repeats an earlier node, mark the loop in the diagram,
+   * remove the node and all the nodes that were added after it from the diagram, and return true.
+   */
+  private boolean checkForLoops(
+      Deque<Pending> pending, Map<Integer, StateSpaceNode> uniqueNodes, int maxPending) {
+    while (pending.size() > maxPending) {
+      Pending next = pending.poll();
+      // If the node matches an existing node in uniqueNodes,
+      // duplicate is set to the existing node.
+      StateSpaceNode duplicate = uniqueNodes.put(next.fingerprint().join(), next.node());
+      if (duplicate != null) {
+        // Undo the exploration past the last node before the loop.
+        this.diagram.removeNode(next.node());
+        for (Pending later : pending) {
+          later.fingerprint().cancel(false);
+          this.diagram.removeNode(later.node());
+        }
+        pending.clear();
+
+        // Mark the loop in the diagram.
+        loopFound = true;
+        this.diagram.loopNode = duplicate;
+        this.diagram.loopNodeNext = next.node();
+        this.diagram.tail = next.predecessor();
+        // Loop period is the time difference between the 1st time
+        // the node is reached and the 2nd time the node is reached.
+        this.diagram.loopPeriod =
+            this.diagram.loopNodeNext.getTag().timestamp
+                - this.diagram.loopNode.getTag().timestamp;
+        this.diagram.addEdge(this.diagram.loopNode, this.diagram.tail);
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Return the events produced by the given reaction when it is invoked at the given tag.
+   *
+   * <p>If an effect is a port, an event is produced for each downstream port along a connection. If
+   * an effect is an action, an event is produced for the action itself.
+   */
+  private Stream<Event> eventsProducedBy(ReactionInstance reaction, Tag tag) {
+    return effects.computeIfAbsent(reaction, StateSpaceExplorer::collectEffects).stream()
+        .map(
+            effect ->
+                new Event(
+                    effect.trigger(),
+                    new Tag(
+                        tag.timestamp + effect.delay(),
+                        effect.incrementMicrostep() ? tag.microstep + 1 : 0,
+                        false)));
+  }
+
+  /** Collect the effects of the given reaction, independently of the tag it is invoked at. */
+  private static List<Effect> collectEffects(ReactionInstance reaction) {
+    List<Effect> result = new ArrayList<>();
+    for (TriggerInstance<? extends Variable> effect : reaction.effects) {
+      if (effect instanceof PortInstance) {
+
+        for (SendRange senderRange : ((PortInstance) effect).getDependentPorts()) {
+
+          for (RuntimeRange<PortInstance> destinationRange : senderRange.destinations) {
+            PortInstance downstreamPort = destinationRange.instance;
+
+            // Getting delay from connection
+            // FIXME: Is there a more concise way to do this?
+            long delay = 0;
+            Expression delayExpr = senderRange.connection.getDelay();
+            if (delayExpr instanceof Time) {
+              long interval = ((Time) delayExpr).getInterval();
+              String unit = ((Time) delayExpr).getUnit();
+              TimeValue timeValue = new TimeValue(interval, TimeUnit.fromName(unit));
+              delay = timeValue.toNanoSeconds();
+            }
+
+            // A connection resets the microstep to 0.
+            result.add(new Effect(downstreamPort, delay, false));
+          }
+        }
+      } else if (effect instanceof ActionInstance) {
+        // Get the minimum delay of this action.
+        long min_delay = ((ActionInstance) effect).getMinDelay().toNanoSeconds();
+        // An action with zero minimum delay is scheduled in the next microstep.
+        result.add(new Effect(effect, min_delay, min_delay == 0));
+      }
+    }
+    return result;
+  }
 }
@@ -1,12 +1,9 @@
 package org.lflang.analyses.statespace;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Collections;
 import java.util.Set;
-import java.util.stream.Collectors;
 import org.lflang.TimeValue;
 import org.lflang.generator.ReactionInstance;
-import org.lflang.generator.TriggerInstance;
 
 /** A node in the state space diagram representing a step in the execution of an LF program. */
 public class StateSpaceNode {
@@ -15,10 +12,13 @@ public class StateSpaceNode {
   private Tag tag;
   private TimeValue time; // Readable representation of tag.timestamp
   private Set<ReactionInstance> reactionsInvoked;
-  private ArrayList<Event> eventQcopy; // A snapshot of the eventQ represented as an ArrayList
+  private EventQueue.Snapshot eventQcopy; // A snapshot of the eventQ
+
+  /** The cached result of hash(), or null if it has not been computed since the last change. */
+  private Integer fingerprint;
 
   public StateSpaceNode(
-      Tag tag, Set<ReactionInstance> reactionsInvoked, ArrayList<Event> eventQcopy) {
+      Tag tag, Set<ReactionInstance> reactionsInvoked, EventQueue.Snapshot eventQcopy) {
     this.tag = tag;
     this.eventQcopy = eventQcopy;
     this.reactionsInvoked = reactionsInvoked;
@@ -41,33 +41,32 @@ public class StateSpaceNode {
    * and its tag are the same as the time offsets between future events' tags of the other node and
    * the other node's tag. The hash() method is not meant to replace the hashCode() method because
    * doing so changes the way nodes are inserted in the state space diagram.
+   *
+   * <p>The queued events are visited in the order in which they would be polled, so the result does
+   * not depend on the internal layout of the event queue. The result is computed once and cached
+   * until the reactions invoked or the event queue snapshot of this node change.
    */
   public int hash() {
+    if (fingerprint != null) return fingerprint;
+
     // Initial value
     int result = 17;
 
     // Generate hash for the reactions invoked.
     result = 31 * result + reactionsInvoked.hashCode();
 
-    // Generate hash for the triggers in the queued events.
-    List<String> eventNames =
-        this.eventQcopy.stream()
-            .map(Event::getTrigger)
-            .map(TriggerInstance::getFullName)
-            .collect(Collectors.toList());
-    result = 31 * result + eventNames.hashCode();
-
-    // Generate hash for a list of time differences between future events' tags and
-    // the current tag.
-    List<Long> timeDiff =
-        this.eventQcopy.stream()
-            .map(
-                e -> {
-                  return e.getTag().timestamp - this.tag.timestamp;
-                })
-            .collect(Collectors.toList());
-    result = 31 * result + timeDiff.hashCode();
-
+    // Generate hash for the triggers in the queued events and for the time differences between
+    // future events' tags and the current tag.
+    int eventNames = 1;
+    int timeDiff = 1;
+    for (Event e : this.eventQcopy.toSortedList()) {
+      eventNames = 31 * eventNames + e.getTrigger().getFullName().hashCode();
+      timeDiff = 31 * timeDiff + Long.hashCode(e.getTag().timestamp - this.tag.timestamp);
+    }
+    result = 31 * result + eventNames;
+    result = 31 * result + timeDiff;
+
+    fingerprint = result;
     return result;
   }
 
@@ -87,15 +86,22 @@ public class StateSpaceNode {
     return time;
   }
 
+  /** Return the reactions invoked at this node. The returned set must not be modified. */
   public Set<ReactionInstance> getReactionsInvoked() {
-    return reactionsInvoked;
+    return Collections.unmodifiableSet(reactionsInvoked);
+  }
+
+  /** Record additional reactions invoked at this node. */
+  public void addReactionsInvoked(Set<ReactionInstance> reactions) {
+    if (reactionsInvoked.addAll(reactions)) fingerprint = null;
   }
 
-  public ArrayList<Event> getEventQcopy() {
+  public EventQueue.Snapshot getEventQcopy() {
     return eventQcopy;
   }
 
-  public void setEventQcopy(ArrayList<Event> list) {
-    eventQcopy = list;
+  public void setEventQcopy(EventQueue.Snapshot snapshot) {
+    eventQcopy = snapshot;
+    fingerprint = null;
   }
 }
@@ -1,5 +1,6 @@
 package org.lflang.analyses.statespace;
 
+import java.util.Objects;
 import org.lflang.TimeValue;
 
 /**
@@ -52,6 +53,11 @@ public class Tag implements Comparable<Tag> {
     return false;
   }
 
+  @Override
+  public int hashCode() {
+    return Objects.hash(timestamp, microstep, forever);
+  }
+
   @Override
   public String toString() {
     if (this.forever) return "(FOREVER, " + this.microstep + ")";
@@ -0,0 +1,236 @@
+package org.lflang.analyses.uclid;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.lflang.analyses.statespace.StateInfo;
+import org.lflang.analyses.statespace.Tag;
+
+/**
+ * (EXPERIMENTAL) Parser for the steps of a counterexample trace produced by Uclid5.
+ *
+ * <p>Each step is an SMT term of the form {@code (_tuple_0 R T V X S P)}, where each component is
+ * either a tuple of values or a symbol introduced by an enclosing let binding, e.g. {@code (let
+ * ((a!1 (_tuple_1 true false))) (_tuple_0 a!1 ...))}. Negative integers are written as {@code (-
+ * n)}. The components are, in order, the reactions invoked, the time tag, the state variables, the
+ * triggers, the scheduled actions, and the scheduled payloads.
+ *
+ * <p>The term is parsed in a single pass over its characters. Let bindings are resolved as soon as
+ * they are encountered, so any number of (nested) bindings is supported.
+ */
+public class CounterexampleParser {
+
+  /** The names of the reactions, in the order in which they appear in the model. */
+  private final List<String> reactions;
+
+  /** The names of the named instances (triggers and state variables), in model order. */
+  private final List<String> variables;
+
+  /** The names of the triggers (ports, actions and timers), in model order. */
+  private final List<String> triggers;
+
+  /** The names of the actions, in model order. */
+  private final List<String> actions;
+
+  /**
+   * Create a parser for the counterexamples of a model with the given instances. The lists may be
+   * shorter than the corresponding tuples in the counterexample, since Uclid models contain a dummy
+   * variable for empty lists.
+   */
+  public CounterexampleParser(
+      List<String> reactions, List<String> variables, List<String> triggers, List<String> actions) {
+    this.reactions = List.copyOf(reactions);
+    this.variables = List.copyOf(variables);
+    this.triggers = List.copyOf(triggers);
+    this.actions = List.copyOf(actions);
+  }
+
+  /** Parse information from an SMT model for a step in the trace. */
+  public StateInfo parseStateInfo(String smtStr) {
+    Tokenizer tokenizer = new Tokenizer(smtStr);
+    Term term = parseTerm(tokenizer, new HashMap<>());
+    if (tokenizer.next() != null) {
+      throw new IllegalArgumentException("Unexpected input after the end of the state.");
+    }
+    if (!(term instanceof Tuple state) || state.elements().size() < 6) {
+      throw new IllegalArgumentException("Malformed state: " + smtStr);
+    }
+
+    StateInfo info = new StateInfo();
+
+    // Reactions
+    List<String> invoked = values(state.elements().get(0));
+    // Iterating over the name lists avoids accounting for
+    // the single dummy Uclid variable inserted earlier.
+    for (int i = 0; i < reactions.size() && i < invoked.size(); i++) {
+      if (invoked.get(i).equals("true")) info.reactions.add(reactions.get(i));
+    }
+
+    // Time tag
+    List<String> tag = values(state.elements().get(1));
+    info.tag = new Tag(Long.parseLong(tag.get(0)), Long.parseLong(tag.get(1)), false);
+
+    // Variables
+    // Currently all integers.
+    // Negative numbers could appear.
+    put(info.variables, variables, values(state.elements().get(2)));
+
+    // Triggers
+    put(info.triggers, triggers, values(state.elements().get(3)));
+
+    // Actions scheduled
+    put(info.scheduled, actions, values(state.elements().get(4)));
+
+    // Scheduled payloads
+    // Currently all integers.
+    // Negative numbers could appear.
+    put(info.payloads, actions, values(state.elements().get(5)));
+
+    return info;
+  }
+
+  /** Map each name to the value at the same position. */
+  private static void put(Map<String, String> map, List<String> names, List<String> values) {
+    for (int i = 0; i < names.size() && i < values.size(); i++) {
+      map.put(names.get(i), values.get(i));
+    }
+  }
+
+  /** Return the values of a tuple of atoms, or the value of a single atom. */
+  private static List<String> values(Term term) {
+    if (term instanceof Atom atom) return List.of(atom.value());
+    List<String> result = new ArrayList<>();
+    for (Term element : ((Tuple) term).elements()) {
+      if (!(element instanceof Atom atom)) {
+        throw new IllegalArgumentException("Expected a value but found a nested tuple.");
+      }
+      result.add(atom.value());
+    }
+    return result;
+  }
+
+  /**
+   * Parse the next term from the tokenizer, resolving symbols bound by let expressions using the
+   * given symbol table.
+   */
+  private static Term parseTerm(Tokenizer tokenizer, Map<String, Term> symbolTable) {
+    String token = tokenizer.next();
+    if (token == null) throw new IllegalArgumentException("Unexpected end of input.");
+    if (token.equals(")")) throw new IllegalArgumentException("Unexpected ')'.");
+    if (!token.equals("(")) {
+      // A symbol bound by a let expression, or a value.
+      Term bound = symbolTable.get(token);
+      return bound != null ? bound : new Atom(token);
+    }
+
+    String head = tokenizer.next();
+    if (head == null) throw new IllegalArgumentException("Unexpected end of input.");
+    if (head.equals("let")) {
+      expect(tokenizer, "(");
+      while ("(".equals(tokenizer.peek())) {
+        tokenizer.next();
+        String symbol = tokenizer.next();
+        symbolTable.put(symbol, parseTerm(tokenizer, symbolTable));
+        expect(tokenizer, ")");
+      }
+      expect(tokenizer, ")");
+      Term body = parseTerm(tokenizer, symbolTable);
+      expect(tokenizer, ")");
+      return body;
+    } else if (head.equals("-")) {
+      Term operand = parseTerm(tokenizer, symbolTable);
+      expect(tokenizer, ")");
+      if (!(operand instanceof Atom atom)) {
+        throw new IllegalArgumentException("Expected a number after '-'.");
+      }
+      return new Atom("-" + atom.value());
+    } else if (head.startsWith("_tuple_")) {
+      List<Term> elements = new ArrayList<>();
+      while (!")".equals(tokenizer.peek())) {
+        elements.add(parseTerm(tokenizer, symbolTable));
+      }
+      tokenizer.next();
+      return new Tuple(elements);
+    }
+    throw new IllegalArgumentException("Unexpected '" + head + "'.");
+  }
+
+  /** Consume the next token and check that it is the expected one. */
+  private static void expect(Tokenizer tokenizer, String expected) {
+    String token = tokenizer.next();
+    if (!expected.equals(token)) {
+      throw new IllegalArgumentException("Expected '" + expected + "' but found '" + token + "'.");
+    }
+  }
+
+  /** A parsed SMT term. */
+  private sealed interface Term permits Atom, Tuple {}
+
+  /** A value such as {@code true} or {@code -1}. */
+  private record Atom(String value) implements Term {}
+
+  /** A tuple of terms. */
+  private record Tuple(List<Term> elements) implements Term {}
+
+  /**
+   * Splits an SMT term into parentheses and atoms. Whitespace as well as escaped newlines (a
+   * backslash followed by 'n') separate tokens.
+   */
+  private static final class Tokenizer {
+    private final String input;
+    private int position = 0;
+    private String peeked = null;
+
+    Tokenizer(String input) {
+      this.input = input;
+    }
+
+    /** Return the next token without consuming it, or null at the end of the input. */
+    String peek() {
+      if (peeked == null) peeked = read();
+      return peeked;
+    }
+
+    /** Consume and return the next token, or null at the end of the input. */
+    String next() {
+      String token = peek();
+      peeked = null;
+      return token;
+    }
+
+    private String read() {
+      skipSeparators();
+      if (position >= input.length()) return null;
+      char c = input.charAt(position);
+      if (c == '(' || c == ')') {
+        position++;
+        return c == '(' ? "(" : ")";
+      }
+      int start = position;
+      while (position < input.length() && !isDelimiter(position)) position++;
+      return input.substring(start, position);
+    }
+
+    private void skipSeparators() {
+      while (position < input.length()) {
+        if (Character.isWhitespace(input.charAt(position))) {
+          position++;
+        } else if (isEscapedNewline(position)) {
+          position += 2;
+        } else {
+          return;
+        }
+      }
+    }
+
+    private boolean isDelimiter(int i) {
+      char c = input.charAt(i);
+      return c == '(' || c == ')' || Character.isWhitespace(c) || isEscapedNewline(i);
+    }
+
+    private boolean isEscapedNewline(int i) {
+      return input.charAt(i) == '\\' && i + 1 < input.length() && input.charAt(i + 1) == 'n';
+    }
+  }
+}
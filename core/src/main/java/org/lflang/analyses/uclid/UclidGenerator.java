@@ -101,6 +101,12 @@ public class UclidGenerator extends GeneratorBase {
 
   public Map<Path, String> expectations = new HashMap<>();
 
+  /** The completeness threshold with which each uclid file was generated */
+  public Map<Path, Integer> completenessThresholds = new HashMap<>();
+
+  /** The time after which checking each uclid file is aborted, if given by its property */
+  public Map<Path, TimeValue> timeouts = new HashMap<>();
+
   /** The directory where the generated files are placed */
   public Path outputDir;
 
@@ -157,6 +163,9 @@ public class UclidGenerator extends GeneratorBase {
   /** A property's ground truth value, for debugging the verifier */
   private String expect;
 
+  /** The maximum time checking a property may take, or null to use the default */
+  private TimeValue timeout;
+
   /**
    * The horizon (the total time interval required for evaluating an MTL property, which is derived
    * from the MTL spec), the completeness threshold (CT) (the number of transitions required for
@@ -255,6 +264,16 @@ public class UclidGenerator extends GeneratorBase {
           prop.getAttrParms().stream().filter(attr -> attr.getName().equals("expect")).findFirst();
       if (ExpectAttr.isPresent()) this.expect = ExpectAttr.get().getValue();
 
+      Optional<AttrParm> TimeoutAttr =
+          prop.getAttrParms().stream().filter(attr -> attr.getName().equals("timeout")).findFirst();
+      // The validator ensures that the timeout is a time or the literal 0,
+      // which disables the timeout.
+      this.timeout = null;
+      if (TimeoutAttr.isPresent()) {
+        Time time = TimeoutAttr.get().getTime();
+        this.timeout = time != null ? ASTUtils.toTimeValue(time) : TimeValue.ZERO;
+      }
+
       generateUclidFile();
     }
   }
@@ -272,7 +291,9 @@ public class UclidGenerator extends GeneratorBase {
       generateUclidCode();
       code.writeToFile(filename);
       this.generatedFiles.add(file);
+      this.completenessThresholds.put(file, this.CT);
       if (this.expect != null) this.expectations.put(file, this.expect);
+      if (this.timeout != null) this.timeouts.put(file, this.timeout);
     } catch (IOException e) {
       throw new RuntimeException(e);
     }
@@ -1611,7 +1632,10 @@ public class UclidGenerator extends GeneratorBase {
    */
   private void computeCT() {
 
-    StateSpaceExplorer explorer = new StateSpaceExplorer(this.main);
+    Integer requested = context.getArgs().threads();
+    int threads =
+        requested != null ? Math.max(1, requested) : Runtime.getRuntime().availableProcessors();
+    StateSpaceExplorer explorer = new StateSpaceExplorer(this.main, threads);
     explorer.explore(
         new Tag(this.horizon, 0, false), true // findLoop
         );
@@ -1,22 +1,26 @@
 package org.lflang.analyses.uclid;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.HashMap;
-import java.util.Iterator;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.lflang.MessageReporter;
+import org.lflang.TimeValue;
 import org.lflang.analyses.statespace.StateInfo;
-import org.lflang.analyses.statespace.Tag;
 import org.lflang.generator.GeneratorCommandFactory;
+import org.lflang.generator.NamedInstance;
 import org.lflang.util.LFCommand;
 
 /** (EXPERIMENTAL) Runner for Uclid5 models. */
@@ -30,9 +34,38 @@ public class UclidRunner {
 
   MessageReporter reporter;
 
+  /** The parser for the steps of counterexample traces. Created on first use. */
+  private CounterexampleParser parser;
+
+  /** The factory for the streaming parsers of JSON counterexamples. */
+  private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+  /** The maximum number of Uclid processes that run at the same time. */
+  private static final int MAX_PROCESSES = Runtime.getRuntime().availableProcessors();
+
+  /**
+   * The maximum time a single property check may take before its Uclid process is destroyed, unless
+   * the property gives its own timeout.
+   */
+  public static final long DEFAULT_TIMEOUT_MILLISECONDS = TimeUnit.HOURS.toMillis(1);
+
+  /** The name or path of the Uclid executable. */
+  private final String uclid;
+
   // Constructor
   public UclidRunner(UclidGenerator generator) {
+    this(generator, "uclid");
+  }
+
+  /**
+   * Create a runner for the models of the given generator that uses the given Uclid executable.
+   *
+   * @param generator The generator of the models to check.
+   * @param uclid The name of the Uclid executable, or the path to it.
+   */
+  public UclidRunner(UclidGenerator generator, String uclid) {
     this.generator = generator;
+    this.uclid = uclid;
     this.reporter = generator.context.getErrorReporter();
     this.commandFactory =
         new GeneratorCommandFactory(
@@ -41,195 +74,308 @@ public class UclidRunner {
 
   /** Parse information from an SMT model for a step in the trace. */
   public StateInfo parseStateInfo(String smtStr) {
-    StateInfo info = new StateInfo();
-
-    // Check for any let bindings.
-    Pattern p =
-        Pattern.compile(
-            "\\(let \\(\\((a!\\d+) \\(_tuple_\\d+ ((.)+?)\\)\\)\\)(\\\\n"
-                + "|\\s)+\\(_tuple_\\d+ ((.|\\n"
-                + ")+)\\)");
-    HashMap<String, String> symbolTable = new HashMap<>();
-    Matcher m = p.matcher(smtStr.strip());
-    String itemized = "";
-    if (m.find()) {
-      // FIXME: Handle multiple let bindings.
-      String symbol = m.group(1).strip();
-      String value = m.group(2).strip();
-      symbolTable.put(symbol, value);
-      itemized = m.group(5).strip();
-    } else {
-      // Remove the outer tuple layer.
-      p = Pattern.compile("\\(_tuple_\\d+((.|\\n)*)\\)");
-      m = p.matcher(smtStr.strip());
-      m.find();
-      itemized = m.group(1).strip();
-    }
-
-    // Process each sub-tuple by matching (_tuple_n ...)
-    // or matching a!n, where n is an integer.
-    p = Pattern.compile("(a!\\d+)|\\(_tuple_\\d+((\\s|\\\\n|\\d|\\(- \\d+\\)|true|false)+)\\)");
-    m = p.matcher(itemized);
-
-    // Reactions
-    m.find();
-    String reactionsStr = "";
-    // Found a let binding.
-    if (m.group(1) != null) {
-      reactionsStr = symbolTable.get(m.group(1)).strip();
-    }
-    // The rest falls into group 2.
-    else {
-      reactionsStr = m.group(2).strip();
-    }
-    String[] reactions = reactionsStr.split("\\s+");
-    // Iterating over generator lists avoids accounting for
-    // the single dummy Uclid variable inserted earlier.
-    for (int i = 0; i < generator.reactionInstances.size(); i++) {
-      if (reactions[i].equals("true"))
-        info.reactions.add(generator.reactionInstances.get(i).getReaction().getFullName());
-    }
-
-    // Time tag
-    m.find();
-    String tagStr = "";
-    // Found a let binding.
-    if (m.group(1) != null) tagStr = symbolTable.get(m.group(1)).strip();
-    // The rest falls into group 2.
-    else tagStr = m.group(2).strip();
-    String[] tag = tagStr.split("\\s+");
-    info.tag = new Tag(Long.parseLong(tag[0]), Long.parseLong(tag[1]), false);
-
-    // Variables
-    // Currently all integers.
-    // Negative numbers could appear.
-    m.find();
-    String variablesStr = "";
-    // Found a let binding.
-    if (m.group(1) != null) variablesStr = symbolTable.get(m.group(1)).strip();
-    // The rest falls into group 2.
-    else variablesStr = m.group(2).strip();
-    String[] variables = variablesStr.replaceAll("\\(-\\s(.*?)\\)", "-$1").split("\\s+");
-    for (int i = 0; i < generator.namedInstances.size(); i++) {
-      info.variables.put(generator.namedInstances.get(i).getFullName(), variables[i]);
-    }
-
-    // Triggers
-    m.find();
-    String triggersStr = "";
-    // Found a let binding.
-    if (m.group(1) != null) triggersStr = symbolTable.get(m.group(1)).strip();
-    // The rest falls into group 2.
-    else triggersStr = m.group(2).strip();
-    String[] triggers = triggersStr.split("\\s+");
-    for (int i = 0; i < generator.triggerInstances.size(); i++) {
-      info.triggers.put(generator.triggerInstances.get(i).getFullName(), triggers[i]);
-    }
-
-    // Actions scheduled
-    m.find();
-    String scheduledStr = "";
-    // Found a let binding.
-    if (m.group(1) != null) scheduledStr = symbolTable.get(m.group(1)).strip();
-    // The rest falls into group 2.
-    else scheduledStr = m.group(2).strip();
-    String[] scheduled = scheduledStr.split("\\s+");
-    for (int i = 0; i < generator.actionInstances.size(); i++) {
-      info.scheduled.put(generator.actionInstances.get(i).getFullName(), scheduled[i]);
-    }
+    return parser().parseStateInfo(smtStr);
+  }
 
-    // Scheduled payloads
-    // Currently all integers.
-    // Negative numbers could appear.
-    m.find();
-    String payloadsStr = "";
-    // Found a let binding.
-    if (m.group(1) != null) payloadsStr = symbolTable.get(m.group(1)).strip();
-    // The rest falls into group 2.
-    else payloadsStr = m.group(2).strip();
-    String[] payloads = payloadsStr.replaceAll("\\(-\\s(.*?)\\)", "-$1").split("\\s+");
-    for (int i = 0; i < generator.actionInstances.size(); i++) {
-      info.payloads.put(generator.actionInstances.get(i).getFullName(), payloads[i]);
+  /**
+   * Return the parser for counterexample steps, creating it on first use. This cannot happen in the
+   * constructor because the lists of instances are populated later by the generator.
+   */
+  private synchronized CounterexampleParser parser() {
+    if (parser == null) {
+      parser =
+          new CounterexampleParser(
+              generator.reactionInstances.stream()
+                  .map(r -> r.getReaction().getFullName())
+                  .toList(),
+              generator.namedInstances.stream().map(NamedInstance::getFullName).toList(),
+              generator.triggerInstances.stream().map(NamedInstance::getFullName).toList(),
+              generator.actionInstances.stream().map(NamedInstance::getFullName).toList());
     }
-
-    return info;
+    return parser;
   }
 
   /**
    * Run all the generated Uclid models, report outputs, and generate counterexample trace diagrams.
+   *
+   * <p>The models are checked concurrently by a bounded pool of Uclid processes, each of which is
+   * destroyed if it exceeds the per-property timeout. The results are reported in the order in
+   * which the models were generated, followed by a summary.
    */
   public void run() {
+    if (generator.generatedFiles.isEmpty()) return;
+
+    // Create the commands upfront, since the command factory reports errors.
+    Map<Path, LFCommand> commands = new LinkedHashMap<>();
     for (Path path : generator.generatedFiles) {
       // Execute uclid for each property.
       LFCommand command =
           commandFactory.createCommand(
-              "uclid",
+              uclid,
               List.of(
                   path.toString(),
                   // Any counterexample will be in <path.toString()>.json
                   "--json-cex",
                   path.toString()),
               generator.outputDir);
-      command.run();
-
-      String output = command.getOutput().toString();
-      boolean valid = output.contains("PASSED");
-      if (valid) {
-        System.out.println("Valid!");
-      } else {
-        System.out.println("Not valid!");
-        try {
-          // Read from the JSON counterexample (cex).
-          String cexJSONStr =
-              Files.readString(Paths.get(path.toString() + ".json"), StandardCharsets.UTF_8);
-          JSONObject cexJSON = new JSONObject(cexJSONStr);
-
-          //// Extract the counterexample trace from JSON.
-          // Get the first key "property_*"
-          Iterator<String> keys = cexJSON.keys();
-          String firstKey = keys.next();
-          JSONObject propertyObj = cexJSON.getJSONObject(firstKey);
-
-          // Get Uclid trace.
-          JSONArray uclidTrace = propertyObj.getJSONArray("trace");
-
-          // Get the first step of the Uclid trace.
-          JSONObject uclidTraceStepOne = uclidTrace.getJSONObject(0);
-
-          // Get the actual trace defined in the verification model.
-          JSONObject trace = uclidTraceStepOne.getJSONArray("trace").getJSONObject(0);
-
-          String stepStr = "";
-          for (int i = 0; i <= generator.CT; i++) {
-            try {
-              stepStr = trace.getString(String.valueOf(i));
-            } catch (JSONException e) {
-              stepStr = trace.getString("-");
-            }
-            System.out.println("============ Step " + i + " ============");
-            StateInfo info = parseStateInfo(stepStr);
-            info.display();
-          }
-        } catch (IOException e) {
-          reporter.nowhere().error("Not able to read from " + path);
-        }
+      if (command == null) {
+        // The command factory has already reported why.
+        reporter
+            .nowhere()
+            .error(
+                "None of the "
+                    + generator.generatedFiles.size()
+                    + " generated Uclid models were checked.");
+        return;
       }
+      // The output is printed once the property has been checked
+      // to avoid interleaving the output of concurrent processes.
+      command.setQuiet();
+      commands.put(path, command);
+    }
+
+    ExecutorService pool =
+        Executors.newFixedThreadPool(Math.min(MAX_PROCESSES, commands.size()));
+    try {
+      // Create the parser before any worker thread needs it.
+      parser();
+      Map<Path, Future<Result>> futures = new LinkedHashMap<>();
+      commands.forEach(
+          (path, command) -> futures.put(path, pool.submit(() -> check(path, command))));
 
-      // If "expect" is set, check if the result matches it.
-      // If not, exit with error code 1.
-      String expect = generator.expectations.get(path);
-      if (expect != null) {
-        boolean expectValid = Boolean.parseBoolean(expect);
-        if (expectValid != valid) {
+      int numValid = 0;
+      int numTimedOut = 0;
+      int numFailed = 0;
+      for (Map.Entry<Path, Future<Result>> entry : futures.entrySet()) {
+        Result result;
+        try {
+          result = entry.getValue().get();
+        } catch (ExecutionException e) {
+          // Report the failure and carry on with the other properties.
           reporter
               .nowhere()
-              .error(
-                  "ERROR: The expected result does not match the actual result. Expected: "
-                      + expectValid
-                      + ", Result: "
-                      + valid);
+              .error("Failed to check " + entry.getKey() + ": " + e.getCause().getMessage());
+          numFailed++;
+          continue;
         }
+        report(result);
+        if (result.timedOut()) numTimedOut++;
+        else if (result.valid()) numValid++;
+      }
+      System.out.println(
+          "Checked "
+              + futures.size()
+              + " properties: "
+              + numValid
+              + " valid, "
+              + (futures.size() - numValid - numTimedOut - numFailed)
+              + " not valid, "
+              + numTimedOut
+              + " timed out, "
+              + numFailed
+              + " failed.");
+    } catch (InterruptedException e) {
+      reporter.nowhere().error("Interrupted while checking the generated Uclid models.");
+      Thread.currentThread().interrupt();
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  /**
+   * Check a single property by running the given Uclid command on the model at the given path, and
+   * parse the counterexample if the property does not hold. This is executed in a worker thread, so
+   * it must not report messages.
+   */
+  private Result check(Path path, LFCommand command) {
+    long timeout = timeoutMilliseconds(path);
+    // A timeout of 0 means that there is no limit.
+    long deadline = timeout > 0 ? System.currentTimeMillis() + timeout : Long.MAX_VALUE;
+    AtomicBoolean timedOut = new AtomicBoolean(false);
+    command.run(
+        () -> {
+          if (System.currentTimeMillis() > deadline) timedOut.set(true);
+          return timedOut.get();
+        });
+
+    String output = command.getOutput();
+    boolean valid = !timedOut.get() && output.contains("PASSED");
+    List<StateInfo> trace = List.of();
+    String error = null;
+    if (!valid && !timedOut.get()) {
+      try {
+        trace = parseCounterexample(path, generator.completenessThresholds.get(path));
+      } catch (IOException e) {
+        error = "Not able to read from " + path;
+      } catch (IllegalArgumentException e) {
+        error = "Not able to parse the counterexample of " + path + ": " + e.getMessage();
       }
     }
+    return new Result(
+        path, output, command.getErrors(), valid, timedOut.get(), timeout, trace, error);
   }
+
+  /**
+   * Return the maximum time in milliseconds that checking the model at the given path may take, or
+   * 0 if there is no limit.
+   */
+  private long timeoutMilliseconds(Path path) {
+    TimeValue timeout = generator.timeouts.get(path);
+    if (timeout == null) return DEFAULT_TIMEOUT_MILLISECONDS;
+    return TimeUnit.NANOSECONDS.toMillis(timeout.toNanoSeconds());
+  }
+
+  /**
+   * Read the counterexample of the model at the given path and parse the first steps of it.
+   *
+   * <p>The JSON file is read as a stream of tokens and each step is parsed as soon as it is read,
+   * so that no tree of the whole counterexample is built. Its structure is as follows:
+   *
+   * <pre>{@code
+   * { "property_*": { "trace": [ { "trace": [ { "0": "...", "1": "...", "-": "..." } ] } ] } }
+   * }</pre>
+   *
+   * <p>A step that is missing from the trace is given by the entry "-".
+   */
+  private List<StateInfo> parseCounterexample(Path path, int steps) throws IOException {
+    StateInfo[] result = new StateInfo[steps + 1];
+    String defaultStep = null;
+    try (JsonParser json = JSON_FACTORY.createParser(Paths.get(path + ".json").toFile())) {
+      // Enter the object of the first key "property_*".
+      expectToken(json, JsonToken.START_OBJECT);
+      expectToken(json, JsonToken.FIELD_NAME);
+      expectToken(json, JsonToken.START_OBJECT);
+      // Enter the first step of the Uclid trace.
+      enterField(json, "trace", JsonToken.START_ARRAY);
+      expectToken(json, JsonToken.START_OBJECT);
+      // Enter the actual trace defined in the verification model.
+      enterField(json, "trace", JsonToken.START_ARRAY);
+      expectToken(json, JsonToken.START_OBJECT);
+      while (json.nextToken() == JsonToken.FIELD_NAME) {
+        String key = json.getCurrentName();
+        json.nextToken();
+        int step = stepIndex(key);
+        if (step >= 0 && step <= steps) {
+          result[step] = parseStateInfo(json.getText());
+        } else if (key.equals("-")) {
+          defaultStep = json.getText();
+        } else {
+          json.skipChildren();
+        }
+      }
+    }
+    for (int i = 0; i <= steps; i++) {
+      if (result[i] == null) {
+        if (defaultStep == null) {
+          throw new IOException("Step " + i + " is missing from the counterexample of " + path);
+        }
+        result[i] = parseStateInfo(defaultStep);
+      }
+    }
+    return Arrays.asList(result);
+  }
+
+  /** Return the step number given by a key of the trace, or -1 if the key is not a number. */
+  private static int stepIndex(String key) {
+    if (key.isEmpty() || key.length() > 9) return -1;
+    for (int i = 0; i < key.length(); i++) {
+      if (!Character.isDigit(key.charAt(i))) return -1;
+    }
+    return Integer.parseInt(key);
+  }
+
+  /** Advance to the next token and check that it is of the expected kind. */
+  private static void expectToken(JsonParser json, JsonToken expected) throws IOException {
+    JsonToken token = json.nextToken();
+    if (token != expected) {
+      throw new IOException(
+          "Malformed counterexample: expected " + expected + " but found " + token);
+    }
+  }
+
+  /**
+   * Skip the fields of the current object until the field with the given name is found, and
+   * advance to its value, which must be of the expected kind.
+   */
+  private static void enterField(JsonParser json, String name, JsonToken expected)
+      throws IOException {
+    while (json.nextToken() == JsonToken.FIELD_NAME) {
+      String key = json.getCurrentName();
+      if (key.equals(name)) {
+        expectToken(json, expected);
+        return;
+      }
+      json.nextToken();
+      json.skipChildren();
+    }
+    throw new IOException("Malformed counterexample: missing field \"" + name + "\"");
+  }
+
+  /** Report the result of checking a single property. */
+  private void report(Result result) {
+    System.out.println("============ Property " + result.path().getFileName() + " ============");
+    System.out.print(result.output());
+    System.err.print(result.errors());
+    if (result.timedOut()) {
+      reporter
+          .nowhere()
+          .error(
+              "Checking "
+                  + result.path()
+                  + " timed out after "
+                  + result.timeoutMilliseconds()
+                  + " milliseconds.");
+      return;
+    }
+    if (result.valid()) {
+      System.out.println("Valid!");
+    } else {
+      System.out.println("Not valid!");
+      if (result.error() != null) {
+        reporter.nowhere().error(result.error());
+      }
+      for (int i = 0; i < result.trace().size(); i++) {
+        System.out.println("============ Step " + i + " ============");
+        result.trace().get(i).display();
+      }
+    }
+
+    // If "expect" is set, check if the result matches it.
+    // If not, exit with error code 1.
+    String expect = generator.expectations.get(result.path());
+    if (expect != null) {
+      boolean expectValid = Boolean.parseBoolean(expect);
+      if (expectValid != result.valid()) {
+        reporter
+            .nowhere()
+            .error(
+                "ERROR: The expected result does not match the actual result. Expected: "
+                    + expectValid
+                    + ", Result: "
+                    + result.valid());
+      }
+    }
+  }
+
+  /**
+   * The outcome of checking a single property.
+   *
+   * @param path The path of the Uclid model.
+   * @param output The output of the Uclid process.
+   * @param errors The error output of the Uclid process.
+   * @param valid Whether the property holds.
+   * @param timedOut Whether the check was aborted because it exceeded the timeout.
+   * @param timeoutMilliseconds The timeout of the check, or 0 if there was none.
+   * @param trace The steps of the counterexample, if the property does not hold.
+   * @param error An error that occurred while reading the counterexample, or null.
+   */
+  private record Result(
+      Path path,
+      String output,
+      String errors,
+      boolean valid,
+      boolean timedOut,
+      long timeoutMilliseconds,
+      List<StateInfo> trace,
+      String error) {}
 }
@@ -4,7 +4,6 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.function.Function;
-import java.util.function.ToLongFunction;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -62,11 +61,7 @@ public class FormattingUtil {
     String singleLineCommentPrefix = target.getSingleLineCommentPrefix();
     ms.findBestRepresentation(
         () -> ms.render(INDENTATION, singleLineCommentPrefix, codeMapTags, null),
-        r ->
-            r.levelsOfCommentDisplacement() * BADNESS_PER_LEVEL_OF_COMMENT_DISPLACEMENT
-                + countCharactersViolatingLineLength(lineLength).applyAsLong(r.rendering())
-                    * BADNESS_PER_CHARACTER_VIOLATING_LINE_LENGTH
-                + countNewlines(r.rendering()) * BADNESS_PER_NEWLINE,
+        r -> badness(r, lineLength),
         lineLength,
         INDENTATION,
         singleLineCommentPrefix);
@@ -95,13 +90,28 @@ public class FormattingUtil {
     return render(object, DEFAULT_LINE_LENGTH);
   }
 
-  /** Return the number of characters appearing in columns exceeding `lineLength`. */
-  private static ToLongFunction<String> countCharactersViolatingLineLength(int lineLength) {
-    return s -> s.lines().mapToInt(it -> Math.max(0, it.length() - lineLength)).sum();
-  }
-
-  private static long countNewlines(String s) {
-    return s.lines().count();
+  /**
+   * Return the badness of the given render result, which is computed from the displacement of
+   * comments, the number of lines, and the number of characters appearing in columns exceeding
+   * `lineLength`. Lines are delimited like in {@link String#lines()}, but the rendering is
+   * scanned only once, without copying it.
+   */
+  private static long badness(MalleableString.RenderResult r, int lineLength) {
+    String s = r.rendering();
+    long charactersViolatingLineLength = 0;
+    long lines = 0;
+    int start = 0;
+    while (start < s.length()) {
+      int end = start;
+      while (end < s.length() && s.charAt(end) != '\n' && s.charAt(end) != '\r') end++;
+      charactersViolatingLineLength += Math.max(0, end - start - lineLength);
+      lines++;
+      boolean crlf = end + 1 < s.length() && s.charAt(end) == '\r' && s.charAt(end + 1) == '\n';
+      start = end + (crlf ? 2 : 1);
+    }
+    return r.levelsOfCommentDisplacement() * BADNESS_PER_LEVEL_OF_COMMENT_DISPLACEMENT
+        + charactersViolatingLineLength * BADNESS_PER_CHARACTER_VIOLATING_LINE_LENGTH
+        + lines * BADNESS_PER_NEWLINE;
   }
 
   /**
@@ -109,6 +119,7 @@ public class FormattingUtil {
    * possible. Normalize whitespace. Merge consecutive single-line comments.
    */
   static String lineWrapComments(List<String> comments, int width, String singleLineCommentPrefix) {
+    if (comments.isEmpty()) return "";
     StringBuilder ret = new StringBuilder();
     StringBuilder current = new StringBuilder();
     for (String comment : comments) {
@@ -3,6 +3,7 @@ package org.lflang.ast;
 import com.google.inject.Inject;
 import com.google.inject.Injector;
 import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import org.eclipse.emf.common.util.URI;
@@ -55,13 +56,21 @@ public class LfParsingHelper {
   }
 
   public Model parseSourceAsIfInDirectory(Path directory, String sourceText) {
-    // Use nontrivial number to avoid collisions. This prevents TOCTOU errors
-    // which would show up when running tests concurrently.
+    // Use nontrivial number to avoid collisions, and create the file atomically so that concurrent
+    // callers never write to the same file.
     int num = sourceText.hashCode();
-    while (Files.exists(directory.resolve("file" + num + ".lf"))) {
-      num++;
+    Path file;
+    while (true) {
+      file = directory.resolve("file" + num + ".lf");
+      try {
+        Files.createFile(file);
+        break;
+      } catch (FileAlreadyExistsException e) {
+        num++;
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
     }
-    Path file = directory.resolve("file" + num + ".lf");
     try {
       Files.writeString(file, sourceText);
       return parse(file);
@@ -3,7 +3,6 @@ package org.lflang.ast;
 import com.google.common.collect.ImmutableList;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 import java.util.function.BiConsumer;
@@ -24,13 +23,25 @@ import org.lflang.util.StringUtil;
  * A `MalleableString` is an object with multiple valid textual representations. These textual
  * representations are code that may have associated comments.
  *
+ * <p>Renderings are cached, so that when a representation is chosen, only the `MalleableString`s
+ * that (transitively) contain the changed one have to be rendered again.
+ *
  * @ingroup Utilities
  */
 public abstract class MalleableString {
 
+  /** The maximum number of renderings with different arguments that are cached per object. */
+  private static final int MAX_CACHED_RENDERINGS = 2;
+
   protected List<String> comments = new ArrayList<>();
   protected EObject sourceEObject = null;
 
+  /** The objects that contain this, whose renderings depend on the rendering of this. */
+  private final List<MalleableString> containers = new ArrayList<>();
+
+  /** The cached renderings of this, which are valid as long as this does not change. */
+  private final List<CachedRendering> renderings = new ArrayList<>(MAX_CACHED_RENDERINGS);
+
   /** Return this, indented by one more level. */
   public MalleableString indent() {
     return new Indented(this);
@@ -60,12 +71,14 @@ public abstract class MalleableString {
   /** Associate comments with this. */
   public MalleableString addComments(Stream<String> comments) {
     comments.filter(s -> !s.isBlank()).map(String::strip).forEach(this.comments::add);
+    invalidate();
     return this;
   }
 
   /** Specify the EObject from which this originated, if applicable. */
   public MalleableString setSourceEObject(EObject sourceEObject) {
     this.sourceEObject = sourceEObject;
+    invalidate();
     return this;
   }
 
@@ -73,12 +86,57 @@ public abstract class MalleableString {
    * Render this using `indentation` spaces per indentation level and `singleLineCommentMarker`
    * to mark the beginnings of single-line comments.
    */
-  public abstract RenderResult render(
+  public final RenderResult render(
+      int indentation,
+      String singleLineCommentMarker,
+      boolean codeMapTag,
+      EObject enclosingEObject) {
+    for (CachedRendering cached : renderings) {
+      if (cached.indentation == indentation
+          && cached.singleLineCommentMarker.equals(singleLineCommentMarker)
+          && cached.codeMapTag == codeMapTag
+          && cached.enclosingEObject == enclosingEObject) {
+        return cached.result();
+      }
+    }
+    RenderResult result =
+        renderUncached(indentation, singleLineCommentMarker, codeMapTag, enclosingEObject);
+    var cached =
+        new CachedRendering(
+            indentation,
+            singleLineCommentMarker,
+            codeMapTag,
+            enclosingEObject,
+            result.unplacedComments.toList(),
+            result.rendering,
+            result.levelsOfCommentDisplacement);
+    if (renderings.size() == MAX_CACHED_RENDERINGS) renderings.remove(0);
+    renderings.add(cached);
+    return cached.result();
+  }
+
+  /** Render this without consulting the cache. See {@link #render}. */
+  protected abstract RenderResult renderUncached(
       int indentation,
       String singleLineCommentMarker,
       boolean codeMapTag,
       EObject enclosingEObject);
 
+  /** Record that the rendering of this depends on the rendering of the given object. */
+  protected final void contains(MalleableString component) {
+    component.containers.add(this);
+  }
+
+  /** Forget the cached renderings of this and of the objects that (transitively) contain this. */
+  protected final void invalidate() {
+    // If this has no rendering, then neither have the objects that contain it.
+    if (renderings.isEmpty()) return;
+    renderings.clear();
+    for (MalleableString container : containers) {
+      container.invalidate();
+    }
+  }
+
   /** Return an object that can be represented as any one of the given alternatives. */
   public static MalleableString anyOf(MalleableString... possibilities) {
     return new Fork(possibilities);
@@ -114,8 +172,10 @@ public abstract class MalleableString {
   public String toString() {
     List<String> temp = comments;
     comments = List.of();
+    invalidate();
     String ret = render(0, "", false, null).rendering;
     comments = temp;
+    invalidate();
     return ret;
   }
 
@@ -243,6 +303,20 @@ public abstract class MalleableString {
     }
   }
 
+  /** A rendering of a `MalleableString` and the arguments that it was rendered with. */
+  private record CachedRendering(
+      int indentation,
+      String singleLineCommentMarker,
+      boolean codeMapTag,
+      EObject enclosingEObject,
+      List<String> unplacedComments,
+      String rendering,
+      int levelsOfCommentDisplacement) {
+    private RenderResult result() {
+      return new RenderResult(unplacedComments.stream(), rendering, levelsOfCommentDisplacement);
+    }
+  }
+
   /** Represent a list of items that should be rendered in sequence. */
   private static final class Sequence extends MalleableString {
 
@@ -250,13 +324,28 @@ public abstract class MalleableString {
 
     private Sequence(ImmutableList<MalleableString> components) {
       this.components = components;
+      components.forEach(this::contains);
     }
 
     private boolean keepCommentsOnSameLine = false;
     private int width = 0;
 
+    private void setKeepCommentsOnSameLine(boolean keepCommentsOnSameLine) {
+      if (this.keepCommentsOnSameLine != keepCommentsOnSameLine) {
+        this.keepCommentsOnSameLine = keepCommentsOnSameLine;
+        invalidate();
+      }
+    }
+
+    private void setWidth(int width) {
+      if (this.width != width) {
+        this.width = width;
+        invalidate();
+      }
+    }
+
     @Override
-    public RenderResult render(
+    protected RenderResult renderUncached(
         int indentation,
         String singleLineCommentPrefix,
         boolean codeMapTag,
@@ -282,9 +371,9 @@ public abstract class MalleableString {
               .map(StringUtil::normalizeEol)
               .collect(ArrayList::new, ArrayList::add, ArrayList::addAll);
       List<String> commentsThatCouldNotBeHandledHere = new ArrayList<>();
-      int startColumn = inlineCommentStartColumn(stringComponents, commentsFromChildren);
       int numCommentsDisplacedHere = 0;
       if (commentsFromChildren.stream().anyMatch(s -> !s.isEmpty())) {
+        int startColumn = inlineCommentStartColumn(stringComponents, commentsFromChildren);
         for (int i = 0; i < commentsFromChildren.size(); i++) {
           if (!FormattingUtil.placeComment(
               commentsFromChildren.get(i),
@@ -364,8 +453,8 @@ public abstract class MalleableString {
         int width,
         int indentation,
         String singleLineCommentPrefix) {
-      this.width = width;
-      keepCommentsOnSameLine = true;
+      setWidth(width);
+      setKeepCommentsOnSameLine(true);
       // Multiple calls to optimizeChildren may be required because as parts of the textual
       // representation are updated, the optimal representation of other parts may change.
       // For example, if the text is wider than 100 characters, the line may only need to be
@@ -389,12 +478,12 @@ public abstract class MalleableString {
                       .findAny()
                       .isPresent())) return changed;
       long badnessTrue = badness.applyAsLong(providedRender.get());
-      keepCommentsOnSameLine = false;
+      setKeepCommentsOnSameLine(false);
       changed =
           optimizeChildren(providedRender, badness, width, indentation, singleLineCommentPrefix);
       everChanged |= changed;
       long badnessFalse = badness.applyAsLong(providedRender.get());
-      keepCommentsOnSameLine = badnessTrue < badnessFalse;
+      setKeepCommentsOnSameLine(badnessTrue < badnessFalse);
       if (changed)
         changed =
             optimizeChildren(providedRender, badness, width, indentation, singleLineCommentPrefix);
@@ -438,6 +527,7 @@ public abstract class MalleableString {
 
     private Indented(MalleableString toIndent) {
       this.nested = toIndent;
+      contains(toIndent);
     }
 
     @Override
@@ -452,7 +542,10 @@ public abstract class MalleableString {
         int width,
         int indentation,
         String singleLineCommentPrefix) {
-      this.width = width;
+      if (this.width != width) {
+        this.width = width;
+        invalidate();
+      }
       return nested.findBestRepresentation(
           providedRender, badness, width - indentation, indentation, singleLineCommentPrefix);
     }
@@ -463,7 +556,7 @@ public abstract class MalleableString {
     }
 
     @Override
-    public RenderResult render(
+    protected RenderResult renderUncached(
         int indentation,
         String singleLineCommentPrefix,
         boolean codeMapTag,
@@ -479,13 +572,46 @@ public abstract class MalleableString {
               result.unplacedComments.toList(), width - indentation, singleLineCommentPrefix);
       return new RenderResult(
           this.comments.stream(),
-          (renderedComments.isBlank()
+          indentLines(
+              renderedComments.isBlank()
                   ? result.rendering
-                  : renderedComments + "\n" + result.rendering)
-              .replaceAll("(?<=\n|^)(?=\\h*\\S)", " ".repeat(indentation)),
+                  : renderedComments + "\n" + result.rendering,
+              " ".repeat(indentation)),
           result.levelsOfCommentDisplacement());
     }
 
+    /**
+     * Prepend `indentation` to each line of `s` that is not blank. This is equivalent to
+     * `s.replaceAll("(?<=\n|^)(?=\\h*\\S)", indentation)`, but it scans `s` only once.
+     */
+    private static String indentLines(String s, String indentation) {
+      StringBuilder ret = new StringBuilder(s.length() + indentation.length() * 8);
+      int lineStart = 0;
+      while (lineStart <= s.length()) {
+        int lineEnd = s.indexOf('\n', lineStart);
+        if (lineEnd < 0) lineEnd = s.length();
+        if (hasNonWhitespaceAfterHorizontalWhitespace(s, lineStart, lineEnd)) {
+          ret.append(indentation);
+        }
+        ret.append(s, lineStart, lineEnd);
+        if (lineEnd < s.length()) ret.append('\n');
+        lineStart = lineEnd + 1;
+      }
+      return ret.toString();
+    }
+
+    /** Return whether a prefix of the characters of `s` from `start` to `end` matches `\h*\S`. */
+    private static boolean hasNonWhitespaceAfterHorizontalWhitespace(String s, int start, int end) {
+      for (int i = start; i < end; i++) {
+        char c = s.charAt(i);
+        if (c != ' ' && c != '\t' && c != '\n' && c != '\013' && c != '\f' && c != '\r') {
+          return true; // \S, possibly preceded by \h
+        }
+        if (c != ' ' && c != '\t') return false; // \s, but not \h
+      }
+      return false;
+    }
+
     @Override
     public MalleableString constrain(Predicate<String> constraint) {
       nested.constrain(constraint);
@@ -512,16 +638,22 @@ public abstract class MalleableString {
         int indentation,
         String singleLineCommentPrefix) {
       var initialChosenPossibility = getChosenPossibility();
-      bestPossibility =
-          Collections.min(
-              getPossibilities(),
-              (a, b) -> {
-                bestPossibility = a;
-                long badnessA = badness.applyAsLong(providedRender.get());
-                bestPossibility = b;
-                long badnessB = badness.applyAsLong(providedRender.get());
-                return Math.toIntExact(badnessA - badnessB);
-              });
+      // Choose the first possibility with the least badness. Each possibility is rendered once, and
+      // only the objects that contain this have to be rendered again to do so.
+      List<T> possibilities = getPossibilities();
+      T best = possibilities.get(0);
+      if (possibilities.size() > 1) {
+        long leastBadness = Long.MAX_VALUE;
+        for (T possibility : possibilities) {
+          choose(possibility);
+          long possibilityBadness = badness.applyAsLong(providedRender.get());
+          if (possibilityBadness < leastBadness) {
+            best = possibility;
+            leastBadness = possibilityBadness;
+          }
+        }
+      }
+      choose(best);
       if (bestPossibility instanceof MalleableString ms) {
         if (ms.findBestRepresentation(
             providedRender, badness, width, indentation, singleLineCommentPrefix)) return true;
@@ -529,6 +661,14 @@ public abstract class MalleableString {
       return getChosenPossibility() != initialChosenPossibility;
     }
 
+    /** Represent this by the given possibility. */
+    private void choose(T possibility) {
+      if (bestPossibility != possibility) {
+        bestPossibility = possibility;
+        invalidate();
+      }
+    }
+
     /** Return the best representation of this. */
     protected T getChosenPossibility() {
       if (getPossibilities().isEmpty()) {
@@ -546,6 +686,7 @@ public abstract class MalleableString {
 
     private Fork(MalleableString[] possibilities) {
       this.possibilities = ImmutableList.copyOf(possibilities);
+      this.possibilities.forEach(this::contains);
     }
 
     @Override
@@ -559,7 +700,7 @@ public abstract class MalleableString {
     }
 
     @Override
-    public RenderResult render(
+    protected RenderResult renderUncached(
         int indentation,
         String singleLineCommentPrefix,
         boolean codeMapTag,
@@ -605,7 +746,7 @@ public abstract class MalleableString {
     }
 
     @Override
-    public RenderResult render(
+    protected RenderResult renderUncached(
         int indentation,
         String singleLineCommentPrefix,
         boolean codeMapTag,
@@ -621,7 +762,10 @@ public abstract class MalleableString {
     @Override
     public MalleableString constrain(Predicate<String> constraint) {
       var newPossibilities = possibilities.stream().filter(constraint).toList();
-      if (!newPossibilities.isEmpty()) possibilities = newPossibilities;
+      if (!newPossibilities.isEmpty() && !newPossibilities.equals(possibilities)) {
+        possibilities = newPossibilities;
+        invalidate();
+      }
       return this;
     }
   }
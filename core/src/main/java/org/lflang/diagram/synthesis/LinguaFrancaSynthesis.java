@@ -94,7 +94,7 @@ import org.lflang.diagram.synthesis.util.LayoutPostProcessing;
 import org.lflang.diagram.synthesis.util.ModeDiagrams;
 import org.lflang.diagram.synthesis.util.NamedInstanceUtil;
 import org.lflang.diagram.synthesis.util.ReactorIcons;
-import org.lflang.diagram.synthesis.util.SynthesisMessageReporter;
+import org.lflang.diagram.synthesis.util.ReactorInstanceCache;
 import org.lflang.diagram.synthesis.util.UtilityExtensions;
 import org.lflang.generator.ActionInstance;
 import org.lflang.generator.ParameterInstance;
@@ -150,6 +150,9 @@ public class LinguaFrancaSynthesis extends AbstractDiagramSynthesis<Model> {
   public static final Property<Boolean> REACTOR_RECURSIVE_INSTANTIATION =
       new Property<>(
           "org.lflang.linguafranca.diagram.synthesis.reactor.recursive.instantiation", false);
+  /** Marks collapsed reactors whose content is only synthesized once they are expanded. */
+  public static final Property<Boolean> REACTOR_CONTENT_DEFERRED =
+      new Property<>("org.lflang.linguafranca.diagram.synthesis.reactor.content.deferred", false);
   public static final Property<Boolean> REACTOR_HAS_BANK_PORT_OFFSET =
       new Property<>("org.lflang.linguafranca.diagram.synthesis.reactor.bank.offset", false);
   public static final Property<Boolean> REACTOR_MULTIPORT =
@@ -255,6 +258,9 @@ public class LinguaFrancaSynthesis extends AbstractDiagramSynthesis<Model> {
 
   private final ToLf serializer = new ToLf();
 
+  /** Whether the content of collapsed reactors is synthesized only once they are expanded. */
+  private boolean deferCollapsedContent = true;
+
   // -------------------------------------------------------------------------
 
   @Override
@@ -309,7 +315,8 @@ public class LinguaFrancaSynthesis extends AbstractDiagramSynthesis<Model> {
       Reactor main =
           IterableExtensions.findFirst(model.getReactors(), _utilityExtensions::isMainOrFederated);
       if (main != null) {
-        ReactorInstance reactorInstance = new ReactorInstance(main, new SynthesisMessageReporter());
+        ReactorInstance reactorInstance = ReactorInstanceCache.get(main);
+        deferCollapsedContent = canDeferCollapsedContent(reactorInstance);
         rootNode
             .getChildren()
             .addAll(createReactorNode(reactorInstance, true, null, null, new HashMap<>()));
@@ -324,8 +331,8 @@ public class LinguaFrancaSynthesis extends AbstractDiagramSynthesis<Model> {
         List<KNode> reactorNodes = new ArrayList<>();
         for (Reactor reactor : model.getReactors()) {
           if (reactor == main) continue;
-          ReactorInstance reactorInstance =
-              new ReactorInstance(reactor, new SynthesisMessageReporter());
+          ReactorInstance reactorInstance = ReactorInstanceCache.get(reactor);
+          deferCollapsedContent = canDeferCollapsedContent(reactorInstance);
           reactorNodes.addAll(
               createReactorNode(
                   reactorInstance,
@@ -379,11 +386,23 @@ public class LinguaFrancaSynthesis extends AbstractDiagramSynthesis<Model> {
           "Error in Diagram Synthesis",
           e.getClass().getSimpleName() + " occurred. Could not create diagram.");
       rootNode.getChildren().add(messageNode);
+    } finally {
+      // Expansions that were set for this synthesis only are not applied again.
+      MemorizingExpandCollapseAction.clearPendingExpansionStates();
     }
 
     return rootNode;
   }
 
+  /**
+   * Return true if the content of collapsed reactors in the given tree need not be synthesized
+   * until they are expanded, which is the case unless dependency cycles have to be highlighted in
+   * their content.
+   */
+  private boolean canDeferCollapsedContent(ReactorInstance root) {
+    return !(getBooleanValue(CYCLE_DETECTION) && !root.recursive && root.hasCycles());
+  }
+
   private Collection<KNode> createReactorNode(
       ReactorInstance reactorInstance,
       boolean expandDefault,
@@ -679,10 +698,15 @@ public class LinguaFrancaSynthesis extends AbstractDiagramSynthesis<Model> {
       inputPorts.values().forEach(it -> it.setProperty(REACTOR_INPUT, true));
       outputPorts.values().forEach(it -> it.setProperty(REACTOR_OUTPUT, true));
 
-      // Add content
+      // Add content, unless the reactor is collapsed, in which case its content is synthesized
+      // once it is expanded (see MemorizingExpandCollapseAction).
       if (_utilityExtensions.hasContent(instance) && !instance.recursive) {
-        node.getChildren()
-            .addAll(transformReactorNetwork(instance, inputPorts, outputPorts, allReactorNodes));
+        if (expandDefault || !deferCollapsedContent) {
+          node.getChildren()
+              .addAll(transformReactorNetwork(instance, inputPorts, outputPorts, allReactorNodes));
+        } else {
+          node.setProperty(REACTOR_CONTENT_DEFERRED, true);
+        }
       }
 
       // Pass port to given tables
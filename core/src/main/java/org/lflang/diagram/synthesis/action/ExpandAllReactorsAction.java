@@ -6,6 +6,7 @@ import de.cau.cs.kieler.klighd.kgraph.KNode;
 import de.cau.cs.kieler.klighd.util.ModelingUtil;
 import java.util.Iterator;
 import org.lflang.diagram.synthesis.util.NamedInstanceUtil;
+import org.lflang.generator.ReactorInstance;
 import org.lflang.lf.Mode;
 
 /**
@@ -23,13 +24,25 @@ public class ExpandAllReactorsAction extends AbstractAction {
     ViewContext vc = context.getViewContext();
     Iterator<KNode> nodes = ModelingUtil.eAllContentsOfType(vc.getViewModel(), KNode.class);
 
+    boolean memorize =
+        (Boolean) vc.getOptionValue(MemorizingExpandCollapseAction.MEMORIZE_EXPANSION_STATES);
+    boolean synthesize = false;
     while (nodes.hasNext()) {
       var node = nodes.next();
       if (sourceIs(node, Mode.class) || sourceIsReactor(node)) {
-        MemorizingExpandCollapseAction.setExpansionState(
-            node, NamedInstanceUtil.getLinkedInstance(node), vc.getViewer(), true);
+        var instance = NamedInstanceUtil.getLinkedInstance(node);
+        if (MemorizingExpandCollapseAction.setExpansionState(
+            node, instance, vc.getViewer(), true, memorize)) {
+          // The content of the reactor will be synthesized, so expand it entirely.
+          MemorizingExpandCollapseAction.expandTreeInNextSynthesis(
+              (ReactorInstance) instance, memorize);
+          synthesize = true;
+        }
       }
     }
+    if (synthesize) {
+      vc.update();
+    }
     return IAction.ActionResult.createResult(true);
   }
 }
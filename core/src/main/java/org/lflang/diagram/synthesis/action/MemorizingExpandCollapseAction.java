@@ -6,7 +6,10 @@ import de.cau.cs.kieler.klighd.IViewer;
 import de.cau.cs.kieler.klighd.SynthesisOption;
 import de.cau.cs.kieler.klighd.ViewContext;
 import de.cau.cs.kieler.klighd.kgraph.KNode;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.WeakHashMap;
+import org.lflang.diagram.synthesis.LinguaFrancaSynthesis;
 import org.lflang.diagram.synthesis.util.InterfaceDependenciesVisualization;
 import org.lflang.diagram.synthesis.util.NamedInstanceUtil;
 import org.lflang.generator.NamedInstance;
@@ -32,20 +35,60 @@ public class MemorizingExpandCollapseAction extends AbstractAction {
   /** Memory-leak-free cache of expansion states */
   private static final WeakHashMap<Object, Boolean> EXPANSION_STATES = new WeakHashMap<>();
 
-  /** Sets the expansion state of a node and saves it for future synthesis. */
-  public static void setExpansionState(
+  /**
+   * Expansion states that apply to the next synthesis only, which are those of the reactors whose
+   * content is synthesized once they are expanded.
+   */
+  private static final Map<Object, Boolean> PENDING_EXPANSION_STATES = new HashMap<>();
+
+  /**
+   * Sets the expansion state of a node and saves it for future synthesis if {@link
+   * #MEMORIZE_EXPANSION_STATES} is set.
+   *
+   * <p>If the node is a collapsed reactor whose content was not synthesized yet, it is not expanded
+   * in the viewer. Instead, the caller has to synthesize the diagram again, which creates the node
+   * expanded.
+   *
+   * @return Whether the diagram has to be synthesized again.
+   */
+  public static boolean setExpansionState(
       final KNode node, final Object memorizableObj, final IViewer viewer, final boolean expand) {
+    return setExpansionState(
+        node,
+        memorizableObj,
+        viewer,
+        expand,
+        (Boolean) viewer.getViewContext().getOptionValue(MEMORIZE_EXPANSION_STATES));
+  }
+
+  /**
+   * Sets the expansion state of a node, and saves it for future synthesis if `memorize` is true.
+   * If the node is a collapsed reactor whose content was not synthesized yet, the viewer is not
+   * used. Instead, the state is set for the next synthesis, which the caller has to start.
+   *
+   * @return Whether the diagram has to be synthesized again.
+   */
+  public static boolean setExpansionState(
+      final KNode node,
+      final Object memorizableObj,
+      final IViewer viewer,
+      final boolean expand,
+      final boolean memorize) {
 
     Preconditions.checkNotNull(node);
 
+    boolean deferred =
+        expand
+            && memorizableObj != null
+            && node.getProperty(LinguaFrancaSynthesis.REACTOR_CONTENT_DEFERRED);
+
     // Store new state if activated
-    if (((Boolean) viewer.getViewContext().getOptionValue(MEMORIZE_EXPANSION_STATES))
-        && memorizableObj != null) {
-      if (memorizableObj instanceof NamedInstance<?>) {
-        EXPANSION_STATES.put(((NamedInstance<?>) memorizableObj).uniqueID(), expand);
-      } else {
-        EXPANSION_STATES.put(memorizableObj, expand);
-      }
+    if (memorize && memorizableObj != null) {
+      EXPANSION_STATES.put(keyOf(memorizableObj), expand);
+    }
+    if (deferred) {
+      PENDING_EXPANSION_STATES.put(keyOf(memorizableObj), expand);
+      return true;
     }
 
     // Apply state
@@ -57,16 +100,44 @@ public class MemorizingExpandCollapseAction extends AbstractAction {
 
     // Handle edges that should only appear for one of the renderings
     InterfaceDependenciesVisualization.updateInterfaceDependencyVisibility(node, expand);
+    return false;
   }
 
   /**
-   * @return the memorized expansion state of the given model element or null if not memorized
+   * Sets the given reactor and all reactors it contains as expanded in the next synthesis, and
+   * saves that state for future synthesis if `memorize` is true.
    */
-  public static Boolean getExpansionState(final Object obj) {
-    if (obj instanceof NamedInstance<?>) {
-      return EXPANSION_STATES.get(((NamedInstance<?>) obj).uniqueID());
+  public static void expandTreeInNextSynthesis(
+      final ReactorInstance reactor, final boolean memorize) {
+    PENDING_EXPANSION_STATES.put(reactor.uniqueID(), true);
+    if (memorize) {
+      EXPANSION_STATES.put(reactor.uniqueID(), true);
+    }
+    for (ReactorInstance child : reactor.children) {
+      expandTreeInNextSynthesis(child, memorize);
     }
-    return EXPANSION_STATES.get(obj);
+  }
+
+  /**
+   * Forgets the expansion states that were set for the next synthesis only. This is called at the
+   * end of each synthesis.
+   */
+  public static void clearPendingExpansionStates() {
+    PENDING_EXPANSION_STATES.clear();
+  }
+
+  /**
+   * @return the expansion state of the given model element that was set for the next synthesis,
+   *     or its memorized expansion state, or null if neither is known
+   */
+  public static Boolean getExpansionState(final Object obj) {
+    Boolean pending = PENDING_EXPANSION_STATES.get(keyOf(obj));
+    return pending != null ? pending : EXPANSION_STATES.get(keyOf(obj));
+  }
+
+  /** Returns the key under which the expansion state of the given model element is saved. */
+  private static Object keyOf(final Object obj) {
+    return obj instanceof NamedInstance<?> ? ((NamedInstance<?>) obj).uniqueID() : obj;
   }
 
   // -----------------------------------------------------------------------------------------------------------------
@@ -89,7 +160,9 @@ public class MemorizingExpandCollapseAction extends AbstractAction {
             && ((ReactorInstance) linkedInstance).isMainOrFederated())) {
       return IAction.ActionResult.createResult(false);
     } else {
-      setExpansionState(node, linkedInstance, v, !v.isExpanded(node)); // toggle
+      if (setExpansionState(node, linkedInstance, v, !v.isExpanded(node))) { // toggle
+        vc.update();
+      }
       return IAction.ActionResult.createResult(true);
     }
   }
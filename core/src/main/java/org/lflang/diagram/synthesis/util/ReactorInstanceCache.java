@@ -0,0 +1,116 @@
+package org.lflang.diagram.synthesis.util;
+
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.xtext.resource.XtextResource;
+import org.lflang.ast.ASTUtils;
+import org.lflang.generator.ReactorInstance;
+import org.lflang.lf.Reactor;
+import org.lflang.util.FileUtil;
+
+/**
+ * Cache of the reactor instance trees that the diagram synthesis creates for reactor definitions,
+ * so that the tree need not be created again when the diagram of an unchanged model is synthesized
+ * again, for instance, when a reactor is expanded whose content was not synthesized yet.
+ *
+ * <p>A cached tree is reused as long as none of the resources that contain the definitions of the
+ * reactors in the tree, or of the reactors these extend, changed. The cache refers to reactor
+ * definitions, their resources, and the trees weakly, so that it keeps none of them alive. A tree
+ * is therefore kept as long as the diagram that shows it.
+ *
+ * @ingroup Diagram
+ */
+public class ReactorInstanceCache {
+
+  /**
+   * A cached instance tree. An entry does not refer to any model element or resource strongly,
+   * since the tree refers to the reactor definition it is the entry of.
+   *
+   * @param instance The root of the tree.
+   * @param digests The digest of the text of each resource that the tree was created from, by the
+   *     URI of the resource.
+   */
+  private record Entry(WeakReference<ReactorInstance> instance, Map<URI, String> digests) {}
+
+  private static final Map<Reactor, Entry> ENTRIES = new WeakHashMap<>();
+
+  /**
+   * Return an instance tree of the given reactor definition, which is reused from an earlier
+   * synthesis if possible.
+   */
+  public static ReactorInstance get(Reactor reactor) {
+    synchronized (ENTRIES) {
+      Entry entry = ENTRIES.get(reactor);
+      ReactorInstance instance = entry != null ? entry.instance().get() : null;
+      if (instance != null && isUnchanged(entry, reactor)) {
+        return instance;
+      }
+      ENTRIES.remove(reactor);
+    }
+    ReactorInstance instance = new ReactorInstance(reactor, new SynthesisMessageReporter());
+    Map<URI, String> digests = new HashMap<>();
+    if (collectDigests(instance, digests)) {
+      synchronized (ENTRIES) {
+        ENTRIES.put(reactor, new Entry(new WeakReference<>(instance), digests));
+      }
+    }
+    return instance;
+  }
+
+  /**
+   * Return true if none of the resources the given tree was created from changed. The resources
+   * are looked up in the resource set of the given reactor definition.
+   */
+  private static boolean isUnchanged(Entry entry, Reactor reactor) {
+    Resource resource = reactor.eResource();
+    ResourceSet resourceSet = resource != null ? resource.getResourceSet() : null;
+    if (resourceSet == null) return false;
+    for (Map.Entry<URI, String> digest : entry.digests().entrySet()) {
+      Resource source = resourceSet.getResource(digest.getKey(), false);
+      if (source == null || !digest.getValue().equals(digest(source))) return false;
+    }
+    return true;
+  }
+
+  /**
+   * Record the digests of the resources that contain the definitions of the reactors in the given
+   * tree, and of the reactors these extend. Return false if one of them cannot be digested.
+   */
+  private static boolean collectDigests(ReactorInstance instance, Map<URI, String> digests) {
+    Reactor definition = instance.reactorDefinition;
+    if (definition != null) {
+      var definitions = ASTUtils.superClasses(definition);
+      if (definitions == null) return false;
+      definitions.add(definition);
+      for (Reactor reactor : definitions) {
+        Resource resource = reactor.eResource();
+        if (resource == null) return false;
+        if (!digests.containsKey(resource.getURI())) {
+          String digest = digest(resource);
+          if (digest == null) return false;
+          digests.put(resource.getURI(), digest);
+        }
+      }
+    }
+    for (ReactorInstance child : instance.children) {
+      if (!collectDigests(child, digests)) return false;
+    }
+    return true;
+  }
+
+  /** Return a digest of the text of the given resource, or null if it has no text. */
+  private static String digest(Resource resource) {
+    if (resource instanceof XtextResource xtextResource
+        && xtextResource.getParseResult() != null) {
+      String text = xtextResource.getParseResult().getRootNode().getText();
+      return FileUtil.digest(text.getBytes(StandardCharsets.UTF_8));
+    }
+    return null;
+  }
+}
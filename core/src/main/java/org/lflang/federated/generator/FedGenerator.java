@@ -9,16 +9,15 @@ import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Future;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import org.eclipse.emf.ecore.resource.Resource;
@@ -447,6 +446,22 @@ public class FedGenerator {
     return targetOK;
   }
 
+  /**
+   * Invoke the target code generator for each federate, using a pool of threads whose size is
+   * determined by {@link #getNumOfCompileThreads(LFGeneratorContext)}, which is a single thread
+   * unless a number of threads is given.
+   *
+   * <p>EMF resource sets are not thread-safe, so each thread loads the federates it compiles into
+   * its own resource set and writes files through its own file system access. Each federate reports
+   * messages through its own synchronized reporter, so that whether a federate failed does not
+   * depend on the order in which federates are compiled. The results are collected in the order of
+   * the federates, regardless of the order in which they complete.
+   *
+   * @param context The main generator context.
+   * @param lf2lfCodeMapMap The code maps of the generated LF code of the federates.
+   * @param finalizer Action to take on the subcontexts of the federates once all are compiled.
+   * @return The code maps of the code generated for all federates.
+   */
   private Map<Path, CodeMap> compileFederates(
       LFGeneratorContext context,
       Map<Path, CodeMap> lf2lfCodeMapMap,
@@ -454,101 +469,135 @@ public class FedGenerator {
 
     // FIXME: Use the appropriate resource set instead of always using standalone
     Injector inj = new LFStandaloneSetup().createInjectorAndDoEMFRegistration();
-    XtextResourceSet rs = inj.getInstance(XtextResourceSet.class);
-    rs.addLoadOption(XtextResource.OPTION_RESOLVE_ALL, Boolean.TRUE);
-    // define output path here
-    JavaIoFileSystemAccess fsa = inj.getInstance(JavaIoFileSystemAccess.class);
-    fsa.setOutputPath("DEFAULT_OUTPUT", fileConfig.getSrcGenPath().toString());
-
-    var numOfCompileThreads = 1;
-    /* NOTE: Used to compile in parallel using the following. This causes the compiler to
-       to nondeterministically lock up on MacOS, which causes the tests to fail after the total
-       time allowed for the test expires (currently two hours).
-        Math.min(
-            6, Math.min(Math.max(federates.size(), 1), Runtime.getRuntime().availableProcessors()));
-    */
+    ThreadLocal<XtextResourceSet> resourceSets =
+        ThreadLocal.withInitial(
+            () -> {
+              XtextResourceSet rs = inj.getInstance(XtextResourceSet.class);
+              rs.addLoadOption(XtextResource.OPTION_RESOLVE_ALL, Boolean.TRUE);
+              return rs;
+            });
+    ThreadLocal<JavaIoFileSystemAccess> fileSystemAccesses =
+        ThreadLocal.withInitial(
+            () -> {
+              // define output path here
+              JavaIoFileSystemAccess fsa = inj.getInstance(JavaIoFileSystemAccess.class);
+              fsa.setOutputPath("DEFAULT_OUTPUT", fileConfig.getSrcGenPath().toString());
+              return fsa;
+            });
+
+    var numOfCompileThreads = getNumOfCompileThreads(context);
     var compileThreadPool = Executors.newFixedThreadPool(numOfCompileThreads);
     messageReporter
         .nowhere()
         .info("******** Using " + numOfCompileThreads + " threads to compile the program.");
-    Map<Path, CodeMap> codeMapMap = new ConcurrentHashMap<>();
-    List<SubContext> subContexts = Collections.synchronizedList(new ArrayList<>());
     Averager averager = new Averager(federates.size());
-    final var threadSafeErrorReporter = new SynchronizedMessageReporter(messageReporter);
+    List<Future<SubContext>> futures = new ArrayList<>();
     for (int i = 0; i < federates.size(); i++) {
       FederateInstance fed = federates.get(i);
       final int id = i;
-      compileThreadPool.execute(
-          () -> {
-            Resource res = FileConfig.getResource(FedEmitter.lfFilePath(fileConfig, fed), rs);
-            FileConfig subFileConfig =
-                LFGenerator.createFileConfig(res, fileConfig.getSrcGenPath(), true);
-            MessageReporter subContextMessageReporter =
-                new LineAdjustingMessageReporter(threadSafeErrorReporter, lf2lfCodeMapMap);
-
-            TargetConfig subConfig =
-                new TargetConfig(
-                    subFileConfig.resource, GeneratorArguments.none(), subContextMessageReporter);
-
-            if (targetConfig.get(DockerProperty.INSTANCE).enabled() || fed.isRemote) {
-              NoCompileProperty.INSTANCE.override(subConfig, true);
-            }
-            // Disabled Docker for the federate and put federation in charge.
-            DockerProperty.INSTANCE.override(subConfig, new DockerOptions(false));
-
-            SubContext subContext =
-              new FederatedSubContext(
-                context, IntegratedBuilder.VALIDATED_PERCENT_PROGRESS, 100, fed) {
-                  @Override
-                  public MessageReporter getErrorReporter() {
-                    return subContextMessageReporter;
-                  }
-
-                  @Override
-                  public void reportProgress(String message, int percentage) {
-                    averager.report(
-                        id,
-                        percentage,
-                        meanPercentage -> super.reportProgress(message, meanPercentage));
-                  }
-
-                  @Override
-                  public FileConfig getFileConfig() {
-                    return subFileConfig;
-                  }
-
-                  @Override
-                  public TargetConfig getTargetConfig() {
-                    return subConfig;
-                  }
-                };
-
-            inj.getInstance(LFGenerator.class).doGenerate(res, fsa, subContext);
-            codeMapMap.putAll(subContext.getResult().getCodeMaps());
-            subContexts.add(subContext);
-          });
+      futures.add(
+          compileThreadPool.submit(
+              () -> {
+                Resource res =
+                    FileConfig.getResource(
+                        FedEmitter.lfFilePath(fileConfig, fed), resourceSets.get());
+                FileConfig subFileConfig =
+                    LFGenerator.createFileConfig(res, fileConfig.getSrcGenPath(), true);
+                MessageReporter subContextMessageReporter =
+                    new LineAdjustingMessageReporter(
+                        new SynchronizedMessageReporter(messageReporter), lf2lfCodeMapMap);
+
+                TargetConfig subConfig =
+                    new TargetConfig(
+                        subFileConfig.resource,
+                        GeneratorArguments.none(),
+                        subContextMessageReporter);
+
+                if (targetConfig.get(DockerProperty.INSTANCE).enabled() || fed.isRemote) {
+                  NoCompileProperty.INSTANCE.override(subConfig, true);
+                }
+                // Disabled Docker for the federate and put federation in charge.
+                DockerProperty.INSTANCE.override(subConfig, new DockerOptions(false));
+
+                SubContext subContext =
+                    new FederatedSubContext(
+                        context, IntegratedBuilder.VALIDATED_PERCENT_PROGRESS, 100, fed) {
+                      @Override
+                      public MessageReporter getErrorReporter() {
+                        return subContextMessageReporter;
+                      }
+
+                      @Override
+                      public void reportProgress(String message, int percentage) {
+                        averager.report(
+                            id,
+                            percentage,
+                            meanPercentage -> super.reportProgress(message, meanPercentage));
+                      }
+
+                      @Override
+                      public FileConfig getFileConfig() {
+                        return subFileConfig;
+                      }
+
+                      @Override
+                      public TargetConfig getTargetConfig() {
+                        return subConfig;
+                      }
+                    };
+
+                inj.getInstance(LFGenerator.class)
+                    .doGenerate(res, fileSystemAccesses.get(), subContext);
+                return subContext;
+              }));
     }
     // Initiate an orderly shutdown in which previously submitted tasks are
     // executed, but no new tasks will be accepted.
     compileThreadPool.shutdown();
 
-    // Wait for all compile threads to finish (NOTE: Can block forever)
+    // Wait for all federates to be compiled (NOTE: Can block forever)
+    // and collect the results in the order of the federates.
+    Map<Path, CodeMap> codeMapMap = new LinkedHashMap<>();
+    List<SubContext> subContexts = new ArrayList<>();
     try {
-      if (!compileThreadPool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS)) {
-        context.getErrorReporter().nowhere().error("Timed out while compiling.");
+      for (Future<SubContext> future : futures) {
+        try {
+          SubContext subContext = future.get();
+          codeMapMap.putAll(subContext.getResult().getCodeMaps());
+          subContexts.add(subContext);
+        } catch (ExecutionException e) {
+          context
+              .getErrorReporter()
+              .nowhere()
+              .error("Failure during code generation: " + e.getCause().getMessage());
+          e.getCause().printStackTrace();
+        }
       }
-    } catch (Exception e) {
-      context
-          .getErrorReporter()
-          .nowhere()
-          .error("Failure during code generation: " + e.getMessage());
-      e.printStackTrace();
+    } catch (InterruptedException e) {
+      compileThreadPool.shutdownNow();
+      context.getErrorReporter().nowhere().error("Interrupted while compiling.");
+      Thread.currentThread().interrupt();
     } finally {
       finalizer.accept(subContexts);
     }
     return codeMapMap;
   }
 
+  /**
+   * Return the number of threads to use for compiling federates, which is the number given in the
+   * generator arguments, but no more than the number of federates.
+   *
+   * <p>NOTE: Federates are compiled one after another unless a number of threads is given.
+   * Compiling them in parallel by default caused the compiler to nondeterministically lock up on
+   * MacOS, and it has not been established that giving each thread its own resource set and file
+   * system access removed the cause.
+   */
+  private int getNumOfCompileThreads(LFGeneratorContext context) {
+    Integer threads = context.getArgs().threads();
+    if (threads == null) return 1;
+    return Math.max(1, Math.min(threads, federates.size()));
+  }
+
   /**
    * Process command-line arguments passed on to the generator.
    *
@@ -11,6 +11,10 @@ import org.lflang.generator.Range;
 /**
  * A message reporter that synchronizes access to the parent reporter.
  *
+ * <p>Several instances may wrap the same parent, e.g., one for each federate that is compiled
+ * concurrently. Reports are serialized on the parent, while each instance keeps track of whether
+ * errors have been reported through it, independently of the other instances.
+ *
  * @ingroup Federated
  */
 public class SynchronizedMessageReporter extends MessageReporterBase {
@@ -22,24 +26,24 @@ public class SynchronizedMessageReporter extends MessageReporterBase {
   }
 
   @Override
-  protected synchronized void reportOnNode(
+  protected void reportOnNode(
       EObject node, EStructuralFeature feature, DiagnosticSeverity severity, String message) {
-    parent.at(node).report(severity, message);
-  }
-
-  @Override
-  protected synchronized void report(
-      Path path, Range range, DiagnosticSeverity severity, String message) {
-    parent.at(path, range).report(severity, message);
+    synchronized (parent) {
+      parent.at(node).report(severity, message);
+    }
   }
 
   @Override
-  protected synchronized void reportWithoutPosition(DiagnosticSeverity severity, String message) {
-    parent.nowhere().report(severity, message);
+  protected void report(Path path, Range range, DiagnosticSeverity severity, String message) {
+    synchronized (parent) {
+      parent.at(path, range).report(severity, message);
+    }
   }
 
   @Override
-  public synchronized boolean getErrorsOccurred() {
-    return parent.getErrorsOccurred();
+  protected void reportWithoutPosition(DiagnosticSeverity severity, String message) {
+    synchronized (parent) {
+      parent.nowhere().report(severity, message);
+    }
   }
 }
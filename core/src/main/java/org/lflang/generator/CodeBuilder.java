@@ -4,6 +4,7 @@ import static org.lflang.generator.c.CMixedRadixGenerator.*;
 import static org.lflang.util.StringUtil.joinObjects;
 
 import java.io.IOException;
+import java.io.Writer;
 import java.nio.file.Path;
 import org.eclipse.emf.common.CommonPlugin;
 import org.eclipse.emf.ecore.EObject;
@@ -90,9 +91,10 @@ public class CodeBuilder {
   /** Append the given text to the code buffer at the current indentation level. */
   public void pr(CharSequence text) {
     // append newline on empty input string
-    if (text.toString().equals("")) code.append("\n");
-    for (String line : (Iterable<? extends String>) () -> text.toString().lines().iterator()) {
-      code.append(indentation).append(line).append("\n");
+    if (text.length() == 0) code.append("\n");
+    for (int start = 0, end; start < text.length(); start = nextLine(text, end)) {
+      end = lineEnd(text, start);
+      code.append(indentation).append(text, start, end).append("\n");
     }
   }
 
@@ -549,30 +551,51 @@ public class CodeBuilder {
   }
 
   /**
-   * Write the text to a file.
+   * Write the text to a file. The text is written line by line as the correspondences to the LF
+   * source are removed from it, so no further copy of it is made. The file is left untouched if its
+   * content would not change.
    *
    * @param path The file to write the code to.
+   * @return A map of the correspondences, which reads the generated code back from the file when
+   *     it is asked for. If there are any correspondences, the map is also saved next to the file.
    */
   public CodeMap writeToFile(String path) throws IOException {
-    String s = code.toString();
-    int lineNumber = 1;
-    StringBuilder out = new StringBuilder();
-    for (var line : (Iterable<String>) () -> s.lines().iterator()) {
-      lineNumber++;
-      if (line.contains(END_SOURCE_LINE_NUMBER_TAG) && !path.endsWith(".ino")) {
-        out.append("#line ")
-            .append(lineNumber)
-            .append(" \"")
-            .append(path.replace("\\", "\\\\"))
-            .append("\"");
-      } else {
-        out.append(line);
+    Path file = Path.of(path);
+    CodeMap.Builder codeMap = new CodeMap.Builder();
+    try (Writer out = FileUtil.newWriter(file, true)) {
+      int lineNumber = 1;
+      for (int start = 0, end; start < code.length(); start = nextLine(code, end)) {
+        end = lineEnd(code, start);
+        String line = code.substring(start, end);
+        lineNumber++;
+        if (line.contains(END_SOURCE_LINE_NUMBER_TAG) && !path.endsWith(".ino")) {
+          line = "#line " + lineNumber + " \"" + path.replace("\\", "\\\\") + "\"";
+        }
+        out.write(codeMap.processLine(line));
+        out.write('\n');
       }
-      out.append('\n');
     }
-    CodeMap ret = CodeMap.fromGeneratedCode(out.toString());
-    FileUtil.writeToFile(ret.getGeneratedCode(), Path.of(path), true);
-    return ret;
+    CodeMap map = codeMap.build(file);
+    if (!map.lfSourcePaths().isEmpty()) map.writeSidecar();
+    return map;
+  }
+
+  /** Return the end of the line that starts at the given index, excluding its line terminator. */
+  private static int lineEnd(CharSequence text, int start) {
+    int end = start;
+    while (end < text.length() && text.charAt(end) != '\n' && text.charAt(end) != '\r') end++;
+    return end;
+  }
+
+  /**
+   * Return the start of the line that follows the line terminator at the given index, where lines
+   * are terminated like in {@link String#lines()}.
+   */
+  private static int nextLine(CharSequence text, int end) {
+    if (end + 1 < text.length() && text.charAt(end) == '\r' && text.charAt(end + 1) == '\n') {
+      return end + 2;
+    }
+    return end + 1;
   }
 
   ////////////////////////////////////////////
@@ -1,7 +1,21 @@
 package org.lflang.generator;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.NavigableMap;
@@ -26,6 +40,9 @@ import org.lflang.util.FileUtil;
  */
 public class CodeMap {
 
+  /** The text that starts every serialized Correspondence. */
+  private static final String CORRESPONDENCE_PREFIX = "/*Correspondence: ";
+
   public static class Correspondence {
     // This pattern has the markers "/* */", which some languages use as line comments. This does
     // not
@@ -91,7 +108,7 @@ public class CodeMap {
     @Override
     public String toString() {
       return String.format(
-          "/*Correspondence: %s -> %s (verbatim=%b; src=%s)*/",
+          CORRESPONDENCE_PREFIX + "%s -> %s (verbatim=%b; src=%s)*/",
           lfRange.toString(), generatedRange.toString(), verbatim, path.toString());
     }
 
@@ -181,20 +198,129 @@ public class CodeMap {
     }
   }
 
-  /** The content of the generated file represented by this. */
-  private final String generatedCode;
+  /**
+   * Builds a `CodeMap` line by line, so that generated code can be processed as it is written
+   * out, without holding more than one line of it at a time.
+   */
+  public static class Builder {
+    private final Map<Path, NavigableMap<Range, Range>> map = new HashMap<>();
+    private final Map<Path, Map<Range, Boolean>> isVerbatimByLfSourceByRange = new HashMap<>();
+    private final MessageDigest digest = newDigest();
+    private int[] columns = new int[1024];
+    private int zeroBasedLine = 0;
+
+    /**
+     * Record the Correspondences in the next line of internal generated code and return the line
+     * with all Correspondences removed.
+     *
+     * @param line a line of internal generated code, without its line terminator
+     * @return the line of generated code with all Correspondences removed
+     */
+    public String processLine(String line) {
+      digest.update(line.getBytes(StandardCharsets.UTF_8));
+      digest.update((byte) '\n');
+      int lineIndex = zeroBasedLine++;
+      String processed =
+          line.contains(CORRESPONDENCE_PREFIX)
+              ? processGeneratedLine(line, lineIndex, map, isVerbatimByLfSourceByRange)
+              : line;
+      if (lineIndex == columns.length) columns = Arrays.copyOf(columns, 2 * columns.length);
+      columns[lineIndex] = processed.lastIndexOf(" ") + 1;
+      return processed;
+    }
+
+    /**
+     * Return a CodeMap of the lines processed so far.
+     *
+     * @param generatedCode the processed lines, joined by newlines
+     */
+    public CodeMap build(String generatedCode) {
+      return new CodeMap(generatedCode, null, contentHash(), index());
+    }
+
+    /**
+     * Return a CodeMap of the lines processed so far, whose generated code is read from the given
+     * file whenever it is asked for.
+     *
+     * @param generatedFile the file that the processed lines were written to
+     */
+    public CodeMap build(Path generatedFile) {
+      return new CodeMap(null, generatedFile, contentHash(), index());
+    }
+
+    /** Return the hex-encoded digest of the lines processed so far. */
+    private String contentHash() {
+      return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /** Return the index of the Correspondences and lines processed so far. */
+    private Index index() {
+      var correspondences = new HashMap<Path, int[]>();
+      map.forEach(
+          (path, ranges) -> {
+            var entries = new int[ranges.size() * STRIDE];
+            int i = 0;
+            for (var entry : ranges.entrySet()) {
+              var verbatim = isVerbatimByLfSourceByRange.get(path).get(entry.getKey());
+              put(entries, i, entry.getKey(), entry.getValue(), verbatim);
+              i += STRIDE;
+            }
+            correspondences.put(path, entries);
+          });
+      return new Index(correspondences, Arrays.copyOf(columns, zeroBasedLine));
+    }
+
+    private static MessageDigest newDigest() {
+      try {
+        return MessageDigest.getInstance("SHA-256");
+      } catch (NoSuchAlgorithmException e) {
+        // Every implementation of the Java platform is required to support SHA-256.
+        throw new IllegalStateException(e);
+      }
+    }
+  }
 
   /**
-   * A mapping from Lingua Franca source paths to mappings from ranges in the generated file
-   * represented by this to ranges in Lingua Franca files.
+   * The Correspondences and lines of a generated file in a compact form.
+   *
+   * @param correspondences A mapping from Lingua Franca source paths to the Correspondences into
+   *     them, each of which takes {@link #STRIDE} consecutive elements, sorted by the start of
+   *     their range in the generated file.
+   * @param columns The column of the last space of each line of the generated file, plus one.
    */
-  private final Map<Path, NavigableMap<Range, Range>> map;
+  private record Index(Map<Path, int[]> correspondences, int[] columns) {}
 
   /**
-   * A mapping from Lingua Franca source paths to mappings from ranges in the generated file
-   * represented by this to whether those ranges are copied verbatim from the source.
+   * The number of elements of a Correspondence in an {@link Index}: the start and end of the range
+   * in the generated file, the start and end of the range in the Lingua Franca file, each as a
+   * zero-based line and column, and whether the code is verbatim.
    */
-  private final Map<Path, Map<Range, Boolean>> isVerbatimByLfSourceByRange;
+  private static final int STRIDE = 9;
+
+  /** The number that starts every sidecar file, which spells "LFCM". */
+  private static final int SIDECAR_MAGIC = 0x4C46434D;
+
+  /** The version of the format of sidecar files. */
+  private static final int SIDECAR_VERSION = 1;
+
+  /**
+   * The content of the generated file represented by this, or null if it is to be read from
+   * {@link #generatedFile}.
+   */
+  private final String generatedCode;
+
+  /** The file that contains the generated code, or null if the generated code is kept in memory. */
+  private final Path generatedFile;
+
+  /**
+   * The digest of the internal generated code that this was built from, including the serialized
+   * Correspondences, so that it changes whenever the generated code or its mapping to the Lingua
+   * Franca sources changes.
+   */
+  private final String contentHash;
+
+  /** The index of this, or null if it has not been loaded from the sidecar file yet. */
+  private Index index;
 
   /* ------------------------- PUBLIC METHODS -------------------------- */
 
@@ -208,27 +334,130 @@ public class CodeMap {
    * @return a CodeMap documenting the provided code
    */
   public static CodeMap fromGeneratedCode(String internalGeneratedCode) {
-    Map<Path, NavigableMap<Range, Range>> map = new HashMap<>();
-    Map<Path, Map<Range, Boolean>> isVerbatimByLfSourceByRange = new HashMap<>();
+    Builder builder = new Builder();
     StringBuilder generatedCode = new StringBuilder();
     Iterator<String> it = internalGeneratedCode.lines().iterator();
-    int zeroBasedLine = 0;
     while (it.hasNext()) {
-      generatedCode
-          .append(
-              processGeneratedLine(it.next(), zeroBasedLine++, map, isVerbatimByLfSourceByRange))
-          .append('\n');
+      generatedCode.append(builder.processLine(it.next())).append('\n');
+    }
+    return builder.build(generatedCode.toString());
+  }
+
+  /**
+   * Instantiate a `CodeMap` from `internalGeneratedCode` like {@link #fromGeneratedCode(String)},
+   * and write the generated code to `generatedFile` instead of keeping it in memory. The file is
+   * left untouched if its content would not change. If the generated code corresponds to any Lingua
+   * Franca code, the CodeMap is saved next to the file by {@link #writeSidecar()}.
+   *
+   * @param internalGeneratedCode code from a code generator that contains serialized
+   *     Correspondences
+   * @param generatedFile the file to write the generated code to
+   * @return a CodeMap documenting the provided code
+   * @throws IOException If the generated file or its sidecar file cannot be written.
+   */
+  public static CodeMap fromGeneratedCode(String internalGeneratedCode, Path generatedFile)
+      throws IOException {
+    Builder builder = new Builder();
+    try (Writer out = FileUtil.newWriter(generatedFile, true)) {
+      Iterator<String> it = internalGeneratedCode.lines().iterator();
+      while (it.hasNext()) {
+        out.write(builder.processLine(it.next()));
+        out.write('\n');
+      }
+    }
+    CodeMap codeMap = builder.build(generatedFile);
+    if (!codeMap.lfSourcePaths().isEmpty()) codeMap.writeSidecar();
+    return codeMap;
+  }
+
+  /**
+   * Return the CodeMap of the given generated file that was saved by {@link #writeSidecar()}, or
+   * null if there is none or if the file was modified since. Only the header of the sidecar file is
+   * read here; the Correspondences are read when they are first needed.
+   *
+   * @param generatedFile A generated file.
+   * @throws IOException If the sidecar file exists but cannot be read.
+   */
+  public static CodeMap fromSidecar(Path generatedFile) throws IOException {
+    Path sidecar = sidecarOf(generatedFile);
+    if (!Files.isRegularFile(sidecar) || !Files.isRegularFile(generatedFile)) return null;
+    try (DataInputStream in = openSidecar(sidecar)) {
+      String contentHash = readHeader(in, generatedFile);
+      if (contentHash == null) return null;
+      return new CodeMap(null, generatedFile, contentHash, null);
+    }
+  }
+
+  /**
+   * Return the CodeMap of the given generated file like {@link #fromSidecar(Path)}, or null if the
+   * sidecar file cannot be read. This is meant for mapping diagnostics about generated files that
+   * an earlier build produced, which are still reported on the generated file without a map.
+   *
+   * @param generatedFile A generated file.
+   */
+  static CodeMap fromSidecarOrNull(Path generatedFile) {
+    try {
+      return fromSidecar(generatedFile);
+    } catch (IOException e) {
+      return null;
     }
-    return new CodeMap(generatedCode.toString(), map, isVerbatimByLfSourceByRange);
   }
 
   /**
-   * Returns the generated code (without Correspondences).
+   * Save this next to the generated file that it represents, so that it can be restored by {@link
+   * #fromSidecar(Path)} as long as that file is not modified. A sidecar file that is up to date is
+   * left untouched.
+   *
+   * @throws IOException If the sidecar file cannot be written.
+   * @throws IllegalStateException If the generated code of this is not kept in a file.
+   */
+  public void writeSidecar() throws IOException {
+    if (generatedFile == null) {
+      throw new IllegalStateException("The generated code is not kept in a file.");
+    }
+    CodeMap saved = fromSidecarOrNull(generatedFile);
+    if (saved != null && saved.contentHash.equals(contentHash)) return;
+    Index index = index();
+    try (DataOutputStream out =
+        new DataOutputStream(
+            new BufferedOutputStream(Files.newOutputStream(sidecarOf(generatedFile))))) {
+      out.writeInt(SIDECAR_MAGIC);
+      out.writeInt(SIDECAR_VERSION);
+      out.writeLong(Files.size(generatedFile));
+      out.writeLong(Files.getLastModifiedTime(generatedFile).toMillis());
+      out.writeUTF(contentHash);
+      writeInts(out, index.columns());
+      out.writeInt(index.correspondences().size());
+      for (var entry : index.correspondences().entrySet()) {
+        out.writeUTF(entry.getKey().toString());
+        writeInts(out, entry.getValue());
+      }
+    }
+  }
+
+  /**
+   * Returns the generated code (without Correspondences). If the generated code is kept in a file,
+   * it is read from the file, in the charset that {@link FileUtil#newWriter(Path, boolean)} wrote
+   * it in, on every call. Not holding the code is the point of such maps, and the code generators
+   * never ask them for their code; callers that need it more than once should keep the result.
    *
    * @return the generated code (without Correspondences)
    */
   public String getGeneratedCode() {
-    return generatedCode;
+    if (generatedCode != null) return generatedCode;
+    try {
+      return Files.readString(generatedFile, Charset.defaultCharset());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Returns a digest of the content of the generated file represented by this and of its mapping to
+   * Lingua Franca files. Two code maps with the same digest describe the same generated code.
+   */
+  public String getContentHash() {
+    return contentHash;
   }
 
   /**
@@ -236,7 +465,7 @@ public class CodeMap {
    * corresponds to code in the generated file represented by this.
    */
   public Set<Path> lfSourcePaths() {
-    return map.keySet();
+    return index().correspondences().keySet();
   }
 
   /**
@@ -248,23 +477,68 @@ public class CodeMap {
    * @return the position in `lfFile` corresponding to `generatedFilePosition`
    */
   public Position adjusted(Path lfFile, Position generatedFilePosition) {
-    NavigableMap<Range, Range> mapOfInterest = map.get(lfFile);
-    Map<Range, Boolean> isVerbatimByRange = isVerbatimByLfSourceByRange.get(lfFile);
-    Map.Entry<Range, Range> nearestEntry =
-        mapOfInterest.floorEntry(Range.degenerateRange(generatedFilePosition));
-    if (nearestEntry == null) return Position.ORIGIN;
-    if (!isVerbatimByRange.get(nearestEntry.getKey())) {
-      return nearestEntry.getValue().getStartInclusive();
-    }
-    if (nearestEntry.getKey().contains(generatedFilePosition)) {
-      return nearestEntry
-          .getValue()
-          .getStartInclusive()
-          .plus(generatedFilePosition.minus(nearestEntry.getKey().getStartInclusive()));
+    int[] entries = index().correspondences().get(lfFile);
+    int i = floorEntry(entries, generatedFilePosition);
+    if (i < 0) return Position.ORIGIN;
+    Position lfStart = Position.fromZeroBased(entries[i + 4], entries[i + 5]);
+    if (entries[i + 8] == 0) return lfStart;
+    Position generatedStart = Position.fromZeroBased(entries[i], entries[i + 1]);
+    Position generatedEnd = Position.fromZeroBased(entries[i + 2], entries[i + 3]);
+    if (generatedStart.compareTo(generatedFilePosition) <= 0
+        && generatedFilePosition.compareTo(generatedEnd) < 0) {
+      return lfStart.plus(generatedFilePosition.minus(generatedStart));
     }
     return Position.ORIGIN;
   }
 
+  /**
+   * Returns the Lingua Franca file and the position in it that correspond to
+   * `generatedFilePosition`, or null if no Correspondence contains that position. If several
+   * Correspondences contain it, the innermost one, which starts last, is used.
+   *
+   * <p>Unlike {@link #adjusted(Path, Position)}, this does not map a position that follows a
+   * Correspondence that is not verbatim to the start of that Correspondence.
+   *
+   * @param generatedFilePosition a position in a generated file
+   */
+  public LfPosition lfPositionOf(Position generatedFilePosition) {
+    Path bestFile = null;
+    int[] bestEntries = null;
+    int best = -1;
+    for (Map.Entry<Path, int[]> entry : index().correspondences().entrySet()) {
+      int[] entries = entry.getValue();
+      // The Correspondence that contains the position and starts last is the innermost one.
+      for (int i = floorEntry(entries, generatedFilePosition); i >= 0; i -= STRIDE) {
+        Position generatedStart = Position.fromZeroBased(entries[i], entries[i + 1]);
+        Position generatedEnd = Position.fromZeroBased(entries[i + 2], entries[i + 3]);
+        if (generatedFilePosition.compareTo(generatedEnd) < 0) {
+          if (best < 0
+              || Position.fromZeroBased(bestEntries[best], bestEntries[best + 1])
+                      .compareTo(generatedStart)
+                  < 0) {
+            bestFile = entry.getKey();
+            bestEntries = entries;
+            best = i;
+          }
+          break;
+        }
+      }
+    }
+    if (best < 0) return null;
+    Position lfStart = Position.fromZeroBased(bestEntries[best + 4], bestEntries[best + 5]);
+    if (bestEntries[best + 8] == 0) return new LfPosition(bestFile, lfStart);
+    Position generatedStart = Position.fromZeroBased(bestEntries[best], bestEntries[best + 1]);
+    return new LfPosition(bestFile, lfStart.plus(generatedFilePosition.minus(generatedStart)));
+  }
+
+  /**
+   * A position in a Lingua Franca file.
+   *
+   * @param path The path of the file.
+   * @param position The position in the file.
+   */
+  public record LfPosition(Path path, Position position) {}
+
   /**
    * Returns the range in `lfFile` corresponding to `generatedFileRange` if such a range
    * is known, or a degenerate Range otherwise.
@@ -279,19 +553,118 @@ public class CodeMap {
     return start.compareTo(end) <= 0 ? new Range(start, end) : new Range(start, start);
   }
 
+  /**
+   * Returns the column that follows the last space on the given line of the generated code, or 0
+   * if there is no such line.
+   *
+   * @param line a one-based line number
+   */
   public int firstNonWhitespace(int line) {
-    return getGeneratedCode().lines().skip(line - 1).findFirst().orElse("").lastIndexOf(" ") + 1;
+    int[] columns = index().columns();
+    return line >= 1 && line <= columns.length ? columns[line - 1] : 0;
   }
 
   /* ------------------------- PRIVATE METHODS ------------------------- */
 
-  private CodeMap(
-      String generatedCode,
-      Map<Path, NavigableMap<Range, Range>> map,
-      Map<Path, Map<Range, Boolean>> isVerbatimByLfSourceByRange) {
+  private CodeMap(String generatedCode, Path generatedFile, String contentHash, Index index) {
     this.generatedCode = generatedCode;
-    this.map = map;
-    this.isVerbatimByLfSourceByRange = isVerbatimByLfSourceByRange;
+    this.generatedFile = generatedFile;
+    this.contentHash = contentHash;
+    this.index = index;
+  }
+
+  /** Return the index of this, reading it from the sidecar file if it has not been read yet. */
+  private synchronized Index index() {
+    if (index == null) {
+      try (DataInputStream in = openSidecar(sidecarOf(generatedFile))) {
+        if (!contentHash.equals(readHeader(in, generatedFile))) {
+          throw new IOException("The sidecar file of " + generatedFile + " has changed.");
+        }
+        int[] columns = readInts(in);
+        var correspondences = new HashMap<Path, int[]>();
+        for (int n = in.readInt(); n > 0; n--) {
+          correspondences.put(Path.of(in.readUTF()), readInts(in));
+        }
+        index = new Index(correspondences, columns);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+    return index;
+  }
+
+  /** Return the sidecar file of the given generated file. */
+  private static Path sidecarOf(Path generatedFile) {
+    return generatedFile.resolveSibling(generatedFile.getFileName() + ".lfmap");
+  }
+
+  private static DataInputStream openSidecar(Path sidecar) throws IOException {
+    return new DataInputStream(new BufferedInputStream(Files.newInputStream(sidecar)));
+  }
+
+  /**
+   * Read the header of a sidecar file and return the content hash that it records, or null if the
+   * sidecar file is of another format or if the generated file was modified since it was written.
+   */
+  private static String readHeader(DataInputStream in, Path generatedFile) throws IOException {
+    if (in.readInt() != SIDECAR_MAGIC || in.readInt() != SIDECAR_VERSION) return null;
+    long size = in.readLong();
+    long lastModified = in.readLong();
+    String contentHash = in.readUTF();
+    if (size != Files.size(generatedFile)
+        || lastModified != Files.getLastModifiedTime(generatedFile).toMillis()) {
+      return null;
+    }
+    return contentHash;
+  }
+
+  private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+    out.writeInt(values.length);
+    for (int value : values) out.writeInt(value);
+  }
+
+  private static int[] readInts(DataInputStream in) throws IOException {
+    int[] values = new int[in.readInt()];
+    for (int i = 0; i < values.length; i++) values[i] = in.readInt();
+    return values;
+  }
+
+  /** Store a Correspondence in the given entries of an {@link Index} at the given offset. */
+  private static void put(int[] entries, int i, Range generated, Range lf, boolean verbatim) {
+    entries[i] = generated.getStartInclusive().getZeroBasedLine();
+    entries[i + 1] = generated.getStartInclusive().getZeroBasedColumn();
+    entries[i + 2] = generated.getEndExclusive().getZeroBasedLine();
+    entries[i + 3] = generated.getEndExclusive().getZeroBasedColumn();
+    entries[i + 4] = lf.getStartInclusive().getZeroBasedLine();
+    entries[i + 5] = lf.getStartInclusive().getZeroBasedColumn();
+    entries[i + 6] = lf.getEndExclusive().getZeroBasedLine();
+    entries[i + 7] = lf.getEndExclusive().getZeroBasedColumn();
+    entries[i + 8] = verbatim ? 1 : 0;
+  }
+
+  /**
+   * Return the offset of the last Correspondence among the given entries whose range in the
+   * generated file starts at or before the given position, or -1 if there is none. The entries are
+   * searched by bisection.
+   */
+  private static int floorEntry(int[] entries, Position position) {
+    if (entries == null) return -1;
+    int line = position.getZeroBasedLine();
+    int column = position.getZeroBasedColumn();
+    int low = 0;
+    int high = entries.length / STRIDE - 1;
+    int result = -1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int i = mid * STRIDE;
+      if (entries[i] < line || (entries[i] == line && entries[i + 1] <= column)) {
+        result = i;
+        low = mid + 1;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return result;
   }
 
   /**
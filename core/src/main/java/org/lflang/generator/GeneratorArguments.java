@@ -15,6 +15,9 @@ import java.util.List;
  * @param lint For enabling or disabling the linting of generated code.
  * @param quiet Whether to suppress output of the target compiler and other commands.
  * @param rti The location of the rti.
+ * @param threads The maximum number of threads used to generate and compile code concurrently, or
+ *     null to use the default of each generator. Federates are compiled one after another by
+ *     default.
  * @param overrides List of arguments that are meant to override target properties
  * @author Marten Lohstroh
  * @ingroup Generator
@@ -27,10 +30,11 @@ public record GeneratorArguments(
     boolean lint,
     boolean quiet,
     URI rti,
+    Integer threads,
     List<Argument<?>> overrides) {
 
   /** Return a record with none of the arguments set. */
   public static GeneratorArguments none() {
-    return new GeneratorArguments(false, null, false, null, false, false, null, List.of());
+    return new GeneratorArguments(false, null, false, null, false, false, null, null, List.of());
   }
 }
@@ -6,11 +6,13 @@ import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import org.eclipse.core.resources.IMarker;
 import org.eclipse.emf.ecore.EObject;
@@ -43,6 +45,7 @@ import org.lflang.target.property.FilesProperty;
 import org.lflang.target.property.SingleThreadedProperty;
 import org.lflang.target.property.VerifyProperty;
 import org.lflang.util.FileUtil;
+import org.lflang.util.LFCommand;
 import org.lflang.validation.AbstractLFValidator;
 
 /**
@@ -499,35 +502,52 @@ public abstract class GeneratorBase extends AbstractLFValidator {
   public void reportCommandErrors(String stderr) {
     // NOTE: If the VS Code branch passes code review, then this function,
     //  parseCommandOutput, and ErrorFileAndLine will be deleted soon after.
-    // First, split the message into lines.
-    String[] lines = stderr.split("\\r?\\n");
-    StringBuilder message = new StringBuilder();
-    Integer lineNumber = null;
-    Path path = context.getFileConfig().srcFile;
-    // In case errors occur within an imported file, record the original path.
-    Path originalPath = path;
-
-    int severity = IMarker.SEVERITY_ERROR;
-    for (String line : lines) {
+    CommandErrors errors = newCommandErrors();
+    for (String line : stderr.split("\\r?\\n")) {
+      errors.accept(line);
+    }
+    errors.report();
+  }
+
+  /**
+   * Return a new collector of the errors of a command, which can be passed the lines of standard
+   * error as the command produces them with {@link LFCommand#onErrorLine(Consumer)}. Unlike
+   * {@link #reportCommandErrors(String)} applied to {@link LFCommand#getErrors()}, this finds the
+   * errors even if the command retains only the most recent lines of a long standard error.
+   */
+  public CommandErrors newCommandErrors() {
+    return new CommandErrors();
+  }
+
+  /**
+   * Collector of the issues in the standard error of a command, which are found line by line with
+   * {@link #parseCommandOutput(String)} and reported when {@link #report()} is called.
+   */
+  public class CommandErrors implements Consumer<String> {
+
+    /** An issue found in the standard error. */
+    private record Issue(String message, Integer lineNumber, Path path, int severity) {}
+
+    private final List<Issue> issues = new ArrayList<>();
+
+    /** The message of the issue that is being accumulated. */
+    private StringBuilder message = new StringBuilder();
+
+    private Integer lineNumber = null;
+
+    private Path path = context.getFileConfig().srcFile;
+
+    private int severity = IMarker.SEVERITY_ERROR;
+
+    private CommandErrors() {}
+
+    @Override
+    public void accept(String line) {
       ErrorFileAndLine parsed = parseCommandOutput(line);
       if (parsed != null) {
         // Found a new line number designator.
-        // If there is a previously accumulated message, report it.
-        if (message.length() > 0) {
-          reportIssue(message, lineNumber, path, severity);
-
-          if (!Objects.equal(originalPath.toFile(), path.toFile())) {
-            // Report an error also in the top-level resource.
-            // FIXME: It should be possible to descend through the import
-            // statements to find which one matches and mark all the
-            // import statements down the chain. But what a pain!
-            if (severity == IMarker.SEVERITY_ERROR) {
-              messageReporter.at(originalPath).error("Error in imported file: " + path);
-            } else {
-              messageReporter.at(originalPath).warning("Warning in imported file: " + path);
-            }
-          }
-        }
+        // If there is a previously accumulated message, record it.
+        addIssue();
         if (parsed.isError) {
           severity = IMarker.SEVERITY_ERROR;
         } else {
@@ -535,7 +555,6 @@ public abstract class GeneratorBase extends AbstractLFValidator {
         }
 
         // Start accumulating a new message.
-        message = new StringBuilder();
         // Append the message on the line number designator line.
         message.append(parsed.message);
 
@@ -561,20 +580,38 @@ public abstract class GeneratorBase extends AbstractLFValidator {
         message.append(line);
       }
     }
-    if (message.length() > 0) {
-      reportIssue(message, lineNumber, path, severity);
-
-      if (originalPath.toFile() != path.toFile()) {
-        // Report an error also in the top-level resource.
-        // FIXME: It should be possible to descend through the import
-        // statements to find which one matches and mark all the
-        // import statements down the chain. But what a pain!
-        if (severity == IMarker.SEVERITY_ERROR) {
-          messageReporter.at(originalPath).error("Error in imported file: " + path);
-        } else {
-          messageReporter.at(originalPath).warning("Warning in imported file: " + path);
+
+    /** Report the issues found so far, including the one whose message is being accumulated. */
+    public void report() {
+      addIssue();
+      // In case errors occur within an imported file, record the original path.
+      Path originalPath = context.getFileConfig().srcFile;
+      // The code maps of the generated files that issues are reported in, if they were saved.
+      Map<Path, CodeMap> codeMaps = new HashMap<>();
+      for (Issue issue : issues) {
+        reportIssue(issue.message(), issue.lineNumber(), issue.path(), issue.severity(), codeMaps);
+
+        if (!Objects.equal(originalPath.toFile(), issue.path().toFile())) {
+          // Report an error also in the top-level resource.
+          // FIXME: It should be possible to descend through the import
+          // statements to find which one matches and mark all the
+          // import statements down the chain. But what a pain!
+          if (issue.severity() == IMarker.SEVERITY_ERROR) {
+            messageReporter.at(originalPath).error("Error in imported file: " + issue.path());
+          } else {
+            messageReporter.at(originalPath).warning("Warning in imported file: " + issue.path());
+          }
         }
       }
+      issues.clear();
+    }
+
+    /** Record the issue whose message is being accumulated, if any. */
+    private void addIssue() {
+      if (message.length() > 0) {
+        issues.add(new Issue(message.toString(), lineNumber, path, severity));
+        message = new StringBuilder();
+      }
     }
   }
 
@@ -667,10 +704,36 @@ public abstract class GeneratorBase extends AbstractLFValidator {
     }
   }
 
-  private void reportIssue(StringBuilder message, Integer lineNumber, Path path, int severity) {
+  /**
+   * Report an issue at the given line of the given file. If the file is a generated file whose code
+   * map was saved next to it, and the code at that line comes from a Lingua Franca file, the issue
+   * is reported there instead.
+   *
+   * @param codeMaps The code maps loaded so far, to which the code map of the file is added.
+   */
+  private void reportIssue(
+      String message,
+      Integer lineNumber,
+      Path path,
+      int severity,
+      Map<Path, CodeMap> codeMaps) {
     DiagnosticSeverity convertedSeverity =
         severity == IMarker.SEVERITY_ERROR ? DiagnosticSeverity.Error : DiagnosticSeverity.Warning;
-    messageReporter.atNullableLine(path, lineNumber).report(convertedSeverity, message.toString());
+    CodeMap map =
+        lineNumber == null ? null : codeMaps.computeIfAbsent(path, CodeMap::fromSidecarOrNull);
+    // Only the line is known, so look up the code that follows the last space on it.
+    CodeMap.LfPosition lfPosition = null;
+    if (map != null) {
+      int column = map.firstNonWhitespace(lineNumber);
+      lfPosition = map.lfPositionOf(Position.fromZeroBased(lineNumber - 1, column));
+    }
+    if (lfPosition != null) {
+      messageReporter
+          .at(lfPosition.path(), lfPosition.position().getOneBasedLine())
+          .report(convertedSeverity, message);
+    } else {
+      messageReporter.atNullableLine(path, lineNumber).report(convertedSeverity, message);
+    }
   }
 
   // //////////////////////////////////////////////////
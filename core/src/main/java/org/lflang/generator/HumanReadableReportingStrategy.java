@@ -2,6 +2,7 @@ package org.lflang.generator;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.regex.Matcher;
@@ -72,13 +73,15 @@ public class HumanReadableReportingStrategy implements DiagnosticReporting.Strat
   @Override
   public void report(
       String validationOutput, MessageReporter messageReporter, Map<Path, CodeMap> map) {
+    // The code maps loaded from sidecar files are added to a copy of the given map.
+    Map<Path, CodeMap> maps = new HashMap<>(map);
     Iterator<String> it = validationOutput.lines().iterator();
     while (it.hasNext() || bufferedLine != null) {
       if (bufferedLine != null) {
-        reportErrorLine(bufferedLine, it, messageReporter, map);
+        reportErrorLine(bufferedLine, it, messageReporter, maps);
         bufferedLine = null;
       } else {
-        reportErrorLine(it.next(), it, messageReporter, map);
+        reportErrorLine(it.next(), it, messageReporter, maps);
       }
     }
   }
@@ -89,7 +92,8 @@ public class HumanReadableReportingStrategy implements DiagnosticReporting.Strat
    * @param line The current line.
    * @param it An iterator over the lines that follow the current line.
    * @param messageReporter An arbitrary ErrorReporter.
-   * @param maps A mapping from generated file paths to CodeMaps.
+   * @param maps A mapping from generated file paths to CodeMaps, to which the CodeMaps that are
+   *     loaded from sidecar files are added.
    */
   private void reportErrorLine(
       String line, Iterator<String> it, MessageReporter messageReporter, Map<Path, CodeMap> maps) {
@@ -107,7 +111,9 @@ public class HumanReadableReportingStrategy implements DiagnosticReporting.Strat
                   : Integer.parseInt(column));
       final String message =
           DiagnosticReporting.messageOf(matcher.group("message"), path, generatedFilePosition);
-      final CodeMap map = maps.get(relativeTo != null ? relativeTo.resolve(path) : path);
+      final Path generatedFile = relativeTo != null ? relativeTo.resolve(path) : path;
+      // Fall back on the code map saved next to a file that was generated by an earlier build.
+      final CodeMap map = maps.computeIfAbsent(generatedFile, CodeMap::fromSidecarOrNull);
       if (map == null) {
         messageReporter.nowhere().report(severity, message);
         return;
@@ -146,6 +146,6 @@ public class IntegratedBuilder {
       return GeneratorArguments.none();
     }
     var json = JsonParser.parseString(jsonString).getAsJsonObject();
-    return new GeneratorArguments(false, null, false, json, false, false, null, List.of());
+    return new GeneratorArguments(false, null, false, json, false, false, null, null, List.of());
   }
 }
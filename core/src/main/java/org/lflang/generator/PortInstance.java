@@ -246,6 +246,16 @@ public class PortInstance extends TriggerInstance<Port> {
         index, Math.min(levelUpperBounds.getOrDefault(index, Integer.MAX_VALUE), level));
   }
 
+  /** Forget the levels recorded for the `index`th sub-port of this port. */
+  public void clearIndexForPortChannel(MixedRadixInt index) {
+    levelUpperBounds.remove(index);
+  }
+
+  /** Forget the levels recorded for all the sub-ports of this port. */
+  public void clearIndicesForPortChannels() {
+    levelUpperBounds.clear();
+  }
+
   /**
    * Return the minimum of the levels of the reactions that are downstream of this port. If there
    * are no reactions downstream of this port, this returns Integer.MAX_VALUE.
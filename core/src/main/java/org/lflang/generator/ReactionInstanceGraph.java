@@ -1,11 +1,14 @@
 package org.lflang.generator;
 
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import org.lflang.AttributeUtils;
+import org.lflang.TimeValue;
 import org.lflang.generator.ReactionInstance.Runtime;
 import org.lflang.generator.c.CUtil;
-import org.lflang.graph.PrecedenceGraph;
+import org.lflang.graph.DirectedGraph;
+import org.lflang.graph.IndexedPrecedenceGraph;
 import org.lflang.lf.Variable;
 
 /**
@@ -27,14 +30,28 @@ import org.lflang.lf.Variable;
  * @author Edward A. Lee
  * @ingroup Instances
  */
-public class ReactionInstanceGraph extends PrecedenceGraph<ReactionInstance.Runtime> {
+public class ReactionInstanceGraph extends IndexedPrecedenceGraph<ReactionInstance.Runtime> {
 
   /**
    * Create a new graph by traversing the maps in the named instances embedded in the hierarchy of
    * the program.
    */
   public ReactionInstanceGraph(ReactorInstance main) {
+    this(main, false);
+  }
+
+  /**
+   * Create a new graph by traversing the maps in the named instances embedded in the hierarchy of
+   * the program.
+   *
+   * @param main The main reactor instance.
+   * @param incremental If true, retain the dependencies between reactions after assigning levels,
+   *     so that levels and deadlines can later be updated locally using {@link
+   *     #update(Collection)}.
+   */
+  public ReactionInstanceGraph(ReactorInstance main, boolean incremental) {
     this.main = main;
+    this.incremental = incremental;
     rebuild();
   }
 
@@ -55,6 +72,22 @@ public class ReactionInstanceGraph extends PrecedenceGraph<ReactionInstance.Runt
     addEdgesForTpoLevels(main);
     assignInferredDeadlines();
 
+    if (incremental) {
+      // Keep the dependencies, which assignLevels() destroys.
+      dependencies = copy();
+      hasTpoLevels = !getConstrainedReactions(main).isEmpty();
+      portsRead.clear();
+      readers.clear();
+      List<Runtime> runtimes = new ArrayList<>();
+      getAllContainedReactions(runtimes, main);
+      for (Runtime runtime : runtimes) {
+        portsRead.computeIfAbsent(runtime.getReaction(), ReactionInstanceGraph::getPortsRead);
+        for (MriPortPair sourcePort : runtime.sourcePorts) {
+          readers.computeIfAbsent(sourcePort, k -> new ArrayList<>()).add(runtime);
+        }
+      }
+    }
+
     // Assign a level to each reaction.
     // If there are cycles present in the graph, it will be detected here.
     // This will destroy the graph, leaving only nodes in cycles.
@@ -72,6 +105,92 @@ public class ReactionInstanceGraph extends PrecedenceGraph<ReactionInstance.Runt
     this.clear();
   }
 
+  /**
+   * Update the levels, inferred deadlines, and dominating reactions of the runtime reaction
+   * instances after the effects or the declared deadlines of the given reactions have changed.
+   * Before calling this, the caches of {@link #main} have to be cleared using {@link
+   * ReactorInstance#clearCaches(boolean)}, leaving the runtime instances intact.
+   *
+   * <p>Only the dependencies of the given reactions on the reactions they send data to are
+   * recomputed. Levels are then recomputed only for the runtime instances downstream of the
+   * dependencies that were removed or added, and inferred deadlines only for the runtime instances
+   * upstream of the given reactions. The result is the same as that of building a new graph.
+   *
+   * <p>If this graph was not created for incremental updates, if the program has causality cycles
+   * or reactors with TPO levels, if the ports read by one of the given reactions changed, or if the
+   * edit introduces a causality cycle, then the graph is rebuilt from scratch instead.
+   *
+   * @param changed The reactions that were edited.
+   */
+  public void update(Collection<ReactionInstance> changed) {
+    if (!incremental
+        || nodeCount() != 0
+        || hasTpoLevels
+        || changed.stream().anyMatch(r -> !getPortsRead(r).equals(portsRead.get(r)))) {
+      rebuildFromScratch();
+      return;
+    }
+
+    // Replace the dependencies of other reactions on the changed ones, except for
+    // those that are due to the lexical order of reactions, which cannot have changed.
+    Set<Runtime> changedRuntimes = new LinkedHashSet<>();
+    Set<Runtime> rewired = new LinkedHashSet<>();
+    for (ReactionInstance reaction : changed) {
+      for (Runtime runtime : reaction.getRuntimeInstances()) {
+        changedRuntimes.add(runtime);
+        Runtime successor = lexicalSuccessor(runtime);
+        for (Runtime downstream : List.copyOf(dependencies.getDownstreamAdjacentNodes(runtime))) {
+          rewired.add(downstream);
+          if (downstream != successor) dependencies.removeEdge(downstream, runtime);
+        }
+      }
+      // This graph is empty because there are no cycles, so it can hold the new edges.
+      for (TriggerInstance<? extends Variable> effect : reaction.effects) {
+        if (effect instanceof PortInstance) {
+          addDownstreamReactions((PortInstance) effect, reaction);
+        }
+      }
+    }
+    dependencies.merge(this);
+    this.clear();
+    for (Runtime runtime : changedRuntimes) {
+      rewired.addAll(dependencies.getDownstreamAdjacentNodes(runtime));
+    }
+
+    Map<Runtime, Integer> previousLevels = updateLevels(rewired);
+    if (previousLevels == null) {
+      // The edit introduced a causality cycle.
+      rebuildFromScratch();
+      return;
+    }
+    updateInferredDeadlines(changedRuntimes);
+
+    for (Runtime runtime : rewired) {
+      var upstream = dependencies.getUpstreamAdjacentNodes(runtime);
+      runtime.dominating =
+          runtime.getReaction().index == 0 && upstream.size() == 1
+              ? upstream.iterator().next()
+              : null;
+    }
+
+    // Update the bookkeeping that depends on the levels of the runtime instances.
+    Set<MriPortPair> sourcePorts = new LinkedHashSet<>();
+    for (var entry : previousLevels.entrySet()) {
+      Runtime runtime = entry.getKey();
+      if (runtime.level == entry.getValue()) continue;
+      ReactorInstance enclave = runtime.getReaction().getContainingEnclaveReactor();
+      adjustNumReactionsPerLevel(entry.getValue(), enclave, -1);
+      adjustNumReactionsPerLevel(runtime.level, enclave, 1);
+      sourcePorts.addAll(runtime.sourcePorts);
+    }
+    for (MriPortPair sourcePort : sourcePorts) {
+      sourcePort.port().clearIndexForPortChannel(sourcePort.index());
+      for (Runtime reader : readers.getOrDefault(sourcePort, List.of())) {
+        sourcePort.port().recordIndexForPortChannel(sourcePort.index(), reader.level);
+      }
+    }
+  }
+
   /**
    * @brief Get an array of non-negative integers representing the number of reactions per each
    *     level, where levels are indices of the array.
@@ -286,6 +405,24 @@ public class ReactionInstanceGraph extends PrecedenceGraph<ReactionInstance.Runt
   private Map<ReactorInstance, List<Integer>> numReactionsPerEnclavePerLevel =
       new LinkedHashMap<>();
 
+  /** Whether to retain the information needed by {@link #update(Collection)}. */
+  private final boolean incremental;
+
+  /**
+   * All the dependencies between runtime reaction instances, which are retained after levels have
+   * been assigned if {@link #incremental} is true.
+   */
+  private DirectedGraph<Runtime> dependencies;
+
+  /** Whether there are reactors with TPO levels, which {@link #update(Collection)} ignores. */
+  private boolean hasTpoLevels;
+
+  /** The ports read by each reaction when this graph was built. */
+  private final Map<ReactionInstance, Set<PortInstance>> portsRead = new HashMap<>();
+
+  /** The runtime reaction instances that each channel of a port sends to. */
+  private final Map<MriPortPair, List<Runtime>> readers = new HashMap<>();
+
   ///////////////////////////////////////////////////////////
   //// Private methods
 
@@ -345,50 +482,198 @@ public class ReactionInstanceGraph extends PrecedenceGraph<ReactionInstance.Runt
    * reaction is the least upper bound of the levels of the reactions it depends on.
    */
   private void assignLevels() {
-    List<ReactionInstance.Runtime> start = new ArrayList<>(rootNodes());
-
-    // All root nodes start with level 0.
-    for (Runtime origin : start) {
-      origin.level = 0;
+    // The number of upstream nodes of each node that have not been visited yet.
+    int[] pending = new int[indexBound()];
+    int[] queue = new int[nodeCount()];
+    int head = 0, tail = 0;
+    for (int index = 0; index < pending.length; index++) {
+      if (nodeAt(index) == null) continue;
+      pending[index] = upstreamCount(index);
+      // All root nodes start with level 0.
+      if (pending[index] == 0) {
+        nodeAt(index).level = 0;
+        queue[tail++] = index;
+      }
     }
 
     // No need to do any of this if there are no root nodes;
     // the graph must be cyclic.
-    while (!start.isEmpty()) {
-      Runtime origin = start.remove(0);
-      Set<Runtime> toRemove = new LinkedHashSet<>();
-      Set<Runtime> downstreamAdjacentNodes = getDownstreamAdjacentNodes(origin);
+    while (head < tail) {
+      int originIndex = queue[head++];
+      Runtime origin = nodeAt(originIndex);
 
       // Visit effect nodes.
-      for (Runtime effect : downstreamAdjacentNodes) {
-        // Stage edge between origin and effect for removal.
-        toRemove.add(effect);
+      for (int i = 0; i < downstreamCount(originIndex); i++) {
+        int effectIndex = downstreamAt(originIndex, i);
+        Runtime effect = nodeAt(effectIndex);
 
         // Update level of downstream node.
         if (effect.level <= origin.level) {
           effect.level = origin.level + 1;
         }
-      }
-      // Remove visited edges.
-      for (Runtime effect : toRemove) {
-        removeEdge(effect, origin);
-        // If the effect node has no more incoming edges,
+        // If the effect node has no more unvisited upstream nodes,
         // then move it in the start set.
-        if (getUpstreamAdjacentNodes(effect).isEmpty()) {
-          start.add(effect);
+        if (--pending[effectIndex] == 0) {
+          queue[tail++] = effectIndex;
         }
       }
-
-      // Remove visited origin.
-      removeNode(origin);
       assignPortLevel(origin);
 
       // Update the number of reactions per level for the enclave that contains the origin reaction.
       ReactionInstance reaction = origin.getReaction();
       ReactorInstance enclaveTop = reaction.getContainingEnclaveReactor();
       // Update numReactionsPerLevel info
-      adjustNumReactionsPerLevel(origin.level, enclaveTop);
+      adjustNumReactionsPerLevel(origin.level, enclaveTop, 1);
     }
+
+    // Remove visited nodes, leaving only the nodes that are part of causality cycles.
+    List<Runtime> visited = new ArrayList<>(tail);
+    for (int i = 0; i < tail; i++) {
+      visited.add(nodeAt(queue[i]));
+    }
+    removeNodes(visited);
+  }
+
+  /**
+   * Recompute the levels of the given runtime instances and of all runtime instances downstream of
+   * them in {@link #dependencies}, in topological order. The levels of the other runtime instances
+   * are unaffected.
+   *
+   * @param start The runtime instances whose upstream dependencies changed.
+   * @return The previous levels of the runtime instances that were visited, or null if these form a
+   *     cycle.
+   */
+  private Map<Runtime, Integer> updateLevels(Set<Runtime> start) {
+    Set<Runtime> affected = closure(start, dependencies::getDownstreamAdjacentNodes);
+    Map<Runtime, Integer> pending = new HashMap<>();
+    Deque<Runtime> ready = new ArrayDeque<>();
+    for (Runtime runtime : affected) {
+      int count = 0;
+      for (Runtime upstream : dependencies.getUpstreamAdjacentNodes(runtime)) {
+        if (affected.contains(upstream)) count++;
+      }
+      pending.put(runtime, count);
+      if (count == 0) ready.add(runtime);
+    }
+
+    Map<Runtime, Integer> previousLevels = new LinkedHashMap<>();
+    while (!ready.isEmpty()) {
+      Runtime runtime = ready.poll();
+      previousLevels.put(runtime, runtime.level);
+      runtime.level = 0;
+      for (Runtime upstream : dependencies.getUpstreamAdjacentNodes(runtime)) {
+        runtime.level = Math.max(runtime.level, upstream.level + 1);
+      }
+      for (Runtime downstream : dependencies.getDownstreamAdjacentNodes(runtime)) {
+        if (pending.merge(downstream, -1, Integer::sum) == 0) ready.add(downstream);
+      }
+    }
+    if (previousLevels.size() < affected.size()) return null;
+    return previousLevels;
+  }
+
+  /**
+   * Recompute the inferred deadlines of the given runtime instances and of all runtime instances
+   * upstream of them in {@link #dependencies}, in reverse topological order. The inferred deadlines
+   * of the other runtime instances are unaffected.
+   *
+   * @param start The runtime instances whose downstream dependencies or deadlines changed.
+   */
+  private void updateInferredDeadlines(Set<Runtime> start) {
+    Set<Runtime> affected = closure(start, dependencies::getUpstreamAdjacentNodes);
+    Map<Runtime, Integer> pending = new HashMap<>();
+    Deque<Runtime> ready = new ArrayDeque<>();
+    for (Runtime runtime : affected) {
+      int count = 0;
+      for (Runtime downstream : dependencies.getDownstreamAdjacentNodes(runtime)) {
+        if (affected.contains(downstream)) count++;
+      }
+      pending.put(runtime, count);
+      if (count == 0) ready.add(runtime);
+    }
+
+    while (!ready.isEmpty()) {
+      Runtime runtime = ready.poll();
+      runtime.deadline = getDeclaredDeadline(runtime.getReaction());
+      for (Runtime downstream : dependencies.getDownstreamAdjacentNodes(runtime)) {
+        if (downstream.deadline.isEarlierThan(runtime.deadline)) {
+          runtime.deadline = downstream.deadline;
+        }
+      }
+      for (Runtime upstream : dependencies.getUpstreamAdjacentNodes(runtime)) {
+        if (pending.merge(upstream, -1, Integer::sum) == 0) ready.add(upstream);
+      }
+    }
+  }
+
+  /** Return the given runtime instances together with all the nodes reachable from them. */
+  private static Set<Runtime> closure(
+      Set<Runtime> start, Function<Runtime, Set<Runtime>> neighbors) {
+    Set<Runtime> result = new LinkedHashSet<>(start);
+    Deque<Runtime> frontier = new ArrayDeque<>(start);
+    while (!frontier.isEmpty()) {
+      for (Runtime neighbor : neighbors.apply(frontier.poll())) {
+        if (result.add(neighbor)) frontier.add(neighbor);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Return the runtime instance of the reaction that lexically follows the reaction of the given
+   * runtime instance in the same reactor, if the graph has an edge between them, and null
+   * otherwise.
+   */
+  private static Runtime lexicalSuccessor(Runtime runtime) {
+    ReactionInstance reaction = runtime.getReaction();
+    ReactorInstance reactor = reaction.getParent();
+    if (reaction.index + 1 >= reactor.reactions.size()
+        || AttributeUtils.findAttributeByName(reactor.reactorDefinition, "_enclave_connection")
+            != null) {
+      return null;
+    }
+    return reactor.reactions.get(reaction.index + 1).getRuntimeInstances().get(runtime.id);
+  }
+
+  /** Return the ports that the given reaction is triggered by or reads. */
+  private static Set<PortInstance> getPortsRead(ReactionInstance reaction) {
+    Set<PortInstance> result = new HashSet<>();
+    for (TriggerInstance<? extends Variable> source : reaction.sources) {
+      if (source instanceof PortInstance port) result.add(port);
+    }
+    return result;
+  }
+
+  /** Return the deadline declared by the given reaction, or the maximum value if there is none. */
+  private static TimeValue getDeclaredDeadline(ReactionInstance reaction) {
+    return reaction.declaredDeadline != null
+        ? reaction.declaredDeadline.maxDelay
+        : TimeValue.MAX_VALUE;
+  }
+
+  /**
+   * Reset the levels, deadlines, dominating reactions, and source ports of all runtime instances,
+   * as well as the levels recorded for all ports, and build the graph again.
+   */
+  private void rebuildFromScratch() {
+    List<Runtime> runtimes = new ArrayList<>();
+    getAllContainedReactions(runtimes, main);
+    for (Runtime runtime : runtimes) {
+      runtime.level = 0;
+      runtime.deadline = getDeclaredDeadline(runtime.getReaction());
+      runtime.dominating = null;
+      runtime.sourcePorts.clear();
+    }
+    clearPortLevels(main);
+    numReactionsPerEnclavePerLevel.clear();
+    rebuild();
+  }
+
+  /** Forget the levels recorded for the ports of the given reactor and the reactors it contains. */
+  private static void clearPortLevels(ReactorInstance reactor) {
+    for (PortInstance port : reactor.inputs) port.clearIndicesForPortChannels();
+    for (PortInstance port : reactor.outputs) port.clearIndicesForPortChannels();
+    for (ReactorInstance child : reactor.children) clearPortLevels(child);
   }
 
   /**
@@ -405,43 +690,51 @@ public class ReactionInstanceGraph extends PrecedenceGraph<ReactionInstance.Runt
    * `assignLevels` but it starts at the leaf nodes, but it does not destroy the graph.
    */
   private void assignInferredDeadlines() {
-    List<Runtime> start = new ArrayList<>(leafNodes());
-    Set<Runtime> visited = new HashSet<>();
+    // The number of downstream nodes of each node that have not been visited yet.
+    int[] pending = new int[indexBound()];
+    boolean[] visited = new boolean[indexBound()];
+    int[] queue = new int[nodeCount()];
+    int head = 0, tail = 0;
+    for (int index = 0; index < pending.length; index++) {
+      if (nodeAt(index) == null) continue;
+      pending[index] = downstreamCount(index);
+      if (pending[index] == 0) queue[tail++] = index;
+    }
 
     // All leaf nodes have deadline initialized to their declared deadline or MAX_VALUE
-    while (!start.isEmpty()) {
-      Runtime origin = start.remove(0);
-      visited.add(origin);
-      Set<Runtime> upstreamAdjacentNodes = getUpstreamAdjacentNodes(origin);
+    while (head < tail) {
+      int originIndex = queue[head++];
+      Runtime origin = nodeAt(originIndex);
+      visited[originIndex] = true;
 
       // Visit upstream nodes.
-      for (Runtime upstream : upstreamAdjacentNodes) {
+      for (int i = 0; i < upstreamCount(originIndex); i++) {
+        int upstreamIndex = upstreamAt(originIndex, i);
         // If the upstream node has been visited, then we have a cycle, which will be
         // an error condition. Skip it.
-        if (visited.contains(upstream)) continue;
+        if (visited[upstreamIndex]) continue;
+        Runtime upstream = nodeAt(upstreamIndex);
         // Update deadline of upstream node if origins deadline is earlier.
         if (origin.deadline.isEarlierThan(upstream.deadline)) {
           upstream.deadline = origin.deadline;
         }
         // Determine whether the upstream node is now a leaf node.
-        var isLeaf = true;
-        for (Runtime downstream : getDownstreamAdjacentNodes(upstream)) {
-          if (!visited.contains(downstream)) isLeaf = false;
-        }
-        if (isLeaf) start.add(upstream);
+        if (--pending[upstreamIndex] == 0) queue[tail++] = upstreamIndex;
       }
     }
   }
 
   /**
-   * Adjust {@link #numReactionsPerEnclavePerLevel} at index <code>level</code> by adding one to the
-   * previously recorded number. If there is no previously recorded number for this level, then
-   * create one with index <code>level</code> and value 1.
+   * Adjust {@link #numReactionsPerEnclavePerLevel} at index <code>level</code> by adding
+   * <code>delta</code> to the previously recorded number. If there is no previously recorded number
+   * for this level, then create one with index <code>level</code> and value <code>delta</code>.
+   * Trailing levels without reactions are removed.
    *
    * @param level The level.
-   * @param enclave The enclave with which to increment the level count.
+   * @param enclave The enclave with which to adjust the level count.
+   * @param delta The number of reactions to add to the level count, which may be negative.
    */
-  private void adjustNumReactionsPerLevel(int level, ReactorInstance enclave) {
+  private void adjustNumReactionsPerLevel(int level, ReactorInstance enclave, int delta) {
     List<Integer> numReactionsPerLevel = numReactionsPerEnclavePerLevel.get(enclave);
     if (numReactionsPerLevel == null) {
       numReactionsPerLevel = new ArrayList<>();
@@ -451,8 +744,12 @@ public class ReactionInstanceGraph extends PrecedenceGraph<ReactionInstance.Runt
       numReactionsPerLevel.add(0);
     }
     // numReactionsPerLevel is now assured of having an entry at index level.
-    // Add one to that entry.
-    numReactionsPerLevel.set(level, numReactionsPerLevel.get(level) + 1);
+    // Add delta to that entry.
+    numReactionsPerLevel.set(level, numReactionsPerLevel.get(level) + delta);
+    while (!numReactionsPerLevel.isEmpty()
+        && numReactionsPerLevel.get(numReactionsPerLevel.size() - 1) == 0) {
+      numReactionsPerLevel.remove(numReactionsPerLevel.size() - 1);
+    }
   }
 
   /** Return the DOT (GraphViz) representation of the graph. */
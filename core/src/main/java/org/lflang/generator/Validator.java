@@ -1,10 +1,14 @@
 package org.lflang.generator;
 
 import com.google.common.collect.ImmutableMap;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
@@ -16,6 +20,7 @@ import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 import org.eclipse.xtext.util.CancelIndicator;
 import org.lflang.MessageReporter;
+import org.lflang.util.FileUtil;
 import org.lflang.util.LFCommand;
 
 /**
@@ -26,13 +31,43 @@ import org.lflang.util.LFCommand;
  */
 public abstract class Validator {
 
+  /** The thread pool that runs the validation commands of all builds. */
+  private static final ExecutorService POOL =
+      Executors.newFixedThreadPool(
+          Runtime.getRuntime().availableProcessors(),
+          runnable -> {
+            Thread thread = new Thread(runnable, "Validator");
+            thread.setDaemon(true);
+            return thread;
+          });
+
+  /** The maximum number of validation results that are kept. */
+  private static final int MAX_RESULTS = 256;
+
+  /**
+   * The results of the most recent validation of each generated file, or of each batch of generated
+   * files for full-batch strategies, by strategy and file. A file is not validated again while the
+   * content hashes of all the generated files of its validator are unchanged, since a file may
+   * include or import any of the others; the cached results are reported instead. Only the most
+   * recently used results are kept.
+   */
+  private static final Map<String, ValidationResult> results =
+      Collections.synchronizedMap(
+          new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ValidationResult> eldest) {
+              return size() > MAX_RESULTS;
+            }
+          });
+
   /**
-   * Files older than `FILE_AGE_THRESHOLD_MILLIS` may be skipped in validation on the grounds
-   * that they probably have not been updated since the last validator pass.
+   * The messages that a validation command produced.
+   *
+   * @param contentHash The content hash of the code that was validated.
+   * @param errors The standard error of the command.
+   * @param output The standard output of the command.
    */
-  // This will cause silent validation failures if it takes too long to write all generated code to
-  // the file system.
-  private static final long FILE_AGE_THRESHOLD_MILLIS = 10000;
+  private record ValidationResult(String contentHash, String errors, String output) {}
 
   protected static class Pair<S, T> {
     public final S first;
@@ -64,25 +99,13 @@ public abstract class Validator {
   public final void doValidate(LFGeneratorContext context)
       throws ExecutionException, InterruptedException {
     if (!validationEnabled(context)) return;
-    final List<Callable<Pair<ValidationStrategy, LFCommand>>> tasks =
-        getValidationStrategies().stream()
-            .map(
-                it ->
-                    (Callable<Pair<ValidationStrategy, LFCommand>>)
-                        () -> {
-                          it.second.run(context.getCancelIndicator());
-                          return it;
-                        })
-            .collect(Collectors.toList());
-    for (Future<Pair<ValidationStrategy, LFCommand>> f : getFutures(tasks)) {
-      f.get()
-          .first
-          .getErrorReportingStrategy()
-          .report(f.get().second.getErrors(), messageReporter, codeMaps);
-      f.get()
-          .first
-          .getOutputReportingStrategy()
-          .report(f.get().second.getOutput(), messageReporter, codeMaps);
+    final List<Callable<Pair<ValidationStrategy, ValidationResult>>> tasks =
+        getValidationTasks(context.getCancelIndicator());
+    for (Future<Pair<ValidationStrategy, ValidationResult>> f : getFutures(tasks)) {
+      var strategy = f.get().first;
+      var result = f.get().second;
+      strategy.getErrorReportingStrategy().report(result.errors(), messageReporter, codeMaps);
+      strategy.getOutputReportingStrategy().report(result.output(), messageReporter, codeMaps);
     }
   }
 
@@ -127,11 +150,7 @@ public abstract class Validator {
         }
         break;
       default:
-        ExecutorService service =
-            Executors.newFixedThreadPool(
-                Math.min(Runtime.getRuntime().availableProcessors(), tasks.size()));
-        futures = service.invokeAll(tasks);
-        service.shutdown();
+        futures = POOL.invokeAll(tasks);
     }
     return futures;
   }
@@ -148,24 +167,48 @@ public abstract class Validator {
   }
 
   /**
-   * Return the validation strategies and validation commands corresponding to each generated file.
+   * Return tasks that produce the validation results of the generated files. A task runs the
+   * validation command of its file, unless the results of a previous validation of the same content
+   * are available.
    *
-   * @return the validation strategies and validation commands corresponding to each generated file
+   * @param cancelIndicator The indicator of whether the validation commands should be cancelled.
    */
-  private List<Pair<ValidationStrategy, LFCommand>> getValidationStrategies() {
-    final List<Pair<ValidationStrategy, LFCommand>> commands = new ArrayList<>();
-    long mostRecentDateModified =
-        codeMaps.keySet().stream().map(it -> it.toFile().lastModified()).reduce(0L, Math::max);
+  private List<Callable<Pair<ValidationStrategy, ValidationResult>>> getValidationTasks(
+      CancelIndicator cancelIndicator) {
+    final List<Callable<Pair<ValidationStrategy, ValidationResult>>> tasks = new ArrayList<>();
+    final String hash = batchHash();
     for (Path generatedFile : codeMaps.keySet()) {
-      if (generatedFile.toFile().lastModified()
-          > mostRecentDateModified - FILE_AGE_THRESHOLD_MILLIS) {
-        final Pair<ValidationStrategy, LFCommand> p = getValidationStrategy(generatedFile);
-        if (p.first == null || p.second == null) continue;
-        commands.add(p);
-        if (p.first.isFullBatch()) break;
+      final Pair<ValidationStrategy, LFCommand> p = getValidationStrategy(generatedFile);
+      if (p.first == null || p.second == null) continue;
+      final ValidationStrategy strategy = p.first;
+      final LFCommand command = p.second;
+      final String key = strategy.getClass().getName() + File.pathSeparator + generatedFile;
+      final ValidationResult cached = results.get(key);
+      if (cached != null && cached.contentHash().equals(hash)) {
+        tasks.add(() -> new Pair<>(strategy, cached));
+      } else {
+        tasks.add(
+            () -> {
+              int returnCode = command.run(cancelIndicator);
+              var result = new ValidationResult(hash, command.getErrors(), command.getOutput());
+              // Incomplete results must not be reported again.
+              if (returnCode >= 0 && !cancelIndicator.isCanceled()) results.put(key, result);
+              return new Pair<>(strategy, result);
+            });
       }
+      if (strategy.isFullBatch()) break;
     }
-    return commands;
+    return tasks;
+  }
+
+  /** Return a hash of the content of all generated files of this validator. */
+  private String batchHash() {
+    var hashes =
+        codeMaps.entrySet().stream()
+            .sorted(Map.Entry.comparingByKey())
+            .map(it -> it.getKey() + " " + it.getValue().getContentHash())
+            .collect(Collectors.joining("\n"));
+    return FileUtil.digest(hashes.getBytes(StandardCharsets.UTF_8));
   }
 
   /**
@@ -108,6 +108,10 @@ public class CCompiler {
       }
     }
 
+    // Parse the errors as they are produced, because only the end of a long error output is kept.
+    GeneratorBase.CommandErrors compileErrors = generator.newCommandErrors();
+    compile.onErrorLine(compileErrors);
+
     int cMakeReturnCode = compile.run(context.getCancelIndicator());
 
     if (cMakeReturnCode != 0
@@ -121,13 +125,15 @@ public class CCompiler {
     if (compile.getErrors().length() > 0
         && context.getMode() != LFGeneratorContext.Mode.STANDALONE
         && !outputContainsKnownCMakeErrors(compile.getErrors())) {
-      generator.reportCommandErrors(compile.getErrors());
+      compileErrors.report();
     }
 
     int makeReturnCode = 0;
 
     if (cMakeReturnCode == 0) {
       LFCommand build = buildCmakeCommand();
+      GeneratorBase.CommandErrors buildErrors = generator.newCommandErrors();
+      build.onErrorLine(buildErrors);
 
       makeReturnCode = build.run(context.getCancelIndicator());
 
@@ -142,7 +148,7 @@ public class CCompiler {
       if (build.getErrors().length() > 0
           && context.getMode() != LFGeneratorContext.Mode.STANDALONE
           && !outputContainsKnownCMakeErrors(build.getErrors())) {
-        generator.reportCommandErrors(build.getErrors());
+        buildErrors.report();
       }
 
       if (makeReturnCode == 0 && build.getErrors().length() == 0) {
@@ -123,7 +123,7 @@ public class CEnclaveGenerator {
    * Return the code defining a static array of environment structs whose length matches the number
    * of enclaves in the program.
    */
-  private String generateEnvironmentArray() {
+  String generateEnvironmentArray() {
     return String.join(
         "\n",
         "// The global array of environments associated with each enclave",
@@ -153,7 +153,7 @@ public class CEnclaveGenerator {
    * Return the definition of an enum mapping enclave names to the index of their associated
    * environment in the environment array.
    */
-  private String generateEnvironmentEnum() {
+  String generateEnvironmentEnum() {
     CodeBuilder code = new CodeBuilder();
     code.pr("typedef enum {");
     code.indent();
@@ -21,21 +21,31 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.util.EcoreUtil;
 import org.eclipse.xtext.xbase.lib.Exceptions;
 import org.lflang.FileConfig;
 import org.lflang.ast.ASTUtils;
 import org.lflang.ast.DelayedConnectionTransformation;
 import org.lflang.federated.extensions.CExtensionUtils;
 import org.lflang.federated.generator.FederatedSubContext;
+import org.lflang.federated.generator.SynchronizedMessageReporter;
 import org.lflang.generator.ActionInstance;
 import org.lflang.generator.CodeBuilder;
 import org.lflang.generator.DelayBodyGenerator;
@@ -84,6 +94,7 @@ import org.lflang.target.property.PlatformProperty.PlatformOption;
 import org.lflang.target.property.ProtobufsProperty;
 import org.lflang.target.property.SchedulerProperty;
 import org.lflang.target.property.SingleThreadedProperty;
+import org.lflang.target.property.SplitInitializationProperty;
 import org.lflang.target.property.SystemViewProperty;
 import org.lflang.target.property.TracingProperty;
 import org.lflang.target.property.WorkersProperty;
@@ -293,6 +304,22 @@ public class CGenerator extends GeneratorBase {
   /** Place to collect code to execute at the start of a time step. */
   private final CodeBuilder startTimeStep = new CodeBuilder();
 
+  /**
+   * The units into which the initialization of the reactor instances is split, by their root, or an
+   * empty map if it is not split.
+   */
+  private Map<ReactorInstance, CInitializationUnit> initializationUnits = Map.of();
+
+  /** The time in nanoseconds that each stage of code generation took, by stage. */
+  private final Map<String, Long> stageTimes = new LinkedHashMap<>();
+
+  /**
+   * The threads that generate the code of reactor classes concurrently. They are shared by all
+   * generators, so that generators that run concurrently, like those of the federates of a
+   * federation, do not start threads of their own, and they end when they are idle.
+   */
+  private static final ThreadPoolExecutor REACTOR_CLASS_THREADS = newReactorClassThreads();
+
   // Indicate whether the generator is in Cpp mode or not
   private final boolean cppMode;
 
@@ -414,9 +441,14 @@ public class CGenerator extends GeneratorBase {
     var targetFile = fileConfig.getSrcGenPath() + File.separator + cFilename;
     try {
       generateCodeFor(lfModuleName);
+      var start = System.nanoTime();
       copyTargetFiles();
+      start = recordStage("runtime files", start);
       generateHeaders();
+      start = recordStage("headers", start);
       code.writeToFile(targetFile);
+      writeInitializationUnits(lfModuleName);
+      recordStage("main file", start);
     } catch (IOException e) {
       String message = e.getMessage();
       messageReporter.nowhere().error(message);
@@ -441,6 +473,7 @@ public class CGenerator extends GeneratorBase {
 
     // If cmake is requested, generate the CMakeLists.txt
     if (!isArduino) {
+      var start = System.nanoTime();
       var cmakeFile = fileConfig.getSrcGenPath() + File.separator + "CMakeLists.txt";
       var sources =
           allTypeParameterizedReactors()
@@ -448,6 +481,9 @@ public class CGenerator extends GeneratorBase {
               .map(it -> it + (cppMode ? ".cpp" : ".c"))
               .collect(Collectors.toCollection(ArrayList::new));
       sources.add(cFilename);
+      initializationUnits.values().stream()
+          .map(it -> it.getFileName(lfModuleName, cppMode))
+          .forEach(sources::add);
       var cmakeCode =
           cmakeGenerator.generateCMakeCode(sources, cppMode, mainDef != null, cMakeExtras, context);
       try {
@@ -456,6 +492,7 @@ public class CGenerator extends GeneratorBase {
         //noinspection ThrowableNotThrown,ResultOfMethodCallIgnored
         Exceptions.sneakyThrow(e);
       }
+      recordStage("CMake", start);
     } else {
       try {
         Path include = fileConfig.getSrcGenPath().resolve("include/");
@@ -572,7 +609,9 @@ public class CGenerator extends GeneratorBase {
     code.pr(generateDirectives());
     code.pr(new CMainFunctionGenerator(targetConfig).generateCode());
     // Generate code for each reactor.
+    var start = System.nanoTime();
     generateReactorDefinitions();
+    start = recordStage("reactor classes", start);
     copyUserFiles(targetConfig, fileConfig);
 
     // Generate main instance, if there is one.
@@ -580,7 +619,16 @@ public class CGenerator extends GeneratorBase {
     // Skip generation if there are cycles.
     if (main != null) {
 
-      code.pr(enclaveGenerator.generateDeclarations());
+      if (canSplitInitialization()) {
+        initializationUnits = CInitializationUnit.partition(main);
+      }
+      if (initializationUnits.isEmpty()) {
+        code.pr(enclaveGenerator.generateDeclarations());
+      } else {
+        // The declarations that are shared with the units are in a header of their own.
+        code.pr("#include \"" + initializationHeaderName(lfModuleName) + "\"");
+        code.pr(enclaveGenerator.generateEnvironmentArray());
+      }
       initializeTriggerObjects.pr(
           String.join(
               "\n",
@@ -622,7 +670,8 @@ public class CGenerator extends GeneratorBase {
               initializeTriggerObjects,
               startTimeStep,
               types,
-              lfModuleName));
+              lfModuleName,
+              initializationUnits));
 
       // Generate a function that will either do nothing
       // (if there is only one federate or the coordination
@@ -653,6 +702,28 @@ public class CGenerator extends GeneratorBase {
           }
           #endif""");
     }
+    recordStage("instances", start);
+  }
+
+  /**
+   * Record that the given stage of code generation ended now.
+   *
+   * @param stage The name of the stage.
+   * @param start The value of {@link System#nanoTime()} when the stage started.
+   * @return The value of {@link System#nanoTime()} when the stage ended.
+   */
+  private long recordStage(String stage, long start) {
+    var end = System.nanoTime();
+    stageTimes.merge(stage, end - start, Long::sum);
+    return end;
+  }
+
+  /**
+   * Return the time in nanoseconds that each stage of code generation took, in the order in which
+   * the stages ran. The times are not reported otherwise.
+   */
+  public Map<String, Long> getStageTimes() {
+    return Collections.unmodifiableMap(stageTimes);
   }
 
   @Override
@@ -785,13 +856,102 @@ public class CGenerator extends GeneratorBase {
   /**
    * Generate code for defining all instantiated reactors and collect preambles and relevant target
    * properties associated with imported reactors.
+   *
+   * <p>The code for the reactor classes is generated concurrently, with at most as many threads as
+   * requested with the `threads` argument or as there are processors. The calling thread generates
+   * classes as well, and the other threads are taken from {@link #REACTOR_CLASS_THREADS}, which
+   * bounds the number of threads of all generators together. Only the code that goes into the main
+   * file is generated sequentially, in the order in which the classes are instantiated, so that the
+   * generated code does not depend on the scheduling of the threads.
    */
   private void generateReactorDefinitions() throws IOException {
-    if (this.main != null) {
-      generateReactorChildren(this.main, new LinkedHashSet<>());
-      generateReactorClass(new TypeParameterizedReactor(this.mainDef, reactors));
+    if (this.main == null) return; // do not generate code for reactors that are not instantiated
+    var tprs = new ArrayList<TypeParameterizedReactor>();
+    collectReactorChildren(this.main, new LinkedHashSet<>(), tprs);
+    tprs.add(new TypeParameterizedReactor(this.mainDef, reactors));
+
+    var preambles = new ArrayList<String>();
+    for (TypeParameterizedReactor tpr : tprs) {
+      generateIncludes(tpr);
+      preambles.add(generateTopLevelPreambles(tpr.reactor()));
+    }
+
+    Integer requested = context.getArgs().threads();
+    var available = Runtime.getRuntime().availableProcessors();
+    var threads = Math.min(tprs.size(), requested != null ? Math.max(1, requested) : available);
+    if (threads <= 1) {
+      for (int i = 0; i < tprs.size(); i++) {
+        generateReactorClass(tprs.get(i), preambles.get(i));
+      }
+      return;
     }
-    // do not generate code for reactors that are not instantiated
+    // Resolve all cross-references up front, as EMF resolves proxies lazily and not thread-safely.
+    EcoreUtil.resolveAll(fileConfig.resource.getResourceSet());
+    var reporter = messageReporter;
+    messageReporter = new SynchronizedMessageReporter(reporter);
+    var next = new AtomicInteger();
+    var futures = new ArrayList<Future<?>>();
+    try {
+      for (int i = 1; i < threads; i++) {
+        futures.add(
+            REACTOR_CLASS_THREADS.submit(
+                () -> {
+                  generateReactorClasses(tprs, preambles, next);
+                  return null;
+                }));
+      }
+      generateReactorClasses(tprs, preambles, next);
+      // Tasks that have not started yet are not needed anymore, as all classes were taken.
+      futures.forEach(it -> it.cancel(false));
+      for (Future<?> future : futures) {
+        try {
+          if (!future.isCancelled()) future.get();
+        } catch (ExecutionException e) {
+          if (e.getCause() instanceof IOException io) throw io;
+          if (e.getCause() instanceof RuntimeException re) throw re;
+          throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IOException("Interrupted while generating reactor classes.", e);
+        }
+      }
+    } finally {
+      // If generating a class failed, the classes that are left are not generated.
+      next.set(tprs.size());
+      futures.forEach(it -> it.cancel(false));
+      messageReporter = reporter;
+    }
+  }
+
+  /**
+   * Generate the classes of the given reactors, with the given preambles, that are not taken by
+   * another thread yet, taking the next class from the given index until none is left.
+   */
+  private void generateReactorClasses(
+      List<TypeParameterizedReactor> tprs, List<String> preambles, AtomicInteger next)
+      throws IOException {
+    for (int i = next.getAndIncrement(); i < tprs.size(); i = next.getAndIncrement()) {
+      generateReactorClass(tprs.get(i), preambles.get(i));
+    }
+  }
+
+  /** Return the pool of {@link #REACTOR_CLASS_THREADS}. */
+  private static ThreadPoolExecutor newReactorClassThreads() {
+    var threads = Runtime.getRuntime().availableProcessors();
+    var pool =
+        new ThreadPoolExecutor(
+            threads,
+            threads,
+            10,
+            TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            runnable -> {
+              Thread thread = new Thread(runnable, "CGenerator reactor classes");
+              thread.setDaemon(true);
+              return thread;
+            });
+    pool.allowCoreThreadTimeOut(true);
+    return pool;
   }
 
   private record TypeParameterizedReactorWithDecl(TypeParameterizedReactor tpr, ReactorDecl decl) {
@@ -852,20 +1012,22 @@ public class CGenerator extends GeneratorBase {
   }
 
   /**
-   * Recursively generate code for the children of the given reactor and collect preambles and
-   * relevant target properties associated with imported reactors.
+   * Recursively collect the classes of the children of the given reactor, each one after the
+   * classes of its own children.
    *
    * @param reactor Used to extract children from
+   * @param visited The classes that have been visited so far.
+   * @param tprs The list to add the classes to.
    */
-  private void generateReactorChildren(
-      ReactorInstance reactor, LinkedHashSet<TypeParameterizedReactor> generatedReactors)
-      throws IOException {
+  private void collectReactorChildren(
+      ReactorInstance reactor,
+      Set<TypeParameterizedReactor> visited,
+      List<TypeParameterizedReactor> tprs) {
     for (ReactorInstance r : reactor.children) {
       var newTpr = r.tpr;
-      if (r.reactorDeclaration != null && !generatedReactors.contains(newTpr)) {
-        generatedReactors.add(newTpr);
-        generateReactorChildren(r, generatedReactors);
-        generateReactorClass(newTpr);
+      if (r.reactorDeclaration != null && visited.add(newTpr)) {
+        collectReactorChildren(r, visited, tprs);
+        tprs.add(newTpr);
       }
     }
   }
@@ -1149,8 +1311,15 @@ public class CGenerator extends GeneratorBase {
    * <p>If the reactor is the main reactor, then the generated code may be customized. Specifically,
    * if the main reactor has reactions, these reactions will not be generated if they are triggered
    * by or send data to contained reactors that are not in the federate.
+   *
+   * <p>This may be called concurrently for different reactors, so it must not modify the state of
+   * the generator.
+   *
+   * @param tpr The reactor class.
+   * @param preambles The top-level preambles that the header of the class includes.
    */
-  private void generateReactorClass(TypeParameterizedReactor tpr) throws IOException {
+  private void generateReactorClass(TypeParameterizedReactor tpr, String preambles)
+      throws IOException {
     // FIXME: Currently we're not reusing definitions for declarations that point to the same
     // definition.
     CodeBuilder header = new CodeBuilder();
@@ -1160,7 +1329,7 @@ public class CGenerator extends GeneratorBase {
     header.pr("#ifndef " + guardMacro);
     header.pr("#define " + guardMacro);
     generateReactorClassHeaders(tpr, headerName, header, src);
-    header.pr(generateTopLevelPreambles(tpr.reactor()));
+    header.pr(preambles);
     generateUserPreamblesForReactor(tpr.reactor(), src);
     generateReactorClassBody(tpr, header, src);
     header.pr("#endif // " + guardMacro);
@@ -1183,7 +1352,6 @@ public class CGenerator extends GeneratorBase {
     } else {
       src.pr("#include \"low_level_platform/api/low_level_platform.h\"");
     }
-    generateIncludes(tpr);
     if (cppMode) {
       src.pr("}");
       header.pr("}");
@@ -1963,6 +2131,14 @@ public class CGenerator extends GeneratorBase {
       // an array of instances of reactors and create an enclosing for loop.
       // Need to do this for each of the builders into which the code writes.
       startTimeStep.startScopedBlock(child);
+      // If the child is the root of a unit, its instances are initialized by a function of the
+      // unit, which is called here instead.
+      var enclosing = initializeTriggerObjects;
+      var unit = initializationUnits.get(child);
+      if (unit != null) {
+        enclosing.pr(unit.generateCall(""));
+        initializeTriggerObjects = unit.getConstruction();
+      }
       initializeTriggerObjects.startScopedBlock(child);
       // Generate the parent self struct for children to access its params
       initializeTriggerObjects.pr(
@@ -1974,6 +2150,7 @@ public class CGenerator extends GeneratorBase {
               + "];");
       generateReactorInstance(child);
       initializeTriggerObjects.endScopedBlock();
+      initializeTriggerObjects = enclosing;
       startTimeStep.endScopedBlock();
     }
 
@@ -2415,14 +2592,119 @@ public class CGenerator extends GeneratorBase {
    * @param r The reactor instance.
    */
   private void generateSelfStructs(ReactorInstance r) {
-    initializeTriggerObjects.pr(
-        CUtil.selfType(r) + "* " + CUtil.reactorRefName(r) + "[" + r.getTotalWidth() + "];");
-    initializeTriggerObjects.pr("SUPPRESS_UNUSED_WARNING(" + CUtil.reactorRefName(r) + ");");
+    var array = CUtil.selfType(r) + "* " + CUtil.reactorRefName(r) + "[" + r.getTotalWidth() + "]";
+    if (!initializationUnits.isEmpty()) {
+      // The arrays are global so that the units can refer to them.
+      code.pr(array + ";");
+    } else {
+      initializeTriggerObjects.pr(array + ";");
+      initializeTriggerObjects.pr("SUPPRESS_UNUSED_WARNING(" + CUtil.reactorRefName(r) + ");");
+    }
     for (ReactorInstance child : r.children) {
       generateSelfStructs(child);
     }
   }
 
+  /**
+   * Return whether the initialization of the reactor instances is to be split into units. It is not
+   * split for federates, whose setup code is included in the main file only, for Arduino, which
+   * does not build with CMake, and if the main file has code that must not be repeated in every
+   * unit.
+   */
+  private boolean canSplitInitialization() {
+    return targetConfig.getOrDefault(SplitInitializationProperty.INSTANCE)
+        && !targetConfig.isSet(FedSetupProperty.INSTANCE)
+        && targetConfig.get(PlatformProperty.INSTANCE).platform() != Platform.ARDUINO
+        && targetConfig.getOrDefault(SystemViewProperty.INSTANCE)
+            != SystemViewSetting.ENABLE_AND_INSTRUMENT;
+  }
+
+  /** Return the name of the header of the declarations that the initialization units share. */
+  private static String initializationHeaderName(String lfModuleName) {
+    return lfModuleName + "_init.h";
+  }
+
+  /**
+   * Write the header and the source files of the units into which the initialization of the
+   * reactor instances is split, if it is split. Files whose content would not change are not
+   * modified, so that they are not recompiled. The files of units that no longer exist are
+   * deleted.
+   */
+  private void writeInitializationUnits(String lfModuleName) throws IOException {
+    deleteStaleInitializationUnits(lfModuleName);
+    if (initializationUnits.isEmpty()) return;
+    var headerName = initializationHeaderName(lfModuleName);
+    var guard = headerName.toUpperCase().replaceAll("[^A-Z0-9]", "_");
+    var header = new CodeBuilder();
+    header.pr("#ifndef " + guard);
+    header.pr("#define " + guard);
+    header.pr(enclaveGenerator.generateEnvironmentEnum());
+    for (ReactorInstance r : ASTUtils.recursiveChildren(main)) {
+      header.pr(
+          "extern "
+              + CUtil.selfType(r)
+              + "* "
+              + CUtil.reactorRefName(r)
+              + "["
+              + r.getTotalWidth()
+              + "];");
+    }
+    for (CInitializationUnit unit : initializationUnits.values()) {
+      header.pr(unit.generatePrototype("") + ";");
+      header.pr(unit.generatePrototype(CTriggerObjectsGenerator.DEFERRED) + ";");
+      header.pr(unit.generatePrototype(CTriggerObjectsGenerator.DEFERRED_NON_NESTED) + ";");
+    }
+    header.pr("#endif // " + guard);
+    header.writeToFile(fileConfig.getSrcGenPath().resolve(headerName).toString());
+
+    for (CInitializationUnit unit : initializationUnits.values()) {
+      var src = new CodeBuilder();
+      src.pr(generateDirectives());
+      // Include only the headers of the reactors that the unit refers to, so that a change to
+      // another reactor does not cause the unit to be recompiled.
+      var referenced = unit.getReferencedInstances();
+      ASTUtils.recursiveChildren(main).stream()
+          .filter(referenced::contains)
+          .map(it -> it.tpr)
+          .distinct()
+          .forEach(tpr -> src.pr("#include \"" + CUtil.getName(tpr) + ".h\""));
+      src.pr("#include \"" + headerName + "\"");
+      src.pr(
+          unit.generateFunction(
+              "",
+              String.join(
+                  "\n",
+                  "int bank_index;",
+                  "SUPPRESS_UNUSED_WARNING(bank_index);",
+                  unit.getConstruction().toString())));
+      src.pr(
+          CTriggerObjectsGenerator.generateDeferredInitialization(unit, main, targetConfig, types));
+      src.writeToFile(
+          fileConfig.getSrcGenPath().resolve(unit.getFileName(lfModuleName, cppMode)).toString());
+    }
+  }
+
+  /**
+   * Delete the source files of initialization units in the src-gen directory that are not among
+   * the current units, and the header that the units share if the initialization is not split.
+   */
+  private void deleteStaleInitializationUnits(String lfModuleName) throws IOException {
+    var current =
+        initializationUnits.values().stream()
+            .map(it -> it.getFileName(lfModuleName, cppMode))
+            .collect(Collectors.toSet());
+    var srcGenPath = fileConfig.getSrcGenPath();
+    if (!Files.isDirectory(srcGenPath)) return;
+    try (var stream = Files.newDirectoryStream(srcGenPath, lfModuleName + "_init_*.{c,cpp}")) {
+      for (Path file : stream) {
+        if (!current.contains(file.getFileName().toString())) Files.deleteIfExists(file);
+      }
+    }
+    if (initializationUnits.isEmpty()) {
+      Files.deleteIfExists(srcGenPath.resolve(initializationHeaderName(lfModuleName)));
+    }
+  }
+
   private Stream<TypeParameterizedReactor> allTypeParameterizedReactors() {
     return ASTUtils.recursiveChildren(main).stream().map(it -> it.tpr).distinct();
   }
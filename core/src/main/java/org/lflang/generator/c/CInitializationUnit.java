@@ -0,0 +1,203 @@
+package org.lflang.generator.c;
+
+import com.google.common.collect.Iterables;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.lflang.ast.ASTUtils;
+import org.lflang.generator.CodeBuilder;
+import org.lflang.generator.PortInstance;
+import org.lflang.generator.ReactorInstance;
+import org.lflang.generator.RuntimeRange;
+import org.lflang.generator.SendRange;
+
+/**
+ * A separately compiled unit of the code that constructs and initializes the reactor instances of a
+ * subtree of the program. This is used when the {@link
+ * org.lflang.target.property.SplitInitializationProperty} is set.
+ *
+ * <p>The code of a unit is the same as the code that it replaces in
+ * _lf_initialize_trigger_objects(), except that it is wrapped in functions that are called from
+ * there. The arrays of self structs are therefore global, and the local variables of
+ * _lf_initialize_trigger_objects() that the code refers to, such as the counters of startup
+ * reactions or the bank indices of the enclosing banks, are passed as arguments with the same
+ * names.
+ *
+ * @ingroup Generator
+ */
+public class CInitializationUnit {
+
+  /**
+   * The number of reactor instances in a subtree above which the subtree is split into units for
+   * its children rather than put into a single unit.
+   */
+  private static final int MAX_INSTANCES = 64;
+
+  /** The root of the subtree. */
+  private final ReactorInstance root;
+
+  /** The name of the unit, which is part of the names of its file and its functions. */
+  private final String name;
+
+  /** The code that constructs the reactor instances of the subtree. */
+  private final CodeBuilder construction = new CodeBuilder();
+
+  private CInitializationUnit(ReactorInstance root, String name) {
+    this.root = root;
+    this.name = name;
+  }
+
+  /**
+   * Partition the instances that are contained by the given main reactor into units. Each child of
+   * main becomes a unit, unless it contains more than {@link #MAX_INSTANCES} instances, in which
+   * case it is partitioned in turn. Every unit is called directly from the code of the main file.
+   *
+   * @param main The main reactor instance.
+   * @return The units by their root.
+   */
+  public static Map<ReactorInstance, CInitializationUnit> partition(ReactorInstance main) {
+    var units = new LinkedHashMap<ReactorInstance, CInitializationUnit>();
+    partition(main, units, new HashSet<>());
+    return units;
+  }
+
+  private static void partition(
+      ReactorInstance reactor,
+      Map<ReactorInstance, CInitializationUnit> units,
+      Set<String> takenNames) {
+    for (ReactorInstance child : reactor.children) {
+      if (!child.children.isEmpty() && ASTUtils.recursiveChildren(child).size() > MAX_INSTANCES) {
+        partition(child, units, takenNames);
+      } else {
+        units.put(child, new CInitializationUnit(child, uniqueName(child, takenNames)));
+      }
+    }
+  }
+
+  /**
+   * Return a name for the unit of the given root that is derived from the full name of the root,
+   * rather than from {@link ReactorInstance#uniqueID()}, which depends on the order in which the
+   * instances are visited, so that the files of the units are the same in every build of the same
+   * program. The name differs from the given names even if file names are not case-sensitive, and
+   * it is added to them.
+   */
+  private static String uniqueName(ReactorInstance root, Set<String> takenNames) {
+    var base = root.getFullNameWithJoiner("_").replaceAll("[^A-Za-z0-9_]", "_");
+    var result = base;
+    for (int i = 1; !takenNames.add(result.toLowerCase()); i++) {
+      result = base + "_" + i;
+    }
+    return result;
+  }
+
+  /** Return the root of the subtree whose instances this unit initializes. */
+  public ReactorInstance getRoot() {
+    return root;
+  }
+
+  /**
+   * Return the reactor instances whose self structs the code of this unit refers to. These are the
+   * instances of its subtree, their ancestors, and the reactors that contain the eventual
+   * destinations of the ports of the subtree, together with their parents, since the triggers of
+   * those destinations are set up by the code of the unit.
+   */
+  public Set<ReactorInstance> getReferencedInstances() {
+    var result = new LinkedHashSet<ReactorInstance>();
+    for (var parent = root.getParent(); parent != null; parent = parent.getParent()) {
+      result.add(parent);
+    }
+    for (ReactorInstance reactor : ASTUtils.recursiveChildren(root)) {
+      result.add(reactor);
+      for (PortInstance port : Iterables.concat(reactor.inputs, reactor.outputs)) {
+        for (SendRange range : port.eventualDestinations()) {
+          for (RuntimeRange<PortInstance> destination : range.destinations) {
+            var destinationReactor = destination.instance.getParent();
+            result.add(destinationReactor);
+            if (destinationReactor.getParent() != null) result.add(destinationReactor.getParent());
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  /** Return the builder for the code that constructs the instances of this unit. */
+  public CodeBuilder getConstruction() {
+    return construction;
+  }
+
+  /**
+   * Return the name of the source file of this unit.
+   *
+   * @param lfModuleName The name of the main file without extension.
+   * @param cppMode Whether the generated code is C++.
+   */
+  public String getFileName(String lfModuleName, boolean cppMode) {
+    return lfModuleName + "_init_" + name + (cppMode ? ".cpp" : ".c");
+  }
+
+  /**
+   * Return the name of a function of this unit.
+   *
+   * @param phase The phase of the initialization that the function performs, which is empty for
+   *     the construction of the instances.
+   */
+  public String getFunctionName(String phase) {
+    return "_lf_initialize_" + name + phase;
+  }
+
+  /** Return the prototype of the function for the given phase, without a trailing semicolon. */
+  public String generatePrototype(String phase) {
+    return "void " + getFunctionName(phase) + "(" + String.join(", ", parameters()) + ")";
+  }
+
+  /** Return a call of the function for the given phase. */
+  public String generateCall(String phase) {
+    var arguments = parameters().stream().map(CInitializationUnit::nameOf).toList();
+    return getFunctionName(phase) + "(" + String.join(", ", arguments) + ");";
+  }
+
+  /**
+   * Return the definition of the function for the given phase.
+   *
+   * @param phase The phase.
+   * @param body The code that the function executes.
+   */
+  public String generateFunction(String phase, String body) {
+    var code = new CodeBuilder();
+    code.pr(generatePrototype(phase) + " {");
+    code.indent();
+    for (String parameter : parameters()) {
+      code.pr("SUPPRESS_UNUSED_WARNING(" + nameOf(parameter) + ");");
+    }
+    code.pr(body);
+    code.unindent();
+    code.pr("}");
+    return code.toString();
+  }
+
+  /**
+   * Return the parameters of the functions of this unit, which are the environments, the counters
+   * of _lf_initialize_trigger_objects() and the bank indices of the banks that enclose the root.
+   */
+  private List<String> parameters() {
+    var result = new ArrayList<String>();
+    result.add("environment_t* " + CUtil.ENVIRONMENT_VARIABLE_NAME);
+    CTriggerObjectsGenerator.COUNTERS.forEach(it -> result.add("int* " + it));
+    var banks = new ArrayList<String>();
+    for (var parent = root.getParent(); parent != null; parent = parent.getParent()) {
+      if (parent.isBank()) banks.add(0, "int " + CUtil.bankIndexName(parent));
+    }
+    result.addAll(banks);
+    return result;
+  }
+
+  /** Return the name of the given parameter declaration. */
+  private static String nameOf(String parameter) {
+    return parameter.substring(parameter.lastIndexOf(' ') + 1);
+  }
+}
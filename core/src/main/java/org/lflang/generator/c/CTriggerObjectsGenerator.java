@@ -12,6 +12,8 @@ import static org.lflang.util.StringUtil.joinObjects;
 import com.google.common.collect.Iterables;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 import org.lflang.AttributeUtils;
@@ -27,6 +29,7 @@ import org.lflang.generator.SendRange;
 import org.lflang.target.TargetConfig;
 import org.lflang.target.property.LoggingProperty;
 import org.lflang.target.property.SingleThreadedProperty;
+import org.lflang.target.property.StaticTriggerTablesProperty;
 import org.lflang.target.property.type.LoggingType.LogLevel;
 
 /**
@@ -38,7 +41,34 @@ import org.lflang.target.property.type.LoggingType.LogLevel;
  * @ingroup Generator
  */
 public class CTriggerObjectsGenerator {
-  /** Generate the _lf_initialize_trigger_objects function for 'federate'. */
+
+  /**
+   * The names of the arrays of counters, with one counter for each environment, that are local to
+   * the generated _lf_initialize_trigger_objects() function.
+   */
+  static final List<String> COUNTERS =
+      List.of(
+          "startup_reaction_count",
+          "shutdown_reaction_count",
+          "reset_reaction_count",
+          "timer_triggers_count",
+          "modal_state_reset_count",
+          "modal_reactor_count",
+          "watchdog_count");
+
+  /** The phase of a {@link CInitializationUnit} that performs the deferred initialization. */
+  static final String DEFERRED = "_deferred";
+
+  /** The phase of a {@link CInitializationUnit} that performs the non-nested initialization. */
+  static final String DEFERRED_NON_NESTED = "_deferred_non_nested";
+
+  /**
+   * Generate the _lf_initialize_trigger_objects function for 'federate'.
+   *
+   * @param units The units into which the initialization is split, by their root, or an empty map
+   *     if the initialization is not split. The initialization of the subtree of each unit is
+   *     replaced by calls of the functions of the unit.
+   */
   public static String generateInitializeTriggerObjects(
       ReactorInstance main,
       Set<CEnclaveInstance> enclaves,
@@ -46,52 +76,35 @@ public class CTriggerObjectsGenerator {
       CodeBuilder initializeTriggerObjects,
       CodeBuilder startTimeStep,
       CTypes types,
-      String lfModuleName) {
+      String lfModuleName,
+      Map<ReactorInstance, CInitializationUnit> units) {
+    var tables =
+        targetConfig.get(StaticTriggerTablesProperty.INSTANCE) ? new StaticTriggerTables() : null;
     var code = new CodeBuilder();
     code.pr("void _lf_initialize_trigger_objects() {");
     code.indent();
 
     // Create arrays of counters for managing pointer arrays of startup, shutdown, reset and
     // triggers
-    code.pr(
-        String.join(
-            "\n",
-            "int startup_reaction_count["
-                + CUtil.NUM_ENVIRONMENT_VARIABLE_NAME
-                + "] = {0};"
-                + " SUPPRESS_UNUSED_WARNING(startup_reaction_count);",
-            "int shutdown_reaction_count["
-                + CUtil.NUM_ENVIRONMENT_VARIABLE_NAME
-                + "] = {0};"
-                + " SUPPRESS_UNUSED_WARNING(shutdown_reaction_count);",
-            "int reset_reaction_count["
-                + CUtil.NUM_ENVIRONMENT_VARIABLE_NAME
-                + "] = {0};"
-                + " SUPPRESS_UNUSED_WARNING(reset_reaction_count);",
-            "int timer_triggers_count["
-                + CUtil.NUM_ENVIRONMENT_VARIABLE_NAME
-                + "] = {0};"
-                + " SUPPRESS_UNUSED_WARNING(timer_triggers_count);",
-            "int modal_state_reset_count["
-                + CUtil.NUM_ENVIRONMENT_VARIABLE_NAME
-                + "] = {0};"
-                + " SUPPRESS_UNUSED_WARNING(modal_state_reset_count);",
-            "int modal_reactor_count["
-                + CUtil.NUM_ENVIRONMENT_VARIABLE_NAME
-                + "] = {0};"
-                + " SUPPRESS_UNUSED_WARNING(modal_reactor_count);",
-            "int watchdog_count["
-                + CUtil.NUM_ENVIRONMENT_VARIABLE_NAME
-                + "] = {0};"
-                + " SUPPRESS_UNUSED_WARNING(watchdog_count);"));
+    for (String counter : COUNTERS) {
+      code.pr(
+          "int "
+              + counter
+              + "["
+              + CUtil.NUM_ENVIRONMENT_VARIABLE_NAME
+              + "] = {0};"
+              + " SUPPRESS_UNUSED_WARNING("
+              + counter
+              + ");");
+    }
 
     // Create the table to initialize intended tag fields to 0 between time
     // steps.
 
     code.pr(initializeTriggerObjects.toString());
 
-    code.pr(deferredInitialize(main, main.reactions, targetConfig, types));
-    code.pr(deferredInitializeNonNested(main, main, main.reactions, types));
+    code.pr(deferredInitialize(main, main.reactions, targetConfig, types, tables, units));
+    code.pr(deferredInitializeNonNested(main, main, main.reactions, types, tables, units));
     // Next, for every input port, populate its "self" struct
     // fields with pointers to the output port that sends it data.
     code.pr(deferredConnectInputsToOutputs(main));
@@ -116,9 +129,95 @@ public class CTriggerObjectsGenerator {
 
     code.unindent();
     code.pr("}\n");
+    if (tables != null) return tables.generateDeclarations() + code.toString();
+    return code.toString();
+  }
+
+  /**
+   * Generate the functions of the given unit that perform the deferred initialization of the
+   * instances of its subtree. These functions are called from _lf_initialize_trigger_objects() in
+   * place of the code that they contain.
+   *
+   * @param unit The unit.
+   * @param main The top-level reactor.
+   * @param targetConfig The target configuration.
+   * @param types The C types.
+   */
+  public static String generateDeferredInitialization(
+      CInitializationUnit unit, ReactorInstance main, TargetConfig targetConfig, CTypes types) {
+    // Each unit has static trigger tables of its own, so that the tables of a unit do not depend on
+    // the other units.
+    var tables =
+        targetConfig.get(StaticTriggerTablesProperty.INSTANCE) ? new StaticTriggerTables() : null;
+    var root = unit.getRoot();
+    var code = new CodeBuilder();
+    code.pr(
+        unit.generateFunction(
+            DEFERRED,
+            deferredInitialize(root, root.reactions, targetConfig, types, tables, Map.of())));
+    code.pr(
+        unit.generateFunction(
+            DEFERRED_NON_NESTED,
+            deferredInitializeNonNested(root, main, root.reactions, types, tables, Map.of())));
+    if (tables != null) return tables.generateDeclarations() + code.toString();
     return code.toString();
   }
 
+  /**
+   * The sizes of the static arrays that hold the trigger tables of all reactions when the {@link
+   * StaticTriggerTablesProperty} is set. Rather than to allocate the small arrays of each reaction
+   * at startup, each reaction is assigned a slice of these arrays whose offset is known at compile
+   * time. This keeps the tables of a program contiguous in memory.
+   */
+  private static class StaticTriggerTables {
+    /** The name of the array of pointers to the triggers of downstream reactions. */
+    static final String TRIGGERS = "_lf_static_trigger_table";
+
+    /** The name of the array of pointers to the trigger arrays of each output of a reaction. */
+    static final String OUTPUT_TRIGGERS = "_lf_static_output_triggers";
+
+    /** The name of the array of the number of triggers of each output of a reaction. */
+    static final String OUTPUT_SIZES = "_lf_static_output_triggered_sizes";
+
+    /** The name of the array of pointers to the is_present fields of each output of a reaction. */
+    static final String OUTPUT_PRODUCED = "_lf_static_output_produced";
+
+    /** The number of entries in the trigger table. */
+    private int triggers = 0;
+
+    /** The number of entries in each of the tables of reaction outputs. */
+    private int outputs = 0;
+
+    /** Reserve the given number of entries in the trigger table and return the first one. */
+    int reserveTriggers(int count) {
+      var offset = triggers;
+      triggers += count;
+      return offset;
+    }
+
+    /** Reserve the given number of entries in the tables of outputs and return the first one. */
+    int reserveOutputs(int count) {
+      var offset = outputs;
+      outputs += count;
+      return offset;
+    }
+
+    /** Return the declarations of the arrays, which must precede the code that uses them. */
+    String generateDeclarations() {
+      var code = new CodeBuilder();
+      code.pr("// Trigger tables of all reactions, laid out at compile time.");
+      if (triggers > 0) {
+        code.pr("static trigger_t* " + TRIGGERS + "[" + triggers + "];");
+      }
+      if (outputs > 0) {
+        code.pr("static trigger_t** " + OUTPUT_TRIGGERS + "[" + outputs + "];");
+        code.pr("static int " + OUTPUT_SIZES + "[" + outputs + "];");
+        code.pr("static bool* " + OUTPUT_PRODUCED + "[" + outputs + "];");
+      }
+      return code.toString();
+    }
+  }
+
   /** Generate code to initialize the scheduler(s) for the threaded C runtime. */
   public static String generateSchedulerInitializerMain(
       ReactorInstance main, Set<CEnclaveInstance> enclaves, TargetConfig targetConfig) {
@@ -557,8 +656,10 @@ public class CTriggerObjectsGenerator {
    * downstream reactions.
    *
    * @param reactions The reactions.
+   * @param tables The static trigger tables, or null to allocate the trigger arrays at startup.
    */
-  private static String deferredFillTriggerTable(Iterable<ReactionInstance> reactions) {
+  private static String deferredFillTriggerTable(
+      Iterable<ReactionInstance> reactions, StaticTriggerTables tables) {
     var code = new CodeBuilder();
     for (ReactionInstance reaction : reactions) {
       var name = reaction.getParent().getFullName();
@@ -608,12 +709,7 @@ public class CTriggerObjectsGenerator {
                       + "]] = "
                       + srcRange.destinations.size()
                       + ";",
-                  "// For reaction " + reaction.index + " of " + name + ", allocate an",
-                  "// array of trigger pointers for downstream reactions through port "
-                      + port.getFullName(),
-                  "trigger_t** trigger_array = (trigger_t**)lf_allocate(",
-                  "        " + srcRange.destinations.size() + ", sizeof(trigger_t*),",
-                  "        &" + reactorSelfStruct + "->base.allocations); ",
+                  triggerArrayAllocation(reaction, port, srcRange, reactorSelfStruct, tables),
                   triggerArray + " = trigger_array;"));
           code.endScopedRangeBlock(srcRange);
         }
@@ -716,6 +812,52 @@ public class CTriggerObjectsGenerator {
     return code.toString();
   }
 
+  /**
+   * Return code that declares the array of trigger pointers for the downstream reactions of the
+   * given send range. This code is executed within a block that iterates over the range, possibly
+   * more than once for each sender. With static trigger tables, each sender in the range is
+   * therefore given a fixed slice of the trigger table, rather than the next free one.
+   *
+   * @param reaction The reaction that writes to the port.
+   * @param port The port.
+   * @param srcRange The send range of the port.
+   * @param reactorSelfStruct A reference to the self struct of the reaction's parent.
+   * @param tables The static trigger tables, or null to allocate the array at startup.
+   */
+  private static String triggerArrayAllocation(
+      ReactionInstance reaction,
+      PortInstance port,
+      SendRange srcRange,
+      String reactorSelfStruct,
+      StaticTriggerTables tables) {
+    var name = reaction.getParent().getFullName();
+    var size = srcRange.destinations.size();
+    if (tables != null) {
+      var offset = tables.reserveTriggers(srcRange.width * size);
+      var sender = (srcRange.width > 1) ? "(range_count - " + srcRange.start + ")" : "0";
+      return String.join(
+          "\n",
+          "// For reaction " + reaction.index + " of " + name + ", use a slice of the",
+          "// trigger table for downstream reactions through port " + port.getFullName(),
+          "trigger_t** trigger_array = &"
+              + StaticTriggerTables.TRIGGERS
+              + "["
+              + offset
+              + " + "
+              + sender
+              + " * "
+              + size
+              + "];");
+    }
+    return String.join(
+        "\n",
+        "// For reaction " + reaction.index + " of " + name + ", allocate an",
+        "// array of trigger pointers for downstream reactions through port " + port.getFullName(),
+        "trigger_t** trigger_array = (trigger_t**)lf_allocate(",
+        "        " + size + ", sizeof(trigger_t*),",
+        "        &" + reactorSelfStruct + "->base.allocations); ");
+  }
+
   /**
    * For each input port of a contained reactor that receives data from one or more of the specified
    * reactions, set the num_destinations field of the corresponding port structs on the self struct
@@ -852,12 +994,16 @@ public class CTriggerObjectsGenerator {
    * @param main The top-level reactor.
    * @param reactions The list of reactions to consider.
    * @param types The C types.
+   * @param tables The static trigger tables, or null to allocate the trigger tables at startup.
+   * @param units The units that initialize subtrees of the reactor, by their root.
    */
   private static String deferredInitializeNonNested(
       ReactorInstance reactor,
       ReactorInstance main,
       Iterable<ReactionInstance> reactions,
-      CTypes types) {
+      CTypes types,
+      StaticTriggerTables tables,
+      Map<ReactorInstance, CInitializationUnit> units) {
     var code = new CodeBuilder();
     code.pr("// **** Start non-nested deferred initialize for " + reactor.getFullName());
     // Initialization within a for loop iterating
@@ -874,10 +1020,14 @@ public class CTriggerObjectsGenerator {
     if (reactor != main) {
       code.pr(deferredOutputNumDestinations(reactor));
     }
-    code.pr(deferredFillTriggerTable(reactions));
+    code.pr(deferredFillTriggerTable(reactions, tables));
     code.pr(deferredOptimizeForSingleDominatingReaction(reactor));
     for (ReactorInstance child : reactor.children) {
-      code.pr(deferredInitializeNonNested(child, main, child.reactions, types));
+      if (units.containsKey(child)) {
+        code.pr(units.get(child).generateCall(DEFERRED_NON_NESTED));
+      } else {
+        code.pr(deferredInitializeNonNested(child, main, child.reactions, types, tables, units));
+      }
     }
     code.endScopedBlock();
     code.pr("// **** End of non-nested deferred initialize for " + reactor.getFullName());
@@ -922,9 +1072,10 @@ public class CTriggerObjectsGenerator {
    * contained by the parent.
    *
    * @param reaction The reaction instance.
+   * @param tables The static trigger tables, or null to allocate the arrays at startup.
    */
   private static String deferredReactionOutputs(
-      ReactionInstance reaction, TargetConfig targetConfig) {
+      ReactionInstance reaction, TargetConfig targetConfig, StaticTriggerTables tables) {
     var code = new CodeBuilder();
     // val selfRef = CUtil.reactorRef(reaction.getParent());
     var name = reaction.getParent().getFullName();
@@ -1006,7 +1157,21 @@ public class CTriggerObjectsGenerator {
             "// Total number of outputs (single ports and multiport channels)",
             "// produced by " + reaction + ".",
             CUtil.reactionRef(reaction) + ".num_outputs = " + outputCount + ";"));
-    if (outputCount > 0) {
+    if (outputCount > 0 && tables != null) {
+      // Each runtime instance of the parent gets its own slice of the tables.
+      var offset = tables.reserveOutputs(outputCount * reaction.getParent().getTotalWidth());
+      var runtimeIndex = CUtil.runtimeIndex(reaction.getParent());
+      var slice = "[" + offset + " + " + runtimeIndex + " * " + outputCount + "];";
+      var reactionRef = CUtil.reactionRef(reaction);
+      code.pr(
+          String.join(
+              "\n",
+              "// Point triggers[] and triggered_sizes[] on the reaction_t struct for this",
+              "// reaction to its slice of the static tables.",
+              reactionRef + ".triggers = &" + StaticTriggerTables.OUTPUT_TRIGGERS + slice,
+              reactionRef + ".triggered_sizes = &" + StaticTriggerTables.OUTPUT_SIZES + slice,
+              reactionRef + ".output_produced = &" + StaticTriggerTables.OUTPUT_PRODUCED + slice));
+    } else if (outputCount > 0) {
       code.pr(
           String.join(
               "\n",
@@ -1035,14 +1200,17 @@ public class CTriggerObjectsGenerator {
    * Generate code to allocate the memory needed by reactions for triggering downstream reactions.
    *
    * @param reactions A list of reactions.
+   * @param tables The static trigger tables, or null to allocate the arrays at startup.
    */
   private static String deferredReactionMemory(
-      Iterable<ReactionInstance> reactions, TargetConfig targetConfig) {
+      Iterable<ReactionInstance> reactions,
+      TargetConfig targetConfig,
+      StaticTriggerTables tables) {
     var code = new CodeBuilder();
     // For each reaction instance, allocate the arrays that will be used to
     // trigger downstream reactions.
     for (ReactionInstance reaction : reactions) {
-      code.pr(deferredReactionOutputs(reaction, targetConfig));
+      code.pr(deferredReactionOutputs(reaction, targetConfig, tables));
       var reactorSelfStruct = CUtil.reactorRef(reaction.getParent());
 
       // Next handle triggers of the reaction that come from a multiport output
@@ -1190,12 +1358,15 @@ public class CTriggerObjectsGenerator {
    * have been created. This function creates nested loops over nested banks.
    *
    * @param reactor The container.
+   * @param units The units that initialize subtrees of the reactor, by their root.
    */
   private static String deferredInitialize(
       ReactorInstance reactor,
       Iterable<ReactionInstance> reactions,
       TargetConfig targetConfig,
-      CTypes types) {
+      CTypes types,
+      StaticTriggerTables tables,
+      Map<ReactorInstance, CInitializationUnit> units) {
     var code = new CodeBuilder();
     code.pr("// **** Start deferred initialize for " + reactor.getFullName());
     // First batch of initializations is within a for loop iterating
@@ -1211,13 +1382,17 @@ public class CTriggerObjectsGenerator {
     // bank width because a reaction cannot specify which bank members it writes
     // to so we have to assume it can write to any.
     code.pr(deferredAllocationForEffectsOnInputs(reactor));
-    code.pr(deferredReactionMemory(reactions, targetConfig));
+    code.pr(deferredReactionMemory(reactions, targetConfig, tables));
 
     // For outputs that are not primitive types (of form type* or type[]),
     // create a default token on the self struct.
     code.pr(deferredCreateTemplateTokens(reactor, types));
     for (ReactorInstance child : reactor.children) {
-      code.pr(deferredInitialize(child, child.reactions, targetConfig, types));
+      if (units.containsKey(child)) {
+        code.pr(units.get(child).generateCall(DEFERRED));
+      } else {
+        code.pr(deferredInitialize(child, child.reactions, targetConfig, types, tables, units));
+      }
     }
     code.endScopedBlock();
     code.pr("// **** End of deferred initialize for " + reactor.getFullName());
@@ -216,8 +216,7 @@ public class PythonGenerator extends CGenerator implements CCmakeGenerator.SetUp
       }
     }
     Map<Path, CodeMap> codeMaps = new HashMap<>();
-    codeMaps.put(filePath, CodeMap.fromGeneratedCode(generatePythonCode(pyModuleName)));
-    FileUtil.writeToFile(codeMaps.get(filePath).getGeneratedCode(), filePath);
+    codeMaps.put(filePath, CodeMap.fromGeneratedCode(generatePythonCode(pyModuleName), filePath));
     return codeMaps;
   }
 
@@ -25,7 +25,6 @@
 package org.lflang.graph;
 
 import java.util.*;
-import java.util.Map.Entry;
 import java.util.stream.Collectors;
 import org.lflang.util.CollectionUtil;
 
@@ -156,36 +155,6 @@ public class DirectedGraph<T> implements Graph<T> {
     return graph;
   }
 
-  /**
-   * For a given a two adjacency maps, copy missing edges from the first map to the second.
-   *
-   * @param srcMap The adjacency map to copy edges from.
-   * @param dstMap The adjacency map to copy edges to.
-   */
-  private void mirror(Map<T, Set<T>> srcMap, Map<T, Set<T>> dstMap) {
-    if (srcMap != null && dstMap != null) {
-      for (Entry<T, Set<T>> entry : srcMap.entrySet()) {
-        var node = entry.getKey();
-        var srcEdges = entry.getValue();
-        dstMap.compute(
-            node,
-            (_node, dstEdges) -> {
-              // Node does not exist; add it.
-              if (dstEdges == null) {
-                return CollectionUtil.copy(srcEdges);
-              }
-
-              // Node does exist; add the missing edges.
-              var set = dstEdges;
-              for (T edge : srcEdges) {
-                set = CollectionUtil.plus(set, edge);
-              }
-              return set;
-            });
-      }
-    }
-  }
-
   /**
    * Merge another directed graph into this one.
    *
@@ -193,8 +162,13 @@ public class DirectedGraph<T> implements Graph<T> {
    */
   public void merge(DirectedGraph<T> another) {
     this.graphChanged();
-    mirror(another.upstreamAdjacentNodes, this.upstreamAdjacentNodes);
-    mirror(another.downstreamAdjacentNodes, this.downstreamAdjacentNodes);
+    // Use the public interface of the other graph, which may store its edges differently.
+    for (T node : another.nodes()) {
+      addNode(node);
+      for (T source : another.getUpstreamAdjacentNodes(node)) {
+        addEdge(node, source);
+      }
+    }
   }
 
   /** Return the set of nodes that have no neighbors listed in the given adjacency map. */
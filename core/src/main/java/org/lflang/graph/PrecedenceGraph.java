@@ -24,11 +24,12 @@
 
 package org.lflang.graph;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.Stack;
 import org.eclipse.xtext.xbase.lib.ListExtensions;
 
 /**
@@ -61,7 +62,7 @@ public class PrecedenceGraph<T extends Object> extends DirectedGraph<T> {
   private List<T> sortedNodes = new ArrayList<>();
 
   /** Stack used in Tarjan's algorithm. */
-  private Stack<T> stack = new Stack<>();
+  private Deque<T> stack = new ArrayDeque<>();
 
   /**
    * After analysis has completed, this list contains all all sets of nodes that are part of the
@@ -131,7 +132,7 @@ public class PrecedenceGraph<T extends Object> extends DirectedGraph<T> {
   public void detectCycles() {
     if (!this.cycleAnalysisDone) {
       this.index = 0;
-      this.stack = new Stack<>();
+      this.stack = new ArrayDeque<>();
       this.cycles = new ArrayList<>();
       this.nodes()
           .forEach(
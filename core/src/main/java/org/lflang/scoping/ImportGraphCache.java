@@ -0,0 +1,302 @@
+package org.lflang.scoping;
+
+import com.google.inject.Singleton;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import org.eclipse.emf.common.notify.impl.AdapterImpl;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.URIConverter;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.xtext.parser.IParseResult;
+import org.eclipse.xtext.resource.XtextResource;
+import org.lflang.util.FileUtil;
+
+/**
+ * A cache of the import graph of the Lingua Franca files in a workspace, shared by all the
+ * resources that are scoped with the same injector.
+ *
+ * <p>For every file, the cache records a digest of its content and the URIs of the files it
+ * imports directly. The imports of a file are only collected again if its digest changed, in which
+ * case the cached transitive imports of the file and of all the files that (transitively) import it
+ * are invalidated. Files that are open in an editor are digested as they are in memory, and other
+ * files as they are on disk, so unchanged imported files need not be loaded to resolve the imports
+ * of a file that imports them. A file is only digested again if its modification stamp changed,
+ * which is its parse result if it is loaded, and its time stamp and length on disk otherwise.
+ *
+ * <p>Files are digested and their imports collected without holding the lock of the cache, which
+ * only guards the graph itself. Each caller loads files into the resource set of its own resource,
+ * so resources of different resource sets can be scoped concurrently.
+ *
+ * @ingroup Infrastructure
+ */
+@Singleton
+public class ImportGraphCache {
+
+  /** A file in the import graph. Its fields are guarded by the cache. */
+  private static final class Node {
+    /** The digest of the content of the file when its imports were collected, if it was read. */
+    private String digest;
+
+    /** The URIs of the files imported directly by this file. */
+    private List<URI> imports = List.of();
+
+    /** The URIs of the files known to import this file directly. */
+    private final Set<URI> importers = new HashSet<>();
+
+    /** The transitive imports of this file, or null if they have to be collected again. */
+    private LinkedHashSet<URI> closure;
+
+    /** The time stamp and length of the file on disk when it was last digested, if it was. */
+    private FileStamp fileStamp;
+
+    /** The digest of the content of the file on disk when it had the above stamp. */
+    private String fileDigest;
+  }
+
+  /** The modification time stamp and the length of a file. */
+  private record FileStamp(long timeStamp, long length) {}
+
+  /** The digest of the text of a loaded resource, which is valid as long as its parse result. */
+  private static final class DigestAdapter extends AdapterImpl {
+    private IParseResult parseResult;
+
+    private String digest;
+
+    @Override
+    public boolean isAdapterForType(Object type) {
+      return type == DigestAdapter.class;
+    }
+  }
+
+  /** The attributes of a file that are its modification stamp. */
+  private static final Map<String, ?> STAMP_ATTRIBUTES =
+      Map.of(
+          URIConverter.OPTION_REQUESTED_ATTRIBUTES,
+          Set.of(URIConverter.ATTRIBUTE_TIME_STAMP, URIConverter.ATTRIBUTE_LENGTH));
+
+  private final Map<URI, Node> nodes = new ConcurrentHashMap<>();
+
+  private long hits = 0;
+
+  private long misses = 0;
+
+  /**
+   * Return the URIs of the files that the given resource imports, directly or indirectly, in the
+   * order in which they are discovered by a depth-first traversal of the import graph.
+   *
+   * @param resource The resource to collect the imports of.
+   * @param importsOf Function that returns the URIs of the files imported directly by a resource.
+   */
+  public LinkedHashSet<URI> getTransitiveImports(
+      Resource resource, Function<Resource, List<URI>> importsOf) {
+    Node root = update(resource.getURI(), resource, importsOf);
+    List<URI> cached;
+    synchronized (this) {
+      cached = root.closure == null ? null : List.copyOf(root.closure);
+    }
+    if (cached != null) {
+      // The transitive imports are still valid if none of the imported files changed.
+      for (URI uri : cached) {
+        update(uri, resource, importsOf);
+      }
+      synchronized (this) {
+        if (root.closure != null) {
+          hits++;
+          return new LinkedHashSet<>(root.closure);
+        }
+      }
+    }
+    var closure = new LinkedHashSet<URI>();
+    Map<Node, List<URI>> used = new HashMap<>();
+    collect(root, closure, used, resource, importsOf);
+    synchronized (this) {
+      misses++;
+      // Another thread may have found some of the files to have changed in the meantime.
+      if (used.entrySet().stream().allMatch(e -> e.getKey().imports == e.getValue())) {
+        root.closure = closure;
+      }
+    }
+    return new LinkedHashSet<>(closure);
+  }
+
+  /** Return how many times the transitive imports of a resource were found in the cache. */
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  /** Return how many times the transitive imports of a resource had to be collected. */
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  /** Forget everything that is cached. */
+  public synchronized void clear() {
+    nodes.clear();
+  }
+
+  /**
+   * Add the files imported by the given file that are not in the given set yet, depth first, and
+   * record the imports of every visited node in the given map.
+   */
+  private void collect(
+      Node node,
+      LinkedHashSet<URI> closure,
+      Map<Node, List<URI>> used,
+      Resource context,
+      Function<Resource, List<URI>> importsOf) {
+    List<URI> imports;
+    synchronized (this) {
+      imports = node.imports;
+    }
+    used.put(node, imports);
+    List<URI> added = new ArrayList<>();
+    for (URI uri : imports) {
+      if (closure.add(uri)) added.add(uri);
+    }
+    for (URI uri : added) {
+      collect(update(uri, context, importsOf), closure, used, context, importsOf);
+    }
+  }
+
+  /**
+   * Return the node of the file with the given URI, after collecting its imports again if its
+   * content changed since they were last collected.
+   *
+   * @param uri The URI of the file.
+   * @param context The resource whose imports are being resolved, which is used to load the file.
+   * @param importsOf Function that returns the URIs of the files imported directly by a resource.
+   */
+  private Node update(URI uri, Resource context, Function<Resource, List<URI>> importsOf) {
+    Node node = nodes.computeIfAbsent(uri, k -> new Node());
+    String digest = digest(uri, node, context.getResourceSet());
+    synchronized (this) {
+      if (digest != null && digest.equals(node.digest)) return node;
+    }
+
+    // Loading the file may parse it, so do not hold the lock meanwhile.
+    List<URI> imports = null;
+    try {
+      Resource resource =
+          uri.equals(context.getURI())
+              ? context
+              : context.getResourceSet().getResource(uri, true);
+      imports = List.copyOf(new LinkedHashSet<>(importsOf.apply(resource)));
+    } catch (RuntimeException e) {
+      System.err.println("Unable to import " + uri + ": " + e.getMessage());
+    }
+
+    synchronized (this) {
+      invalidate(uri);
+      for (URI imported : node.imports) {
+        Node importedNode = nodes.get(imported);
+        if (importedNode != null) importedNode.importers.remove(uri);
+      }
+      // Without a digest, there is no way to tell whether the file changed, so check it next time.
+      node.digest = imports != null ? digest : null;
+      node.imports = imports != null ? imports : List.of();
+      for (URI imported : node.imports) {
+        nodes.computeIfAbsent(imported, k -> new Node()).importers.add(uri);
+      }
+    }
+    return node;
+  }
+
+  /**
+   * Drop the transitive imports of the given file and of all files that transitively import it.
+   * The caller must hold the lock of the cache.
+   */
+  private void invalidate(URI uri) {
+    Set<URI> visited = new HashSet<>();
+    Deque<URI> pending = new ArrayDeque<>();
+    pending.add(uri);
+    while (!pending.isEmpty()) {
+      URI next = pending.remove();
+      Node node = nodes.get(next);
+      if (node == null || !visited.add(next)) continue;
+      node.closure = null;
+      pending.addAll(node.importers);
+    }
+  }
+
+  /**
+   * Return the digest of the content of the file with the given URI, which is taken from the given
+   * resource set if the file is loaded there, or null if it cannot be read. The digest is only
+   * taken again if the modification stamp of the file changed since it was last taken.
+   *
+   * @param uri The URI of the file.
+   * @param node The node of the file, which caches the digest of the file on disk.
+   * @param resourceSet The resource set in which the file may be loaded.
+   */
+  private String digest(URI uri, Node node, ResourceSet resourceSet) {
+    Resource loaded = resourceSet.getResource(uri, false);
+    if (loaded instanceof XtextResource xtextResource) {
+      IParseResult parseResult = xtextResource.getParseResult();
+      if (parseResult != null) return digest(xtextResource, parseResult);
+    }
+
+    FileStamp stamp = null;
+    try {
+      Map<String, ?> attributes =
+          resourceSet.getURIConverter().getAttributes(uri, STAMP_ATTRIBUTES);
+      if (attributes.get(URIConverter.ATTRIBUTE_TIME_STAMP) instanceof Long timeStamp
+          && timeStamp != URIConverter.NULL_TIME_STAMP
+          && attributes.get(URIConverter.ATTRIBUTE_LENGTH) instanceof Long length) {
+        stamp = new FileStamp(timeStamp, length);
+      }
+    } catch (RuntimeException e) {
+      // Without a stamp, the file is digested every time.
+    }
+    synchronized (this) {
+      if (stamp != null && stamp.equals(node.fileStamp)) return node.fileDigest;
+    }
+
+    // The stamp is taken before the file is read, so a file that is changed meanwhile is read
+    // again next time.
+    String digest;
+    try (InputStream in = resourceSet.getURIConverter().createInputStream(uri)) {
+      digest = FileUtil.digest(in.readAllBytes());
+    } catch (IOException | RuntimeException e) {
+      digest = null;
+    }
+    synchronized (this) {
+      node.fileStamp = digest != null ? stamp : null;
+      node.fileDigest = digest;
+    }
+    return digest;
+  }
+
+  /**
+   * Return the digest of the text of the given resource, which is attached to the resource and
+   * only taken again if the resource was parsed since.
+   */
+  private static String digest(XtextResource resource, IParseResult parseResult) {
+    synchronized (resource.eAdapters()) {
+      DigestAdapter adapter =
+          (DigestAdapter) EcoreUtil.getExistingAdapter(resource, DigestAdapter.class);
+      if (adapter == null) {
+        adapter = new DigestAdapter();
+        resource.eAdapters().add(adapter);
+      }
+      if (adapter.parseResult != parseResult) {
+        String text = parseResult.getRootNode().getText();
+        adapter.digest = FileUtil.digest(text.getBytes(StandardCharsets.UTF_8));
+        adapter.parseResult = parseResult;
+      }
+      return adapter.digest;
+    }
+  }
+}
@@ -24,8 +24,9 @@ package org.lflang.scoping;
 
 import com.google.common.base.Splitter;
 import com.google.inject.Inject;
-import com.google.inject.Provider;
+import java.util.ArrayList;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 import org.eclipse.emf.common.util.URI;
 import org.eclipse.emf.ecore.resource.Resource;
@@ -58,33 +59,30 @@ public class LFGlobalScopeProvider extends ImportUriGlobalScopeProvider {
 
   @Inject private IResourceScopeCache cache;
 
+  @Inject private ImportGraphCache importGraph;
+
   /**
    * Return the set of URI objects pointing to the resources that must be included for compilation.
+   * The transitive imports are taken from the {@link ImportGraphCache} if none of the files
+   * involved changed.
    */
   @Override
   protected LinkedHashSet<URI> getImportedUris(Resource resource) {
     return cache.get(
         IMPORTED_URIS,
         resource,
-        new Provider<LinkedHashSet<URI>>() {
-          /** Collect unique URIs in case the cache is not populated yet. */
-          @Override
-          public LinkedHashSet<URI> get() {
-            var uniqueImportURIs = new LinkedHashSet<URI>(5);
-            collectImportUris(resource, uniqueImportURIs);
-            uniqueImportURIs.removeIf(uri -> !EcoreUtil2.isValidUri(resource, uri));
-            return uniqueImportURIs;
-          }
-
-          /** Helper method to recursively collect unique URIs. */
-          void collectImportUris(Resource resource, LinkedHashSet<URI> uniqueImportURIs) {
-            for (var imported : getImportedResources(resource, uniqueImportURIs)) {
-              collectImportUris(imported, uniqueImportURIs);
-            }
-          }
+        () -> {
+          var uniqueImportURIs = importGraph.getTransitiveImports(resource, this::getImportUris);
+          uniqueImportURIs.removeIf(uri -> !EcoreUtil2.isValidUri(resource, uri));
+          return uniqueImportURIs;
         });
   }
 
+  /** Return the import graph cache shared by the resources scoped by this provider. */
+  public ImportGraphCache getImportGraphCache() {
+    return importGraph;
+  }
+
   /** Return the resources imported by the given resource. */
   public Set<Resource> getImportedResources(Resource resource) {
     return cache.get(IMPORTED_RESOURCES, resource, () -> getImportedResources(resource, null));
@@ -104,13 +102,35 @@ public class LFGlobalScopeProvider extends ImportUriGlobalScopeProvider {
       // resolve relative to the directory in which it is found.
       // (2) Look for package description files try to resolve relative
       // to the paths it includes.
-      // FIXME: potentially use a cache here to speed things up.
-      // See OnChangeEvictingCache
       return uriObj.resolve(resource.getURI());
     }
     return null;
   }
 
+  /** Return the URIs of the resources imported directly by the given resource. */
+  private List<URI> getImportUris(Resource resource) {
+    var uris = new ArrayList<URI>();
+    for (String uri : getImportStrings(resource)) {
+      var includedUri = this.resolve(uri, resource);
+      if (includedUri != null) uris.add(includedUri);
+    }
+    return uris;
+  }
+
+  /** Return the URIs, as written, of the resources imported by the given resource. */
+  private List<String> getImportStrings(Resource resource) {
+    var resourceDescription = descriptionManager.getResourceDescription(resource);
+    var models = resourceDescription.getExportedObjectsByType(LfPackage.Literals.MODEL);
+    var result = new ArrayList<String>();
+    for (var model : models) {
+      var userData = model.getUserData(LFResourceDescriptionStrategy.INCLUDES);
+      if (userData != null) {
+        SPLITTER.split(userData).forEach(result::add);
+      }
+    }
+    return result;
+  }
+
   /**
    * Return the resources imported by a given resource, excluding those already discovered and
    * therefore are present in the given set of import URIs.
@@ -120,23 +140,16 @@ public class LFGlobalScopeProvider extends ImportUriGlobalScopeProvider {
    */
   protected Set<Resource> getImportedResources(
       Resource resource, LinkedHashSet<URI> uniqueImportURIs) {
-    var resourceDescription = descriptionManager.getResourceDescription(resource);
-    var models = resourceDescription.getExportedObjectsByType(LfPackage.Literals.MODEL);
     var resources = new LinkedHashSet<Resource>();
-    for (var model : models) {
-      var userData = model.getUserData(LFResourceDescriptionStrategy.INCLUDES);
-      if (userData != null) {
-        for (String uri : SPLITTER.split(userData)) { // Attempt to resolve the URI
-          var includedUri = this.resolve(uri, resource);
-          if (includedUri != null) {
-            try {
-              if (uniqueImportURIs == null || uniqueImportURIs.add(includedUri)) {
-                resources.add(resource.getResourceSet().getResource(includedUri, true));
-              }
-            } catch (RuntimeException e) {
-              System.err.println("Unable to import " + includedUri + ": " + e.getMessage());
-            }
+    for (String uri : getImportStrings(resource)) { // Attempt to resolve the URI
+      var includedUri = this.resolve(uri, resource);
+      if (includedUri != null) {
+        try {
+          if (uniqueImportURIs == null || uniqueImportURIs.add(includedUri)) {
+            resources.add(resource.getResourceSet().getResource(includedUri, true));
           }
+        } catch (RuntimeException e) {
+          System.err.println("Unable to import " + includedUri + ": " + e.getMessage());
         }
       }
     }
@@ -564,6 +564,8 @@ public enum Target {
               ProtobufsProperty.INSTANCE,
               SchedulerProperty.INSTANCE,
               SingleThreadedProperty.INSTANCE,
+              SplitInitializationProperty.INSTANCE,
+              StaticTriggerTablesProperty.INSTANCE,
               SystemViewProperty.INSTANCE,
               TracingProperty.INSTANCE,
               TracePluginProperty.INSTANCE,
@@ -605,6 +607,7 @@ public enum Target {
               PythonVersionProperty.INSTANCE,
               SchedulerProperty.INSTANCE,
               SingleThreadedProperty.INSTANCE,
+              StaticTriggerTablesProperty.INSTANCE,
               TracingProperty.INSTANCE,
               TracePluginProperty.INSTANCE,
               WorkersProperty.INSTANCE);
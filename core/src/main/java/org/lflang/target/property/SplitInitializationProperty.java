@@ -0,0 +1,40 @@
+package org.lflang.target.property;
+
+import org.lflang.MessageReporter;
+import org.lflang.lf.LfPackage.Literals;
+import org.lflang.target.TargetConfig;
+import org.lflang.target.property.type.PlatformType.Platform;
+
+/**
+ * Directive to instruct the code generator to put the code that constructs and initializes the
+ * reactor instances of each subtree of the program into a separate source file, so that these
+ * files can be compiled in parallel and only recompiled when they change.
+ */
+public final class SplitInitializationProperty extends BooleanProperty {
+
+  /** Singleton target property instance. */
+  public static final SplitInitializationProperty INSTANCE = new SplitInitializationProperty();
+
+  private SplitInitializationProperty() {
+    super();
+  }
+
+  @Override
+  public String name() {
+    return "split-initialization";
+  }
+
+  @Override
+  public void validate(TargetConfig config, MessageReporter reporter) {
+    if (!config.get(this)) return;
+    if (config.getOrDefault(PlatformProperty.INSTANCE).platform() == Platform.ARDUINO) {
+      reporter
+          .at(config.lookup(this), Literals.KEY_VALUE_PAIR__VALUE)
+          .error("Cannot split the initialization of programs for Arduino.");
+    } else if (config.isFederated()) {
+      reporter
+          .at(config.lookup(this), Literals.KEY_VALUE_PAIR__NAME)
+          .warning("The initialization of federates is not split.");
+    }
+  }
+}
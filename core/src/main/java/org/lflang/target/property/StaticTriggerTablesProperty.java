@@ -0,0 +1,20 @@
+package org.lflang.target.property;
+
+/**
+ * Directive to instruct the code generator to lay out the trigger tables of reactions in static
+ * arrays that are sized at compile time, rather than to allocate them at startup.
+ */
+public final class StaticTriggerTablesProperty extends BooleanProperty {
+
+  /** Singleton target property instance. */
+  public static final StaticTriggerTablesProperty INSTANCE = new StaticTriggerTablesProperty();
+
+  private StaticTriggerTablesProperty() {
+    super();
+  }
+
+  @Override
+  public String name() {
+    return "static-trigger-tables";
+  }
+}
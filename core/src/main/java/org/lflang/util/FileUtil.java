@@ -1,24 +1,39 @@
 package org.lflang.util;
 
 import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.net.JarURLConnection;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.regex.Matcher;
@@ -272,6 +287,30 @@ public class FileUtil {
     copyFile(srcFile, dstFile, false);
   }
 
+  /**
+   * Return the hex-encoded SHA-256 digest of the given bytes.
+   *
+   * @param content The bytes to digest.
+   */
+  public static String digest(byte[] content) {
+    try {
+      return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+    } catch (NoSuchAlgorithmException e) {
+      // Every implementation of the Java platform is required to support SHA-256.
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Return the hex-encoded SHA-256 digest of the content of the given file.
+   *
+   * @param file The file to digest.
+   * @throws IOException If the file cannot be read.
+   */
+  public static String digest(Path file) throws IOException {
+    return digest(Files.readAllBytes(file));
+  }
+
   /**
    * Find the given `file` in the package and return the path to the file that was found; null
    * if it was not found.
@@ -420,6 +459,7 @@ public class FileUtil {
       Files.createDirectories(parent);
     }
 
+    unlinkIfShared(destination);
     Files.write(destination, bytes);
   }
 
@@ -605,6 +645,11 @@ public class FileUtil {
     if (!contentsOnly) {
       dstDir = dstDir.resolve(Paths.get(source).getFileName());
     }
+    try {
+      return JarExtractionCache.copyDirectory(jar, source, dstDir, skipIfUnchanged);
+    } catch (IOException e) {
+      // The cache is not usable, so copy the entries from the JAR directly.
+    }
     // Iterate all entries in the jar file.
     for (Enumeration<JarEntry> e = jar.entries(); e.hasMoreElements(); ) {
       final JarEntry entry = e.nextElement();
@@ -949,10 +994,28 @@ public class FileUtil {
       throws IOException {
     if (!skipIfUnchanged || !isSame(text, path)) {
       Files.createDirectories(path.getParent());
+      unlinkIfShared(path);
       Files.write(path, text.getBytes());
     }
   }
 
+  /**
+   * Delete the given file if its content is shared with other files, like the files that are
+   * linked to the cache of extracted runtime directories, so that writing to it creates a new file
+   * instead of modifying the shared content.
+   *
+   * @param file The file to be written.
+   */
+  private static void unlinkIfShared(Path file) throws IOException {
+    if (Files.isRegularFile(file, LinkOption.NOFOLLOW_LINKS)) {
+      try {
+        if ((Integer) Files.getAttribute(file, "unix:nlink") > 1) Files.delete(file);
+      } catch (UnsupportedOperationException | IllegalArgumentException e) {
+        // The file system does not count links.
+      }
+    }
+  }
+
   /**
    * Write text to a file.
    *
@@ -973,6 +1036,143 @@ public class FileUtil {
     writeToFile(text.toString(), path, false);
   }
 
+  /**
+   * Open a buffered writer that writes text to a file as it is produced, so that the text need not
+   * be held in memory in full. The text is written to a temporary file next to the given file,
+   * which replaces the given file atomically when the writer is closed, so that the file never has
+   * partial content, and so that files that share their content with the file, like the files that
+   * are linked to the cache of extracted runtime directories, are not modified.
+   *
+   * @param path The file to write to.
+   * @param skipIfUnchanged If true, the text is compared with the content of the file as it is
+   *     written, and the temporary file is only created once they differ. A file whose content
+   *     would not be changed is not modified at all.
+   */
+  public static Writer newWriter(Path path, boolean skipIfUnchanged) throws IOException {
+    Files.createDirectories(path.getParent());
+    OutputStream out = new ReplacingOutputStream(path, skipIfUnchanged);
+    return new BufferedWriter(new OutputStreamWriter(out, Charset.defaultCharset()));
+  }
+
+  /**
+   * An output stream that writes to a temporary file that replaces a given file when the stream is
+   * closed. If the stream compares what is written with the content of the given file, the
+   * temporary file is only created once a byte differs, or when the stream is closed if the given
+   * file is longer than what was written, and the bytes that were the same are copied into it.
+   */
+  private static class ReplacingOutputStream extends OutputStream {
+
+    /** The number of temporary files that were created. */
+    private static final AtomicLong temporaryFiles = new AtomicLong();
+
+    private final Path path;
+
+    /** The content of the file while it is compared with what is written, or null. */
+    private final FileChannel existing;
+
+    /** The temporary file, or null if it was not created yet. */
+    private Path temporaryPath;
+
+    private FileChannel temporary;
+
+    /** The number of bytes that were written or found to be the same. */
+    private long position = 0;
+
+    /** Whether writing failed, in which case the file is not replaced. */
+    private boolean failed = false;
+
+    private ByteBuffer buffer = ByteBuffer.allocate(0);
+
+    ReplacingOutputStream(Path path, boolean compare) throws IOException {
+      this.path = path;
+      existing =
+          compare && Files.isRegularFile(path)
+              ? FileChannel.open(path, StandardOpenOption.READ)
+              : null;
+      if (existing == null) createTemporary();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      try {
+        if (temporary == null) {
+          if (buffer.capacity() < len) buffer = ByteBuffer.allocate(len);
+          buffer.clear().limit(len);
+          int read = 0;
+          while (read < len) {
+            int n = existing.read(buffer, position + read);
+            if (n <= 0) break;
+            read += n;
+          }
+          int same = 0;
+          while (same < read && buffer.get(same) == b[off + same]) same++;
+          position += same;
+          if (same == len) return;
+          createTemporary();
+          off += same;
+          len -= same;
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(b, off, len);
+        while (bytes.hasRemaining()) {
+          temporary.write(bytes);
+        }
+      } catch (IOException e) {
+        failed = true;
+        throw e;
+      }
+    }
+
+    /**
+     * Create the temporary file and copy the bytes of the file that were found to be the same into
+     * it. The temporary file is not created with {@link Files#createTempFile}, so that it has the
+     * default permissions of new files rather than permissions for the owner only.
+     */
+    private void createTemporary() throws IOException {
+      temporaryPath =
+          path.resolveSibling(
+              "."
+                  + path.getFileName()
+                  + "."
+                  + ProcessHandle.current().pid()
+                  + "."
+                  + temporaryFiles.incrementAndGet()
+                  + ".tmp");
+      temporary =
+          FileChannel.open(temporaryPath, StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW);
+      for (long copied = 0; copied < position; ) {
+        copied += existing.transferTo(copied, position - copied, temporary);
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        if (!failed && temporary == null && existing.size() > position) createTemporary();
+        if (temporary != null) {
+          temporary.close();
+          if (!failed) {
+            try {
+              Files.move(temporaryPath, path, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+              Files.move(temporaryPath, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+          }
+        }
+      } finally {
+        if (existing != null) existing.close();
+        if (temporary != null) {
+          temporary.close();
+          Files.deleteIfExists(temporaryPath);
+        }
+      }
+    }
+  }
+
   public static void createDirectoryIfDoesNotExist(File dir) {
     if (!dir.exists()) dir.mkdirs();
   }
@@ -0,0 +1,297 @@
+package org.lflang.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+
+/**
+ * An on-disk cache of directories extracted from JAR files, such as the runtimes that are bundled
+ * with the compiler.
+ *
+ * <p>Each directory is extracted once per version of the JAR, which is identified by the digest of
+ * its content, and shared by all builds and all processes of the same user. Files are materialized
+ * into a destination by hard links where possible, and copied otherwise or if they replace a file
+ * with different content. The cached files are made read-only, and {@link FileUtil} replaces linked
+ * files rather than writing to them, so that the cache is never modified through a destination.
+ *
+ * <p>The cache is kept in {@code lingua-franca} in the cache directory of the user, which is
+ * {@code $XDG_CACHE_HOME} or {@code ~/.cache}. That directory is created with permissions for the
+ * user only, and the cache is not used unless it is owned by the user and, on POSIX file systems,
+ * no other user has any permissions on it. In addition, each process compares a cached directory
+ * with the JAR once before it first uses it, and extracts the directory again if they differ.
+ *
+ * @ingroup Utilities
+ */
+final class JarExtractionCache {
+
+  /** The directory that holds the cache. */
+  private static final Path ROOT =
+      userCacheDirectory().resolve("lingua-franca").resolve("jar-cache");
+
+  /** The only permissions that the directory of the cache may have. */
+  private static final Set<PosixFilePermission> OWNER_PERMISSIONS =
+      PosixFilePermissions.fromString("rwx------");
+
+  /** Whether the directory of the cache was found to be private to the user. */
+  private static boolean rootChecked = false;
+
+  /** The cached directories that this process found to match the JAR they were extracted from. */
+  private static final Set<Path> verified = ConcurrentHashMap.newKeySet();
+
+  /** Hard links are not used on Windows, where they cannot be deleted while in use. */
+  private static final boolean USE_LINKS =
+      !System.getProperty("os.name").toLowerCase().contains("win");
+
+  /** The digests of the JAR files that were used so far, by file name. */
+  private static final Map<String, String> jarDigests = new ConcurrentHashMap<>();
+
+  private JarExtractionCache() {
+    // Don't let anyone instantiate this class.
+  }
+
+  /**
+   * Copy the contents of the given directory in the given JAR to the given destination directory.
+   * Return false if the directory contains no files, in which case nothing is copied.
+   *
+   * @param jar The JAR file.
+   * @param source The name of the directory entry in the JAR.
+   * @param dstDir The directory to copy the contents to.
+   * @param skipIfUnchanged If true, don't overwrite a file whose content would not be changed.
+   * @throws IOException If the directory cannot be extracted or copied.
+   */
+  static boolean copyDirectory(JarFile jar, String source, Path dstDir, boolean skipIfUnchanged)
+      throws IOException {
+    Path cached = extract(jar, source);
+    List<Path> files;
+    try (Stream<Path> stream = Files.walk(cached)) {
+      files = stream.sorted().toList();
+    }
+    if (files.stream().noneMatch(Files::isRegularFile)) return false;
+    for (Path file : files) {
+      Path target = dstDir.resolve(cached.relativize(file).toString());
+      if (Files.isDirectory(file)) {
+        Files.createDirectories(target);
+      } else {
+        materialize(file, target, skipIfUnchanged);
+      }
+    }
+    return true;
+  }
+
+  /** Return the cached directory that holds the contents of `source`, extracting it if needed. */
+  private static Path extract(JarFile jar, String source) throws IOException {
+    checkRoot();
+    Path cached =
+        ROOT.resolve(jarDigest(jar)).resolve(FileUtil.digest(source.getBytes()).substring(0, 16));
+    String prefix = source.endsWith("/") ? source : source + "/";
+    if (Files.isDirectory(cached)) {
+      if (verified.contains(cached) || matches(jar, prefix, cached)) {
+        verified.add(cached);
+        return cached;
+      }
+      // The cached files were modified. Builds that are linking them at the same time may fail,
+      // in which case they copy the files from the JAR directly.
+      FileUtil.deleteDirectory(cached);
+    }
+
+    // Extract into a directory of our own and move it into place, so that concurrent builds never
+    // observe a partially extracted directory.
+    Files.createDirectories(cached.getParent());
+    Path temp = Files.createTempDirectory(cached.getParent(), "extracting");
+    for (Enumeration<JarEntry> e = jar.entries(); e.hasMoreElements(); ) {
+      final JarEntry entry = e.nextElement();
+      if (!entry.getName().startsWith(prefix)) continue;
+      Path file = temp.resolve(entry.getName().substring(prefix.length()));
+      if (entry.isDirectory()) {
+        Files.createDirectories(file);
+      } else {
+        Files.createDirectories(file.getParent());
+        try (InputStream is = jar.getInputStream(entry)) {
+          Files.copy(is, file);
+        }
+        if (USE_LINKS) file.toFile().setReadOnly();
+      }
+    }
+    try {
+      Files.move(temp, cached, StandardCopyOption.ATOMIC_MOVE);
+      verified.add(cached);
+      return cached;
+    } catch (FileAlreadyExistsException | AtomicMoveNotSupportedException e) {
+      // Another build extracted the same directory in the meantime.
+      FileUtil.deleteDirectory(temp);
+    } catch (IOException e) {
+      // Some file systems report a non-empty target directory differently.
+      if (!Files.isDirectory(cached)) throw e;
+      FileUtil.deleteDirectory(temp);
+    }
+    if (!matches(jar, prefix, cached)) {
+      throw new IOException(cached + " does not match the contents of " + jar.getName());
+    }
+    verified.add(cached);
+    return cached;
+  }
+
+  /**
+   * Return true if the given cached directory holds exactly the files below the given prefix in the
+   * given JAR, with the same contents. Symbolic links in the cached directory are not followed.
+   */
+  private static boolean matches(JarFile jar, String prefix, Path cached) throws IOException {
+    Set<Path> expected = new HashSet<>();
+    for (Enumeration<JarEntry> e = jar.entries(); e.hasMoreElements(); ) {
+      final JarEntry entry = e.nextElement();
+      if (!entry.getName().startsWith(prefix) || entry.isDirectory()) continue;
+      Path file = cached.resolve(entry.getName().substring(prefix.length()));
+      if (!Files.isRegularFile(file, LinkOption.NOFOLLOW_LINKS)) return false;
+      try (InputStream is = jar.getInputStream(entry);
+          InputStream cachedIs = Files.newInputStream(file, LinkOption.NOFOLLOW_LINKS)) {
+        if (!sameContent(is, cachedIs)) return false;
+      }
+      expected.add(file);
+    }
+    try (Stream<Path> stream = Files.walk(cached)) {
+      return stream
+          .filter(file -> !Files.isDirectory(file, LinkOption.NOFOLLOW_LINKS))
+          .allMatch(expected::contains);
+    }
+  }
+
+  /** Return true if the given streams have the same content. */
+  private static boolean sameContent(InputStream a, InputStream b) throws IOException {
+    byte[] bufferA = new byte[1 << 16];
+    byte[] bufferB = new byte[1 << 16];
+    while (true) {
+      int lenA = a.readNBytes(bufferA, 0, bufferA.length);
+      int lenB = b.readNBytes(bufferB, 0, bufferB.length);
+      if (lenA != lenB || !Arrays.equals(bufferA, 0, lenA, bufferB, 0, lenB)) return false;
+      if (lenA < bufferA.length) return true;
+    }
+  }
+
+  /** Return the directory in which the user keeps caches, which is not shared with other users. */
+  private static Path userCacheDirectory() {
+    String cacheHome = System.getenv("XDG_CACHE_HOME");
+    try {
+      if (cacheHome != null && !cacheHome.isBlank() && Path.of(cacheHome).isAbsolute()) {
+        return Path.of(cacheHome);
+      }
+    } catch (InvalidPathException e) {
+      // Use the default instead.
+    }
+    return Path.of(System.getProperty("user.home"), ".cache");
+  }
+
+  /**
+   * Create the directory of the cache, with permissions for the user only, if it does not exist
+   * yet. Throw an exception if it is not owned by the user or, on a POSIX file system, if other
+   * users have any permissions on it.
+   */
+  private static synchronized void checkRoot() throws IOException {
+    if (rootChecked) return;
+    Path directory = ROOT.getParent();
+    if (!Files.exists(directory, LinkOption.NOFOLLOW_LINKS)) {
+      Files.createDirectories(directory.getParent());
+      try {
+        Files.createDirectory(directory, PosixFilePermissions.asFileAttribute(OWNER_PERMISSIONS));
+      } catch (UnsupportedOperationException e) {
+        // Not a POSIX file system.
+        Files.createDirectory(directory);
+      } catch (FileAlreadyExistsException e) {
+        // Another process created the directory in the meantime.
+      }
+    }
+    if (!Files.isDirectory(directory, LinkOption.NOFOLLOW_LINKS)) {
+      throw new IOException(directory + " is not a directory.");
+    }
+    UserPrincipal user =
+        directory
+            .getFileSystem()
+            .getUserPrincipalLookupService()
+            .lookupPrincipalByName(System.getProperty("user.name"));
+    if (!Files.getOwner(directory, LinkOption.NOFOLLOW_LINKS).equals(user)) {
+      throw new IOException(directory + " is not owned by " + user.getName() + ".");
+    }
+    try {
+      Set<PosixFilePermission> permissions =
+          Files.getPosixFilePermissions(directory, LinkOption.NOFOLLOW_LINKS);
+      if (!OWNER_PERMISSIONS.containsAll(permissions)) {
+        throw new IOException(directory + " is accessible to other users.");
+      }
+    } catch (UnsupportedOperationException e) {
+      // Not a POSIX file system, where the home directory of the user is private by default.
+    }
+    rootChecked = true;
+  }
+
+  /**
+   * Make `target` a file with the content of the cached `file`. A target that is replaced is copied
+   * rather than linked, so that it is newer than the files that build tools such as make derived
+   * from its previous content, whereas a link has the modification time of the cached file.
+   */
+  private static void materialize(Path file, Path target, boolean skipIfUnchanged)
+      throws IOException {
+    boolean replaced = Files.exists(target, LinkOption.NOFOLLOW_LINKS);
+    if (Files.isRegularFile(target)) {
+      if (skipIfUnchanged
+          && (Files.isSameFile(file, target) || Files.mismatch(file, target) == -1)) {
+        return;
+      }
+      Files.delete(target);
+    } else if (Files.isDirectory(target)) {
+      FileUtil.deleteDirectory(target);
+    } else {
+      Files.createDirectories(target.getParent());
+    }
+    if (USE_LINKS && !replaced) {
+      try {
+        Files.createLink(target, file);
+        return;
+      } catch (IOException | UnsupportedOperationException e) {
+        // The destination is on a different file system, or it does not support hard links.
+      }
+    }
+    Files.copy(file, target);
+    target.toFile().setWritable(true);
+  }
+
+  /** Return the hex-encoded SHA-256 digest of the given JAR file. */
+  private static String jarDigest(JarFile jar) throws IOException {
+    String digest = jarDigests.get(jar.getName());
+    if (digest != null) return digest;
+    try (InputStream is = Files.newInputStream(Path.of(jar.getName()))) {
+      MessageDigest md = MessageDigest.getInstance("SHA-256");
+      byte[] buffer = new byte[1 << 16];
+      int len;
+      while ((len = is.read(buffer)) > 0) {
+        md.update(buffer, 0, len);
+      }
+      digest = HexFormat.of().formatHex(md.digest());
+    } catch (NoSuchAlgorithmException e) {
+      // Every implementation of the Java platform is required to support SHA-256.
+      throw new IllegalStateException(e);
+    }
+    jarDigests.put(jar.getName(), digest);
+    return digest;
+  }
+}
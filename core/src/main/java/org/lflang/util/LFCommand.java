@@ -5,6 +5,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintStream;
+import java.nio.charset.Charset;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayDeque;
@@ -12,9 +13,8 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import org.eclipse.xtext.util.CancelIndicator;
 
@@ -35,14 +35,15 @@ public class LFCommand {
   private static final int PERIOD_MILLISECONDS = 200;
 
   /**
-   * The maximum amount of time to wait for the forwarding of output and error streams to finish.
+   * The maximum number of characters of the output and of the error output that are retained. Only
+   * the most recent lines are kept once a stream exceeds this limit.
    */
-  private static final int READ_TIMEOUT_MILLISECONDS = 1000;
+  private static final int MAX_RETAINED_CHARACTERS = 1 << 20;
 
   protected ProcessBuilder processBuilder;
   protected boolean didRun = false;
-  protected ByteArrayOutputStream output = new ByteArrayOutputStream();
-  protected ByteArrayOutputStream errors = new ByteArrayOutputStream();
+  private final StreamCollector output = new StreamCollector();
+  private final StreamCollector errors = new StreamCollector();
   protected boolean quiet;
 
   /** Construct an LFCommand that executes the command carried by `pb`. */
@@ -51,16 +52,38 @@ public class LFCommand {
     this.quiet = quiet;
   }
 
-  /** Get the output collected during command execution */
+  /**
+   * Get the output collected during command execution. If the output is very long, only its most
+   * recent lines are returned.
+   */
   public String getOutput() {
     return output.toString();
   }
 
-  /** Get the error output collected during command execution */
+  /**
+   * Get the error output collected during command execution. If the error output is very long, only
+   * its most recent lines are returned.
+   */
   public String getErrors() {
     return errors.toString();
   }
 
+  /**
+   * Pass each line of the output to the given consumer as soon as the line is complete. Lines are
+   * passed without their line terminator. Consumers must be added before the command is run.
+   */
+  public void onOutputLine(Consumer<String> consumer) {
+    output.consumers.add(consumer);
+  }
+
+  /**
+   * Pass each line of the error output to the given consumer as soon as the line is complete. Lines
+   * are passed without their line terminator. Consumers must be added before the command is run.
+   */
+  public void onErrorLine(Consumer<String> consumer) {
+    errors.consumers.add(consumer);
+  }
+
   /** Get this command's program and arguments. */
   public List<String> command() {
     return processBuilder.command();
@@ -77,11 +100,11 @@ public class LFCommand {
   }
 
   /**
-   * Collect as much output as possible from `in` without blocking, print it to `print`
-   * if not quiet, and store it in `store`.
+   * Collect as much output as possible from `in` without blocking, and pass it to
+   * `collector`.
    */
-  private void collectOutput(InputStream in, ByteArrayOutputStream store, PrintStream print) {
-    byte[] buffer = new byte[64];
+  private static void collectOutput(InputStream in, StreamCollector collector) {
+    byte[] buffer = new byte[8192];
     int len;
     do {
       try {
@@ -94,8 +117,7 @@ public class LFCommand {
         //  is guaranteed by the spec.
         len = in.read(buffer, 0, Math.min(in.available(), buffer.length));
         if (len > 0) {
-          store.write(buffer, 0, len);
-          if (!quiet) print.write(buffer, 0, len);
+          collector.write(buffer, len);
         }
       } catch (IOException e) {
         e.printStackTrace();
@@ -118,8 +140,8 @@ public class LFCommand {
       process.descendants().forEach(ProcessHandle::destroyForcibly);
       process.destroyForcibly();
     } else {
-      collectOutput(process.getInputStream(), output, System.out);
-      collectOutput(process.getErrorStream(), errors, System.err);
+      collectOutput(process.getInputStream(), output);
+      collectOutput(process.getErrorStream(), errors);
     }
   }
 
@@ -129,7 +151,8 @@ public class LFCommand {
    * <p>Executing a process directly with `processBuilder.start()` could lead to a deadlock as
    * the subprocess blocks when output or error buffers are full. This method ensures that output
    * and error messages are continuously read and forwards them to the system output and error
-   * streams as well as to the output and error streams hold in this class.
+   * streams as well as to the line consumers and the bounded buffers held in this class. The
+   * streams are read and the line consumers are called on the calling thread.
    *
    * <p>If the current operation is cancelled (as indicated by <code>cancelIndicator</code>), the
    * subprocess is destroyed. Output and error streams until that point are still collected.
@@ -149,17 +172,18 @@ public class LFCommand {
     final Process process = startProcess();
     if (process == null) return -1;
 
-    ScheduledExecutorService poller = Executors.newSingleThreadScheduledExecutor();
-    poller.scheduleAtFixedRate(
-        () -> poll(process, cancelIndicator), 0, PERIOD_MILLISECONDS, TimeUnit.MILLISECONDS);
+    output.print = quiet ? null : System.out;
+    errors.print = quiet ? null : System.err;
 
     try {
-      final int returnCode = process.waitFor();
-      poller.shutdown();
-      poller.awaitTermination(READ_TIMEOUT_MILLISECONDS, TimeUnit.MILLISECONDS);
-      // Finish collecting any remaining data
+      do {
+        poll(process, cancelIndicator);
+      } while (!process.waitFor(PERIOD_MILLISECONDS, TimeUnit.MILLISECONDS));
+      // Finish collecting any remaining data.
       poll(process, cancelIndicator);
-      return returnCode;
+      output.finish();
+      errors.finish();
+      return process.exitValue();
     } catch (InterruptedException e) {
       e.printStackTrace();
       return -2;
@@ -374,4 +398,70 @@ public class LFCommand {
       return false;
     }
   }
+
+  /**
+   * Collector of one stream of a process. It forwards the stream as it is, passes each of its lines
+   * to the line consumers, and retains its most recent lines, up to {@link
+   * #MAX_RETAINED_CHARACTERS}.
+   */
+  private static class StreamCollector {
+
+    /** The stream to forward to, or null if the command is quiet. */
+    private PrintStream print;
+
+    private final List<Consumer<String>> consumers = new ArrayList<>();
+
+    /** The bytes of the line that is not complete yet. */
+    private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+    /** The most recent complete lines, with their line terminators. */
+    private final ArrayDeque<String> lines = new ArrayDeque<>();
+
+    /** The total number of characters in `lines`. */
+    private long length = 0;
+
+    void write(byte[] bytes, int len) {
+      if (print != null) print.write(bytes, 0, len);
+      int start = 0;
+      for (int i = 0; i < len; i++) {
+        if (bytes[i] == '\n') {
+          line.write(bytes, start, i + 1 - start);
+          start = i + 1;
+          endLine();
+        }
+      }
+      line.write(bytes, start, len - start);
+      // Do not let a line without end grow without bounds.
+      if (line.size() > MAX_RETAINED_CHARACTERS) endLine();
+    }
+
+    /** Pass on the last line, even if it is not terminated. */
+    void finish() {
+      if (line.size() > 0) endLine();
+    }
+
+    private void endLine() {
+      String text = line.toString(Charset.defaultCharset());
+      line.reset();
+      lines.addLast(text);
+      length += text.length();
+      while (length > MAX_RETAINED_CHARACTERS && lines.size() > 1) {
+        length -= lines.removeFirst().length();
+      }
+      if (!consumers.isEmpty()) {
+        int end = text.length();
+        if (end > 0 && text.charAt(end - 1) == '\n') end--;
+        if (end > 0 && text.charAt(end - 1) == '\r') end--;
+        String content = text.substring(0, end);
+        consumers.forEach(it -> it.accept(content));
+      }
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder sb = new StringBuilder((int) length + line.size());
+      lines.forEach(sb::append);
+      return sb.append(line.toString(Charset.defaultCharset())).toString();
+    }
+  }
 }
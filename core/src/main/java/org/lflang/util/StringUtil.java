@@ -140,6 +140,7 @@ public final class StringUtil {
 
   /** Normalize end-of-line sequences to the Linux style. */
   public static String normalizeEol(String s) {
+    if (s.indexOf('\r') < 0) return s;
     return s.replaceAll("(\\r\\n?)|\\n", "\n");
   }
 }
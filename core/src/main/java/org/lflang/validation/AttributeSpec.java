@@ -263,6 +263,7 @@ public class AttributeSpec {
 
     // Attribute used for formal verification experiments.
     // @property(name="<property_name>", tactic="<induction|bmc>", spec="<SMTL_spec>")
+    // with optional CT=<int>, expect=<bool>, and timeout=<time>.
     // SMTL is the safety fragment of Metric Temporal Logic (MTL).
     ATTRIBUTE_SPECS_BY_NAME.put(
         "property",
@@ -272,7 +273,8 @@ public class AttributeSpec {
                 new AttrParamSpec("tactic", AttrParamType.STRING, false),
                 new AttrParamSpec("spec", AttrParamType.STRING, false),
                 new AttrParamSpec("CT", AttrParamType.INT, true),
-                new AttrParamSpec("expect", AttrParamType.BOOLEAN, true))));
+                new AttrParamSpec("expect", AttrParamType.BOOLEAN, true),
+                new AttrParamSpec("timeout", AttrParamType.TIME, true))));
     ATTRIBUTE_SPECS_BY_NAME.put("_c_body", new AttributeSpec(null));
 
     // Attributes used internally only by the federated code generation
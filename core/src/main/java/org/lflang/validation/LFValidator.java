@@ -28,7 +28,6 @@
 package org.lflang.validation;
 
 import static org.lflang.AttributeUtils.isEnclave;
-import static org.lflang.ast.ASTUtils.allInstantiations;
 import static org.lflang.ast.ASTUtils.inferPortWidth;
 import static org.lflang.ast.ASTUtils.isGeneric;
 import static org.lflang.ast.ASTUtils.toDefinition;
@@ -49,10 +48,10 @@ import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.eclipse.emf.common.util.EList;
-import org.eclipse.emf.common.util.TreeIterator;
 import org.eclipse.emf.ecore.EAttribute;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.resource.Resource;
 import org.eclipse.xtext.nodemodel.util.NodeModelUtils;
 import org.eclipse.xtext.validation.Check;
 import org.eclipse.xtext.validation.CheckType;
@@ -339,7 +338,7 @@ public class LFValidator extends BaseLFValidator {
     Reactor reactor = ASTUtils.getEnclosingReactor(connection);
 
     // Make sure the right port is not already an effect of a reaction.
-    for (Reaction reaction : ASTUtils.allReactions(reactor)) {
+    for (Reaction reaction : index(reactor).allReactions(reactor)) {
       for (VarRef effect : reaction.getEffects()) {
         for (VarRef rightPort : connection.getRightPorts()) {
           if (rightPort.getVariable().equals(effect.getVariable())
@@ -417,7 +416,7 @@ public class LFValidator extends BaseLFValidator {
   @Check(CheckType.NORMAL)
   public void checkCEnclaveNotInMode(Reactor reactor) {
     if (isCBasedTarget() && reactor.isMain()) {
-      for (var inst : ASTUtils.allInstantiations(reactor)) {
+      for (var inst : index(reactor).allInstantiations(reactor)) {
         boolean isInMode = inst.eContainer() instanceof Mode;
         boolean isEnclave = isEnclave(inst);
 
@@ -427,7 +426,9 @@ public class LFValidator extends BaseLFValidator {
         }
 
         searchForEnclavesInModes(
-            ASTUtils.toDefinition(inst.getReactorClass()), inst.eContainer() instanceof Mode);
+            ASTUtils.toDefinition(inst.getReactorClass()),
+            inst.eContainer() instanceof Mode,
+            index(reactor));
       }
     }
   }
@@ -437,9 +438,11 @@ public class LFValidator extends BaseLFValidator {
    *
    * @param reactor The reactor in which to search for enclaves and modes.
    * @param reactorIsInMode Whether this reactor itself is in a mode.
+   * @param resourceIndex The index of the resource that is being validated.
    */
-  private void searchForEnclavesInModes(Reactor reactor, boolean reactorIsInMode) {
-    for (var inst : ASTUtils.allInstantiations(reactor)) {
+  private void searchForEnclavesInModes(
+      Reactor reactor, boolean reactorIsInMode, ValidationIndex resourceIndex) {
+    for (var inst : resourceIndex.allInstantiations(reactor)) {
 
       boolean isInMode = inst.eContainer() instanceof Mode;
       boolean isEnclave = isEnclave(inst);
@@ -449,7 +452,8 @@ public class LFValidator extends BaseLFValidator {
         return;
       }
 
-      searchForEnclavesInModes(ASTUtils.toDefinition(inst.getReactorClass()), isInMode);
+      searchForEnclavesInModes(
+          ASTUtils.toDefinition(inst.getReactorClass()), isInMode, resourceIndex);
     }
   }
 
@@ -704,11 +708,14 @@ public class LFValidator extends BaseLFValidator {
     if (!info.updated) {
       info.update(model, errorReporter);
     }
+    // The model is validated before its contents, so this starts a new validation pass.
+    index = null;
   }
 
   @Check(CheckType.NORMAL)
   public void updateModelInfo(Model model) {
     info.update(model, errorReporter);
+    index = null;
   }
 
   @Check(CheckType.FAST)
@@ -1058,8 +1065,7 @@ public class LFValidator extends BaseLFValidator {
 
     if (reactor.isFederated() || reactor.isMain()) {
       // Do not allow multiple main/federated reactors.
-      TreeIterator<EObject> iter = reactor.eResource().getAllContents();
-      int nMain = countMainOrFederated(iter);
+      int nMain = index(reactor).countMainOrFederated();
       if (nMain > 1) {
         EAttribute attribute = Literals.REACTOR__MAIN;
         if (reactor.isFederated()) {
@@ -1097,8 +1103,7 @@ public class LFValidator extends BaseLFValidator {
       } else {
         checkReactorName(reactor.getName());
 
-        TreeIterator<EObject> iter = reactor.eResource().getAllContents();
-        int nMain = countMainOrFederated(iter);
+        int nMain = index(reactor).countMainOrFederated();
         if (nMain > 0 && reactor.getName().equals(fileName)) {
           error("Name conflict with main reactor.", Literals.REACTOR_DECL__NAME);
         }
@@ -1607,7 +1612,7 @@ public class LFValidator extends BaseLFValidator {
                 }
               }
               // continue with inner
-              for (var innerInstance : allInstantiations(check)) {
+              for (var innerInstance : index(reactor).allInstantiations(check)) {
                 var next = (Reactor) innerInstance.getReactorClass();
                 if (!checked.contains(next)) {
                   toCheck.push(next);
@@ -1677,11 +1682,11 @@ public class LFValidator extends BaseLFValidator {
                         || !ASTUtils.allStateVars(check).isEmpty()
                         || !ASTUtils.allTimers(check).isEmpty()
                         || !ASTUtils.allActions(check).isEmpty()
-                        || ASTUtils.allConnections(check).stream()
+                        || index(reaction).allConnections(check).stream()
                             .anyMatch(c -> c.getDelay() != null);
 
                 // continue with inner
-                for (var innerInstance : ASTUtils.allInstantiations(check)) {
+                for (var innerInstance : index(reaction).allInstantiations(check)) {
                   var next = (Reactor) innerInstance.getReactorClass();
                   if (!checked.contains(next)) {
                     toCheck.push(next);
@@ -1845,26 +1850,6 @@ public class LFValidator extends BaseLFValidator {
     error("Invalid time value.", feature);
   }
 
-  /**
-   * Return the number of main or federated reactors declared.
-   *
-   * @param iter An iterator over all objects in the resource.
-   */
-  private int countMainOrFederated(TreeIterator<EObject> iter) {
-    int nMain = 0;
-    while (iter.hasNext()) {
-      EObject obj = iter.next();
-      if (!(obj instanceof Reactor)) {
-        continue;
-      }
-      Reactor r = (Reactor) obj;
-      if (r.isMain() || r.isFederated()) {
-        nMain++;
-      }
-    }
-    return nMain;
-  }
-
   /**
    * Report whether a given reactor has dependencies on a cyclic instantiation pattern. This means
    * the reactor has an instantiation in it -- directly or in one of its contained reactors -- that
@@ -1918,33 +1903,19 @@ public class LFValidator extends BaseLFValidator {
    * @param reactor The imported reactor to check whether it is used.
    */
   private boolean isUnused(ImportedReactor reactor) {
-    TreeIterator<EObject> instantiations = reactor.eResource().getAllContents();
-    TreeIterator<EObject> subclasses = reactor.eResource().getAllContents();
-
-    boolean instantiationsCheck = true;
-    while (instantiations.hasNext() && instantiationsCheck) {
-      EObject obj = instantiations.next();
-      if (!(obj instanceof Instantiation)) {
-        continue;
-      }
-      Instantiation inst = (Instantiation) obj;
-      instantiationsCheck &=
-          (inst.getReactorClass() != reactor
-              && inst.getReactorClass() != reactor.getReactorClass());
-    }
+    return !index(reactor).isUsed(reactor);
+  }
 
-    boolean subclassesCheck = true;
-    while (subclasses.hasNext() && subclassesCheck) {
-      EObject obj = subclasses.next();
-      if (!(obj instanceof Reactor)) {
-        continue;
-      }
-      Reactor subclass = (Reactor) obj;
-      for (ReactorDecl decl : subclass.getSuperClasses()) {
-        subclassesCheck &= (decl != reactor && decl != reactor.getReactorClass());
-      }
+  /**
+   * Return the index of the resource that contains the given object, creating it if there is none
+   * for this validation pass yet.
+   */
+  private ValidationIndex index(EObject object) {
+    Resource resource = object.eResource();
+    if (index == null || index.getResource() != resource) {
+      index = new ValidationIndex(resource);
     }
-    return instantiationsCheck && subclassesCheck;
+    return index;
   }
 
   /**
@@ -1996,6 +1967,9 @@ public class LFValidator extends BaseLFValidator {
   /** Helper class containing information about the model. */
   private ModelInfo info = new ModelInfo();
 
+  /** Index of the resource that is being validated, or null if it is not created yet. */
+  private ValidationIndex index;
+
   @Inject(optional = true)
   private ValidationMessageAcceptor messageAcceptor;
 
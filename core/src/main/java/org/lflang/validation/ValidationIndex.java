@@ -0,0 +1,127 @@
+package org.lflang.validation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.eclipse.emf.common.util.TreeIterator;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.lflang.ast.ASTUtils;
+import org.lflang.lf.Connection;
+import org.lflang.lf.ImportedReactor;
+import org.lflang.lf.Instantiation;
+import org.lflang.lf.Reaction;
+import org.lflang.lf.Reactor;
+import org.lflang.lf.ReactorDecl;
+
+/**
+ * An index of the contents of a resource that is shared by the checks of {@link LFValidator}, so
+ * that these need not walk the whole resource, or the superclasses of a reactor, over and over.
+ *
+ * <p>The contents of the resource are indexed in a single walk when the index is created. The
+ * reactions, instantiations, and connections of reactor classes, including those they inherit, are
+ * collected when they are first asked for. Since the AST can change between validation passes, a
+ * new index has to be created for each pass.
+ *
+ * @ingroup Validation
+ */
+final class ValidationIndex {
+
+  /** The indexed resource. */
+  private final Resource resource;
+
+  /** The number of main or federated reactors in the resource. */
+  private int mainOrFederatedCount;
+
+  /** The instantiations in the resource, by the reactor class they instantiate. */
+  private final Map<ReactorDecl, List<Instantiation>> instantiationsByClass = new HashMap<>();
+
+  /** The reactors in the resource, by the reactor classes they extend. */
+  private final Map<ReactorDecl, List<Reactor>> subclassesByClass = new HashMap<>();
+
+  private final Map<Reactor, List<Reaction>> allReactions = new HashMap<>();
+
+  private final Map<Reactor, List<Instantiation>> allInstantiations = new HashMap<>();
+
+  private final Map<Reactor, List<Connection>> allConnections = new HashMap<>();
+
+  /** Create an index of the given resource. */
+  ValidationIndex(Resource resource) {
+    this.resource = resource;
+    TreeIterator<EObject> contents = resource.getAllContents();
+    while (contents.hasNext()) {
+      EObject obj = contents.next();
+      if (obj instanceof Instantiation inst) {
+        instantiationsByClass
+            .computeIfAbsent(inst.getReactorClass(), k -> new ArrayList<>())
+            .add(inst);
+      } else if (obj instanceof Reactor reactor) {
+        if (reactor.isMain() || reactor.isFederated()) {
+          mainOrFederatedCount++;
+        }
+        for (ReactorDecl superClass : reactor.getSuperClasses()) {
+          subclassesByClass.computeIfAbsent(superClass, k -> new ArrayList<>()).add(reactor);
+        }
+      }
+    }
+  }
+
+  /** Return the indexed resource. */
+  Resource getResource() {
+    return resource;
+  }
+
+  /** Return the number of main or federated reactors in the resource. */
+  int countMainOrFederated() {
+    return mainOrFederatedCount;
+  }
+
+  /** Return the instantiations of the given reactor class in the resource. */
+  List<Instantiation> instantiationsOf(ReactorDecl reactorClass) {
+    return instantiationsByClass.getOrDefault(reactorClass, List.of());
+  }
+
+  /** Return the reactors in the resource that directly extend the given reactor class. */
+  List<Reactor> subclassesOf(ReactorDecl reactorClass) {
+    return subclassesByClass.getOrDefault(reactorClass, List.of());
+  }
+
+  /**
+   * Report whether the given imported reactor is instantiated or extended in the resource, either
+   * under its alias or under the name of the class it refers to.
+   */
+  boolean isUsed(ImportedReactor reactor) {
+    return !instantiationsOf(reactor).isEmpty()
+        || !instantiationsOf(reactor.getReactorClass()).isEmpty()
+        || !subclassesOf(reactor).isEmpty()
+        || !subclassesOf(reactor.getReactorClass()).isEmpty();
+  }
+
+  /**
+   * Return the reactions of the given reactor class, including those it inherits.
+   *
+   * @see ASTUtils#allReactions(Reactor)
+   */
+  List<Reaction> allReactions(Reactor reactor) {
+    return allReactions.computeIfAbsent(reactor, ASTUtils::allReactions);
+  }
+
+  /**
+   * Return the instantiations in the given reactor class, including those it inherits.
+   *
+   * @see ASTUtils#allInstantiations(Reactor)
+   */
+  List<Instantiation> allInstantiations(Reactor reactor) {
+    return allInstantiations.computeIfAbsent(reactor, ASTUtils::allInstantiations);
+  }
+
+  /**
+   * Return the connections in the given reactor class, including those it inherits.
+   *
+   * @see ASTUtils#allConnections(Reactor)
+   */
+  List<Connection> allConnections(Reactor reactor) {
+    return allConnections.computeIfAbsent(reactor, ASTUtils::allConnections);
+  }
+}
@@ -0,0 +1,206 @@
+package org.lflang.tests.compiler;
+
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.lsp4j.DiagnosticSeverity;
+import org.eclipse.xtext.generator.JavaIoFileSystemAccess;
+import org.eclipse.xtext.testing.InjectWith;
+import org.eclipse.xtext.testing.extensions.InjectionExtension;
+import org.eclipse.xtext.testing.util.ParseHelper;
+import org.eclipse.xtext.util.CancelIndicator;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.lflang.MessageReporter;
+import org.lflang.MessageReporterBase;
+import org.lflang.generator.GeneratorArguments;
+import org.lflang.generator.GeneratorUtils;
+import org.lflang.generator.LFGenerator;
+import org.lflang.generator.LFGeneratorContext;
+import org.lflang.generator.LFGeneratorContext.Mode;
+import org.lflang.generator.MainContext;
+import org.lflang.generator.Range;
+import org.lflang.lf.Model;
+import org.lflang.tests.LFInjectorProvider;
+
+/**
+ * Test the generation of C code without compiling it.
+ *
+ * @ingroup Tests
+ */
+@ExtendWith(InjectionExtension.class)
+@InjectWith(LFInjectorProvider.class)
+public class CGeneratorTest {
+
+  @Inject ParseHelper<Model> parser;
+
+  @Inject LFGenerator generator;
+
+  @Inject JavaIoFileSystemAccess fileAccess;
+
+  @Inject Provider<ResourceSet> resourceSetProvider;
+
+  /** Check that the code of reactor classes that are generated concurrently is the same. */
+  @Test
+  public void concurrentGenerationIsDeterministic(@TempDir Path tempDir) throws Exception {
+    if (GeneratorUtils.isHostWindows()) return;
+    fileAccess.setOutputPath("src-gen");
+
+    Model model =
+        parser.parse(
+            """
+            target C {
+              no-compile: true
+            }
+            reactor A(width: int = 2) {
+              output[width] out: int
+              reaction(startup) -> out {= =}
+            }
+            reactor B {
+              input in: int
+              reaction(in) {= =}
+            }
+            reactor C {
+              a = new A()
+              b = new[2] B()
+              a.out -> b.in
+            }
+            reactor D {
+              timer t(0, 1 sec)
+              reaction(t) {= =}
+            }
+            main reactor {
+              c = new[2] C()
+              d = new D()
+            }
+            """,
+            URI.createURI(tempDir.resolve("src/Program.lf").toUri().toString()),
+            resourceSetProvider.get());
+    Assertions.assertNotNull(model);
+
+    List<String> messages = new ArrayList<>();
+    Map<Path, String> sequential = generate(model.eResource(), 1, messages);
+    Map<Path, String> concurrent = generate(model.eResource(), 4, messages);
+    Assertions.assertFalse(sequential.isEmpty());
+    Assertions.assertEquals(sequential, concurrent);
+
+    // The times that the stages of code generation took are not reported.
+    Assertions.assertTrue(
+        messages.stream().noneMatch(it -> it.contains("Code generation took")),
+        String.join("\n", messages));
+  }
+
+  /**
+   * Check that compiling the federates of a federation concurrently completes and generates the
+   * same code as compiling them one after another.
+   */
+  @Test
+  public void concurrentFederateCompilationCompletes(@TempDir Path tempDir) throws Exception {
+    if (GeneratorUtils.isHostWindows()) return;
+    fileAccess.setOutputPath("src-gen");
+
+    Model model =
+        parser.parse(
+            """
+            target C {
+              no-compile: true
+            }
+            reactor Source {
+              output out: int
+              reaction(startup) -> out {=
+                lf_set(out, 1);
+              =}
+            }
+            reactor Sink {
+              input in: int
+              reaction(in) {= =}
+            }
+            federated reactor {
+              s = new[6] Source()
+              d = new[6] Sink()
+              s.out -> d.in
+            }
+            """,
+            URI.createURI(tempDir.resolve("src/Federation.lf").toUri().toString()),
+            resourceSetProvider.get());
+    Assertions.assertNotNull(model);
+    Resource resource = model.eResource();
+
+    List<String> messages = new ArrayList<>();
+    Map<Path, String> sequential = generate(resource, 1, messages);
+    Map<Path, String> concurrent =
+        Assertions.assertTimeoutPreemptively(
+            Duration.ofMinutes(5), () -> generate(resource, 4, messages));
+    Assertions.assertFalse(sequential.isEmpty());
+    Assertions.assertEquals(sequential, concurrent);
+  }
+
+  /**
+   * Generate the code of the given resource with the given number of threads, and return the
+   * content of each file in the src-gen directory by its path relative to that directory. The
+   * messages that are reported without a position are added to the given list.
+   */
+  private Map<Path, String> generate(Resource resource, int threads, List<String> messages)
+      throws Exception {
+    MessageReporter reporter =
+        new MessageReporterBase() {
+          @Override
+          protected void report(
+              Path path, Range range, DiagnosticSeverity severity, String message) {
+            messages.add(message);
+          }
+
+          @Override
+          protected void reportOnNode(
+              EObject node,
+              EStructuralFeature feature,
+              DiagnosticSeverity severity,
+              String message) {
+            messages.add(message);
+          }
+
+          @Override
+          protected void reportWithoutPosition(DiagnosticSeverity severity, String message) {
+            messages.add(message);
+          }
+        };
+    LFGeneratorContext context =
+        new MainContext(
+            Mode.STANDALONE,
+            CancelIndicator.NullImpl,
+            (message, completion) -> {},
+            new GeneratorArguments(
+                false, null, false, null, false, false, null, threads, List.of()),
+            resource,
+            fileAccess,
+            fileConfig -> reporter);
+    generator.doGenerate(resource, fileAccess, context);
+    Assertions.assertFalse(reporter.getErrorsOccurred(), String.join("\n", messages));
+
+    Path srcGen = context.getFileConfig().getSrcGenPath();
+    Map<Path, String> files = new TreeMap<>();
+    try (Stream<Path> stream = Files.walk(srcGen)) {
+      for (Path file : stream.filter(Files::isRegularFile).toList()) {
+        files.put(
+            srcGen.relativize(file),
+            new String(Files.readAllBytes(file), StandardCharsets.ISO_8859_1));
+      }
+    }
+    return files;
+  }
+}
@@ -0,0 +1,138 @@
+package org.lflang.tests.compiler;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.lsp4j.DiagnosticSeverity;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.lflang.MessageReporter;
+import org.lflang.MessageReporterBase;
+import org.lflang.generator.CodeBuilder;
+import org.lflang.generator.CodeMap;
+import org.lflang.generator.HumanReadableReportingStrategy;
+import org.lflang.generator.Position;
+import org.lflang.generator.Range;
+
+/**
+ * Test writing the code of a CodeBuilder to a file.
+ *
+ * @ingroup Tests
+ */
+public class CodeBuilderTest {
+
+  @Test
+  public void writeToFileRemovesCorrespondences(@TempDir Path tempDir) throws Exception {
+    Path lfFile = tempDir.resolve("Test.lf");
+    CodeBuilder code = newCode(lfFile);
+    Path generatedFile = tempDir.resolve("main.c");
+    CodeMap codeMap = code.writeToFile(generatedFile.toString());
+
+    String expected = "int main() {\n    x = hello;\n}\n";
+    Assertions.assertEquals(expected, Files.readString(generatedFile));
+    Assertions.assertEquals(expected, codeMap.getGeneratedCode());
+    Assertions.assertEquals(
+        Position.fromZeroBased(3, 4),
+        codeMap.adjusted(lfFile, Position.fromZeroBased(1, 10)));
+
+    // The map is saved next to the file and can be restored as long as the file is unchanged.
+    CodeMap restored = CodeMap.fromSidecar(generatedFile);
+    Assertions.assertNotNull(restored);
+    Assertions.assertEquals(codeMap.getContentHash(), restored.getContentHash());
+    Assertions.assertEquals(codeMap.lfSourcePaths(), restored.lfSourcePaths());
+    Assertions.assertEquals(
+        Position.fromZeroBased(3, 4),
+        restored.adjusted(lfFile, Position.fromZeroBased(1, 10)));
+    Assertions.assertEquals(8, restored.firstNonWhitespace(2));
+    Assertions.assertEquals(
+        new CodeMap.LfPosition(lfFile, Position.fromZeroBased(3, 4)),
+        restored.lfPositionOf(Position.fromZeroBased(1, 10)));
+    // Code that follows a Correspondence does not come from the Lingua Franca file.
+    Assertions.assertNull(restored.lfPositionOf(Position.fromZeroBased(2, 0)));
+
+    // Writing the same code again does not touch the file, nor change its content hash.
+    FileTime lastModified = FileTime.fromMillis(0);
+    Files.setLastModifiedTime(generatedFile, lastModified);
+    CodeMap rewritten = code.writeToFile(generatedFile.toString());
+    Assertions.assertEquals(lastModified, Files.getLastModifiedTime(generatedFile));
+    Assertions.assertEquals(codeMap.getContentHash(), rewritten.getContentHash());
+
+    // Writing other code replaces the file rather than modifying it, so files that share its
+    // content are not modified.
+    Path link = tempDir.resolve("link.c");
+    Files.createLink(link, generatedFile);
+
+    // Writing shorter code truncates the file.
+    CodeMap empty = new CodeBuilder().writeToFile(generatedFile.toString());
+    Assertions.assertEquals("", Files.readString(generatedFile));
+    Assertions.assertEquals(expected, Files.readString(link));
+    Assertions.assertNotEquals(codeMap.getContentHash(), empty.getContentHash());
+    Assertions.assertNull(CodeMap.fromSidecar(generatedFile));
+  }
+
+  @Test
+  public void diagnosticsAreMappedWithSavedCodeMaps(@TempDir Path tempDir) throws Exception {
+    Path lfFile = tempDir.resolve("Test.lf");
+    Path generatedFile = tempDir.resolve("main.c");
+    newCode(lfFile).writeToFile(generatedFile.toString());
+
+    List<String> reported = new ArrayList<>();
+    MessageReporter reporter =
+        new MessageReporterBase() {
+          @Override
+          protected void report(
+              Path path, Range range, DiagnosticSeverity severity, String message) {
+            reported.add(path + ":" + range.getStartInclusive().getOneBasedLine());
+          }
+
+          @Override
+          protected void reportOnNode(
+              EObject node,
+              EStructuralFeature feature,
+              DiagnosticSeverity severity,
+              String message) {
+            reported.add(String.valueOf(node));
+          }
+
+          @Override
+          protected void reportWithoutPosition(DiagnosticSeverity severity, String message) {
+            reported.add(message);
+          }
+        };
+    // No code map is given, so the one saved next to the generated file is used.
+    new HumanReadableReportingStrategy(
+            Pattern.compile(
+                "(?<path>.+):(?<line>\\d+):(?<column>\\d+): (?<severity>error): (?<message>.*)"),
+            Pattern.compile("(\\s*)\\^(~*)"))
+        .report(generatedFile + ":2:10: error: unknown type name 'hello'", reporter, Map.of());
+    Assertions.assertEquals(List.of(lfFile + ":4"), reported);
+  }
+
+  /**
+   * Return the code of a small C program, one line of which corresponds to a range on the fourth
+   * line of the given Lingua Franca file.
+   */
+  private static CodeBuilder newCode(Path lfFile) {
+    Range lfRange = new Range(Position.fromZeroBased(3, 2), Position.fromZeroBased(3, 7));
+    Range generatedRange = new Range(Position.ORIGIN, Position.fromZeroBased(0, 5));
+    String tag =
+        String.format(
+            "/*Correspondence: %s -> %s (verbatim=true; src=%s)*/",
+            lfRange, generatedRange, lfFile);
+
+    CodeBuilder code = new CodeBuilder();
+    code.pr("int main() {\r\n");
+    code.indent();
+    code.pr("x = " + tag + "hello;");
+    code.unindent();
+    code.pr("}");
+    return code;
+  }
+}
@@ -0,0 +1,89 @@
+package org.lflang.tests.compiler;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.lflang.analyses.statespace.StateInfo;
+import org.lflang.analyses.statespace.Tag;
+import org.lflang.analyses.uclid.CounterexampleParser;
+
+/**
+ * Test the parser for the steps of Uclid counterexamples.
+ *
+ * @ingroup Tests
+ */
+public class CounterexampleParserTest {
+
+  private final CounterexampleParser parser =
+      new CounterexampleParser(
+          List.of("main.r0", "main.r1"),
+          List.of("main.x", "main.y"),
+          List.of("main.t"),
+          List.of("main.a"));
+
+  @Test
+  public void parsesPlainTuples() {
+    StateInfo info =
+        parser.parseStateInfo(
+            "(_tuple_0 (_tuple_1 true false false)\\n"
+                + "  (_tuple_2 5 0) (_tuple_3 (- 3) 4) (_tuple_4 true) (_tuple_5 false)"
+                + " (_tuple_6 (- 1)))");
+    Assertions.assertEquals(List.of("main.r0"), info.reactions);
+    Assertions.assertEquals(new Tag(5, 0, false), info.tag);
+    Assertions.assertEquals("-3", info.variables.get("main.x"));
+    Assertions.assertEquals("4", info.variables.get("main.y"));
+    Assertions.assertEquals("true", info.triggers.get("main.t"));
+    Assertions.assertEquals("false", info.scheduled.get("main.a"));
+    Assertions.assertEquals("-1", info.payloads.get("main.a"));
+  }
+
+  @Test
+  public void resolvesNestedLetBindings() {
+    StateInfo info =
+        parser.parseStateInfo(
+            "(let ((a!1 (_tuple_1 false true false)) (a!2 (_tuple_3 1 2)))\n"
+                + "  (let ((a!3 (_tuple_2 7 1)))\n"
+                + "    (_tuple_0 a!1 a!3 a!2 (_tuple_4 false) (_tuple_5 true) (_tuple_6 0))))");
+    Assertions.assertEquals(List.of("main.r1"), info.reactions);
+    Assertions.assertEquals(new Tag(7, 1, false), info.tag);
+    Assertions.assertEquals("1", info.variables.get("main.x"));
+    Assertions.assertEquals("true", info.scheduled.get("main.a"));
+  }
+
+  @Test
+  public void parsesLargeStates() {
+    int size = 100_000;
+    List<String> names = new ArrayList<>();
+    StringBuilder reactions = new StringBuilder("(_tuple_1");
+    StringBuilder variables = new StringBuilder("(_tuple_3");
+    for (int i = 0; i < size; i++) {
+      names.add("main.n" + i);
+      reactions.append(i % 2 == 0 ? " true" : " false");
+      variables.append(i % 3 == 0 ? " (- " + i + ")" : " " + i);
+    }
+    reactions.append(")");
+    variables.append(")");
+    CounterexampleParser large = new CounterexampleParser(names, names, List.of(), List.of());
+
+    StateInfo info =
+        large.parseStateInfo(
+            "(let ((a!1 "
+                + reactions
+                + ")) (_tuple_0 a!1 (_tuple_2 0 0) "
+                + variables
+                + " (_tuple_4 false) (_tuple_5 false) (_tuple_6 0)))");
+    Assertions.assertEquals(size / 2, info.reactions.size());
+    Assertions.assertEquals(size, info.variables.size());
+    Assertions.assertEquals("-99999", info.variables.get("main.n99999"));
+    Assertions.assertEquals("99998", info.variables.get("main.n99998"));
+  }
+
+  @Test
+  public void rejectsMalformedStates() {
+    Assertions.assertThrows(
+        IllegalArgumentException.class, () -> parser.parseStateInfo("(_tuple_0 (_tuple_1 true"));
+    Assertions.assertThrows(
+        IllegalArgumentException.class, () -> parser.parseStateInfo("(_tuple_0 (_tuple_1 true))"));
+  }
+}
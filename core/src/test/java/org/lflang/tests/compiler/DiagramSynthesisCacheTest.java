@@ -0,0 +1,103 @@
+package org.lflang.tests.compiler;
+
+import com.google.inject.Inject;
+import de.cau.cs.kieler.klighd.kgraph.KGraphFactory;
+import de.cau.cs.kieler.klighd.kgraph.KNode;
+import java.lang.ref.WeakReference;
+import org.eclipse.xtext.resource.XtextResource;
+import org.eclipse.xtext.testing.InjectWith;
+import org.eclipse.xtext.testing.extensions.InjectionExtension;
+import org.eclipse.xtext.testing.util.ParseHelper;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.lflang.diagram.synthesis.LinguaFrancaSynthesis;
+import org.lflang.diagram.synthesis.action.MemorizingExpandCollapseAction;
+import org.lflang.diagram.synthesis.util.ReactorInstanceCache;
+import org.lflang.generator.ReactorInstance;
+import org.lflang.lf.Model;
+import org.lflang.lf.Reactor;
+import org.lflang.tests.LFInjectorProvider;
+
+/**
+ * Test the state that the diagram synthesis keeps from one synthesis to the next.
+ *
+ * @ingroup Tests
+ */
+@ExtendWith(InjectionExtension.class)
+@InjectWith(LFInjectorProvider.class)
+public class DiagramSynthesisCacheTest {
+
+  @Inject ParseHelper<Model> parser;
+
+  private static final String PROGRAM =
+      """
+      target C
+      reactor Inner {}
+      reactor Outer {
+        inner = new Inner()
+      }
+      main reactor {
+        %s = new Outer()
+      }
+      """;
+
+  @Test
+  public void reusesTreesOfUnchangedModels() throws Exception {
+    Model model = parser.parse(PROGRAM.formatted("reused"));
+    ReactorInstance instance = ReactorInstanceCache.get(mainOf(model));
+    Assertions.assertSame(instance, ReactorInstanceCache.get(mainOf(model)));
+
+    // A tree of the changed model is created.
+    XtextResource resource = (XtextResource) model.eResource();
+    resource.reparse(PROGRAM.formatted("changed"));
+    Model changedModel = (Model) resource.getContents().get(0);
+    ReactorInstance changed = ReactorInstanceCache.get(mainOf(changedModel));
+    Assertions.assertNotSame(instance, changed);
+    Assertions.assertEquals("changed", changed.children.get(0).getName());
+  }
+
+  @Test
+  public void doesNotKeepModelsAlive() throws Exception {
+    Model model = parser.parse(PROGRAM.formatted("collected"));
+    ReactorInstance instance = ReactorInstanceCache.get(mainOf(model));
+    Assertions.assertNotNull(instance);
+    WeakReference<Model> reference = new WeakReference<>(model);
+    model = null;
+    instance = null;
+    for (int i = 0; i < 50 && reference.get() != null; i++) {
+      System.gc();
+      Thread.sleep(10);
+    }
+    Assertions.assertNull(reference.get());
+  }
+
+  @Test
+  public void deferredExpansionIsNotMemorized() throws Exception {
+    Model model = parser.parse(PROGRAM.formatted("deferred"));
+    ReactorInstance child = ReactorInstanceCache.get(mainOf(model)).children.get(0);
+    KNode node = KGraphFactory.eINSTANCE.createKNode();
+    node.setProperty(LinguaFrancaSynthesis.REACTOR_CONTENT_DEFERRED, true);
+
+    // The content of the node is not synthesized, so the viewer is not used.
+    Assertions.assertTrue(
+        MemorizingExpandCollapseAction.setExpansionState(node, child, null, true, false));
+    Assertions.assertEquals(Boolean.TRUE, MemorizingExpandCollapseAction.getExpansionState(child));
+
+    // The expansion applies to the next synthesis only.
+    MemorizingExpandCollapseAction.clearPendingExpansionStates();
+    Assertions.assertNull(MemorizingExpandCollapseAction.getExpansionState(child));
+
+    // Unless expansion states are memorized.
+    Assertions.assertTrue(
+        MemorizingExpandCollapseAction.setExpansionState(node, child, null, true, true));
+    MemorizingExpandCollapseAction.clearPendingExpansionStates();
+    Assertions.assertEquals(Boolean.TRUE, MemorizingExpandCollapseAction.getExpansionState(child));
+  }
+
+  /** Return the main reactor of the given model. */
+  private static Reactor mainOf(Model model) {
+    Assertions.assertNotNull(model);
+    return model.getReactors().stream().filter(Reactor::isMain).findFirst().orElseThrow();
+  }
+}
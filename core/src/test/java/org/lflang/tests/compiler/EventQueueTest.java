@@ -0,0 +1,107 @@
+package org.lflang.tests.compiler;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.lflang.DefaultMessageReporter;
+import org.lflang.MessageReporter;
+import org.lflang.analyses.statespace.Event;
+import org.lflang.analyses.statespace.EventQueue;
+import org.lflang.analyses.statespace.Tag;
+import org.lflang.generator.ReactorInstance;
+import org.lflang.generator.TimerInstance;
+import org.lflang.lf.LfFactory;
+import org.lflang.lf.Timer;
+
+/**
+ * Test the EventQueue used by the state space explorer.
+ *
+ * @ingroup Tests
+ */
+public class EventQueueTest {
+
+  private final MessageReporter reporter = new DefaultMessageReporter();
+  private static final LfFactory factory = LfFactory.eINSTANCE;
+
+  @Test
+  public void rejectsDuplicates() {
+    ReactorInstance main = new ReactorInstance(factory.createReactor(), reporter);
+    TimerInstance t = newTimer("t", main);
+
+    EventQueue queue = new EventQueue();
+    Assertions.assertTrue(queue.add(new Event(t, new Tag(0, 0, false))));
+    Assertions.assertFalse(queue.add(new Event(t, new Tag(0, 0, false))));
+    Assertions.assertTrue(queue.add(new Event(t, new Tag(0, 1, false))));
+    Assertions.assertEquals(2, queue.size());
+
+    // Once polled, an equal event can be enqueued again.
+    queue.poll();
+    Assertions.assertTrue(queue.add(new Event(t, new Tag(0, 0, false))));
+    Assertions.assertEquals(2, queue.size());
+  }
+
+  @Test
+  public void pollsEarliestTagInBulk() {
+    ReactorInstance main = new ReactorInstance(factory.createReactor(), reporter);
+    List<TimerInstance> timers = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      timers.add(newTimer("t" + i, main));
+    }
+
+    EventQueue queue = new EventQueue();
+    // Enqueue a fan-out of timer events at two tags, with every event duplicated.
+    for (int round = 0; round < 2; round++) {
+      for (TimerInstance t : timers) {
+        queue.add(new Event(t, new Tag(100, 0, false)));
+        queue.add(new Event(t, new Tag(0, 0, false)));
+      }
+    }
+    Assertions.assertEquals(200, queue.size());
+
+    List<Event> first = queue.pollEarliest();
+    Assertions.assertEquals(100, first.size());
+    Assertions.assertTrue(first.stream().allMatch(e -> e.getTag().timestamp == 0));
+    for (int i = 1; i < first.size(); i++) {
+      Assertions.assertTrue(first.get(i - 1).compareTo(first.get(i)) < 0);
+    }
+
+    List<Event> second = queue.pollEarliest();
+    Assertions.assertEquals(100, second.size());
+    Assertions.assertTrue(second.stream().allMatch(e -> e.getTag().timestamp == 100));
+    Assertions.assertTrue(queue.isEmpty());
+    Assertions.assertTrue(queue.pollEarliest().isEmpty());
+  }
+
+  @Test
+  public void snapshotsAreIsolated() {
+    ReactorInstance main = new ReactorInstance(factory.createReactor(), reporter);
+    TimerInstance a = newTimer("a", main);
+    TimerInstance b = newTimer("b", main);
+
+    EventQueue queue = new EventQueue();
+    queue.add(new Event(b, new Tag(0, 0, false)));
+    queue.add(new Event(a, new Tag(0, 0, false)));
+    EventQueue.Snapshot before = queue.snapshot();
+
+    queue.poll();
+    queue.add(new Event(a, new Tag(10, 0, false)));
+    EventQueue.Snapshot after = queue.snapshot();
+
+    Assertions.assertEquals(
+        List.of(new Event(a, new Tag(0, 0, false)), new Event(b, new Tag(0, 0, false))),
+        before.toSortedList());
+    Assertions.assertEquals(
+        List.of(new Event(b, new Tag(0, 0, false)), new Event(a, new Tag(10, 0, false))),
+        after.toSortedList());
+    Assertions.assertEquals(2, queue.size());
+  }
+
+  private TimerInstance newTimer(String name, ReactorInstance container) {
+    Timer timer = factory.createTimer();
+    timer.setName(name);
+    TimerInstance instance = new TimerInstance(timer, container);
+    container.timers.add(instance);
+    return instance;
+  }
+}
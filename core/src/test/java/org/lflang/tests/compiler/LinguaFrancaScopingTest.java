@@ -2,6 +2,16 @@ package org.lflang.tests.compiler;
 
 import com.google.inject.Inject;
 import com.google.inject.Provider;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.resource.Resource;
 import org.eclipse.emf.ecore.resource.ResourceSet;
 import org.eclipse.xtext.generator.JavaIoFileSystemAccess;
 import org.eclipse.xtext.linking.impl.XtextLinkingDiagnostic;
@@ -12,9 +22,11 @@ import org.eclipse.xtext.testing.validation.ValidationTestHelper;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.lflang.generator.LFGenerator;
 import org.lflang.lf.LfPackage;
 import org.lflang.lf.Model;
+import org.lflang.scoping.ImportGraphCache;
 import org.lflang.tests.LFInjectorProvider;
 
 /**
@@ -177,4 +189,54 @@ public class LinguaFrancaScopingTest {
         XtextLinkingDiagnostic.LINKING_DIAGNOSTIC,
         "Couldn't resolve reference to Variable 'unknown'.");
   }
+
+  /** Ensure that the import graph cache only collects the imports of files that changed. */
+  @Test
+  public void importGraphCacheInvalidatesDependents(@TempDir Path dir) throws Exception {
+    Map<URI, List<URI>> imports = new HashMap<>();
+    List<URI> collected = new ArrayList<>();
+    URI a = writeReactor(dir, "A"), b = writeReactor(dir, "B"), c = writeReactor(dir, "C");
+    imports.put(a, List.of(b));
+    imports.put(b, List.of(c));
+    imports.put(c, List.of());
+
+    ResourceSet resourceSet = resourceSetProvider.get();
+    Resource resourceA = resourceSet.getResource(a, true);
+    ImportGraphCache cache = new ImportGraphCache();
+    Function<Resource, List<URI>> importsOf =
+        resource -> {
+          collected.add(resource.getURI());
+          return imports.get(resource.getURI());
+        };
+
+    Assertions.assertEquals(
+        List.of(b, c), List.copyOf(cache.getTransitiveImports(resourceA, importsOf)));
+    Assertions.assertEquals(List.of(a, b, c), collected);
+    Assertions.assertEquals(
+        List.of(b, c), List.copyOf(cache.getTransitiveImports(resourceA, importsOf)));
+    Assertions.assertEquals(1, cache.getHits());
+    Assertions.assertEquals(1, cache.getMisses());
+
+    // Let C import a new file D.
+    collected.clear();
+    URI d = writeReactor(dir, "D");
+    imports.put(c, List.of(d));
+    imports.put(d, List.of());
+    Files.writeString(
+        Path.of(c.toFileString()), "target C;\nimport D from \"D.lf\"\nreactor C {}\n");
+    resourceSet.getResources().remove(resourceSet.getResource(c, false));
+
+    Assertions.assertEquals(
+        List.of(b, c, d), List.copyOf(cache.getTransitiveImports(resourceA, importsOf)));
+    Assertions.assertEquals(List.of(c, d), collected);
+    Assertions.assertEquals(1, cache.getHits());
+    Assertions.assertEquals(2, cache.getMisses());
+  }
+
+  /** Write a file that contains a reactor with the given name and return its URI. */
+  private URI writeReactor(Path dir, String name) throws IOException {
+    Path file = dir.resolve(name + ".lf");
+    Files.writeString(file, "target C;\nreactor " + name + " {}\n");
+    return URI.createFileURI(file.toAbsolutePath().toString());
+  }
 }
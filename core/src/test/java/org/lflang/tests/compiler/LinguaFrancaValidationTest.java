@@ -2073,6 +2073,23 @@ public class LinguaFrancaValidationTest {
         "Multiple definitions of main or federated reactor.");
   }
 
+  /** Validate a program with many reactors, which all checks should handle in linear time. */
+  @Test
+  public void testLargeProgram() throws Exception {
+    int size = 500;
+    StringBuilder testCase = new StringBuilder("target C;\n");
+    testCase.append("reactor R0 { input in:int; output out:int; reaction(in) -> out {= =} }\n");
+    for (int i = 1; i < size; i++) {
+      testCase.append(
+          String.format(
+              "reactor R%d { input in:int; output out:int; c = new R%d();"
+                  + " in -> c.in; c.out -> out; reaction(c.out) {= =} }\n",
+              i, i - 1));
+    }
+    testCase.append(String.format("main reactor { r = new R%d(); }\n", size - 1));
+    validator.assertNoErrors(parseWithoutError(testCase.toString()));
+  }
+
   @Test
   public void testMainReactorHasHost() throws Exception {
     String testCase =
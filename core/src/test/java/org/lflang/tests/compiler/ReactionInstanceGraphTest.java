@@ -0,0 +1,203 @@
+package org.lflang.tests.compiler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.lflang.DefaultMessageReporter;
+import org.lflang.MessageReporter;
+import org.lflang.generator.PortInstance;
+import org.lflang.generator.ReactionInstance;
+import org.lflang.generator.ReactionInstanceGraph;
+import org.lflang.generator.ReactionInstanceGraph.MriPortPair;
+import org.lflang.generator.ReactorInstance;
+import org.lflang.generator.RuntimeRange;
+import org.lflang.lf.Deadline;
+import org.lflang.lf.LfFactory;
+import org.lflang.lf.Port;
+import org.lflang.lf.Reaction;
+import org.lflang.lf.Reactor;
+import org.lflang.lf.Time;
+
+/**
+ * Test incremental updates of the ReactionInstanceGraph by comparing their outcome with that of
+ * building the graph from scratch.
+ *
+ * @ingroup Tests
+ */
+public class ReactionInstanceGraphTest {
+
+  private final MessageReporter reporter = new DefaultMessageReporter();
+  private static final LfFactory factory = LfFactory.eINSTANCE;
+
+  /**
+   * A program with a source A, a bank B of width 3, a reactor C with a deadline, and a reactor D.
+   *
+   * <pre>
+   * A.out -> B.in (broadcast), B.out -> C.in1 (multiport), A.out2 -> D.in, D.out -> C.in2
+   * </pre>
+   */
+  private class Program {
+    final ReactorInstance main = new ReactorInstance(factory.createReactor(), reporter);
+    final ReactionInstance a0, b0, d0;
+    final PortInstance aOut2, bOut, dOut;
+
+    Program(boolean edited) {
+      ReactorInstance a = newReactor("A", main);
+      ReactorInstance b = newReactor("B", main);
+      b.setWidth(3);
+      ReactorInstance c = newReactor("C", main);
+      ReactorInstance d = newReactor("D", main);
+
+      PortInstance aOut = newPort("out", a, false);
+      aOut2 = newPort("out2", a, false);
+      PortInstance bIn = newPort("in", b, true);
+      bOut = newPort("out", b, false);
+      PortInstance cIn1 = newPort("in1", c, true);
+      cIn1.setWidth(3);
+      PortInstance cIn2 = newPort("in2", c, true);
+      PortInstance dIn = newPort("in", d, true);
+      dOut = newPort("out", d, false);
+
+      a0 = newReaction(a, null, null);
+      a0.effects.add(aOut);
+      b0 = newReaction(b, bIn, null);
+      b0.effects.add(bOut);
+      newReaction(b, bIn, null);
+      newReaction(c, cIn1, null);
+      newReaction(c, cIn2, 10);
+      d0 = newReaction(d, dIn, null);
+
+      connect(aOut, 0, 1, bIn, 0, 3);
+      connect(bOut, 0, 3, cIn1, 0, 3);
+      connect(aOut2, 0, 1, dIn, 0, 1);
+      connect(dOut, 0, 1, cIn2, 0, 1);
+
+      if (edited) edit();
+    }
+
+    /** Let A write to D and stop B from writing to C. */
+    void edit() {
+      a0.effects.add(aOut2);
+      b0.effects.remove(bOut);
+      d0.effects.add(dOut);
+      main.clearCaches(false);
+    }
+
+    /** Undo {@link #edit()}. */
+    void revert() {
+      a0.effects.remove(aOut2);
+      b0.effects.add(bOut);
+      d0.effects.remove(dOut);
+      main.clearCaches(false);
+    }
+  }
+
+  @Test
+  public void updateMatchesFullRebuild() {
+    Program program = new Program(false);
+    ReactionInstanceGraph graph = new ReactionInstanceGraph(program.main, true);
+    Assertions.assertEquals(describeFullBuild(false), describe(program.main, graph));
+
+    program.edit();
+    graph.update(Set.of(program.a0, program.b0, program.d0));
+    Assertions.assertEquals(0, graph.nodeCount());
+    Assertions.assertEquals(describeFullBuild(true), describe(program.main, graph));
+
+    program.revert();
+    graph.update(Set.of(program.a0, program.b0, program.d0));
+    Assertions.assertEquals(describeFullBuild(false), describe(program.main, graph));
+  }
+
+  /** Return the description of a new program whose graph is built from scratch. */
+  private List<String> describeFullBuild(boolean edited) {
+    Program program = new Program(edited);
+    return describe(program.main, new ReactionInstanceGraph(program.main));
+  }
+
+  /**
+   * Return a description of the levels, deadlines, and dominating reactions of all runtime
+   * reaction instances, of the level upper bounds of the ports that send to them, and of the number
+   * of reactions per level.
+   */
+  private List<String> describe(ReactorInstance main, ReactionInstanceGraph graph) {
+    List<String> result = new ArrayList<>();
+    describe(main, result);
+    result.add(Arrays.toString(graph.getNumReactionsPerLevel(main)));
+    return result;
+  }
+
+  private void describe(ReactorInstance reactor, List<String> result) {
+    for (ReactionInstance reaction : reactor.reactions) {
+      for (ReactionInstance.Runtime runtime : reaction.getRuntimeInstances()) {
+        StringBuilder description = new StringBuilder(reaction.getFullName());
+        description.append('[').append(runtime.id).append("] level ").append(runtime.level);
+        description.append(", deadline ").append(runtime.deadline);
+        if (runtime.dominating != null) {
+          description.append(", dominated by ").append(runtime.dominating.getReaction());
+        }
+        for (MriPortPair sourcePort : runtime.sourcePorts) {
+          description
+              .append(", ")
+              .append(sourcePort.port().getFullName())
+              .append(" bound ")
+              .append(sourcePort.port().getLevelUpperBound(sourcePort.index()));
+        }
+        result.add(description.toString());
+      }
+    }
+    for (ReactorInstance child : reactor.children) {
+      describe(child, result);
+    }
+  }
+
+  private void connect(
+      PortInstance src, int srcStart, int srcWidth, PortInstance dst, int dstStart, int dstWidth) {
+    RuntimeRange<PortInstance> srcRange = new RuntimeRange.Port(src, srcStart, srcWidth, null);
+    RuntimeRange<PortInstance> dstRange = new RuntimeRange.Port(dst, dstStart, dstWidth, null);
+    ReactorInstance.connectPortInstances(srcRange, dstRange, null);
+  }
+
+  private PortInstance newPort(String name, ReactorInstance container, boolean input) {
+    Port p = input ? factory.createInput() : factory.createOutput();
+    p.setName(name);
+    PortInstance instance = new PortInstance(p, container, reporter);
+    (input ? container.inputs : container.outputs).add(instance);
+    return instance;
+  }
+
+  /**
+   * Return a new reaction of the given reactor that is triggered by the given port, if any, and
+   * has a deadline of the given number of milliseconds, if any.
+   */
+  private ReactionInstance newReaction(
+      ReactorInstance container, PortInstance trigger, Integer deadline) {
+    Reaction r = factory.createReaction();
+    if (deadline != null) {
+      Time time = factory.createTime();
+      time.setInterval(deadline);
+      time.setUnit("msec");
+      Deadline d = factory.createDeadline();
+      d.setDelay(time);
+      r.setDeadline(d);
+    }
+    ReactionInstance result = new ReactionInstance(r, container, container.reactions.size());
+    if (trigger != null) {
+      trigger.getDependentReactions().add(result);
+      result.triggers.add(trigger);
+      result.sources.add(trigger);
+    }
+    container.reactions.add(result);
+    return result;
+  }
+
+  private ReactorInstance newReactor(String name, ReactorInstance container) {
+    Reactor r = factory.createReactor();
+    r.setName(name);
+    ReactorInstance instance = new ReactorInstance(r, container, reporter);
+    container.children.add(instance);
+    return instance;
+  }
+}
@@ -0,0 +1,172 @@
+package org.lflang.tests.compiler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.lflang.DefaultMessageReporter;
+import org.lflang.MessageReporter;
+import org.lflang.analyses.statespace.StateSpaceDiagram;
+import org.lflang.analyses.statespace.StateSpaceExplorer;
+import org.lflang.analyses.statespace.StateSpaceNode;
+import org.lflang.analyses.statespace.Tag;
+import org.lflang.generator.PortInstance;
+import org.lflang.generator.ReactionInstance;
+import org.lflang.generator.ReactorInstance;
+import org.lflang.generator.RuntimeRange;
+import org.lflang.generator.TimerInstance;
+import org.lflang.generator.TriggerInstance;
+import org.lflang.lf.LfFactory;
+import org.lflang.lf.Port;
+import org.lflang.lf.Reaction;
+import org.lflang.lf.Reactor;
+import org.lflang.lf.Time;
+import org.lflang.lf.Timer;
+import org.lflang.lf.Variable;
+
+/**
+ * Test the exploration of the state space of programs that are built directly as reactor
+ * instances.
+ *
+ * @ingroup Tests
+ */
+public class StateSpaceExplorerTest {
+
+  private final MessageReporter reporter = new DefaultMessageReporter();
+  private static final LfFactory factory = LfFactory.eINSTANCE;
+
+  /** The period of the timer that drives the programs, in nanoseconds. */
+  private static final long PERIOD = 100_000_000L;
+
+  @Test
+  public void mergesEqualEventsOfDifferentReactions() {
+    // Two reactions of A, triggered by the same timer, write the same port that B reads.
+    ReactorInstance main = new ReactorInstance(factory.createReactor(), reporter);
+    ReactorInstance a = newReactor("A", main);
+    ReactorInstance b = newReactor("B", main);
+    TimerInstance t = newTimer("t", a, 1);
+    PortInstance out = newPort("out", a, false);
+    PortInstance in = newPort("in", b, true);
+    ReactionInstance a0 = newReaction(a, t);
+    a0.effects.add(out);
+    ReactionInstance a1 = newReaction(a, t);
+    a1.effects.add(out);
+    ReactionInstance b0 = newReaction(b, in);
+    connect(out, in);
+
+    StateSpaceExplorer explorer = new StateSpaceExplorer(main);
+    explorer.explore(new Tag(10 * PERIOD, 0, false), true);
+
+    Assertions.assertTrue(explorer.loopFound);
+    Assertions.assertEquals(PERIOD, explorer.diagram.loopPeriod);
+    Assertions.assertEquals(Set.of(a0, a1, b0), explorer.diagram.head.getReactionsInvoked());
+  }
+
+  @Test
+  public void parallelExplorationMatchesSequentialExploration() {
+    List<String> sequential = describeExploration(1);
+    // The loop is only found a few nodes after it is reached, so the
+    // nodes explored past it must be removed again.
+    Assertions.assertEquals(sequential, describeExploration(4));
+    Assertions.assertEquals(sequential, describeExploration(16));
+  }
+
+  /**
+   * Explore a program whose timers have periods of one and five {@link #PERIOD}s with the given
+   * number of threads and return a description of the resulting diagram.
+   */
+  private List<String> describeExploration(int threads) {
+    ReactorInstance main = new ReactorInstance(factory.createReactor(), reporter);
+    ReactorInstance a = newReactor("A", main);
+    ReactorInstance b = newReactor("B", main);
+    PortInstance out = newPort("out", a, false);
+    PortInstance in = newPort("in", b, true);
+    newReaction(a, newTimer("t", a, 1)).effects.add(out);
+    newReaction(b, newTimer("t", b, 5));
+    newReaction(b, in);
+    connect(out, in);
+
+    StateSpaceExplorer explorer = new StateSpaceExplorer(main, threads);
+    explorer.explore(new Tag(20 * PERIOD, 0, false), true);
+    StateSpaceDiagram diagram = explorer.diagram;
+    Assertions.assertTrue(explorer.loopFound);
+
+    List<String> result = new ArrayList<>();
+    StateSpaceNode node = diagram.head;
+    for (int i = 0; i < diagram.nodeCount(); i++) {
+      StateSpaceNode next = diagram.getDownstreamNode(node);
+      result.add(
+          node.getIndex()
+              + " "
+              + node.getTag()
+              + " "
+              + node.getReactionsInvoked().stream()
+                  .map(ReactionInstance::getFullName)
+                  .sorted()
+                  .toList()
+              + " -> "
+              + (next == null ? null : next.getIndex()));
+      node = next;
+    }
+    result.add(
+        "loop "
+            + diagram.loopNode.getIndex()
+            + " "
+            + diagram.loopNodeNext.getTag()
+            + " tail "
+            + diagram.tail.getIndex()
+            + " period "
+            + diagram.loopPeriod);
+    return result;
+  }
+
+  private void connect(PortInstance src, PortInstance dst) {
+    RuntimeRange<PortInstance> srcRange = new RuntimeRange.Port(src, 0, 1, null);
+    RuntimeRange<PortInstance> dstRange = new RuntimeRange.Port(dst, 0, 1, null);
+    ReactorInstance.connectPortInstances(srcRange, dstRange, factory.createConnection());
+  }
+
+  private PortInstance newPort(String name, ReactorInstance container, boolean input) {
+    Port p = input ? factory.createInput() : factory.createOutput();
+    p.setName(name);
+    PortInstance instance = new PortInstance(p, container, reporter);
+    (input ? container.inputs : container.outputs).add(instance);
+    return instance;
+  }
+
+  /** Return a new reaction of the given reactor that is triggered by the given trigger. */
+  private ReactionInstance newReaction(
+      ReactorInstance container, TriggerInstance<? extends Variable> trigger) {
+    Reaction r = factory.createReaction();
+    ReactionInstance result = new ReactionInstance(r, container, container.reactions.size());
+    trigger.getDependentReactions().add(result);
+    result.triggers.add(trigger);
+    container.reactions.add(result);
+    return result;
+  }
+
+  private ReactorInstance newReactor(String name, ReactorInstance container) {
+    Reactor r = factory.createReactor();
+    r.setName(name);
+    ReactorInstance instance = new ReactorInstance(r, container, reporter);
+    container.children.add(instance);
+    return instance;
+  }
+
+  /**
+   * Return a new timer of the given reactor with no offset and a period of the given number of
+   * {@link #PERIOD}s.
+   */
+  private TimerInstance newTimer(String name, ReactorInstance container, int periods) {
+    Time period = factory.createTime();
+    period.setInterval((int) (periods * PERIOD / 1_000_000));
+    period.setUnit("msec");
+    Timer timer = factory.createTimer();
+    timer.setName(name);
+    timer.setPeriod(period);
+    TimerInstance instance = new TimerInstance(timer, container);
+    container.timers.add(instance);
+    return instance;
+  }
+}
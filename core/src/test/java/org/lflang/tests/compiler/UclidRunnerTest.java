@@ -0,0 +1,147 @@
+package org.lflang.tests.compiler;
+
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.xtext.generator.JavaIoFileSystemAccess;
+import org.eclipse.xtext.testing.InjectWith;
+import org.eclipse.xtext.testing.extensions.InjectionExtension;
+import org.eclipse.xtext.testing.util.ParseHelper;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.lflang.TimeUnit;
+import org.lflang.TimeValue;
+import org.lflang.analyses.uclid.UclidGenerator;
+import org.lflang.analyses.uclid.UclidRunner;
+import org.lflang.generator.GeneratorUtils;
+import org.lflang.generator.LFGeneratorContext.Mode;
+import org.lflang.generator.MainContext;
+import org.lflang.lf.Model;
+import org.lflang.tests.LFInjectorProvider;
+
+/**
+ * Test the reporting of the Uclid runner with a stub in place of the Uclid executable.
+ *
+ * @ingroup Tests
+ */
+@ExtendWith(InjectionExtension.class)
+@InjectWith(LFInjectorProvider.class)
+public class UclidRunnerTest {
+
+  @Inject ParseHelper<Model> parser;
+
+  @Inject JavaIoFileSystemAccess fileAccess;
+
+  @Inject Provider<ResourceSet> resourceSetProvider;
+
+  /**
+   * A stub of Uclid that passes the model pass.ucl, hangs on the model slow.ucl, and fails all
+   * other models without writing a counterexample.
+   */
+  private static final String STUB =
+      """
+      #!/bin/sh
+      case "$(basename "$1")" in
+        pass.ucl) echo "PASSED" ;;
+        slow.ucl) exec sleep 10 ;;
+        *) echo "FAILED"; echo "stub: no counterexample" >&2 ;;
+      esac
+      """;
+
+  @Test
+  public void reportsResultsTimeoutsAndErrors(@TempDir Path tempDir) throws Exception {
+    if (GeneratorUtils.isHostWindows()) return;
+    UclidGenerator generator = newGenerator(tempDir);
+    Path pass = addModel(generator, "pass.ucl");
+    Path fail = addModel(generator, "fail.ucl");
+    Path slow = addModel(generator, "slow.ucl");
+    generator.expectations.put(pass, "true");
+    generator.expectations.put(fail, "true");
+    generator.timeouts.put(slow, new TimeValue(200, TimeUnit.MILLI));
+
+    Path stub = tempDir.resolve("uclid");
+    Files.writeString(stub, STUB);
+    Assertions.assertTrue(stub.toFile().setExecutable(true));
+
+    String[] printed = runCapturingOutput(new UclidRunner(generator, stub.toString()));
+    String out = printed[0];
+    String err = printed[1];
+
+    Assertions.assertTrue(out.contains("Valid!"), out);
+    Assertions.assertTrue(out.contains("Not valid!"), out);
+    Assertions.assertTrue(out.contains("Not able to read from " + fail), out);
+    Assertions.assertTrue(out.contains("Expected: true, Result: false"), out);
+    Assertions.assertTrue(
+        out.contains("Checking " + slow + " timed out after 200 milliseconds."), out);
+    Assertions.assertTrue(
+        out.contains("Checked 3 properties: 1 valid, 1 not valid, 1 timed out."), out);
+    Assertions.assertTrue(err.contains("stub: no counterexample"), err);
+    Assertions.assertTrue(generator.context.getErrorReporter().getErrorsOccurred());
+  }
+
+  @Test
+  public void reportsMissingUclid(@TempDir Path tempDir) throws Exception {
+    if (GeneratorUtils.isHostWindows()) return;
+    UclidGenerator generator = newGenerator(tempDir);
+    addModel(generator, "pass.ucl");
+
+    String out = runCapturingOutput(new UclidRunner(generator, "lf-no-such-uclid"))[0];
+
+    Assertions.assertTrue(out.contains("None of the 1 generated Uclid models were checked."), out);
+  }
+
+  /** Return a generator for an empty program in the given directory that generated no models. */
+  private UclidGenerator newGenerator(Path tempDir) throws Exception {
+    fileAccess.setOutputPath("src-gen");
+    Model model =
+        parser.parse(
+            """
+            target C
+            main reactor {}
+            """,
+            URI.createURI(tempDir.resolve("src/Test.lf").toUri().toString()),
+            resourceSetProvider.get());
+    var resource = model.eResource();
+    var context = new MainContext(Mode.STANDALONE, resource, fileAccess, () -> false);
+    UclidGenerator generator = new UclidGenerator(context, List.of());
+    generator.outputDir = tempDir;
+    generator.triggerInstances = new ArrayList<>();
+    generator.namedInstances = new ArrayList<>();
+    return generator;
+  }
+
+  /** Add an empty model with the given file name to those generated by the given generator. */
+  private Path addModel(UclidGenerator generator, String name) throws IOException {
+    Path path = Files.writeString(generator.outputDir.resolve(name), "");
+    generator.generatedFiles.add(path);
+    generator.completenessThresholds.put(path, 1);
+    return path;
+  }
+
+  /** Run the given runner and return what it printed to the standard output and error streams. */
+  private String[] runCapturingOutput(UclidRunner runner) {
+    PrintStream originalOut = System.out;
+    PrintStream originalErr = System.err;
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ByteArrayOutputStream err = new ByteArrayOutputStream();
+    try {
+      System.setOut(new PrintStream(out, true));
+      System.setErr(new PrintStream(err, true));
+      runner.run();
+    } finally {
+      System.setOut(originalOut);
+      System.setErr(originalErr);
+    }
+    return new String[] {out.toString(), err.toString()};
+  }
+}
@@ -0,0 +1,67 @@
+package org.lflang.tests.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.lflang.generator.GeneratorUtils;
+import org.lflang.util.LFCommand;
+
+/**
+ * Test the collection of the output and error streams of LFCommand.
+ *
+ * @ingroup Tests
+ */
+public class LFCommandTest {
+
+  @Test
+  public void testUnterminatedLastLine(@TempDir Path tempDir) {
+    if (GeneratorUtils.isHostWindows()) return;
+    LFCommand command = shell("printf 'a\\r\\nb'; printf 'c\\nd' >&2", tempDir);
+    List<String> output = new ArrayList<>();
+    List<String> errors = new ArrayList<>();
+    command.onOutputLine(output::add);
+    command.onErrorLine(errors::add);
+
+    assertEquals(0, command.run());
+    assertEquals(List.of("a", "b"), output);
+    assertEquals(List.of("c", "d"), errors);
+    assertEquals("a\r\nb", command.getOutput());
+    assertEquals("c\nd", command.getErrors());
+  }
+
+  @Test
+  public void testRetainsTailOfLongOutput(@TempDir Path tempDir) {
+    if (GeneratorUtils.isHostWindows()) return;
+    // About two megabytes, which is twice as much as is retained.
+    LFCommand command = shell("seq 1 300000", tempDir);
+    List<String> output = new ArrayList<>();
+    command.onOutputLine(output::add);
+
+    assertEquals(0, command.run());
+    // The line consumers see all lines.
+    assertEquals(300000, output.size());
+    assertEquals("1", output.get(0));
+    String retained = command.getOutput();
+    assertTrue(retained.length() <= 1 << 20, "retained " + retained.length() + " characters");
+    assertTrue(retained.length() > 1 << 19, "retained " + retained.length() + " characters");
+    // Only complete lines are dropped, starting with the oldest.
+    assertFalse(retained.startsWith("1\n"));
+    assertTrue(retained.endsWith("\n299999\n300000\n"));
+    int first = Integer.parseInt(retained.substring(0, retained.indexOf('\n')));
+    assertEquals(String.join("\n", output.subList(first - 1, output.size())) + "\n", retained);
+  }
+
+  /** Return a quiet command that runs the given script with sh in the given directory. */
+  private static LFCommand shell(String script, Path directory) {
+    LFCommand command = LFCommand.get("sh", List.of("-c", script), true, directory);
+    assertNotNull(command);
+    return command;
+  }
+}
@@ -4,6 +4,8 @@ import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 import org.eclipse.xtext.util.RuntimeIOException;
 import org.lflang.FileConfig;
 import org.lflang.generator.LFGeneratorContext;
@@ -46,6 +48,30 @@ public class LFTest implements Comparable<LFTest> {
   /** Reference to System.err for restoring the default output. */
   private static final PrintStream err = System.err;
 
+  /**
+   * The stream that the outputs of the current thread are recorded to, if any. This lets tests that
+   * run in parallel each record their own outputs. It is set and cleared explicitly around each
+   * test, rather than inherited, so that the threads of a pool do not keep the recording of the
+   * test during which they were started.
+   */
+  private static final ThreadLocal<PrintStream> recording = new ThreadLocal<>();
+
+  /** The recordings of the threads whose outputs are recorded. */
+  private static final List<PrintStream> recordings = new ArrayList<>();
+
+  /**
+   * The only recording if the outputs of exactly one thread are recorded, or null. The outputs of
+   * threads that are not recorded themselves, such as the threads that the code generators start,
+   * are recorded to it, so that nothing is lost when the tests do not run in parallel.
+   */
+  private static volatile PrintStream soleRecording = null;
+
+  /** Replacement of System.out that writes to the recording of the current thread, if any. */
+  private static final PrintStream recordingOut = new PrintStream(new RecordingStream(out), true);
+
+  /** Replacement of System.err that writes to the recording of the current thread, if any. */
+  private static final PrintStream recordingErr = new PrintStream(new RecordingStream(err), true);
+
   private long executionTimeNanoseconds;
 
   /**
@@ -71,18 +97,72 @@ public class LFTest implements Comparable<LFTest> {
     return srcPath;
   }
 
-  /** Redirect outputs for recording. */
+  /**
+   * Redirect the outputs of the current thread for recording. This must be followed by {@link
+   * #restoreOutputs()} on the same thread.
+   */
   public void redirectOutputs() {
-    System.setOut(new PrintStream(compilationLog, false, StandardCharsets.UTF_8));
-    System.setErr(new PrintStream(compilationLog, false, StandardCharsets.UTF_8));
+    PrintStream stream = new PrintStream(compilationLog, false, StandardCharsets.UTF_8);
+    recording.set(stream);
+    synchronized (LFTest.class) {
+      recordings.add(stream);
+      soleRecording = recordings.size() == 1 ? stream : null;
+      if (recordings.size() == 1) {
+        System.setOut(recordingOut);
+        System.setErr(recordingErr);
+      }
+    }
   }
 
-  /** End output redirection. */
+  /** End output redirection of the current thread. */
   public static void restoreOutputs() {
-    System.out.flush();
-    System.err.flush();
-    System.setOut(out);
-    System.setErr(err);
+    PrintStream stream = recording.get();
+    if (stream == null) return;
+    stream.flush();
+    recording.remove();
+    synchronized (LFTest.class) {
+      recordings.remove(stream);
+      soleRecording = recordings.size() == 1 ? recordings.get(0) : null;
+      if (recordings.isEmpty()) {
+        System.setOut(out);
+        System.setErr(err);
+      }
+    }
+  }
+
+  /**
+   * An output stream that forwards to the recording of the current thread, or to the sole
+   * recording, if any.
+   */
+  private static class RecordingStream extends OutputStream {
+
+    /** The stream to forward to if the current thread is not recorded. */
+    private final PrintStream fallback;
+
+    RecordingStream(PrintStream fallback) {
+      this.fallback = fallback;
+    }
+
+    private PrintStream target() {
+      PrintStream stream = recording.get();
+      if (stream == null) stream = soleRecording;
+      return stream != null ? stream : fallback;
+    }
+
+    @Override
+    public void write(int b) {
+      target().write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      target().write(b, off, len);
+    }
+
+    @Override
+    public void flush() {
+      target().flush();
+    }
   }
 
   /**
@@ -20,6 +20,11 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Predicate;
@@ -28,6 +33,7 @@ import org.eclipse.emf.ecore.resource.Resource.Diagnostic;
 import org.eclipse.emf.ecore.resource.ResourceSet;
 import org.eclipse.xtext.diagnostics.Severity;
 import org.eclipse.xtext.generator.JavaIoFileSystemAccess;
+import org.eclipse.xtext.resource.IResourceFactory;
 import org.eclipse.xtext.util.CancelIndicator;
 import org.eclipse.xtext.util.RuntimeIOException;
 import org.eclipse.xtext.validation.CheckMode;
@@ -35,6 +41,7 @@ import org.eclipse.xtext.validation.IResourceValidator;
 import org.lflang.DefaultMessageReporter;
 import org.lflang.FileConfig;
 import org.lflang.LFStandaloneSetup;
+import org.lflang.ast.ASTUtils;
 import org.lflang.generator.GeneratorArguments;
 import org.lflang.generator.GeneratorResult;
 import org.lflang.generator.LFGenerator;
@@ -61,16 +68,22 @@ import org.lflang.util.LFCommand;
  */
 public abstract class TestBase extends LfInjectedTestBase {
 
-  @Inject IResourceValidator validator;
-  @Inject LFGenerator generator;
-  @Inject JavaIoFileSystemAccess fileAccess;
-  @Inject Provider<ResourceSet> resourceSetProvider;
+  @Inject TestServices services;
 
   @Inject TestRegistry testRegistry;
 
   /** Execution timeout enforced for all tests. */
   private static final long MAX_EXECUTION_TIME_SECONDS = 300;
 
+  /**
+   * The number of tests to build and run in parallel, which is given by the system property
+   * "testJobs".
+   */
+  private static final int JOBS = Math.max(1, Integer.getInteger("testJobs", 1));
+
+  /** Lock that prevents federated programs, which use network ports, from running in parallel. */
+  private static final Object FEDERATED_EXECUTION_LOCK = new Object();
+
   /** Content separator used in test output, 78 characters wide. */
   public static final String THIN_LINE =
       "------------------------------------------------------------------------------"
@@ -185,7 +198,8 @@ public abstract class TestBase extends LfInjectedTestBase {
       System.out.println(category.getHeader());
       var tests = testRegistry.getRegisteredTests(target, category, copy);
       try {
-        validateAndRun(tests, transformer, configurator, level);
+        validateAndRun(
+            tests, transformer, configurator, level, category.isParallelizable() ? JOBS : 1);
       } catch (IOException e) {
         throw new RuntimeIOException(e);
       }
@@ -300,7 +314,7 @@ public abstract class TestBase extends LfInjectedTestBase {
 
     Set<LFTest> tests = Set.of(test);
     try {
-      runner.validateAndRun(tests, Transformers::noChanges, Configurators::noChanges, level);
+      runner.validateAndRun(tests, Transformers::noChanges, Configurators::noChanges, level, 1);
     } catch (IOException e) {
       throw new RuntimeIOException(e);
     }
@@ -361,10 +375,11 @@ public abstract class TestBase extends LfInjectedTestBase {
    * @param transformer The transformer to apply to the test.
    * @param configurator The configurator to apply to the test.
    */
-  private void prepare(LFTest test, Transformer transformer, Configurator configurator)
+  private void prepare(
+      LFTest test, Transformer transformer, Configurator configurator, TestServices services)
       throws TestError {
 
-    var resource = FileConfig.getResource(test.getSrcPath().toFile(), resourceSetProvider);
+    var resource = FileConfig.getResource(test.getSrcPath().toFile(), services::newResourceSet);
 
     if (resource.getErrors().size() > 0) {
       String message =
@@ -374,7 +389,7 @@ public abstract class TestBase extends LfInjectedTestBase {
       throw new TestError(message, Result.PARSE_FAIL);
     }
 
-    fileAccess.setOutputPath(
+    services.fileAccess.setOutputPath(
         FileConfig.findPackageRoot(test.getSrcPath(), s -> {})
             .resolve(FileConfig.DEFAULT_SRC_GEN_DIR)
             .toString());
@@ -392,7 +407,7 @@ public abstract class TestBase extends LfInjectedTestBase {
             (m, p) -> {},
             getGeneratorArguments(),
             resource,
-            fileAccess,
+            services.fileAccess,
             fileConfig -> new DefaultMessageReporter());
 
     // Reload the context because properties may have changed as part of the transformation.
@@ -439,16 +454,17 @@ public abstract class TestBase extends LfInjectedTestBase {
         false,
         false,
         null,
+        null,
         List.of());
   }
 
   /** Validate the given test. Throw an TestError if validation failed. */
-  private void validate(LFTest test) throws TestError {
+  private void validate(LFTest test, TestServices services) throws TestError {
     // Validate the resource and store issues in the test object.
     try {
       var context = test.getContext();
       var issues =
-          validator.validate(
+          services.validator.validate(
               context.getFileConfig().resource, CheckMode.ALL, context.getCancelIndicator());
       if (issues != null && !issues.isEmpty()) {
         if (issues.stream().anyMatch(it -> it.getSeverity() == Severity.ERROR)) {
@@ -479,16 +495,17 @@ public abstract class TestBase extends LfInjectedTestBase {
    *
    * @param test The test to generate code for.
    */
-  private void generateCode(LFTest test) throws TestError {
+  private void generateCode(LFTest test, TestServices services) throws TestError {
     if (test.getFileConfig().resource == null) {
       test.getContext().finish(GeneratorResult.NOTHING);
     }
     try {
-      generator.doGenerate(test.getFileConfig().resource, fileAccess, test.getContext());
+      services.generator.doGenerate(
+          test.getFileConfig().resource, services.fileAccess, test.getContext());
     } catch (Throwable e) {
       throw new TestError("Code generation unsuccessful.", Result.CODE_GEN_FAIL, e);
     }
-    if (generator.errorsOccurred()) {
+    if (services.generator.errorsOccurred()) {
       throw new TestError("Code generation unsuccessful.", Result.CODE_GEN_FAIL);
     }
   }
@@ -582,16 +599,22 @@ public abstract class TestBase extends LfInjectedTestBase {
    * Validate and run the given tests, using the specified configuratator and level.
    *
    * <p>While performing tests, this method prints a header that reaches completion once all tests
-   * have been run.
+   * have been run. If more than one job is requested, the tests are built and run in parallel, each
+   * with services of its own, but their progress and timings are still reported in order.
    *
    * @param tests A set of tests to run.
    * @param transformer A procedure for transforming the tests.
    * @param configurator A procedure for configuring the tests.
    * @param level The level of testing.
+   * @param jobs The number of tests to build and run in parallel.
    * @throws IOException If initial file configuration fails
    */
   private void validateAndRun(
-      Set<LFTest> tests, Transformer transformer, Configurator configurator, TestLevel level)
+      Set<LFTest> tests,
+      Transformer transformer,
+      Configurator configurator,
+      TestLevel level,
+      int jobs)
       throws IOException {
     var done = 1;
 
@@ -600,38 +623,67 @@ public abstract class TestBase extends LfInjectedTestBase {
     class Timing {
       final String name;
       final long nanos;
+      final long executionNanos;
 
-      Timing(String name, long nanos) {
+      Timing(String name, long nanos, long executionNanos) {
         this.name = name;
         this.nanos = nanos;
+        this.executionNanos = executionNanos;
       }
     }
     var timings = new ArrayList<Timing>();
 
-    for (var test : tests) {
-      System.out.println(
-          "Running: " + test.toString() + " (" + (int) (done / (float) tests.size() * 100) + "%)");
-      try {
-        test.redirectOutputs();
-        prepare(test, transformer, configurator);
-        validate(test);
-        generateCode(test);
-        if (level == TestLevel.EXECUTION) {
-          long tStart = System.nanoTime();
-          execute(test);
-          long elapsed = System.nanoTime() - tStart;
-          timings.add(new Timing(test.toString(), elapsed));
-        }
-        test.markPassed();
-      } catch (TestError e) {
-        test.handleTestError(e);
-      } catch (Throwable e) {
-        test.handleTestError(
-            new TestError("Unknown exception during test execution", Result.TEST_EXCEPTION, e));
-      } finally {
-        LFTest.restoreOutputs();
+    ExecutorService executor = null;
+    var runs = new ArrayList<Future<Long>>();
+    if (jobs > 1 && tests.size() > 1) {
+      // Every job gets services of its own. Their injectors are created one after another because
+      // the creation of an injector registers it globally.
+      var idleServices = new LinkedBlockingQueue<TestServices>();
+      idleServices.add(services);
+      for (int i = 1; i < Math.min(jobs, tests.size()); i++) {
+        idleServices.add(
+            new LFInjectorProvider().internalCreateInjector().getInstance(TestServices.class));
+      }
+      executor = Executors.newFixedThreadPool(idleServices.size());
+      for (var test : tests) {
+        runs.add(
+            executor.submit(
+                () -> {
+                  var jobServices = idleServices.take();
+                  try {
+                    return run(test, transformer, configurator, level, jobServices);
+                  } finally {
+                    idleServices.add(jobServices);
+                  }
+                }));
+      }
+    }
+
+    try {
+      var iterator = runs.iterator();
+      for (var test : tests) {
+        System.out.println(
+            "Running: "
+                + test.toString()
+                + " ("
+                + (int) (done / (float) tests.size() * 100)
+                + "%)");
+        long nanos =
+            executor == null
+                ? run(test, transformer, configurator, level, services)
+                : iterator.next().get();
+        timings.add(new Timing(test.toString(), nanos, test.getExecutionTimeNanoseconds()));
+        done++;
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    } catch (ExecutionException e) {
+      throw new RuntimeException(e.getCause());
+    } finally {
+      if (executor != null) {
+        executor.shutdownNow();
       }
-      done++;
     }
 
     if (!timings.isEmpty()) {
@@ -640,10 +692,73 @@ public abstract class TestBase extends LfInjectedTestBase {
       timings.stream()
           .sorted((a, b) -> Long.compare(b.nanos, a.nanos))
           .limit(10)
-          .forEach(t -> System.out.printf(" - %s: %.2f seconds%n", t.name, t.nanos / 1.0e9));
+          .forEach(
+              t ->
+                  System.out.printf(
+                      " - %s: %.2f seconds (%.2f seconds of execution)%n",
+                      t.name, t.nanos / 1.0e9, t.executionNanos / 1.0e9));
       System.out.print(THIN_LINE);
     }
 
     System.out.print(System.lineSeparator());
   }
+
+  /**
+   * Build the given test with the given services and, depending on the level, run it. Record the
+   * outcome in the test.
+   *
+   * @return The wall time spent on the test in nanoseconds.
+   */
+  private long run(
+      LFTest test,
+      Transformer transformer,
+      Configurator configurator,
+      TestLevel level,
+      TestServices services) {
+    long tStart = System.nanoTime();
+    try {
+      test.redirectOutputs();
+      prepare(test, transformer, configurator, services);
+      validate(test, services);
+      generateCode(test, services);
+      if (level == TestLevel.EXECUTION) {
+        if (ASTUtils.getFederatedReactor(test.getFileConfig().resource).isPresent()) {
+          synchronized (FEDERATED_EXECUTION_LOCK) {
+            execute(test);
+          }
+        } else {
+          execute(test);
+        }
+      }
+      test.markPassed();
+    } catch (TestError e) {
+      test.handleTestError(e);
+    } catch (Throwable e) {
+      test.handleTestError(
+          new TestError("Unknown exception during test execution", Result.TEST_EXCEPTION, e));
+    } finally {
+      LFTest.restoreOutputs();
+    }
+    return System.nanoTime() - tStart;
+  }
+
+  /**
+   * The services that tests are built with. Tests that are built in parallel each use services of
+   * their own, which are created by an injector of their own.
+   */
+  static class TestServices {
+    @Inject IResourceValidator validator;
+    @Inject LFGenerator generator;
+    @Inject JavaIoFileSystemAccess fileAccess;
+    @Inject Provider<ResourceSet> resourceSetProvider;
+    @Inject IResourceFactory resourceFactory;
+
+    /** Return a new resource set that creates LF resources with these services. */
+    ResourceSet newResourceSet() {
+      var resourceSet = resourceSetProvider.get();
+      var factories = resourceSet.getResourceFactoryRegistry().getExtensionToFactoryMap();
+      factories.put("lf", resourceFactory);
+      return resourceSet;
+    }
+  }
 }
@@ -363,6 +363,26 @@ public class TestRegistry {
       return path;
     }
 
+    /**
+     * Return whether the tests in this category can be built and run in parallel with each other.
+     * Docker tests share images and networks, and the tests for embedded platforms share their
+     * toolchains and boards.
+     */
+    public boolean isParallelizable() {
+      return switch (this) {
+        case DOCKER,
+            DOCKER_FEDERATED,
+            ARDUINO,
+            ZEPHYR_THREADED,
+            ZEPHYR_UNTHREADED,
+            ZEPHYR_BOARDS,
+            FLEXPRET,
+            PATMOS ->
+            false;
+        default -> true;
+      };
+    }
+
     /**
      * Return a header associated with the category.
      *
@@ -3,26 +3,22 @@ package org.lflang.diagram.lsp;
 import com.google.inject.Inject;
 import com.google.inject.Injector;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
-import java.util.stream.Stream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import org.eclipse.emf.common.util.URI;
-import org.eclipse.emf.ecore.resource.Resource;
 import org.eclipse.lsp4j.jsonrpc.services.JsonNotification;
 import org.eclipse.lsp4j.jsonrpc.services.JsonRequest;
 import org.eclipse.lsp4j.services.LanguageClient;
 import org.eclipse.xtext.ide.server.ILanguageServerAccess;
 import org.eclipse.xtext.ide.server.ILanguageServerExtension;
-import org.eclipse.xtext.nodemodel.INode;
-import org.eclipse.xtext.nodemodel.util.NodeModelUtils;
 import org.eclipse.xtext.resource.XtextResourceSet;
 import org.lflang.ast.ToSExpr;
 import org.lflang.generator.GeneratorResult;
 import org.lflang.generator.GeneratorResult.Status;
 import org.lflang.generator.IntegratedBuilder;
 import org.lflang.ide.LFIdeSetup;
-import org.lflang.lf.Model;
-import org.lflang.lf.Reactor;
-import org.lflang.lf.TargetDecl;
 import org.lflang.util.LFCommand;
 
 /**
@@ -37,9 +33,29 @@ class LFLanguageServerExtension implements ILanguageServerExtension {
   private static final IntegratedBuilder builder =
       new LFIdeSetup().createInjectorAndDoEMFRegistration().getInstance(IntegratedBuilder.class);
 
+  /**
+   * The maximum number of threads that serve requests for library reactors, which some clients
+   * issue for many files at once.
+   */
+  private static final int LIBRARY_THREADS =
+      Math.min(4, Runtime.getRuntime().availableProcessors());
+
+  /** The executor that serves requests for library reactors. */
+  private static final ExecutorService libraryExecutor =
+      Executors.newFixedThreadPool(
+          LIBRARY_THREADS,
+          runnable -> {
+            Thread thread = new Thread(runnable, "lf-library-index");
+            thread.setDaemon(true);
+            return thread;
+          });
+
   /** The access point for reading documents, communicating with the language client, etc. */
   private LFLanguageClient client;
 
+  /** The index of library reactors, which is created when it is first needed. */
+  private LibraryIndex libraryIndex;
+
   @Inject Injector injector;
 
   @Override
@@ -112,14 +128,27 @@ class LFLanguageServerExtension implements ILanguageServerExtension {
     return CompletableFuture.supplyAsync(
         () -> {
           try {
-            // LF program file parsing
-            URI uri = URI.createURI(filePath);
-            // Return a list of reactors within the file at the specific uri
-            return parseLibraryReactors(uri);
-          } catch (Exception e) {
+            return parseLibraryReactors(URI.createURI(filePath));
+          } catch (IllegalArgumentException e) {
             return null;
           }
-        });
+        },
+        libraryExecutor);
+  }
+
+  /**
+   * Manage requests to retrieve the reactor libraries of several files at once.
+   *
+   * @param filePaths the URIs of the LF files of interest
+   * @return A `CompletableFuture<List<LibraryFile>>` with the parsed reactor structure of each
+   *     file, in the given order, where files that cannot be parsed are represented by `null`.
+   */
+  @JsonRequest("generator/getLibraryReactorsBatch")
+  public CompletableFuture<List<LibraryFile>> getLibraryReactorsBatch(List<String> filePaths) {
+    List<CompletableFuture<LibraryFile>> futures =
+        filePaths.stream().map(this::getLibraryReactors).toList();
+    return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+        .thenApply(done -> futures.stream().map(CompletableFuture::join).toList());
   }
 
   /**
@@ -134,47 +163,33 @@ class LFLanguageServerExtension implements ILanguageServerExtension {
   public CompletableFuture<NodePosition> getTargetPosition(String path) {
     return CompletableFuture.supplyAsync(
         () -> {
-          NodePosition targetPosition;
           try {
-            URI uri = URI.createURI(path);
-            // LF program file parsing
-            Resource resource = getXtextResourceSet(uri).getResource(uri, true);
-            Model m = (Model) resource.getContents().get(0);
-            TargetDecl target = m.getTarget();
-            INode node = NodeModelUtils.getNode(target);
-            targetPosition = new NodePosition(node.getStartLine(), node.getEndLine());
-            return targetPosition;
-          } catch (Exception e) {
+            return getLibraryIndex().getTargetPosition(URI.createURI(path));
+          } catch (IllegalArgumentException e) {
             return null;
           }
-        });
+        },
+        libraryExecutor);
   }
 
   /**
    * Parse a library of reactors specified by the provided URI and construct a hierarchical
-   * libraryFile representation.
+   * libraryFile representation. Files that did not change since they were last parsed are not
+   * parsed again.
    *
    * @param uri The URI specifying the location of the library.
    * @return A `LibraryFile` object representing the hierarchical structure of the reactor
    *     library, or `null` if an error occurs during parsing.
    */
   public LibraryFile parseLibraryReactors(URI uri) {
-    LibraryFile res = new LibraryFile(uri.toString());
-    try {
-      Resource resource = getXtextResourceSet(uri).getResource(uri, true);
-      Model m = (Model) resource.getContents().get(0);
-      Stream<Reactor> reactors =
-          m.getReactors().stream().filter(r -> r.getName() != null && !r.getName().isEmpty());
-      reactors.forEach(
-          r -> {
-            INode node = NodeModelUtils.getNode(r);
-            NodePosition nodePosition = new NodePosition(node.getStartLine(), node.getEndLine());
-            res.getChildren().add(new ReactorNode(r.getName(), res.getUri(), nodePosition));
-          });
-    } catch (Exception e) {
-      return null;
+    return getLibraryIndex().getLibrary(uri);
+  }
+
+  private synchronized LibraryIndex getLibraryIndex() {
+    if (libraryIndex == null) {
+      libraryIndex = new LibraryIndex(() -> injector.getInstance(XtextResourceSet.class));
     }
-    return res;
+    return libraryIndex;
   }
 
   /**
@@ -0,0 +1,129 @@
+package org.lflang.diagram.lsp;
+
+import com.google.inject.Provider;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.xtext.nodemodel.INode;
+import org.eclipse.xtext.nodemodel.util.NodeModelUtils;
+import org.eclipse.xtext.resource.XtextResourceSet;
+import org.lflang.lf.Model;
+import org.lflang.lf.Reactor;
+import org.lflang.util.FileUtil;
+
+/**
+ * An index of the reactors declared in Lingua Franca files and of the positions of their target
+ * declarations, which serves the library view of the language client.
+ *
+ * <p>A file is only parsed again if it changed since it was last indexed. A file whose modification
+ * time and size are unchanged is assumed to be unchanged; otherwise, its content is digested and
+ * compared with the digest of the content that was indexed. Files that are not on the local file
+ * system are parsed on every request.
+ *
+ * @ingroup LSP
+ */
+class LibraryIndex {
+
+  /**
+   * The index of a file.
+   *
+   * @param lastModified The modification time of the file when it was indexed.
+   * @param size The size of the file when it was indexed.
+   * @param digest The digest of the content of the file when it was indexed.
+   * @param library The reactors declared in the file.
+   * @param targetPosition The position of the target declaration in the file.
+   */
+  private record Entry(
+      FileTime lastModified,
+      long size,
+      String digest,
+      LibraryFile library,
+      NodePosition targetPosition) {}
+
+  private final Map<URI, Entry> entries = new ConcurrentHashMap<>();
+
+  private final Provider<XtextResourceSet> resourceSetProvider;
+
+  /**
+   * Create an index.
+   *
+   * @param resourceSetProvider Provider of the resource sets in which files are parsed.
+   */
+  LibraryIndex(Provider<XtextResourceSet> resourceSetProvider) {
+    this.resourceSetProvider = resourceSetProvider;
+  }
+
+  /**
+   * Return the reactors declared in the file with the given URI, or null if the file cannot be
+   * parsed.
+   */
+  LibraryFile getLibrary(URI uri) {
+    Entry entry = getEntry(uri);
+    return entry == null ? null : entry.library();
+  }
+
+  /**
+   * Return the position of the target declaration in the file with the given URI, or null if the
+   * file cannot be parsed.
+   */
+  NodePosition getTargetPosition(URI uri) {
+    Entry entry = getEntry(uri);
+    return entry == null ? null : entry.targetPosition();
+  }
+
+  /** Return the index of the file with the given URI, or null if the file cannot be parsed. */
+  private Entry getEntry(URI uri) {
+    try {
+      if (!uri.isFile()) return parse(uri, null, 0, null);
+      Path path = Path.of(uri.toFileString());
+      BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+      Entry cached = entries.get(uri);
+      if (cached != null
+          && cached.lastModified().equals(attributes.lastModifiedTime())
+          && cached.size() == attributes.size()) {
+        return cached;
+      }
+      String digest = FileUtil.digest(path);
+      Entry entry =
+          cached != null && cached.digest().equals(digest)
+              ? new Entry(
+                  attributes.lastModifiedTime(),
+                  attributes.size(),
+                  digest,
+                  cached.library(),
+                  cached.targetPosition())
+              : parse(uri, attributes.lastModifiedTime(), attributes.size(), digest);
+      entries.put(uri, entry);
+      return entry;
+    } catch (IOException | RuntimeException e) {
+      entries.remove(uri);
+      return null;
+    }
+  }
+
+  /** Parse the file with the given URI in a new resource set and index it. */
+  private Entry parse(URI uri, FileTime lastModified, long size, String digest) {
+    Resource resource = resourceSetProvider.get().getResource(uri, true);
+    Model m = (Model) resource.getContents().get(0);
+    LibraryFile library = new LibraryFile(uri.toString());
+    for (Reactor r : m.getReactors()) {
+      if (r.getName() != null && !r.getName().isEmpty()) {
+        library.getChildren().add(new ReactorNode(r.getName(), library.getUri(), position(r)));
+      }
+    }
+    NodePosition targetPosition = m.getTarget() == null ? null : position(m.getTarget());
+    return new Entry(lastModified, size, digest, library, targetPosition);
+  }
+
+  private static NodePosition position(EObject object) {
+    INode node = NodeModelUtils.getNode(object);
+    return new NodePosition(node.getStartLine(), node.getEndLine());
+  }
+}